@@ -1,120 +1,93 @@
 package com.wty.foundation.account.http;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.Calendar;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
-import com.wty.foundation.account.AccountAuthority;
-import com.wty.foundation.common.init.ActivityLifecycleManager;
 import com.wty.foundation.common.utils.MD5;
-import com.wty.foundation.common.utils.StringUtils;
-
-import android.os.Handler;
-import android.os.Looper;
-import android.os.SystemClock;
-import android.util.Log;
+import com.wty.foundation.core.http.Outbox;
+import com.wty.foundation.core.http.ResponseConverterFactory;
+import com.wty.foundation.core.http.TokenExpiredHandler;
 
 import androidx.annotation.NonNull;
 
+import io.reactivex.rxjava3.core.Completable;
 import okhttp3.Interceptor;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
-import okhttp3.ResponseBody;
-import okio.Buffer;
-import okio.BufferedSource;
-import okio.GzipSource;
 
 /**
  * @author wutianyu
  * @createTime 2023/11/2 16:44
- * @describe
+ * @describe token拦截器，识别token失效的响应并交给TokenRefresher刷新，请求携带已失效的token时替换为最新token；
+ *           离线队列重新发送的请求不带token，添加当前token；
+ *           添加到Config拦截器后，RetrofitManager会在刷新完成后重新发起通过接口方法发出的请求；
+ *           拦截器不等待刷新，其他请求只触发刷新，把token失效的响应直接返回
  */
-public class TokenInterceptor implements Interceptor {
-    private static final String TAG = "TokenInterceptor";
-    private final Handler mHandler = new Handler(Looper.getMainLooper());
-    private final OkHttpClient mClient;
-
-    public TokenInterceptor() {
-        mClient = new OkHttpClient.Builder().build();
-    }
+public class TokenInterceptor implements Interceptor, TokenExpiredHandler {
+    private static final int CODE_TOKEN_EXPIRED = com.wty.foundation.core.http.Response.CODE_TOKEN_EXPIRED;
+    private final TokenRefresher mRefresher = TokenRefresher.getInstance();
 
     @NonNull
     @Override
     public Response intercept(@NonNull Chain chain) throws IOException {
-        Response response = chain.proceed(chain.request());
-        if (response.isSuccessful() && ActivityLifecycleManager.getInstance().isForeground()) {
-            ResponseBody body = response.body();
-            if (body != null) {
-                BufferedSource source = body.source();
-                source.request(Long.MAX_VALUE);
-                Buffer buffer = source.getBuffer();
-                if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
-                    GzipSource gzipSource = new GzipSource(buffer.clone());
-                    buffer = new Buffer();
-                    buffer.writeAll(gzipSource);
-                }
-
-                MediaType contentType = body.contentType();
-                Charset charset;
-                if (contentType == null) {
-                    charset = Charset.forName("UTF-8");
-                } else {
-                    Charset temp = contentType.charset(Charset.forName("UTF-8"));
-                    if (temp == null) {
-                        charset = Charset.forName("UTF-8");
-                    } else {
-                        charset = temp;
-                    }
-                }
-                String bodyStr = buffer.clone().readString(charset);
-                if (bodyStr.contains("\"rtnCode\":-2,")) {
-                    String id = String.valueOf(SystemClock.elapsedRealtime());
-                    Log.i(TAG, "GetNewToken:" + id);
-                    final ConcurrentHashMap<String, String> token = new ConcurrentHashMap<>();
-                    token.put("token", chain.request().header("token"));
-                    CountDownLatch latch = new CountDownLatch(1);
-                    mHandler.post(() -> {
-                        AccountAuthority.getInstance().startAccountActivity(result -> {
-                            if (!StringUtils.isNullEmpty(result)) {
-                                token.put("token", result);
-                            }
-                            Log.i(TAG, "GetNewToken result:" + id);
-                            latch.countDown();
-                        });
-                    });
-                    try {
-                        latch.await(60, TimeUnit.SECONDS);
-                        Log.i(TAG, "GetNewToken End:" + id);
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "latch.await: " + id, e);
-                    }
-                    Request.Builder builder = chain.request().newBuilder();
-                    String tokenStr = token.get("token");
-                    String SecretKey = chain.request().header("SecretKey");
-                    builder.removeHeader("token");
-                    builder.removeHeader("dateTime");
-                    builder.removeHeader("tokenEncrypt");
-                    Calendar calendar = Calendar.getInstance();
-                    String dateTime = String.valueOf(calendar.getTimeInMillis());
-                    builder.addHeader("dateTime", dateTime);
-                    builder.addHeader("tokenEncrypt", getTokenEncrypt(tokenStr, SecretKey, dateTime));
-                    builder.addHeader("token", tokenStr);
-                    Response temp = mClient.newCall(builder.build()).execute();
-
-                    response =
-                        response.newBuilder().body(temp.body()).message(temp.message()).code(temp.code()).build();
-                    return response;
-                }
-            }
+        Request request = chain.request();
+        String token = request.header("token");
+        String freshToken;
+        if (token == null && Outbox.isReplay(request)) {
+            freshToken = mRefresher.getCurrentToken();
+        } else {
+            freshToken = mRefresher.getFreshToken(token);
+        }
+        if (freshToken != null) {
+            request = replaceToken(request, freshToken);
+            token = freshToken;
+        } else {
+            mRefresher.observe(token);
+        }
+        Response response = chain.proceed(request);
+        if (token == null || !response.isSuccessful() || !isTokenExpired(response)) {
+            return response;
+        }
+        // 请求发出后token已被其他请求刷新，直接使用新token重试
+        freshToken = mRefresher.getFreshToken(token);
+        if (freshToken != null) {
+            response.close();
+            return chain.proceed(replaceToken(request, freshToken));
+        }
+        mRefresher.markStale(token);
+        if (!Outbox.isReplay(request) && !TokenExpiredHandler.isRetriedAfterRefresh(request)) {
+            // 没有适配器重试的请求只触发刷新，后续请求使用新token
+            mRefresher.onTokenExpired();
         }
         return response;
     }
 
+    @Override
+    public Completable onTokenExpired() {
+        return mRefresher.onTokenExpired();
+    }
+
+    /**
+     * 只预读响应体开头的rtnCode，不把整个响应体读入内存
+     */
+    private static boolean isTokenExpired(Response response) {
+        return ResponseConverterFactory.peekCode(response) == CODE_TOKEN_EXPIRED;
+    }
+
+    private static Request replaceToken(Request request, String tokenStr) {
+        Request.Builder builder = request.newBuilder();
+        String SecretKey = request.header("SecretKey");
+        builder.removeHeader("token");
+        builder.removeHeader("dateTime");
+        builder.removeHeader("tokenEncrypt");
+        Calendar calendar = Calendar.getInstance();
+        String dateTime = String.valueOf(calendar.getTimeInMillis());
+        builder.addHeader("dateTime", dateTime);
+        builder.addHeader("tokenEncrypt", getTokenEncrypt(tokenStr, SecretKey, dateTime));
+        builder.addHeader("token", tokenStr);
+        return builder.build();
+    }
+
     private static String getTokenEncrypt(String token, String key, String date) {
         String result = "";
         try {
@@ -0,0 +1,211 @@
+package com.wty.foundation.account.http;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.wty.foundation.account.AccountAuthority;
+import com.wty.foundation.common.init.ActivityLifecycleManager;
+import com.wty.foundation.common.utils.StringUtils;
+import com.wty.foundation.core.http.TokenExpiredHandler;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.CompletableSubject;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/13 16:05
+ * @describe token刷新协调器，同一时间只进行一次刷新，失效的请求订阅同一个刷新结果而不阻塞线程
+ */
+public class TokenRefresher implements TokenExpiredHandler {
+    private static final String TAG = "TokenRefresher";
+    // 刷新超时时间，超时后按刷新失败处理
+    private static final long REFRESH_TIMEOUT_SECONDS = 60;
+    // 保留的失效token数，更早的token对应的请求已全部结束
+    private static final int MAX_STALE_TOKENS = 8;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Object mLock = new Object();
+    // 正在进行的刷新，没有刷新时为null
+    private CompletableSubject mInFlight;
+    // 最近失效的token，请求中携带这些token时替换为最新token；超过数量时移除最早加入的
+    private final Set<String> mStaleTokens = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_STALE_TOKENS;
+        }
+    }));
+    private volatile String mLatestToken;
+
+    private final AtomicLong mRefreshCount = new AtomicLong();
+    private final AtomicLong mTotalLatencyMs = new AtomicLong();
+    private final AtomicLong mMaxLatencyMs = new AtomicLong();
+    private volatile long mLastLatencyMs;
+    private final AtomicInteger mQueued = new AtomicInteger();
+    private final AtomicInteger mMaxQueued = new AtomicInteger();
+
+    private static class Instance {
+        private static final TokenRefresher INSTANCE = new TokenRefresher();
+    }
+
+    public static TokenRefresher getInstance() {
+        return Instance.INSTANCE;
+    }
+
+    private TokenRefresher() {
+    }
+
+    @Override
+    public Completable onTokenExpired() {
+        // 后台时不弹出登录页面
+        if (!ActivityLifecycleManager.getInstance().isForeground()) {
+            return null;
+        }
+        CompletableSubject subject;
+        synchronized (mLock) {
+            if (mInFlight == null) {
+                mInFlight = startRefresh();
+            }
+            subject = mInFlight;
+        }
+        return subject.doOnSubscribe(d -> {
+            int queued = mQueued.incrementAndGet();
+            mMaxQueued.accumulateAndGet(queued, Math::max);
+        }).doFinally(mQueued::decrementAndGet);
+    }
+
+    private CompletableSubject startRefresh() {
+        CompletableSubject subject = CompletableSubject.create();
+        long start = SystemClock.elapsedRealtime();
+        String id = String.valueOf(start);
+        Log.i(TAG, "GetNewToken:" + id);
+        mHandler.post(() -> AccountAuthority.getInstance().startAccountActivity(result -> {
+            Log.i(TAG, "GetNewToken result:" + id);
+            finish(subject, result, start);
+        }));
+        Schedulers.computation().scheduleDirect(() -> {
+            if (!subject.hasComplete()) {
+                Log.w(TAG, "GetNewToken timeout:" + id);
+            }
+            finish(subject, null, start);
+        }, REFRESH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return subject;
+    }
+
+    private void finish(CompletableSubject subject, String token, long start) {
+        synchronized (mLock) {
+            if (mInFlight != subject) {
+                return;
+            }
+            mInFlight = null;
+            if (!StringUtils.isNullEmpty(token)) {
+                mLatestToken = token;
+                mStaleTokens.remove(token);
+            }
+        }
+        long latency = SystemClock.elapsedRealtime() - start;
+        mLastLatencyMs = latency;
+        mRefreshCount.incrementAndGet();
+        mTotalLatencyMs.addAndGet(latency);
+        mMaxLatencyMs.accumulateAndGet(latency, Math::max);
+        subject.onComplete();
+    }
+
+    /**
+     * 标记token已失效
+     *
+     * @param token 接口返回失效时请求携带的token
+     */
+    void markStale(String token) {
+        if (!StringUtils.isNullEmpty(token)) {
+            mStaleTokens.add(token);
+        }
+    }
+
+    /**
+     * 记录请求携带的未失效token，作为离线队列重新发送时使用的当前token
+     *
+     * @param token 请求携带的token
+     */
+    void observe(String token) {
+        if (!StringUtils.isNullEmpty(token) && !mStaleTokens.contains(token)) {
+            mLatestToken = token;
+        }
+    }
+
+    /**
+     * 获取当前token
+     *
+     * @return 最近一次刷新得到或请求中携带的未失效token，没有时返回null
+     */
+    String getCurrentToken() {
+        return mLatestToken;
+    }
+
+    /**
+     * 获取替换失效token的最新token
+     *
+     * @param token 请求携带的token
+     * @return 最新token，token未失效或还没有刷新结果时返回null
+     */
+    String getFreshToken(String token) {
+        String latest = mLatestToken;
+        if (token == null || latest == null || latest.equals(token) || !mStaleTokens.contains(token)) {
+            return null;
+        }
+        return latest;
+    }
+
+    /**
+     * 获取刷新次数
+     */
+    public long getRefreshCount() {
+        return mRefreshCount.get();
+    }
+
+    /**
+     * 获取最近一次刷新耗时（毫秒）
+     */
+    public long getLastRefreshLatencyMs() {
+        return mLastLatencyMs;
+    }
+
+    /**
+     * 获取平均刷新耗时（毫秒）
+     */
+    public long getAverageRefreshLatencyMs() {
+        long count = mRefreshCount.get();
+        return count == 0 ? 0 : mTotalLatencyMs.get() / count;
+    }
+
+    /**
+     * 获取最大刷新耗时（毫秒）
+     */
+    public long getMaxRefreshLatencyMs() {
+        return mMaxLatencyMs.get();
+    }
+
+    /**
+     * 获取当前等待刷新结果的请求数
+     */
+    public int getQueuedCount() {
+        return mQueued.get();
+    }
+
+    /**
+     * 获取同时等待刷新结果的最大请求数
+     */
+    public int getMaxQueuedCount() {
+        return mMaxQueued.get();
+    }
+}
@@ -0,0 +1,267 @@
+package com.wty.foundation.common.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑二进制编码器
+ * 对象先由Gson转换为JsonElement树（与Gson编码器的字段规则一致），再编码为带类型标记的二进制：
+ * 整数使用ZigZag变长编码，浮点数8字节，字符串带变长长度前缀，对象字段名首次出现时写入、之后只写序号，
+ * 列表中的实体类不会重复写字段名。适合数字多、列表长的数据
+ */
+public class BinaryCacheCodec implements CacheCodec {
+    private static final int TAG_NULL = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_ARRAY = 6;
+    private static final int TAG_OBJECT = 7;
+    // 无法用long或double无损表示的数字（BigDecimal等），按字符串保存
+    private static final int TAG_NUMBER = 8;
+
+    private final Gson gson;
+
+    public BinaryCacheCodec(Gson gson) {
+        if (gson == null) {
+            throw new IllegalArgumentException("Gson is null");
+        }
+        this.gson = gson;
+    }
+
+    @Override
+    public int getId() {
+        return ID_BINARY;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        Writer writer = new Writer();
+        writer.write(gson.toJsonTree(value));
+        return writer.out.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Type type) throws IOException {
+        Reader reader = new Reader(data, offset, offset + length);
+        JsonElement element = reader.read();
+        try {
+            return gson.fromJson(element, type);
+        } catch (JsonParseException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 编码JsonElement树
+     */
+    private static final class Writer {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        // 已写入的字段名及其序号
+        final Map<String, Integer> names = new HashMap<>();
+
+        void write(JsonElement element) {
+            if (element == null || element.isJsonNull()) {
+                out.write(TAG_NULL);
+            } else if (element.isJsonObject()) {
+                JsonObject object = element.getAsJsonObject();
+                out.write(TAG_OBJECT);
+                writeVarLong(object.size());
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    writeName(entry.getKey());
+                    write(entry.getValue());
+                }
+            } else if (element.isJsonArray()) {
+                JsonArray array = element.getAsJsonArray();
+                out.write(TAG_ARRAY);
+                writeVarLong(array.size());
+                for (JsonElement item : array) {
+                    write(item);
+                }
+            } else {
+                writePrimitive(element.getAsJsonPrimitive());
+            }
+        }
+
+        private void writePrimitive(JsonPrimitive primitive) {
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TAG_TRUE : TAG_FALSE);
+            } else if (primitive.isNumber()) {
+                Number number = primitive.getAsNumber();
+                if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                    out.write(TAG_INT);
+                    long value = number.longValue();
+                    writeVarLong((value << 1) ^ (value >> 63));
+                } else if (number instanceof Double || number instanceof Float) {
+                    out.write(TAG_DOUBLE);
+                    long bits = Double.doubleToLongBits(number.doubleValue());
+                    for (int i = 7; i >= 0; i--) {
+                        out.write((int) (bits >>> (i * 8)));
+                    }
+                } else {
+                    out.write(TAG_NUMBER);
+                    writeString(number.toString());
+                }
+            } else {
+                out.write(TAG_STRING);
+                writeString(primitive.getAsString());
+            }
+        }
+
+        /**
+         * 字段名：0表示新字段名（随后写入字符串），n表示第n-1个已写入的字段名
+         */
+        private void writeName(String name) {
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarLong(index + 1);
+            } else {
+                names.put(name, names.size());
+                writeVarLong(0);
+                writeString(name);
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    /**
+     * 解码为JsonElement树
+     */
+    private static final class Reader {
+        final byte[] data;
+        final int end;
+        int position;
+        final List<String> names = new ArrayList<>();
+
+        Reader(byte[] data, int offset, int end) {
+            this.data = data;
+            this.position = offset;
+            this.end = end;
+        }
+
+        JsonElement read() throws IOException {
+            int tag = readByte();
+            switch (tag) {
+                case TAG_NULL:
+                    return JsonNull.INSTANCE;
+                case TAG_TRUE:
+                    return new JsonPrimitive(true);
+                case TAG_FALSE:
+                    return new JsonPrimitive(false);
+                case TAG_INT:
+                    long zigzag = readVarLong();
+                    return new JsonPrimitive((zigzag >>> 1) ^ -(zigzag & 1));
+                case TAG_DOUBLE:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | readByte();
+                    }
+                    return new JsonPrimitive(Double.longBitsToDouble(bits));
+                case TAG_STRING:
+                    return new JsonPrimitive(readString());
+                case TAG_NUMBER:
+                    return new JsonPrimitive(new LazilyParsedNumber(readString()));
+                case TAG_ARRAY:
+                    int count = readCount();
+                    JsonArray array = new JsonArray(count);
+                    for (int i = 0; i < count; i++) {
+                        array.add(read());
+                    }
+                    return array;
+                case TAG_OBJECT:
+                    int size = readCount();
+                    JsonObject object = new JsonObject();
+                    for (int i = 0; i < size; i++) {
+                        String name = readName();
+                        object.add(name, read());
+                    }
+                    return object;
+                default:
+                    throw new IOException("Unknown tag: " + tag);
+            }
+        }
+
+        private String readName() throws IOException {
+            long index = readVarLong();
+            if (index == 0) {
+                String name = readString();
+                names.add(name);
+                return name;
+            }
+            if (index < 0 || index > names.size()) {
+                throw new IOException("Invalid name index: " + index);
+            }
+            return names.get((int) index - 1);
+        }
+
+        private String readString() throws IOException {
+            int length = readCount();
+            if (length > end - position) {
+                throw new EOFException();
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        /**
+         * 读取长度或元素个数，每个元素至少占1字节，超过剩余字节数说明数据损坏
+         */
+        private int readCount() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > end - position) {
+                throw new IOException("Invalid length: " + value);
+            }
+            return (int) value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private int readByte() throws IOException {
+            if (position >= end) {
+                throw new EOFException();
+            }
+            return data[position++] & 0xFF;
+        }
+    }
+}
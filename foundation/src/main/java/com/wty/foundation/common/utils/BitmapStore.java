@@ -0,0 +1,399 @@
+package com.wty.foundation.common.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * SPUtils的图片存储
+ * 编码在固定大小的线程池中执行，同一个key的写入按提交顺序串行；
+ * 解码时按目标尺寸计算inSampleSize，内存中按字节数限制的强引用LRU保存解码结果（key + 采样率）；
+ * 同一张图片可能返回给多个调用方，每次返回都记录引用计数，调用方通过release归还不再显示的图片；
+ * 引用计数归零且已不在内存LRU中的图片才放入复用池，供后续解码通过inBitmap复用；LRU淘汰仍有引用的图片只释放强引用，不复用也不回收；
+ * 不再引用的文件先加入待删除队列，延迟后批量删除
+ */
+final class BitmapStore {
+    private static final String TAG = "BitmapStore";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // 编码线程数
+    private static final int ENCODE_THREADS = 2;
+    // 待删除文件的批量处理延迟
+    private static final long DELETE_DELAY_MS = 2000;
+    // 全量清理时跳过最近修改的文件，避免删除正在写入或刚写入还未记录的文件
+    private static final long SWEEP_MIN_AGE_MS = 60 * 1000;
+
+    private final File dir;
+    private final CacheTaskEngine engine = new CacheTaskEngine(ENCODE_THREADS, "BitmapStore");
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Entry> reusePool = new ArrayList<>();
+    private final ConcurrentLinkedQueue<String> pendingDeletes = new ConcurrentLinkedQueue<>();
+    // 文件路径对应的原始宽高，文件写入后不再修改，缓存后命中内存时不需要再读文件头
+    private final HashMap<String, int[]> bounds = new HashMap<>();
+    // 已返回给调用方且尚未归还的次数，Bitmap未重写equals，按实例区分；弱引用，调用方不归还时不影响回收
+    private final WeakHashMap<Bitmap, int[]> handouts = new WeakHashMap<>();
+    private final long maxMemoryBytes;
+    private final long maxPoolBytes;
+    private long memoryBytes;
+    private long poolBytes;
+    private ScheduledFuture<?> deleteTask;
+
+    /**
+     * 图片及放入时的大小，图片被外部回收后仍能正确扣减
+     */
+    private static final class Entry {
+        final Bitmap bitmap;
+        final long size;
+
+        Entry(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            this.size = bitmap.getAllocationByteCount();
+        }
+    }
+
+    /**
+     * @param dir            图片目录
+     * @param maxMemoryBytes 内存LRU的最大字节数
+     * @param maxPoolBytes   复用池的最大字节数
+     */
+    BitmapStore(File dir, long maxMemoryBytes, long maxPoolBytes) {
+        this.dir = dir;
+        this.maxMemoryBytes = Math.max(0, maxMemoryBytes);
+        this.maxPoolBytes = Math.max(0, maxPoolBytes);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "创建图片目录失败: " + dir.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 在编码线程中执行任务，同一个key按提交顺序串行
+     */
+    <T> Future<T> submit(String key, Callable<T> task) {
+        return engine.submit(key, task, 0, null);
+    }
+
+    /**
+     * 把图片压缩写入新文件，先写临时文件再重命名
+     *
+     * @return 新文件路径，失败时返回null
+     */
+    String encode(Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        File file = new File(dir, UUID.randomUUID() + "." + format.name().toLowerCase());
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        boolean success = false;
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            success = !bitmap.isRecycled() && bitmap.compress(format, Math.max(0, Math.min(quality, 100)), out);
+            if (success) {
+                out.getFD().sync();
+            }
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "图片编码失败: " + e.getMessage(), e);
+            success = false;
+        }
+        if (success && temp.renameTo(file)) {
+            return file.getAbsolutePath();
+        }
+        if (temp.exists() && !temp.delete()) {
+            Log.w(TAG, "删除临时文件失败: " + temp.getAbsolutePath());
+        }
+        return null;
+    }
+
+    /**
+     * 按目标尺寸解码，目标尺寸为0时按原尺寸解码
+     *
+     * @param key       缓存键
+     * @param path      图片文件路径
+     * @param reqWidth  目标宽度
+     * @param reqHeight 目标高度
+     * @return 解码结果，文件无效时返回null
+     */
+    Bitmap decode(String key, String path, int reqWidth, int reqHeight) {
+        int[] size = getBounds(path);
+        if (size == null) {
+            return null;
+        }
+        int sampleSize = calculateInSampleSize(size[0], size[1], reqWidth, reqHeight);
+        String memoryKey = key + "#" + sampleSize;
+        Bitmap cached = getMemory(memoryKey);
+        if (cached != null) {
+            return handOut(cached);
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        // 按ARGB_8888估算解码后的大小，从复用池中取可用的图片
+        long needed = (long) ((size[0] + sampleSize - 1) / sampleSize) * ((size[1] + sampleSize - 1) / sampleSize) * 4;
+        Bitmap reusable = takeReusable(needed);
+        options.inBitmap = reusable;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            // 复用的图片不满足要求，不复用重新解码
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(path, options);
+        }
+        if (reusable != null && bitmap != reusable) {
+            pool(reusable);
+        }
+        if (bitmap != null) {
+            putMemory(memoryKey, bitmap);
+            handOut(bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 获取内存中的原尺寸图片（刚写入或按原尺寸解码过）
+     */
+    Bitmap getOriginal(String key) {
+        return handOut(getMemory(key + "#1"));
+    }
+
+    /**
+     * 放入刚写入的原尺寸图片，使读取在编码完成前即可命中，并移除该key其他采样率的缓存
+     */
+    void cacheWritten(String key, Bitmap bitmap) {
+        removeMemory(key);
+        putMemory(key + "#1", bitmap);
+    }
+
+    /**
+     * 移除key所有采样率的内存缓存
+     */
+    synchronized void removeMemory(String key) {
+        String prefix = key + "#";
+        Iterator<Map.Entry<String, Entry>> iterator = memory.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                memoryBytes -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 清空内存缓存和复用池
+     */
+    synchronized void clearMemory() {
+        memory.clear();
+        memoryBytes = 0;
+        reusePool.clear();
+        poolBytes = 0;
+        bounds.clear();
+        // 已返回的图片可能仍在显示，保留引用计数
+    }
+
+    /**
+     * 归还不再显示的图片，每次从decode、getOriginal取得的图片各归还一次；
+     * 其他调用方仍持有或仍在内存缓存中时只减少引用计数，全部归还后放入复用池；复用池已满或图片不可变时丢弃
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null) return;
+        int[] count = handouts.get(bitmap);
+        if (count != null) {
+            if (--count[0] > 0) return;
+            handouts.remove(bitmap);
+        }
+        pool(bitmap);
+    }
+
+    /**
+     * 记录图片返回给调用方一次
+     */
+    private synchronized Bitmap handOut(Bitmap bitmap) {
+        if (bitmap == null) return null;
+        int[] count = handouts.get(bitmap);
+        if (count == null) {
+            handouts.put(bitmap, new int[]{1});
+        } else {
+            count[0]++;
+        }
+        return bitmap;
+    }
+
+    /**
+     * 放入复用池，图片已返回给调用方未归还或仍在内存缓存中时不放入
+     */
+    private synchronized void pool(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || handouts.containsKey(bitmap)) return;
+        // 仍在内存缓存中的图片可能被再次返回，不能复用
+        for (Entry entry : memory.values()) {
+            if (entry.bitmap == bitmap) return;
+        }
+        for (Entry entry : reusePool) {
+            if (entry.bitmap == bitmap) return;
+        }
+        Entry entry = new Entry(bitmap);
+        if (entry.size > maxPoolBytes) return;
+        while (poolBytes + entry.size > maxPoolBytes && !reusePool.isEmpty()) {
+            poolBytes -= reusePool.remove(0).size;
+        }
+        reusePool.add(entry);
+        poolBytes += entry.size;
+    }
+
+    /**
+     * 文件不再被引用，加入待删除队列，延迟后批量删除
+     */
+    void deleteLater(String path) {
+        if (path == null) return;
+        pendingDeletes.add(path);
+        synchronized (this) {
+            bounds.remove(path);
+            if (deleteTask == null) {
+                deleteTask = engine.schedule(this::flushDeletes, DELETE_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * 删除目录中不在livePaths中的文件（包括未完成写入的临时文件），最近修改的文件除外
+     *
+     * @param livePaths 仍被引用的文件路径
+     * @return 删除的文件数
+     */
+    int sweep(Collection<String> livePaths) {
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        Set<String> live = new HashSet<>(livePaths);
+        long cutoff = System.currentTimeMillis() - SWEEP_MIN_AGE_MS;
+        int deleted = 0;
+        for (File file : files) {
+            if (file.lastModified() > cutoff || live.contains(file.getAbsolutePath())) continue;
+            if (file.delete()) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            Log.i(TAG, "已清理" + deleted + "个无引用的图片文件");
+        }
+        return deleted;
+    }
+
+    /**
+     * 延迟执行任务（在编码线程池中）
+     */
+    void schedule(Runnable task, long delayMs) {
+        engine.schedule(task, delayMs);
+    }
+
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return sampleSize;
+        }
+        // 取2的幂，保证采样后宽高都不小于目标尺寸
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private void flushDeletes() {
+        synchronized (this) {
+            deleteTask = null;
+        }
+        List<String> retry = new ArrayList<>();
+        String path;
+        while ((path = pendingDeletes.poll()) != null) {
+            File file = new File(path);
+            if (file.exists() && !file.delete()) {
+                retry.add(path);
+            }
+        }
+        if (!retry.isEmpty()) {
+            // 删除失败的文件留给下次启动时的全量清理
+            Log.w(TAG, "删除图片文件失败" + retry.size() + "个");
+        }
+    }
+
+    /**
+     * 读取图片原始宽高，文件不存在或损坏时返回null
+     */
+    private int[] getBounds(String path) {
+        synchronized (this) {
+            int[] size = bounds.get(path);
+            if (size != null) return size;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int[] size = {options.outWidth, options.outHeight};
+        synchronized (this) {
+            bounds.put(path, size);
+        }
+        return size;
+    }
+
+    private synchronized Bitmap getMemory(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null) return null;
+        if (entry.bitmap.isRecycled()) {
+            // 调用方回收了缓存中的图片
+            memory.remove(key);
+            memoryBytes -= entry.size;
+            return null;
+        }
+        return entry.bitmap;
+    }
+
+    private synchronized void putMemory(String key, Bitmap bitmap) {
+        Entry entry = new Entry(bitmap);
+        // 单张超过容量1/4的图片不放入内存
+        if (entry.size > maxMemoryBytes / 4) return;
+        Entry old = memory.put(key, entry);
+        if (old != null) {
+            memoryBytes -= old.size;
+        }
+        memoryBytes += entry.size;
+        Iterator<Entry> iterator = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            // 淘汰的图片可能仍在显示，只释放引用
+            memoryBytes -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    private synchronized Bitmap takeReusable(long needed) {
+        Iterator<Entry> iterator = reusePool.iterator();
+        while (iterator.hasNext()) {
+            Entry candidate = iterator.next();
+            if (candidate.bitmap.isRecycled()) {
+                iterator.remove();
+                poolBytes -= candidate.size;
+                continue;
+            }
+            // 复用的图片太大会浪费内存，限制在所需大小的2倍以内
+            if (candidate.size >= needed && candidate.size <= needed * 2 && candidate.bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+                iterator.remove();
+                poolBytes -= candidate.size;
+                return candidate.bitmap;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.wty.foundation.common.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LruCacheUtils磁盘层的准入过滤（TinyLFU）
+ * 写入会触发淘汰时，比较新数据与将被淘汰数据的访问频率，新数据不比被淘汰数据更常用时拒绝写入，
+ * 避免偶尔写入的大数据挤掉经常访问的小数据。
+ * DiskLruCache不提供淘汰顺序，这里按本次运行中访问过的key维护一份LRU顺序：
+ * 本次运行未访问过的数据（untrackedBytes）比所有访问过的数据更早，会最先被淘汰，频率视为0
+ */
+final class CacheAdmission {
+    // 频率大于该值的候选数据偶尔放行，避免旧热点长期占据缓存
+    private static final int ADMIT_HASHDOS_THRESHOLD = 5;
+
+    private final FrequencySketch sketch;
+    private final long maxBytes;
+    // 本次运行访问过的key及其大小，按访问顺序排列
+    private final LinkedHashMap<String, Long> tracked = new LinkedHashMap<>(16, 0.75f, true);
+    private long untrackedBytes;
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * @param sketch       访问频率估算
+     * @param maxBytes     磁盘容量
+     * @param initialBytes 打开缓存时已有的数据大小
+     */
+    CacheAdmission(FrequencySketch sketch, long maxBytes, long initialBytes) {
+        this.sketch = sketch;
+        this.maxBytes = maxBytes;
+        this.untrackedBytes = Math.max(0, initialBytes);
+    }
+
+    /**
+     * 判断是否允许写入，允许时按写入后DiskLruCache的淘汰结果更新LRU顺序
+     *
+     * @param key      缓存键
+     * @param bytes    数据大小
+     * @param diskSize 当前磁盘缓存大小
+     * @return 是否允许写入
+     */
+    synchronized boolean admit(String key, long bytes, long diskSize) {
+        Long previous = tracked.get(key);
+        long excess = diskSize + bytes - (previous != null ? previous : 0) - maxBytes;
+        if (excess > 0) {
+            long fromUntracked = Math.min(untrackedBytes, excess);
+            long remaining = excess - fromUntracked;
+            int victimFrequency = 0;
+            for (Map.Entry<String, Long> entry : tracked.entrySet()) {
+                if (remaining <= 0) break;
+                if (entry.getKey().equals(key)) continue;
+                victimFrequency = Math.max(victimFrequency, sketch.frequency(entry.getKey()));
+                remaining -= entry.getValue();
+            }
+            if (!shouldAdmit(sketch.frequency(key), victimFrequency)) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            untrackedBytes -= fromUntracked;
+            evictTracked(excess - fromUntracked, key);
+        }
+        record(key, bytes);
+        return true;
+    }
+
+    /**
+     * 记录读取命中，未记录过的数据从untrackedBytes中移出
+     */
+    synchronized void onRead(String key, long bytes) {
+        if (!tracked.containsKey(key)) {
+            untrackedBytes = Math.max(0, untrackedBytes - bytes);
+        }
+        record(key, bytes);
+    }
+
+    synchronized void onRemove(String key) {
+        tracked.remove(key);
+    }
+
+    synchronized void onClear() {
+        tracked.clear();
+        untrackedBytes = 0;
+    }
+
+    long rejectionCount() {
+        return rejections.get();
+    }
+
+    private void record(String key, long bytes) {
+        tracked.put(key, bytes);
+    }
+
+    private void evictTracked(long bytes, String except) {
+        Iterator<Map.Entry<String, Long>> iterator = tracked.entrySet().iterator();
+        while (bytes > 0 && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(except)) continue;
+            iterator.remove();
+            bytes -= entry.getValue();
+        }
+    }
+
+    /**
+     * TinyLFU准入规则：新数据频率更高时放行；频率不高于被淘汰数据时拒绝，
+     * 但频率较高的新数据以1/128的概率放行，防止构造的哈希冲突使热点数据无法替换
+     */
+    static boolean shouldAdmit(int candidateFrequency, int victimFrequency) {
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+}
@@ -0,0 +1,51 @@
+package com.wty.foundation.common.utils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * LruCacheUtils对象序列化编码器
+ * 编码后的数据带有版本头（记录编码器ID和是否压缩），读取时按数据头选择编码器，
+ * 因此更换编码器后旧数据仍可读取，不需要清空缓存。自定义编码器需通过LruCacheUtils.registerCodec注册
+ */
+public interface CacheCodec {
+    /**
+     * 内置Gson编码器ID
+     */
+    int ID_GSON = 1;
+    /**
+     * 内置二进制编码器ID
+     */
+    int ID_BINARY = 2;
+    /**
+     * 自定义编码器ID的最小值，小于该值的ID保留给内置编码器
+     */
+    int ID_CUSTOM_MIN = 16;
+
+    /**
+     * 获取编码器ID，写入数据头，取值范围1~255，同一ID必须始终对应同一种格式
+     *
+     * @return 编码器ID
+     */
+    int getId();
+
+    /**
+     * 编码对象
+     *
+     * @param value 对象，不为null
+     * @return 编码后的字节数组
+     */
+    byte[] encode(Object value) throws IOException;
+
+    /**
+     * 解码对象
+     *
+     * @param data   字节数组
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @param type   对象类型
+     * @param <T>    对象类型
+     * @return 解码后的对象
+     */
+    <T> T decode(byte[] data, int offset, int length, Type type) throws IOException;
+}
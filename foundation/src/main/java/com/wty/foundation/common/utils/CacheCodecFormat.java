@@ -0,0 +1,165 @@
+package com.wty.foundation.common.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * LruCacheUtils编码数据的版本头
+ * 格式：魔数(1字节) + 格式版本(1字节) + 编码器ID(1字节) + 标志位(1字节) + [过期时间(8字节)] + [压缩时原始长度(4字节)] + 数据。
+ * 旧版本直接保存UTF-8 JSON，首字节不会是魔数，读取时按Gson格式处理；
+ * 带过期时间的数据写入格式版本2，其余仍写入版本1，旧版本程序可继续读取不带过期时间的数据
+ */
+final class CacheCodecFormat {
+    // 0xCA不是合法的JSON起始字符，可与旧格式区分
+    static final int MAGIC = 0xCA;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 4;
+    private static final int FLAG_DEFLATE = 1;
+    private static final int FLAG_EXPIRE = 2;
+
+    private CacheCodecFormat() {
+    }
+
+    /**
+     * 添加版本头，超过阈值时使用deflate压缩，压缩后没有变小则保存原始数据
+     *
+     * @param codecId           编码器ID
+     * @param payload           编码后的数据
+     * @param compressThreshold 压缩阈值（字节），小于等于0表示不压缩
+     * @param expireAt          过期时间（System.currentTimeMillis），0表示不过期
+     * @return 带版本头的数据
+     */
+    static byte[] wrap(int codecId, byte[] payload, int compressThreshold, long expireAt) {
+        int flags = expireAt > 0 ? FLAG_EXPIRE : 0;
+        byte[] body = payload;
+        if (compressThreshold > 0 && payload.length >= compressThreshold) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length + 4 < payload.length) {
+                flags |= FLAG_DEFLATE;
+                body = compressed;
+            }
+        }
+        int offset = HEADER_SIZE;
+        int extra = ((flags & FLAG_EXPIRE) != 0 ? 8 : 0) + ((flags & FLAG_DEFLATE) != 0 ? 4 : 0);
+        byte[] data = new byte[HEADER_SIZE + extra + body.length];
+        data[0] = (byte) MAGIC;
+        data[1] = (byte) ((flags & FLAG_EXPIRE) != 0 ? 2 : 1);
+        data[2] = (byte) codecId;
+        data[3] = (byte) flags;
+        if ((flags & FLAG_EXPIRE) != 0) {
+            for (int i = 7; i >= 0; i--) {
+                data[offset++] = (byte) (expireAt >>> (i * 8));
+            }
+        }
+        if ((flags & FLAG_DEFLATE) != 0) {
+            int length = payload.length;
+            data[offset++] = (byte) (length >>> 24);
+            data[offset++] = (byte) (length >>> 16);
+            data[offset++] = (byte) (length >>> 8);
+            data[offset++] = (byte) length;
+        }
+        System.arraycopy(body, 0, data, offset, body.length);
+        return data;
+    }
+
+    /**
+     * 判断数据是否带有版本头
+     */
+    static boolean hasHeader(byte[] data) {
+        return data.length >= HEADER_SIZE && (data[0] & 0xFF) == MAGIC;
+    }
+
+    static int codecId(byte[] data) {
+        return data[2] & 0xFF;
+    }
+
+    /**
+     * 获取过期时间
+     *
+     * @param data 缓存数据
+     * @return 过期时间，没有数据头或未设置过期时间返回0
+     */
+    static long expireAt(byte[] data) {
+        if (data == null || !hasHeader(data) || (data[3] & FLAG_EXPIRE) == 0 || data.length < HEADER_SIZE + 8) {
+            return 0;
+        }
+        long expireAt = 0;
+        for (int i = 0; i < 8; i++) {
+            expireAt = (expireAt << 8) | (data[HEADER_SIZE + i] & 0xFF);
+        }
+        return expireAt;
+    }
+
+    /**
+     * 去掉版本头（并解压）后交给编码器解码
+     *
+     * @param codec 数据头对应的编码器
+     * @param data  带版本头的数据
+     * @param type  对象类型
+     * @return 解码后的对象
+     */
+    static <T> T decode(CacheCodec codec, byte[] data, Type type) throws IOException {
+        if ((data[1] & 0xFF) > VERSION) {
+            throw new IOException("Unsupported cache format version: " + (data[1] & 0xFF));
+        }
+        int flags = data[3];
+        int offset = HEADER_SIZE + ((flags & FLAG_EXPIRE) != 0 ? 8 : 0);
+        if ((flags & FLAG_DEFLATE) == 0) {
+            if (offset > data.length) {
+                throw new IOException("Truncated cache data");
+            }
+            return codec.decode(data, offset, data.length - offset, type);
+        }
+        if (data.length < offset + 4) {
+            throw new IOException("Truncated cache data");
+        }
+        int length = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+        if (length < 0) {
+            throw new IOException("Invalid cache data length: " + length);
+        }
+        offset += 4;
+        byte[] payload = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            int position = 0;
+            while (position < payload.length) {
+                int read = inflater.inflate(payload, position, payload.length - position);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated compressed cache data");
+                }
+                position += read;
+            }
+            // 输出已满时校验和可能还未读取，继续解压确认数据完整且没有多余内容
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+                throw new IOException("Truncated compressed cache data");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return codec.decode(payload, 0, payload.length, type);
+    }
+
+    private static byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + 64);
+            byte[] buffer = new byte[8 * 1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
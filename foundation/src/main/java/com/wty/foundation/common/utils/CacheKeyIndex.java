@@ -0,0 +1,210 @@
+package com.wty.foundation.common.utils;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * LruCacheUtils的key索引
+ * DiskLruCache只保存key的MD5，无法按原始key查找，这里在缓存目录中另存一份原始key的追加日志：
+ * 操作(1字节，添加/删除) + key(writeUTF)。打开时重放日志，日志中无效记录过多时重写。
+ * 索引不感知DiskLruCache的LRU淘汰，可能包含已被淘汰的key；
+ * 升级前写入的数据不在索引中，首次创建索引时缓存中已有数据则写入不完整标记，清空缓存后索引才覆盖全部数据
+ */
+final class CacheKeyIndex {
+    private static final String TAG = "CacheKeyIndex";
+    private static final String FILE_NAME = "keys.idx";
+    private static final String PARTIAL_FILE_NAME = "keys.partial";
+    private static final int OP_ADD = 1;
+    private static final int OP_REMOVE = 2;
+    // 日志记录数超过有效key数的2倍且超过该值时重写
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final File file;
+    private final File partialFile;
+    private final TreeSet<String> keys = new TreeSet<>();
+    private DataOutputStream out;
+    private int records;
+    private boolean complete;
+
+    /**
+     * @param dir          缓存目录
+     * @param existingData 缓存中是否已有数据，索引文件不存在且已有数据时索引不完整
+     */
+    CacheKeyIndex(File dir, boolean existingData) {
+        this.file = new File(dir, FILE_NAME);
+        this.partialFile = new File(dir, PARTIAL_FILE_NAME);
+        if (!file.exists() && existingData && !partialFile.exists()) {
+            markPartial();
+        }
+        this.complete = !partialFile.exists();
+        load();
+        openForAppend();
+    }
+
+    /**
+     * 索引是否包含缓存中的所有key
+     *
+     * @return 升级前写入的数据还未清空时返回false
+     */
+    synchronized boolean isComplete() {
+        return complete;
+    }
+
+    synchronized void add(String key) {
+        if (keys.add(key)) {
+            append(OP_ADD, key);
+        }
+    }
+
+    synchronized void remove(String key) {
+        if (keys.remove(key)) {
+            append(OP_REMOVE, key);
+        }
+    }
+
+    /**
+     * 清空索引，缓存目录被删除并重建后调用
+     */
+    synchronized void clear() {
+        CloseableUtils.close(out);
+        out = null;
+        keys.clear();
+        records = 0;
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "删除索引文件失败: " + file.getAbsolutePath());
+        }
+        // 缓存已清空，之后的数据都会记录在索引中
+        if (partialFile.exists() && !partialFile.delete()) {
+            Log.w(TAG, "删除索引不完整标记失败: " + partialFile.getAbsolutePath());
+        }
+        complete = !partialFile.exists();
+        openForAppend();
+    }
+
+    /**
+     * 获取以prefix开头的key，按字典序排列
+     *
+     * @param prefix 前缀，为null或空时返回全部
+     * @return key列表快照
+     */
+    synchronized List<String> keysWithPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return new ArrayList<>(keys);
+        }
+        List<String> result = new ArrayList<>();
+        for (String key : keys.tailSet(prefix, true)) {
+            if (!key.startsWith(prefix)) break;
+            result.add(key);
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return keys.size();
+    }
+
+    synchronized void close() {
+        CloseableUtils.close(out);
+        out = null;
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int op = in.read();
+                if (op < 0) break;
+                String key = in.readUTF();
+                if (op == OP_ADD) {
+                    keys.add(key);
+                } else if (op == OP_REMOVE) {
+                    keys.remove(key);
+                } else {
+                    Log.w(TAG, "索引记录损坏，忽略后续内容");
+                    break;
+                }
+                records++;
+            }
+        } catch (EOFException e) {
+            // 写入中断留下的不完整记录，忽略
+            Log.w(TAG, "索引文件末尾不完整");
+        } catch (IOException e) {
+            Log.e(TAG, "读取索引失败: " + e.getMessage());
+        }
+        if (records > MIN_COMPACT_RECORDS && records > keys.size() * 2) {
+            compact();
+        }
+    }
+
+    private void markPartial() {
+        try {
+            if (!partialFile.createNewFile()) {
+                Log.w(TAG, "创建索引不完整标记失败: " + partialFile.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "创建索引不完整标记失败: " + e.getMessage());
+        }
+    }
+
+    private void openForAppend() {
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        } catch (IOException e) {
+            Log.e(TAG, "打开索引文件失败: " + e.getMessage());
+        }
+    }
+
+    private void append(int op, String key) {
+        if (out == null) return;
+        try {
+            out.write(op);
+            out.writeUTF(key);
+            out.flush();
+            records++;
+        } catch (IOException e) {
+            Log.e(TAG, "写入索引失败: " + e.getMessage());
+            return;
+        }
+        if (records > MIN_COMPACT_RECORDS && records > keys.size() * 2) {
+            CloseableUtils.close(out);
+            out = null;
+            compact();
+            openForAppend();
+        }
+    }
+
+    /**
+     * 只保留有效key重写日志，先写临时文件再重命名
+     */
+    private void compact() {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream tempOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            for (String key : keys) {
+                tempOut.write(OP_ADD);
+                tempOut.writeUTF(key);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "重写索引失败: " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        if (temp.renameTo(file)) {
+            records = keys.size();
+        } else {
+            Log.e(TAG, "替换索引文件失败");
+            temp.delete();
+        }
+    }
+}
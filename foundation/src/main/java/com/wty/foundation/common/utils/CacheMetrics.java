@@ -0,0 +1,40 @@
+package com.wty.foundation.common.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LruCacheUtils的计数器和计时器，记录时只做原子加法，不拼接字符串、不写日志
+ */
+final class CacheMetrics {
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong bytesWritten = new AtomicLong();
+    // 对象编码、解码耗时
+    final Timer serialize = new Timer();
+    final Timer deserialize = new Timer();
+    // getOrLoad调用loader加载数据的耗时
+    final Timer load = new Timer();
+
+    /**
+     * 耗时统计：次数、总耗时、最大耗时
+     */
+    static final class Timer {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+        }
+
+        LruCacheUtils.TimerStats snapshot() {
+            return new LruCacheUtils.TimerStats(count.get(), totalNanos.get(), maxNanos.get());
+        }
+    }
+}
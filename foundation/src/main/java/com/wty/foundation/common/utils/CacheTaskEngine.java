@@ -0,0 +1,259 @@
+package com.wty.foundation.common.utils;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LruCacheUtils的异步任务引擎
+ * 使用小型线程池执行任务，同一个key的任务按提交顺序串行执行，不同key之间并行；
+ * 超时由共享的定时线程检查，到期后取消任务，不占用工作线程
+ */
+final class CacheTaskEngine {
+    private static final String TAG = "CacheTaskEngine";
+    private static final AtomicInteger POOL_ID = new AtomicInteger();
+    // 所有实例共用的定时线程，只负责触发超时和延迟任务，不执行耗时操作
+    private static final ScheduledExecutorService TIMER = createTimer();
+
+    private final ThreadPoolExecutor workers;
+    // 每个key的等待队列，队列为空时移除
+    private final HashMap<String, KeyQueue> queues = new HashMap<>();
+    // 任务从提交到开始执行的等待时间
+    private final CacheMetrics.Timer queueWait = new CacheMetrics.Timer();
+
+    /**
+     * 单个key的任务队列
+     */
+    private static final class KeyQueue {
+        final ArrayDeque<Task<?>> tasks = new ArrayDeque<>();
+        Task<?> current;
+    }
+
+    /**
+     * 可取消的任务，完成或取消时撤销超时检查
+     */
+    private static final class Task<T> extends FutureTask<T> {
+        final long submitNanos = System.nanoTime();
+        volatile ScheduledFuture<?> timeout;
+
+        Task(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        protected void done() {
+            ScheduledFuture<?> future = timeout;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @param threads 工作线程数
+     * @param name    线程名前缀
+     */
+    CacheTaskEngine(int threads, String name) {
+        int poolId = POOL_ID.incrementAndGet();
+        AtomicInteger threadId = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, name + "-" + poolId + "-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交任务，同一个key的任务按提交顺序执行
+     *
+     * @param key       任务关联的缓存键
+     * @param task      任务
+     * @param timeoutMs 超时时间（从提交开始计算，包含排队时间），小于等于0表示不限制
+     * @param onTimeout 超时被取消时的回调，在定时线程执行，可为null
+     * @return 可用于取消任务的Future
+     */
+    <T> Future<T> submit(String key, Callable<T> task, long timeoutMs, Runnable onTimeout) {
+        Task<T> future = new Task<>(task);
+        if (timeoutMs > 0) {
+            future.timeout = TIMER.schedule(() -> {
+                if (future.cancel(true)) {
+                    Log.w(TAG, "任务超时已取消: " + key);
+                    if (onTimeout != null) {
+                        onTimeout.run();
+                    }
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        boolean idle;
+        synchronized (queues) {
+            KeyQueue queue = queues.get(key);
+            idle = queue == null;
+            if (idle) {
+                queue = new KeyQueue();
+                queues.put(key, queue);
+            }
+            queue.tasks.add(future);
+        }
+        if (idle) {
+            dispatch(key);
+        }
+        return future;
+    }
+
+    /**
+     * 取消指定key排队中和执行中的任务
+     *
+     * @param key 缓存键
+     */
+    void cancel(String key) {
+        synchronized (queues) {
+            KeyQueue queue = queues.get(key);
+            if (queue == null) return;
+            for (Task<?> task : queue.tasks) {
+                task.cancel(false);
+            }
+            if (queue.current != null) {
+                queue.current.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 取消所有任务
+     */
+    void cancelAll() {
+        synchronized (queues) {
+            for (KeyQueue queue : queues.values()) {
+                for (Task<?> task : queue.tasks) {
+                    task.cancel(false);
+                }
+                if (queue.current != null) {
+                    queue.current.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在工作线程执行不需要按key排序的任务
+     */
+    void execute(Runnable task) {
+        workers.execute(task);
+    }
+
+    /**
+     * 延迟后在工作线程执行任务
+     *
+     * @return 可用于取消的ScheduledFuture
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return TIMER.schedule(() -> workers.execute(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取排队中的任务数
+     */
+    int getQueueSize() {
+        synchronized (queues) {
+            int size = 0;
+            for (KeyQueue queue : queues.values()) {
+                size += queue.tasks.size();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * 获取排队等待时间统计
+     */
+    LruCacheUtils.TimerStats getQueueWaitStats() {
+        return queueWait.snapshot();
+    }
+
+    /**
+     * 停止接收任务并等待执行中的任务结束
+     *
+     * @param timeoutMs 最长等待时间
+     */
+    void shutdown(long timeoutMs) throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 在工作线程执行key队列中的下一个任务，执行完后重新投递，避免一个key长期占用线程
+     */
+    private void dispatch(String key) {
+        try {
+            workers.execute(() -> runNext(key));
+        } catch (Exception e) {
+            // 线程池已关闭，丢弃该key剩余的任务
+            Log.w(TAG, "任务提交失败: " + e.getMessage());
+            synchronized (queues) {
+                KeyQueue queue = queues.remove(key);
+                if (queue != null) {
+                    for (Task<?> task : queue.tasks) {
+                        task.cancel(false);
+                    }
+                }
+            }
+        }
+    }
+
+    private void runNext(String key) {
+        Task<?> task;
+        synchronized (queues) {
+            KeyQueue queue = queues.get(key);
+            task = queue == null ? null : queue.tasks.poll();
+            if (task == null) {
+                queues.remove(key);
+                return;
+            }
+            queue.current = task;
+        }
+        queueWait.record(System.nanoTime() - task.submitNanos);
+        try {
+            task.run();
+        } finally {
+            boolean more;
+            synchronized (queues) {
+                KeyQueue queue = queues.get(key);
+                if (queue != null) {
+                    queue.current = null;
+                }
+                more = queue != null && !queue.tasks.isEmpty();
+                if (!more) {
+                    queues.remove(key);
+                }
+            }
+            if (more) {
+                dispatch(key);
+            }
+        }
+    }
+
+    private static ScheduledExecutorService createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "lru-cache-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 取消的超时检查立即移出队列，避免大量已完成任务的超时检查堆积
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,135 @@
+package com.wty.foundation.common.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SPUtils的解码对象缓存
+ * 按(存储key, 类型)保存解析后的中间结果（JsonElement、解码后的字节数组），同一个key可按不同类型各缓存一份；
+ * 中间结果只在SPUtils内部使用，不直接返回给调用方，调用方修改读取结果不会影响缓存；
+ * 调用方通过SPUtils.getSharedObject显式选择共享时，按请求的类型缓存转换后的对象并直接返回；
+ * 每个key记录解码时的原始字符串，读取时原始字符串不同即视为失效，避免监听器异步通知前读到旧对象；
+ * 按解码前的数据大小估算占用并限制总大小，超出时按LRU淘汰
+ */
+final class DecodedObjectCache {
+    // 每个条目的额外开销估算
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final LinkedHashMap<String, Node> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long maxBytes;
+    private long currentBytes;
+
+    private static final class Node {
+        final String source;
+        final long size;
+        final Map<Object, Object> values = new HashMap<>(2);
+
+        Node(String source, long bytes) {
+            this.source = source;
+            this.size = bytes + ENTRY_OVERHEAD;
+        }
+    }
+
+    DecodedObjectCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * 获取解码后的对象
+     *
+     * @param key    存储key
+     * @param type   对象类型标记
+     * @param source 当前存储的原始字符串
+     * @return 原始字符串未变化且类型一致时返回对象，否则返回null
+     */
+    synchronized Object get(String key, Object type, String source) {
+        Node node = map.get(key);
+        if (node != null && (node.source == source || node.source.equals(source))) {
+            Object value = node.values.get(type);
+            if (value != null) {
+                hits.incrementAndGet();
+                return value;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 放入解码后的对象，原始字符串变化时替换该key下的所有类型
+     *
+     * @param bytes 解码前的数据大小，用于估算占用（原始字符串可能只是文件引用）
+     */
+    synchronized void put(String key, Object type, String source, long bytes, Object value) {
+        if (value == null) return;
+        Node node = map.get(key);
+        if (node == null || !(node.source == source || node.source.equals(source))) {
+            if (node != null) {
+                currentBytes -= node.size;
+            }
+            node = new Node(source, bytes);
+            // 单个条目超过容量的1/4时不缓存
+            if (node.size > maxBytes / 4) {
+                map.remove(key);
+                return;
+            }
+            map.put(key, node);
+            currentBytes += node.size;
+        }
+        node.values.put(type, value);
+        trimTo(maxBytes);
+    }
+
+    synchronized void invalidate(String key) {
+        Node node = map.remove(key);
+        if (node != null) {
+            currentBytes -= node.size;
+        }
+    }
+
+    synchronized void clear() {
+        map.clear();
+        currentBytes = 0;
+    }
+
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        trimTo(this.maxBytes);
+    }
+
+    synchronized long size() {
+        return currentBytes;
+    }
+
+    synchronized long maxSize() {
+        return maxBytes;
+    }
+
+    long hitCount() {
+        return hits.get();
+    }
+
+    long missCount() {
+        return misses.get();
+    }
+
+    long evictionCount() {
+        return evictions.get();
+    }
+
+    private void trimTo(long bytes) {
+        Iterator<Map.Entry<String, Node>> iterator = map.entrySet().iterator();
+        while (currentBytes > bytes && iterator.hasNext()) {
+            Node node = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= node.size;
+            evictions.incrementAndGet();
+        }
+    }
+}
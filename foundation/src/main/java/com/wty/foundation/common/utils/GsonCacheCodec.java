@@ -0,0 +1,43 @@
+package com.wty.foundation.common.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 使用Gson编码为UTF-8 JSON，可读性好，与旧版本缓存格式相同
+ */
+public class GsonCacheCodec implements CacheCodec {
+    private final Gson gson;
+
+    public GsonCacheCodec(Gson gson) {
+        if (gson == null) {
+            throw new IllegalArgumentException("Gson is null");
+        }
+        this.gson = gson;
+    }
+
+    @Override
+    public int getId() {
+        return ID_GSON;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Type type) throws IOException {
+        try {
+            return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(data, offset, length), StandardCharsets.UTF_8), type);
+        } catch (JsonParseException e) {
+            throw new IOException(e);
+        }
+    }
+}
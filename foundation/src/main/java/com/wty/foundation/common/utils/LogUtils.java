@@ -222,6 +222,16 @@ public class LogUtils {
         currentLogLevel = level;
     }
 
+    /**
+     * 判断指定级别的日志是否会被记录，拼接日志内容开销较大时先检查
+     *
+     * @param level 日志级别
+     * @return 是否会被记录
+     */
+    public static boolean isLoggable(int level) {
+        return level >= currentLogLevel;
+    }
+
     /**
      * 设置全局日志回调
      *
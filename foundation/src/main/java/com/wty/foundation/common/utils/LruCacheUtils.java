@@ -1,5 +1,6 @@
 package com.wty.foundation.common.utils;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -7,7 +8,9 @@ import android.util.Log;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.jakewharton.disklrucache.DiskLruCache;
+import com.wty.foundation.common.init.ActivityLifecycleManager;
 import com.wty.foundation.common.init.AppContext;
 
 import org.json.JSONArray;
@@ -17,63 +20,298 @@ import org.parceler.Parcels;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.MaybeSubject;
 
 /**
  * 磁盘LRU缓存工具类
  * 支持基本数据类型、字符串、JSON对象/数组、Map、序列化对象及Parceler对象的缓存管理
- * 基于DiskLruCache实现，提供线程安全的缓存操作，采用单例模式和线程池管理IO任务
+ * 基于DiskLruCache实现，提供线程安全的缓存操作，采用单例模式和线程池管理IO任务；
+ * 异步操作同一个key按提交顺序执行，不同key并行，返回的Future可用于取消
+ * 磁盘之上有一层按字节数限制的内存缓存，读取命中时不访问磁盘；字符串和基本类型直接保存解码后的值，
+ * 可变对象（如JSONObject、Map、实体类）只保存编码后的数据，每次命中重新解码，调用方修改返回的对象不会影响缓存；
+ * 只读的区域可通过RegionConfig.Builder#setShareDecodedValues让内存缓存直接保存解码后的对象，命中时返回共享实例；
+ * 对象缓存可设置有效期，getOrLoad系列方法在数据过期时先返回旧数据，同时在后台刷新（同一个key只刷新一次）
+ * 缓存按区域划分（如图片缩略图、接口数据、草稿），每个区域有独立的目录、容量、淘汰策略和线程池，互不挤占；
+ * getInstance返回默认区域，其他区域通过openRegion创建。内存不足时按区域的收缩优先级释放内存缓存；
+ * 区域可开启TinyLFU准入过滤，写入需要淘汰数据时，不比被淘汰数据更常用的新数据不会写入磁盘和内存缓存；
+ * 缓存目录中另存原始key的索引，支持按前缀删除（如退出登录时只删除该用户的数据）、遍历key和批量读取；
+ * 命中率、读写字节数、编解码耗时、排队等待时间等统计通过getStats获取，也可通过startStatsLogging定期输出到LogUtils
  */
 public class LruCacheUtils {
     private static final String TAG = "LruCacheUtils";
     private static final int APP_VERSION = 1;
     private static final int VALUE_COUNT = 1;
     private static final long MAX_CACHE_SIZE = 20 * 1024 * 1024; // 20MB
+    /**
+     * 默认区域名称，getInstance返回该区域
+     */
+    public static final String DEFAULT_REGION = "default";
     private static final int IO_BUFFER_SIZE = 8 * 1024; // 8KB
+    private static final int MMAP_THRESHOLD = 64 * 1024; // 小于64KB的数据直接读入内存，不做内存映射
     private static final int TRANSACTION_TIMEOUT_SECONDS = 30; // 30秒超时
-
-    private static volatile LruCacheUtils instance;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private final ConcurrentHashMap<String, Future<?>> activeTasks = new ConcurrentHashMap<>();
-    private DiskLruCache diskCache;
+    private static final int WORKER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long DEFAULT_MEMORY_CACHE_SIZE = 2 * 1024 * 1024; // 2MB
+
+    // 已打开的区域，由LruCacheUtils.class保护
+    private static final Map<String, LruCacheUtils> regions = new LinkedHashMap<>();
+    private final RegionConfig config;
+    // 异步任务引擎，同一个key的任务按顺序执行，不同key并行
+    private final CacheTaskEngine engine;
+    private volatile DiskLruCache diskCache;
+    // 磁盘读写持有读锁，清空缓存（会关闭并重新打开DiskLruCache）持有写锁
+    private final ReentrantReadWriteLock diskLock = new ReentrantReadWriteLock();
     private final File cacheDir;
-    private final Context context;
     private final Gson gson = new Gson();
+    // 对象编码器，读取时按数据头选择，写入时使用当前编码器
+    private final ConcurrentHashMap<Integer, CacheCodec> codecs = new ConcurrentHashMap<>();
+    private volatile CacheCodec codec;
+    // 编码后超过该大小时压缩，0表示不压缩
+    private volatile int compressThreshold;
+    // 内存缓存层，保存热点数据解码后的对象
+    private final MemoryCacheTier memoryCache;
+    // 访问频率估算和磁盘准入过滤，未开启准入过滤时为null
+    private final FrequencySketch sketch;
+    private final CacheAdmission admission;
+    // 原始key索引
+    private final CacheKeyIndex keyIndex;
+    private final CacheMetrics metrics = new CacheMetrics();
+    // 定期输出统计信息，由statsLogLock保护
+    private final Object statsLogLock = new Object();
+    private long statsLogIntervalMs;
+    private ScheduledFuture<?> statsLogFuture;
+    // 延迟写入模式下尚未写入磁盘的数据
+    private final LinkedHashMap<String, byte[]> pendingWrites = new LinkedHashMap<>();
+    // 正在写入磁盘的一批数据，写入提交前仍可读取；由pendingWrites的锁保护，只在持有flushLock时写入
+    private LinkedHashMap<String, byte[]> flushingWrites = new LinkedHashMap<>();
+    // 批量写入磁盘时持有，保证同一时间只有一批数据在写入，按key删除和批量写入也需持有，避免被旧数据覆盖
+    private final Object flushLock = new Object();
+    private volatile FlushPolicy flushPolicy = FlushPolicy.immediate();
+    private ScheduledFuture<?> scheduledFlush;
+    private ActivityLifecycleManager.ActivityLifecycleCallback backgroundFlushCallback;
+    // 正在进行的刷新，同一个key同时只有一个
+    private final ConcurrentHashMap<String, MaybeSubject<Object>> refreshes = new ConcurrentHashMap<>();
+    private final Object refreshStatsLock = new Object();
+    private long refreshCount;
+    private long refreshFailureCount;
+    private long refreshTotalNanos;
+    private long refreshMaxNanos;
 
     /**
      * 私有构造方法，初始化缓存目录和DiskLruCache
      */
-    private LruCacheUtils(Context context) {
-        this.context = context.getApplicationContext();
-        this.cacheDir = getDiskCacheDir(this.context, "dc_cache");
+    private LruCacheUtils(RegionConfig config, File cacheDir) {
+        this.config = config;
+        this.cacheDir = cacheDir;
+        this.engine = new CacheTaskEngine(config.workerThreads, "lru-cache-" + config.name);
+        boolean admissionEnabled = config.admissionEnabled && config.evictionPolicy == EvictionPolicy.LRU;
+        // 按平均4KB估算条目数
+        this.sketch = admissionEnabled ? new FrequencySketch((int) Math.min(1 << 20, Math.max(256, config.maxSize / 4096))) : null;
+        this.memoryCache = new MemoryCacheTier(config.memoryCacheSize, sketch);
+        this.codec = new GsonCacheCodec(gson);
+        registerCodec(codec);
+        registerCodec(new BinaryCacheCodec(gson));
         initDiskCache();
+        DiskLruCache cache = diskCache;
+        this.keyIndex = new CacheKeyIndex(cacheDir, cache != null && cache.size() > 0);
+        this.admission = admissionEnabled ? new CacheAdmission(sketch, config.maxSize, cache != null ? cache.size() : 0) : null;
     }
 
     /**
-     * 获取单例实例
+     * 获取默认区域实例
      *
      * @return 单例对象
      */
     public static synchronized LruCacheUtils getInstance() {
-        if (instance == null) {
-            instance = new LruCacheUtils(AppContext.getInstance().getContext());
+        LruCacheUtils region = regions.get(DEFAULT_REGION);
+        return region != null ? region : openRegion(new RegionConfig.Builder(DEFAULT_REGION).build());
+    }
+
+    /**
+     * 打开缓存区域，已打开时直接返回（忽略新的配置）
+     *
+     * @param config 区域配置
+     * @return 区域实例
+     */
+    public static synchronized LruCacheUtils openRegion(RegionConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config is null");
+        }
+        LruCacheUtils region = regions.get(config.name);
+        if (region != null) {
+            return region;
+        }
+        // 指定了目录时不需要Context，可在未初始化AppContext的环境（如本地单元测试）中使用
+        File dir = config.directory != null ? config.directory : getDiskCacheDir(AppContext.getInstance().getContext().getApplicationContext(), DEFAULT_REGION.equals(config.name) ? "dc_cache" : "dc_cache_" + config.name);
+        for (LruCacheUtils other : regions.values()) {
+            if (other.cacheDir.equals(dir)) {
+                throw new IllegalArgumentException("Region " + config.name + " shares directory with " + other.config.name);
+            }
+        }
+        region = new LruCacheUtils(config, dir);
+        regions.put(config.name, region);
+        return region;
+    }
+
+    /**
+     * 获取已打开的缓存区域
+     *
+     * @param name 区域名称
+     * @return 区域实例，未打开返回null
+     */
+    public static synchronized LruCacheUtils getRegion(String name) {
+        return regions.get(name);
+    }
+
+    /**
+     * 内存不足时调用，按收缩优先级从低到高释放各区域的内存缓存，并写入延迟写入的数据；
+     * 只释放内存，不删除磁盘数据。由ResourceSetting.init注册的ComponentCallbacks2调用
+     *
+     * @param level ComponentCallbacks2的TRIM_MEMORY_*级别
+     */
+    public static void onTrimMemory(int level) {
+        List<LruCacheUtils> ordered;
+        synchronized (LruCacheUtils.class) {
+            ordered = new ArrayList<>(regions.values());
+        }
+        if (ordered.isEmpty()) return;
+        Collections.sort(ordered, (a, b) -> Integer.compare(a.config.trimPriority, b.config.trimPriority));
+        int count = ordered.size();
+        // 清空内存缓存的区域数，之后halve个区域减半
+        int clear;
+        int halve;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            clear = count;
+            halve = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear = (count + 1) / 2;
+            halve = count - clear;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            clear = 1;
+            halve = count - 1;
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            clear = 0;
+            halve = 1;
+        } else {
+            // TRIM_MEMORY_UI_HIDDEN：界面不可见，不释放内存缓存
+            clear = 0;
+            halve = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            LruCacheUtils region = ordered.get(i);
+            if (i < clear) {
+                region.memoryCache.trimTo(0);
+            } else if (i < clear + halve) {
+                region.memoryCache.trimTo(region.memoryCache.size() / 2);
+            }
+            if (region.flushPolicy.isWriteBehind()) {
+                region.engine.execute(region::flush);
+            }
+        }
+        Log.i(TAG, "内存不足，收缩缓存区域: level=" + level + ", clear=" + clear + ", halve=" + halve);
+    }
+
+    /**
+     * 获取区域名称
+     */
+    public String getRegionName() {
+        return config.name;
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    public CacheStats getStats() {
+        DiskLruCache cache = diskCache;
+        return new CacheStats(config.name, metrics.hits.get(), metrics.misses.get(), memoryCache.hitCount(), metrics.bytesRead.get(), metrics.bytesWritten.get(), memoryCache.evictionCount(), getAdmissionRejectCount(), cache != null ? cache.size() : 0, memoryCache.size(), engine.getQueueSize(), metrics.serialize.snapshot(), metrics.deserialize.snapshot(), metrics.load.snapshot(), engine.getQueueWaitStats());
+    }
+
+    /**
+     * 定期将统计快照以INFO级别输出到LogUtils
+     *
+     * @param intervalMs 输出间隔（毫秒），小于等于0时停止输出
+     */
+    public void startStatsLogging(long intervalMs) {
+        synchronized (statsLogLock) {
+            if (statsLogFuture != null) {
+                statsLogFuture.cancel(false);
+                statsLogFuture = null;
+            }
+            statsLogIntervalMs = intervalMs;
+            scheduleStatsLog();
+        }
+    }
+
+    /**
+     * 停止定期输出统计快照
+     */
+    public void stopStatsLogging() {
+        startStatsLogging(0);
+    }
+
+    private void scheduleStatsLog() {
+        synchronized (statsLogLock) {
+            if (statsLogIntervalMs > 0) {
+                statsLogFuture = engine.schedule(this::logStats, statsLogIntervalMs);
+            }
+        }
+    }
+
+    private void logStats() {
+        if (LogUtils.isLoggable(Log.INFO)) {
+            LogUtils.i(TAG + " " + getStats());
         }
-        return instance;
+        scheduleStatsLog();
+    }
+
+    /**
+     * 获取准入过滤拒绝的写入次数（磁盘和内存缓存合计），未开启准入过滤时返回0
+     */
+    public long getAdmissionRejectCount() {
+        return (admission != null ? admission.rejectionCount() : 0) + memoryCache.rejectionCount();
     }
 
     /**
@@ -85,7 +323,9 @@ public class LruCacheUtils {
                 Log.w(TAG, "创建缓存目录失败: " + cacheDir.getAbsolutePath());
                 return;
             }
-            diskCache = DiskLruCache.open(cacheDir, APP_VERSION, VALUE_COUNT, MAX_CACHE_SIZE);
+            // 不淘汰的区域由写入时检查容量，DiskLruCache不再按大小淘汰
+            long maxSize = config.evictionPolicy == EvictionPolicy.LRU ? config.maxSize : Long.MAX_VALUE;
+            diskCache = DiskLruCache.open(cacheDir, APP_VERSION, VALUE_COUNT, maxSize);
             Log.i(TAG, "磁盘缓存初始化成功: " + cacheDir.getAbsolutePath());
         } catch (IOException e) {
             Log.e(TAG, "磁盘缓存初始化失败: " + e.getMessage());
@@ -99,7 +339,7 @@ public class LruCacheUtils {
      * @param uniqueName 缓存目录唯一名称
      * @return 缓存目录文件
      */
-    private File getDiskCacheDir(Context context, String uniqueName) {
+    private static File getDiskCacheDir(Context context, String uniqueName) {
         File externalCacheDir = context.getExternalCacheDir();
         if (externalCacheDir != null) {
             return new File(externalCacheDir, uniqueName);
@@ -115,7 +355,7 @@ public class LruCacheUtils {
      * @return 是否成功
      */
     public boolean putIntSync(String key, int value) {
-        return putBytesSync(key, intToBytes(value));
+        return writeThrough(key, Integer.class, value, intToBytes(value));
     }
 
     /**
@@ -125,8 +365,8 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回0
      */
     public int getIntSync(String key) {
-        byte[] data = getBytesSync(key);
-        return data != null ? bytesToInt(data) : 0;
+        Integer value = readThrough(key, Integer.class, this::bytesToInt);
+        return value != null ? value : 0;
     }
 
     /**
@@ -137,7 +377,7 @@ public class LruCacheUtils {
      * @return 是否成功
      */
     public boolean putLongSync(String key, long value) {
-        return putBytesSync(key, longToBytes(value));
+        return writeThrough(key, Long.class, value, longToBytes(value));
     }
 
     /**
@@ -147,8 +387,8 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回0L
      */
     public long getLongSync(String key) {
-        byte[] data = getBytesSync(key);
-        return data != null ? bytesToLong(data) : 0L;
+        Long value = readThrough(key, Long.class, this::bytesToLong);
+        return value != null ? value : 0L;
     }
 
     /**
@@ -159,7 +399,7 @@ public class LruCacheUtils {
      * @return 是否成功
      */
     public boolean putFloatSync(String key, float value) {
-        return putBytesSync(key, floatToBytes(value));
+        return writeThrough(key, Float.class, value, floatToBytes(value));
     }
 
     /**
@@ -169,8 +409,8 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回0f
      */
     public float getFloatSync(String key) {
-        byte[] data = getBytesSync(key);
-        return data != null ? bytesToFloat(data) : 0f;
+        Float value = readThrough(key, Float.class, this::bytesToFloat);
+        return value != null ? value : 0f;
     }
 
     /**
@@ -181,7 +421,7 @@ public class LruCacheUtils {
      * @return 是否成功
      */
     public boolean putBooleanSync(String key, boolean value) {
-        return putBytesSync(key, booleanToBytes(value));
+        return writeThrough(key, Boolean.class, value, booleanToBytes(value));
     }
 
     /**
@@ -191,8 +431,8 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回false
      */
     public boolean getBooleanSync(String key) {
-        byte[] data = getBytesSync(key);
-        return data != null && bytesToBoolean(data);
+        Boolean value = readThrough(key, Boolean.class, this::bytesToBoolean);
+        return value != null && value;
     }
 
     /**
@@ -204,7 +444,7 @@ public class LruCacheUtils {
      */
     public boolean putStringSync(String key, String value) {
         if (value == null) return false;
-        return putBytesSync(key, value.getBytes(StandardCharsets.UTF_8));
+        return writeThrough(key, String.class, value, value.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -214,8 +454,7 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回null
      */
     public String getStringSync(String key) {
-        byte[] data = getBytesSync(key);
-        return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+        return readThrough(key, String.class, data -> new String(data, StandardCharsets.UTF_8));
     }
 
     /**
@@ -227,7 +466,7 @@ public class LruCacheUtils {
      */
     public boolean putJSONObjectSync(String key, JSONObject value) {
         if (value == null) return false;
-        return putStringSync(key, value.toString());
+        return writeThrough(key, JSONObject.class, value, value.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -237,14 +476,14 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回null
      */
     public JSONObject getJSONObjectSync(String key) {
-        String jsonStr = getStringSync(key);
-        if (jsonStr == null) return null;
-        try {
-            return new JSONObject(jsonStr);
-        } catch (JSONException e) {
-            Log.e(TAG, "JSONObject解析失败: " + e.getMessage());
-            return null;
-        }
+        return readThrough(key, JSONObject.class, data -> {
+            try {
+                return new JSONObject(new String(data, StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                Log.e(TAG, "JSONObject解析失败: " + e.getMessage());
+                return null;
+            }
+        });
     }
 
     /**
@@ -256,7 +495,7 @@ public class LruCacheUtils {
      */
     public boolean putJSONArraySync(String key, JSONArray value) {
         if (value == null) return false;
-        return putStringSync(key, value.toString());
+        return writeThrough(key, JSONArray.class, value, value.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -266,14 +505,14 @@ public class LruCacheUtils {
      * @return 缓存值，失败返回null
      */
     public JSONArray getJSONArraySync(String key) {
-        String jsonStr = getStringSync(key);
-        if (jsonStr == null) return null;
-        try {
-            return new JSONArray(jsonStr);
-        } catch (JSONException e) {
-            Log.e(TAG, "JSONArray解析失败: " + e.getMessage());
-            return null;
-        }
+        return readThrough(key, JSONArray.class, data -> {
+            try {
+                return new JSONArray(new String(data, StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                Log.e(TAG, "JSONArray解析失败: " + e.getMessage());
+                return null;
+            }
+        });
     }
 
     /**
@@ -287,8 +526,8 @@ public class LruCacheUtils {
      */
     public <K, V> boolean putMapSync(String key, Map<K, V> value) {
         if (value == null) return false;
-        String json = gson.toJson(value);
-        return putStringSync(key, json);
+        byte[] data = encodeObject(value, 0);
+        return data != null && writeThrough(key, Map.class, value, data, 0);
     }
 
     /**
@@ -299,17 +538,11 @@ public class LruCacheUtils {
      * @param <V> Map的Value类型
      * @return 缓存值，失败返回null
      */
+    @SuppressWarnings("unchecked")
     public <K, V> Map<K, V> getMapSync(String key) {
-        String json = getStringSync(key);
-        if (json == null) return null;
-        try {
-            TypeToken<Map<K, V>> typeToken = new TypeToken<Map<K, V>>() {
-            };
-            return gson.fromJson(json, typeToken.getType());
-        } catch (Exception e) {
-            Log.e(TAG, "Map解析失败: " + e.getMessage());
-            return null;
-        }
+        TypeToken<Map<K, V>> typeToken = new TypeToken<Map<K, V>>() {
+        };
+        return readThrough(key, Map.class, data -> decodeObject(data, typeToken.getType()));
     }
 
     /**
@@ -323,7 +556,8 @@ public class LruCacheUtils {
         if (value == null) return false;
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream(); ObjectOutputStream oos = new ObjectOutputStream(baos)) {
             oos.writeObject(value);
-            return putBytesSync(key, baos.toByteArray());
+            oos.flush();
+            return writeThrough(key, value.getClass(), value, baos.toByteArray());
         } catch (IOException e) {
             Log.e(TAG, "对象序列化失败: " + e.getMessage());
             return false;
@@ -339,19 +573,19 @@ public class LruCacheUtils {
      * @return 缓存对象，失败返回null
      */
     public <T extends Serializable> T getSerializableSync(String key, Class<T> clazz) {
-        byte[] data = getBytesSync(key);
-        if (data == null) return null;
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data); ObjectInputStream ois = new ObjectInputStream(bais)) {
-            Object obj = ois.readObject();
-            return clazz.cast(obj);
-        } catch (IOException | ClassNotFoundException | ClassCastException e) {
-            Log.e(TAG, "对象反序列化失败: " + e.getMessage());
-            return null;
-        }
+        return readThrough(key, clazz, data -> {
+            try (ByteArrayInputStream bais = new ByteArrayInputStream(data); ObjectInputStream ois = new ObjectInputStream(bais)) {
+                Object obj = ois.readObject();
+                return clazz.cast(obj);
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                Log.e(TAG, "对象反序列化失败: " + e.getMessage());
+                return null;
+            }
+        });
     }
 
     /**
-     * 同步存入Gson序列化对象缓存
+     * 同步存入对象缓存，使用当前编码器（默认Gson）
      *
      * @param key   缓存键
      * @param value 任意对象
@@ -360,29 +594,104 @@ public class LruCacheUtils {
      */
     public <T> boolean putObjectSync(String key, T value) {
         if (value == null) return false;
-        String json = gson.toJson(value);
-        return putStringSync(key, json);
+        byte[] data = encodeObject(value, 0);
+        return data != null && writeThrough(key, value.getClass(), value, data, 0);
+    }
+
+    /**
+     * 同步存入带有效期的对象缓存，过期后getObjectSync返回null，getOrLoad系列方法返回旧数据并刷新；
+     * 有效期保存在数据头中，与缓存数据一起写入
+     *
+     * @param key   缓存键
+     * @param value 任意对象
+     * @param ttlMs 有效期（毫秒），小于等于0表示不过期
+     * @param <T>   泛型类型
+     * @return 是否成功
+     */
+    public <T> boolean putObjectSync(String key, T value, long ttlMs) {
+        if (value == null) return false;
+        long expireAt = ttlMs > 0 ? System.currentTimeMillis() + ttlMs : 0;
+        byte[] data = encodeObject(value, expireAt);
+        return data != null && writeThrough(key, value.getClass(), value, data, expireAt);
     }
 
     /**
-     * 同步获取Gson序列化对象缓存
+     * 同步获取对象缓存，按数据头选择编码器
      *
      * @param key   缓存键
      * @param clazz 对象类型
      * @param <T>   泛型类型
-     * @return 缓存对象，失败返回null
+     * @return 缓存对象，不存在、已过期或失败返回null
      */
     public <T> T getObjectSync(String key, Class<T> clazz) {
-        String json = getStringSync(key);
-        if (json == null) return null;
+        Cached<T> cached = readCached(key, clazz);
+        return cached == null || cached.isExpired() ? null : cached.value;
+    }
+
+    /**
+     * 同步获取对象缓存，不存在时调用loader加载并写入（阻塞当前线程）；
+     * 已过期时立即返回旧数据，并在后台调用loader刷新，同一个key同时只有一个刷新
+     *
+     * @param key    缓存键
+     * @param ttlMs  加载后的有效期（毫秒）
+     * @param clazz  对象类型
+     * @param loader 数据加载器，在IO线程调用
+     * @param <T>    泛型类型
+     * @return 缓存对象或加载结果，加载失败返回null
+     */
+    public <T> T getOrLoadSync(String key, long ttlMs, Class<T> clazz, Loader<T> loader) {
+        if (key == null || clazz == null || loader == null) return null;
+        Cached<T> cached = readCached(key, clazz);
+        if (cached != null) {
+            if (cached.isExpired()) {
+                refresh(key, ttlMs, loader);
+            }
+            return cached.value;
+        }
         try {
-            return gson.fromJson(json, clazz);
-        } catch (Exception e) {
-            Log.e(TAG, "对象解析失败: " + e.getMessage());
+            return refresh(key, ttlMs, loader).blockingGet();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "加载缓存数据失败: " + key + ", " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * 获取对象缓存，先发出缓存数据，过期或不存在时再发出loader加载的新数据：
+     * 未过期时只发出缓存数据；已过期时发出旧数据和新数据（刷新失败时只发出旧数据后正常结束）；
+     * 不存在时发出新数据，加载失败以错误结束。在IO线程读取缓存
+     *
+     * @param key    缓存键
+     * @param ttlMs  加载后的有效期（毫秒）
+     * @param clazz  对象类型
+     * @param loader 数据加载器，在IO线程调用
+     * @param <T>    泛型类型
+     * @return 依次发出缓存数据和新数据的Observable
+     */
+    public <T> Observable<T> getOrLoadRx(String key, long ttlMs, Class<T> clazz, Loader<T> loader) {
+        return Observable.defer(() -> {
+            Cached<T> cached = readCached(key, clazz);
+            if (cached == null) {
+                return refresh(key, ttlMs, loader).toObservable();
+            }
+            if (!cached.isExpired()) {
+                return Observable.just(cached.value);
+            }
+            return Observable.just(cached.value).concatWith(refresh(key, ttlMs, loader).onErrorComplete());
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * 获取刷新统计信息
+     *
+     * @return 统计快照
+     */
+    public RefreshStats getRefreshStats() {
+        synchronized (refreshStatsLock) {
+            return new RefreshStats(refreshCount, refreshFailureCount, refreshTotalNanos, refreshMaxNanos, refreshes.size());
+        }
+    }
+
     /**
      * 同步存入Parceler对象缓存（需配合@Parcel注解）
      *
@@ -439,7 +748,7 @@ public class LruCacheUtils {
             } finally {
                 parcel.recycle(); // 释放资源，防止内存泄漏
             }
-            return putBytesSync(key, baos.toByteArray());
+            return writeThrough(key, Parcelable.class, value, baos.toByteArray());
         } catch (IOException e) {
             Log.e(TAG, "Parcelable序列化失败: " + e.getMessage());
             return false;
@@ -453,21 +762,21 @@ public class LruCacheUtils {
      * @return 缓存对象，失败返回null
      */
     public Parcelable getParcelableSync(String key) {
-        byte[] data = getBytesSync(key);
-        if (data == null) return null;
-        try {
-            Parcel parcel = Parcel.obtain();
+        return readThrough(key, Parcelable.class, data -> {
             try {
-                parcel.unmarshall(data, 0, data.length);
-                parcel.setDataPosition(0); // 重置读取位置
-                return parcel.readParcelable(getClass().getClassLoader());
-            } finally {
-                parcel.recycle(); // 释放资源，防止内存泄漏
+                Parcel parcel = Parcel.obtain();
+                try {
+                    parcel.unmarshall(data, 0, data.length);
+                    parcel.setDataPosition(0); // 重置读取位置
+                    return parcel.readParcelable(getClass().getClassLoader());
+                } finally {
+                    parcel.recycle(); // 释放资源，防止内存泄漏
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Parcelable反序列化失败: " + e.getMessage());
+                return null;
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Parcelable反序列化失败: " + e.getMessage());
-            return null;
-        }
+        });
     }
 
     /**
@@ -476,9 +785,10 @@ public class LruCacheUtils {
      * @param key      缓存键
      * @param value    缓存值
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void putInt(String key, int value, BasicCallback<Integer> callback) {
-        submitTask(key, () -> {
+    public Future<?> putInt(String key, int value, BasicCallback<Integer> callback) {
+        return submitTask(key, () -> {
             boolean success = putIntSync(key, value);
             notifyBasicCallback(callback, success, value);
         });
@@ -489,9 +799,10 @@ public class LruCacheUtils {
      *
      * @param key      缓存键
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void getInt(String key, BasicCallback<Integer> callback) {
-        submitTask(key, () -> {
+    public Future<?> getInt(String key, BasicCallback<Integer> callback) {
+        return submitTask(key, () -> {
             int value = getIntSync(key);
             notifyBasicCallback(callback, true, value);
         });
@@ -503,9 +814,10 @@ public class LruCacheUtils {
      * @param key      缓存键
      * @param value    缓存值
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void putString(String key, String value, BasicCallback<String> callback) {
-        submitTask(key, () -> {
+    public Future<?> putString(String key, String value, BasicCallback<String> callback) {
+        return submitTask(key, () -> {
             boolean success = putStringSync(key, value);
             notifyBasicCallback(callback, success, value);
         });
@@ -516,9 +828,10 @@ public class LruCacheUtils {
      *
      * @param key      缓存键
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void getString(String key, BasicCallback<String> callback) {
-        submitTask(key, () -> {
+    public Future<?> getString(String key, BasicCallback<String> callback) {
+        return submitTask(key, () -> {
             String value = getStringSync(key);
             notifyBasicCallback(callback, value != null, value);
         });
@@ -530,9 +843,10 @@ public class LruCacheUtils {
      * @param key      缓存键
      * @param value    缓存值
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void putJSONObject(String key, JSONObject value, BasicCallback<JSONObject> callback) {
-        submitTask(key, () -> {
+    public Future<?> putJSONObject(String key, JSONObject value, BasicCallback<JSONObject> callback) {
+        return submitTask(key, () -> {
             boolean success = putJSONObjectSync(key, value);
             notifyBasicCallback(callback, success, value);
         });
@@ -543,9 +857,10 @@ public class LruCacheUtils {
      *
      * @param key      缓存键
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void getJSONObject(String key, BasicCallback<JSONObject> callback) {
-        submitTask(key, () -> {
+    public Future<?> getJSONObject(String key, BasicCallback<JSONObject> callback) {
+        return submitTask(key, () -> {
             JSONObject value = getJSONObjectSync(key);
             notifyBasicCallback(callback, value != null, value);
         });
@@ -558,9 +873,10 @@ public class LruCacheUtils {
      * @param value    缓存值
      * @param callback 结果回调
      * @param <T>      泛型类型
+     * @return 可用于取消任务的Future
      */
-    public <T> void putObject(String key, T value, BasicCallback<T> callback) {
-        submitTask(key, () -> {
+    public <T> Future<?> putObject(String key, T value, BasicCallback<T> callback) {
+        return submitTask(key, () -> {
             boolean success = putObjectSync(key, value);
             notifyBasicCallback(callback, success, value);
         });
@@ -573,9 +889,10 @@ public class LruCacheUtils {
      * @param clazz    对象类型
      * @param callback 结果回调
      * @param <T>      泛型类型
+     * @return 可用于取消任务的Future
      */
-    public <T> void getObject(String key, Class<T> clazz, BasicCallback<T> callback) {
-        submitTask(key, () -> {
+    public <T> Future<?> getObject(String key, Class<T> clazz, BasicCallback<T> callback) {
+        return submitTask(key, () -> {
             T value = getObjectSync(key, clazz);
             notifyBasicCallback(callback, value != null, value);
         });
@@ -588,9 +905,10 @@ public class LruCacheUtils {
      * @param value    缓存值
      * @param callback 结果回调
      * @param <T>      泛型类型
+     * @return 可用于取消任务的Future
      */
-    public <T> void putParceler(String key, T value, BasicCallback<T> callback) {
-        submitTask(key, () -> {
+    public <T> Future<?> putParceler(String key, T value, BasicCallback<T> callback) {
+        return submitTask(key, () -> {
             boolean success = putParcelerSync(key, value);
             notifyBasicCallback(callback, success, value);
         });
@@ -602,9 +920,10 @@ public class LruCacheUtils {
      * @param key      缓存键
      * @param callback 结果回调
      * @param <T>      泛型类型
+     * @return 可用于取消任务的Future
      */
-    public <T> void getParceler(String key, BasicCallback<T> callback) {
-        submitTask(key, () -> {
+    public <T> Future<?> getParceler(String key, BasicCallback<T> callback) {
+        return submitTask(key, () -> {
             T value = getParcelerSync(key);
             notifyBasicCallback(callback, value != null, value);
         });
@@ -618,15 +937,32 @@ public class LruCacheUtils {
      */
     public boolean removeSync(String key) {
         if (key == null || diskCache == null) return false;
-        try {
-            String hashedKey = hashKeyForDisk(key);
-            boolean success = diskCache.remove(hashedKey);
-            diskCache.flush();
-            Log.d(TAG, "缓存删除" + (success ? "成功" : "失败") + ": " + hashedKey);
-            return success;
-        } catch (IOException e) {
-            Log.e(TAG, "删除缓存失败: " + e.getMessage());
-            return false;
+        memoryCache.remove(key);
+        synchronized (flushLock) {
+            diskLock.readLock().lock();
+            try {
+                String hashedKey = hashKeyForDisk(key);
+                boolean pending;
+                synchronized (pendingWrites) {
+                    // 删除直接作用于磁盘，同时丢弃尚未写入的数据
+                    pending = pendingWrites.remove(key) != null;
+                }
+                boolean success = diskCache.remove(hashedKey) || pending;
+                keyIndex.remove(key);
+                if (admission != null) {
+                    admission.onRemove(key);
+                }
+                diskCache.flush();
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "缓存删除" + (success ? "成功" : "失败") + ": " + hashedKey);
+                }
+                return success;
+            } catch (IOException e) {
+                Log.e(TAG, "删除缓存失败: " + e.getMessage());
+                return false;
+            } finally {
+                diskLock.readLock().unlock();
+            }
         }
     }
 
@@ -635,32 +971,191 @@ public class LruCacheUtils {
      *
      * @param key      缓存键
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void remove(String key, EmptyCallback callback) {
-        submitTask(key, () -> {
+    public Future<?> remove(String key, EmptyCallback callback) {
+        return submitTask(key, () -> {
             boolean success = removeSync(key);
             notifyEmptyCallback(callback, success);
         });
     }
 
+    /**
+     * 同步删除key以prefix开头的缓存（按key索引查找），只刷新一次缓存日志；
+     * 例如key按"user_42_"开头命名时，退出登录只删除该用户的数据，不必清空所有缓存。
+     * 只删除索引中匹配的数据，不会清空整个区域；升级前写入的数据不在索引中，索引不完整时（见isKeyIndexComplete）
+     * 这部分数据无法按前缀找到而保留，需要确保删除干净时由调用方判断后调用clearAllSync
+     *
+     * @param prefix key前缀，不能为空
+     * @return 删除的条数
+     */
+    public int removeByPrefixSync(String prefix) {
+        if (prefix == null || prefix.isEmpty() || diskCache == null) return 0;
+        List<String> keys = keyIndex.keysWithPrefix(prefix);
+        if (!keyIndex.isComplete()) {
+            Log.w(TAG, "key索引不包含升级前的数据，按前缀删除只删除索引中的数据: " + config.name);
+        }
+        int removed = 0;
+        synchronized (flushLock) {
+            diskLock.readLock().lock();
+            try {
+                for (String key : keys) {
+                    memoryCache.remove(key);
+                    boolean pending;
+                    synchronized (pendingWrites) {
+                        pending = pendingWrites.remove(key) != null;
+                    }
+                    if (diskCache.remove(hashKeyForDisk(key)) || pending) {
+                        removed++;
+                    }
+                    keyIndex.remove(key);
+                    if (admission != null) {
+                        admission.onRemove(key);
+                    }
+                }
+                diskCache.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "按前缀删除缓存失败: " + e.getMessage());
+            } finally {
+                diskLock.readLock().unlock();
+            }
+        }
+        Log.i(TAG, "按前缀删除缓存: " + prefix + ", 共" + removed + "条");
+        return removed;
+    }
+
+    /**
+     * 异步删除key以prefix开头的缓存
+     *
+     * @param prefix   key前缀，不能为空
+     * @param callback 结果回调
+     * @return 可用于取消任务的Future
+     */
+    public Future<?> removeByPrefix(String prefix, EmptyCallback callback) {
+        return submitTask("remove_prefix:" + prefix, () -> {
+            removeByPrefixSync(prefix);
+            notifyEmptyCallback(callback, true);
+        });
+    }
+
+    /**
+     * 获取key以prefix开头的缓存键（按字典序），可能包含已被LRU淘汰的key，读取时返回null；
+     * 只包含支持key索引之后写入的数据，可通过isKeyIndexComplete判断是否包含全部数据
+     *
+     * @param prefix key前缀，为null或空时返回全部
+     * @return 缓存键列表快照
+     */
+    public List<String> getKeys(String prefix) {
+        return keyIndex.keysWithPrefix(prefix);
+    }
+
+    /**
+     * key索引是否包含缓存中的全部数据，升级前写入的数据被清空之前返回false
+     *
+     * @return 是否完整
+     */
+    public boolean isKeyIndexComplete() {
+        return keyIndex.isComplete();
+    }
+
+    /**
+     * 同步批量获取对象缓存，内存缓存未命中的key一次性读取磁盘
+     *
+     * @param keys  缓存键
+     * @param clazz 对象类型
+     * @param <T>   泛型类型
+     * @return 按keys顺序排列的缓存对象，不存在、已过期或解析失败的key不包含在内
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAllSync(Collection<String> keys, Class<T> clazz) {
+        Map<String, T> result = new LinkedHashMap<>();
+        if (keys == null || clazz == null) return result;
+        long now = System.currentTimeMillis();
+        Map<String, T> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String key : keys) {
+            if (key == null || !seen.add(key)) continue;
+            recordAccess(key);
+            MemoryCacheTier.Node node = memoryCache.peek(key, clazz);
+            if (node == null) {
+                misses.add(key);
+            } else if (!node.isExpired(now)) {
+                T value = materialize(node.value, data -> decodeObject(data, clazz));
+                if (value != null) {
+                    found.put(key, value);
+                }
+            }
+        }
+        if (!misses.isEmpty()) {
+            long version = memoryCache.version();
+            for (Map.Entry<String, byte[]> entry : getBytesBatchSync(misses).entrySet()) {
+                byte[] data = entry.getValue();
+                long start = System.nanoTime();
+                T value = decodeObject(data, clazz);
+                metrics.deserialize.record(System.nanoTime() - start);
+                if (value == null) continue;
+                long expireAt = CacheCodecFormat.expireAt(data);
+                memoryCache.fill(entry.getKey(), clazz, toMemoryValue(value, data), data.length, expireAt, version);
+                if (expireAt <= 0 || now < expireAt) {
+                    found.put(entry.getKey(), value);
+                }
+            }
+        }
+        for (String key : keys) {
+            T value = key != null ? found.get(key) : null;
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        metrics.hits.addAndGet(found.size());
+        metrics.misses.addAndGet(seen.size() - found.size());
+        return result;
+    }
+
+    /**
+     * 异步批量获取对象缓存
+     *
+     * @param keys     缓存键
+     * @param clazz    对象类型
+     * @param callback 结果回调，返回按keys顺序排列的缓存对象
+     * @param <T>      泛型类型
+     * @return 可用于取消任务的Future
+     */
+    public <T> Future<?> getAll(Collection<String> keys, Class<T> clazz, BasicCallback<Map<String, T>> callback) {
+        return submitTask("get_all", () -> notifyBasicCallback(callback, true, getAllSync(keys, clazz)));
+    }
+
     /**
      * 同步清空所有缓存
      *
      * @return 是否成功
      */
     public boolean clearAllSync() {
+        diskLock.writeLock().lock();
         try {
+            memoryCache.clear();
+            synchronized (pendingWrites) {
+                pendingWrites.clear();
+                flushingWrites.clear();
+            }
+            if (admission != null) {
+                admission.onClear();
+            }
             if (diskCache != null) {
                 diskCache.delete();
                 diskCache.close();
                 diskCache = null;
             }
             initDiskCache();
+            keyIndex.clear();
             Log.i(TAG, "所有缓存已清空");
             return true;
         } catch (IOException e) {
             Log.e(TAG, "清空缓存失败: " + e.getMessage());
             return false;
+        } finally {
+            diskLock.writeLock().unlock();
         }
     }
 
@@ -668,125 +1163,1018 @@ public class LruCacheUtils {
      * 异步清空所有缓存
      *
      * @param callback 结果回调
+     * @return 可用于取消任务的Future
      */
-    public void clearAll(EmptyCallback callback) {
-        submitTask("clear_all", () -> {
+    public Future<?> clearAll(EmptyCallback callback) {
+        return submitTask("clear_all", () -> {
             boolean success = clearAllSync();
             notifyEmptyCallback(callback, success);
         });
     }
 
     /**
-     * 同步存入字节数组
+     * 打开缓存数据的输入流，直接读取缓存文件，不复制到内存，适合较大的数据；调用方必须关闭返回的流
      *
-     * @param key  缓存键
-     * @param data 字节数组
-     * @return 是否成功
+     * @param key 缓存键
+     * @return 输入流，缓存不存在或读取失败返回null
      */
-    private boolean putBytesSync(String key, byte[] data) {
-        if (key == null || data == null || diskCache == null) return false;
-
-        String hashedKey = hashKeyForDisk(key);
-        DiskLruCache.Editor editor = null;
-        try {
-            editor = diskCache.edit(hashedKey);
-            if (editor == null) {
-                Log.w(TAG, "获取编辑器失败: " + hashedKey);
-                return false;
-            }
-
-            try (OutputStream os = new BufferedOutputStream(editor.newOutputStream(0), IO_BUFFER_SIZE)) {
-                os.write(data);
+    public InputStream openInputStream(String key) {
+        if (key == null || diskCache == null) return null;
+        synchronized (pendingWrites) {
+            byte[] pending = pendingData(key);
+            if (pending != null) {
+                return new ByteArrayInputStream(pending);
             }
-            editor.commit();
-            diskCache.flush();
-            Log.d(TAG, "缓存存入成功: " + hashedKey);
-            return true;
+        }
+        diskLock.readLock().lock();
+        try {
+            DiskLruCache.Snapshot snapshot = diskCache.get(hashKeyForDisk(key));
+            if (snapshot == null) return null;
+            return new SnapshotInputStream(snapshot);
         } catch (IOException e) {
-            Log.e(TAG, "存入缓存失败: " + e.getMessage());
-            if (editor != null) {
-                try {
-                    editor.abort();
-                } catch (IOException ex) {
-                    Log.e(TAG, "编辑器回滚失败: " + ex.getMessage());
-                }
-            }
-            return false;
+            Log.e(TAG, "打开缓存失败: " + e.getMessage());
+            return null;
+        } finally {
+            diskLock.readLock().unlock();
         }
     }
 
     /**
-     * 同步获取字节数组
+     * 以只读ByteBuffer获取缓存数据，较大的数据使用内存映射，不占用Java堆
      *
      * @param key 缓存键
-     * @return 字节数组，失败返回null
+     * @return 只读ByteBuffer，缓存不存在或读取失败返回null
      */
-    private byte[] getBytesSync(String key) {
-        if (key == null || diskCache == null) return null;
-
-        String hashedKey = hashKeyForDisk(key);
-        DiskLruCache.Snapshot snapshot = null;
+    public ByteBuffer mapBytes(String key) {
+        InputStream is = openInputStream(key);
+        if (is == null) return null;
         try {
-            snapshot = diskCache.get(hashedKey);
-            if (snapshot == null) {
-                Log.d(TAG, "缓存不存在: " + hashedKey);
-                return null;
-            }
-
-            try (InputStream is = new BufferedInputStream(snapshot.getInputStream(0), IO_BUFFER_SIZE); ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-                byte[] buffer = new byte[IO_BUFFER_SIZE];
-                int len;
-                while ((len = is.read(buffer)) != -1) {
-                    baos.write(buffer, 0, len);
+            InputStream source = is instanceof SnapshotInputStream ? ((SnapshotInputStream) is).source() : is;
+            if (source instanceof FileInputStream) {
+                FileChannel channel = ((FileInputStream) source).getChannel();
+                long size = channel.size();
+                if (size >= MMAP_THRESHOLD) {
+                    // 映射建立后与文件描述符无关，关闭流不影响读取
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
                 }
-                Log.d(TAG, "缓存读取成功: " + hashedKey);
-                return baos.toByteArray();
             }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                baos.write(buffer, 0, len);
+            }
+            return ByteBuffer.wrap(baos.toByteArray()).asReadOnlyBuffer();
         } catch (IOException e) {
-            Log.e(TAG, "读取缓存失败: " + e.getMessage());
+            Log.e(TAG, "映射缓存失败: " + e.getMessage());
             return null;
         } finally {
-            if (snapshot != null) {
-                snapshot.close();
-            }
+            CloseableUtils.close(is);
         }
     }
 
     /**
-     * 提交任务到线程池
+     * 打开缓存数据的JsonReader，边读文件边解析；调用方必须关闭返回的JsonReader
      *
-     * @param key  任务关联的缓存键
-     * @param task 要执行的任务
+     * @param key 缓存键
+     * @return JsonReader，缓存不存在或读取失败返回null
+     */
+    public JsonReader openJsonReader(String key) {
+        InputStream is = openInputStream(key);
+        if (is == null) return null;
+        return gson.newJsonReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 流式存入Gson序列化对象，直接序列化到缓存文件，不生成中间字符串和字节数组，适合较大的对象；
+     * 不受刷新策略影响，返回时数据已写入磁盘，也不放入内存缓存
+     *
+     * @param key   缓存键
+     * @param value 任意对象
+     * @param <T>   泛型类型
+     * @return 是否成功
+     */
+    public <T> boolean putObjectStreamingSync(String key, T value) {
+        if (key == null || value == null || diskCache == null || !hasRoom(key, 0)) return false;
+        memoryCache.remove(key);
+        String hashedKey = hashKeyForDisk(key);
+        DiskLruCache.Editor editor = null;
+        // 与批量写入互斥，避免正在写入的旧数据覆盖本次写入
+        synchronized (flushLock) {
+            diskLock.readLock().lock();
+            try {
+                synchronized (pendingWrites) {
+                    pendingWrites.remove(key);
+                }
+                editor = diskCache.edit(hashedKey);
+                if (editor == null) {
+                    Log.w(TAG, "获取编辑器失败: " + hashedKey);
+                    return false;
+                }
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(editor.newOutputStream(0), StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+                    gson.toJson(value, writer);
+                }
+                editor.commit();
+                keyIndex.add(key);
+                diskCache.flush();
+                return true;
+            } catch (Exception e) {
+                Log.e(TAG, "流式存入缓存失败: " + e.getMessage());
+                if (editor != null) {
+                    try {
+                        editor.abort();
+                    } catch (IOException ex) {
+                        Log.e(TAG, "编辑器回滚失败: " + ex.getMessage());
+                    }
+                }
+                return false;
+            } finally {
+                diskLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 流式获取Gson序列化对象，边读缓存文件边解析，不生成中间字符串，与putObjectStreamingSync配合使用；
+     * 不经过内存缓存
+     *
+     * @param key  缓存键
+     * @param type 对象类型，泛型类型可通过TypeToken获取
+     * @param <T>  泛型类型
+     * @return 缓存对象，失败返回null
+     */
+    public <T> T getObjectStreamingSync(String key, Type type) {
+        InputStream is = openInputStream(key);
+        if (is == null) return null;
+        JsonReader reader = null;
+        try {
+            BufferedInputStream bis = new BufferedInputStream(is, IO_BUFFER_SIZE);
+            bis.mark(1);
+            int first = bis.read();
+            bis.reset();
+            if (first == CacheCodecFormat.MAGIC) {
+                // 由编码器写入的数据，不是JSON文本
+                byte[] data = getBytesSync(key);
+                long expireAt = CacheCodecFormat.expireAt(data);
+                if (expireAt > 0 && System.currentTimeMillis() >= expireAt) {
+                    return null;
+                }
+                return decodeObject(data, type);
+            }
+            reader = gson.newJsonReader(new InputStreamReader(bis, StandardCharsets.UTF_8));
+            return gson.fromJson(reader, type);
+        } catch (Exception e) {
+            Log.e(TAG, "流式解析缓存失败: " + e.getMessage());
+            return null;
+        } finally {
+            CloseableUtils.close(reader);
+            CloseableUtils.close(is);
+        }
+    }
+
+    /**
+     * 设置对象编码器（putObject、putMap、putAll中的对象），默认使用Gson；
+     * 已有数据仍按写入时的编码器读取，不需要清空缓存
+     *
+     * @param codec 编码器，如{@link BinaryCacheCodec}
+     */
+    public void setCodec(CacheCodec codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("codec is null");
+        }
+        registerCodec(codec);
+        this.codec = codec;
+    }
+
+    /**
+     * 注册编码器，用于读取由该编码器写入的数据
+     *
+     * @param codec 编码器
+     */
+    public void registerCodec(CacheCodec codec) {
+        if (codec == null || codec.getId() <= 0 || codec.getId() > 255) {
+            throw new IllegalArgumentException("Invalid codec id");
+        }
+        codecs.put(codec.getId(), codec);
+    }
+
+    /**
+     * 设置压缩阈值，对象编码后不小于该字节数时使用deflate压缩，默认0不压缩
+     *
+     * @param bytes 压缩阈值
+     */
+    public void setCompressThreshold(int bytes) {
+        compressThreshold = Math.max(0, bytes);
+    }
+
+    /**
+     * 使用当前编码器编码对象；Gson编码、不压缩且不过期时保存为不带数据头的JSON，与旧版本格式一致
+     *
+     * @param value    对象
+     * @param expireAt 过期时间，0表示不过期
+     * @return 编码后的数据，失败返回null
+     */
+    private byte[] encodeObject(Object value, long expireAt) {
+        CacheCodec current = codec;
+        long start = System.nanoTime();
+        try {
+            byte[] payload = current.encode(value);
+            metrics.serialize.record(System.nanoTime() - start);
+            int threshold = compressThreshold;
+            if (current.getId() == CacheCodec.ID_GSON && expireAt <= 0 && (threshold <= 0 || payload.length < threshold)) {
+                return payload;
+            }
+            return CacheCodecFormat.wrap(current.getId(), payload, threshold, expireAt);
+        } catch (Exception e) {
+            Log.e(TAG, "对象编码失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 按数据头选择编码器解码，没有数据头的数据按Gson JSON解析
+     *
+     * @param data 缓存数据
+     * @param type 对象类型
+     * @param <T>  对象类型
+     * @return 解码后的对象，失败返回null
+     */
+    private <T> T decodeObject(byte[] data, Type type) {
+        if (data == null) return null;
+        try {
+            if (!CacheCodecFormat.hasHeader(data)) {
+                return codecs.get(CacheCodec.ID_GSON).decode(data, 0, data.length, type);
+            }
+            CacheCodec decoder = codecs.get(CacheCodecFormat.codecId(data));
+            if (decoder == null) {
+                Log.e(TAG, "未注册的编码器: " + CacheCodecFormat.codecId(data));
+                return null;
+            }
+            return CacheCodecFormat.decode(decoder, data, type);
+        } catch (Exception e) {
+            Log.e(TAG, "对象解析失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 设置内存缓存大小，默认2MB，为0时关闭内存缓存
+     *
+     * @param maxBytes 最大字节数（按编码后的大小估算）
+     */
+    public void setMemoryCacheSize(long maxBytes) {
+        memoryCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * 获取内存缓存统计信息
+     *
+     * @return 统计快照
+     */
+    public MemoryStats getMemoryStats() {
+        return new MemoryStats(memoryCache.hitCount(), memoryCache.missCount(), memoryCache.evictionCount(), memoryCache.count(), memoryCache.size(), memoryCache.maxSize());
+    }
+
+    /**
+     * 写入磁盘，成功后将不可变的值放入内存缓存，其他情况使内存缓存失效
+     *
+     * @param key   缓存键
+     * @param type  对象类型标记，读取时类型一致才命中内存缓存
+     * @param value 解码后的对象
+     * @param data  编码后的字节数组
+     * @return 是否成功
+     */
+    private boolean writeThrough(String key, Object type, Object value, byte[] data) {
+        return writeThrough(key, type, value, data, 0);
+    }
+
+    /**
+     * 写入磁盘，成功后将不可变的值及其过期时间放入内存缓存；
+     * 可变对象不放入，由读取时按解码结果回填，调用方之后修改传入的对象不会影响缓存，读取结果的类型也与磁盘解码一致
+     *
+     * @param expireAt 过期时间，0表示不过期
+     */
+    private boolean writeThrough(String key, Object type, Object value, byte[] data, long expireAt) {
+        if (key == null) return false;
+        recordAccess(key);
+        boolean success = putBytesSync(key, data);
+        if (success && isImmutable(value)) {
+            memoryCache.put(key, type, value, data.length, expireAt);
+        } else {
+            memoryCache.remove(key);
+        }
+        return success;
+    }
+
+    /**
+     * 判断值是否不可变，不可变的值写入时可以直接放入内存缓存
+     */
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Boolean;
+    }
+
+    /**
+     * 获取放入内存缓存的值，不可变的值直接保存，可变对象保存编码后的数据；
+     * 区域开启了共享解码对象时可变对象也直接保存
+     *
+     * @param value 解码后的对象
+     * @param data  编码后的字节数组，只在内存缓存内部使用，不返回给调用方
+     * @return 放入内存缓存的值，value为null时返回null
+     */
+    private Object toMemoryValue(Object value, byte[] data) {
+        if (value == null) return null;
+        return config.shareDecodedValues || isImmutable(value) ? value : new EncodedValue(data);
+    }
+
+    /**
+     * 将内存缓存中的值转换为返回给调用方的对象，编码后的数据重新解码，每次返回新实例
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T materialize(Object cached, Decoder<T> decoder) {
+        if (!(cached instanceof EncodedValue)) {
+            return (T) cached;
+        }
+        long start = System.nanoTime();
+        T value = decoder.decode(((EncodedValue) cached).data);
+        metrics.deserialize.record(System.nanoTime() - start);
+        return value;
+    }
+
+    /**
+     * 优先从内存缓存读取，未命中时读取磁盘并解码，解码成功后回填内存缓存
+     *
+     * @param key     缓存键
+     * @param type    对象类型标记
+     * @param decoder 解码器，解码失败返回null
+     * @param <T>     对象类型
+     * @return 缓存对象，不存在或解码失败返回null
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T readThrough(String key, Object type, Decoder<T> decoder) {
+        if (key == null) return null;
+        recordAccess(key);
+        Object cached = memoryCache.get(key, type);
+        if (cached != null) {
+            metrics.hits.incrementAndGet();
+            return materialize(cached, decoder);
+        }
+        long version = memoryCache.version();
+        byte[] data = getBytesSync(key);
+        if (data == null) {
+            metrics.misses.incrementAndGet();
+            return null;
+        }
+        long start = System.nanoTime();
+        T value = decoder.decode(data);
+        metrics.deserialize.record(System.nanoTime() - start);
+        (value != null ? metrics.hits : metrics.misses).incrementAndGet();
+        memoryCache.fill(key, type, toMemoryValue(value, data), data.length, 0, version);
+        return value;
+    }
+
+    /**
+     * 读取编码器写入的对象及其过期时间，不检查是否过期；未命中内存缓存时读取磁盘并回填
+     *
+     * @param key   缓存键
+     * @param clazz 对象类型
+     * @param <T>   对象类型
+     * @return 缓存对象，不存在或解码失败返回null
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Cached<T> readCached(String key, Class<T> clazz) {
+        if (key == null) return null;
+        recordAccess(key);
+        MemoryCacheTier.Node node = memoryCache.peek(key, clazz);
+        if (node != null) {
+            T value = materialize(node.value, data -> decodeObject(data, clazz));
+            if (value != null) {
+                metrics.hits.incrementAndGet();
+                return new Cached<>(value, node.expireAt);
+            }
+        }
+        long version = memoryCache.version();
+        byte[] data = getBytesSync(key);
+        if (data == null) {
+            metrics.misses.incrementAndGet();
+            return null;
+        }
+        long start = System.nanoTime();
+        T value = decodeObject(data, clazz);
+        metrics.deserialize.record(System.nanoTime() - start);
+        if (value == null) {
+            metrics.misses.incrementAndGet();
+            return null;
+        }
+        metrics.hits.incrementAndGet();
+        long expireAt = CacheCodecFormat.expireAt(data);
+        memoryCache.fill(key, clazz, toMemoryValue(value, data), data.length, expireAt, version);
+        return new Cached<>(value, expireAt);
+    }
+
+    /**
+     * 启动刷新，同一个key已有刷新时返回正在进行的刷新；加载成功后写入缓存并记录耗时
+     *
+     * @param key    缓存键
+     * @param ttlMs  有效期（毫秒）
+     * @param loader 数据加载器
+     * @param <T>    对象类型
+     * @return 刷新结果，loader返回null时直接结束
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Maybe<T> refresh(String key, long ttlMs, Loader<T> loader) {
+        MaybeSubject<Object> subject = MaybeSubject.create();
+        MaybeSubject<Object> running = refreshes.putIfAbsent(key, subject);
+        if (running != null) {
+            return (Maybe<T>) (Maybe<?>) running;
+        }
+        long start = System.nanoTime();
+        Maybe.fromCallable(loader::load)
+                .subscribeOn(Schedulers.io())
+                .timeout(TRANSACTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .subscribe(value -> {
+                    putObjectSync(key, value, ttlMs);
+                    finishRefresh(key, subject, start, true);
+                    subject.onSuccess(value);
+                }, error -> {
+                    Log.w(TAG, "刷新缓存失败: " + key + ", " + error.getMessage());
+                    finishRefresh(key, subject, start, false);
+                    subject.onError(error);
+                }, () -> {
+                    finishRefresh(key, subject, start, true);
+                    subject.onComplete();
+                });
+        return (Maybe<T>) (Maybe<?>) subject;
+    }
+
+    private void finishRefresh(String key, MaybeSubject<Object> subject, long start, boolean success) {
+        refreshes.remove(key, subject);
+        long elapsed = System.nanoTime() - start;
+        metrics.load.record(elapsed);
+        synchronized (refreshStatsLock) {
+            refreshCount++;
+            if (!success) {
+                refreshFailureCount++;
+            }
+            refreshTotalNanos += elapsed;
+            refreshMaxNanos = Math.max(refreshMaxNanos, elapsed);
+        }
+    }
+
+    /**
+     * 可变对象在内存缓存中保存的编码后数据，命中时重新解码
+     */
+    private static final class EncodedValue {
+        final byte[] data;
+
+        EncodedValue(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * 缓存对象及其过期时间
+     */
+    private static final class Cached<T> {
+        final T value;
+        final long expireAt;
+
+        Cached(T value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired() {
+            return expireAt > 0 && System.currentTimeMillis() >= expireAt;
+        }
+    }
+
+    /**
+     * 记录一次访问，用于准入过滤的频率估算
+     */
+    private void recordAccess(String key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+    }
+
+    /**
+     * 缓存文件输入流，关闭时同时关闭Snapshot；缓存被删除或覆盖后已打开的文件仍可继续读取
+     */
+    private static final class SnapshotInputStream extends FilterInputStream {
+        private final DiskLruCache.Snapshot snapshot;
+
+        SnapshotInputStream(DiskLruCache.Snapshot snapshot) {
+            super(snapshot.getInputStream(0));
+            this.snapshot = snapshot;
+        }
+
+        InputStream source() {
+            return in;
+        }
+
+        @Override
+        public void close() {
+            snapshot.close();
+        }
+    }
+
+    /**
+     * 字节数组解码器
+     */
+    private interface Decoder<T> {
+        T decode(byte[] data);
+    }
+
+    /**
+     * 同步存入字节数组
+     *
+     * @param key  缓存键
+     * @param data 字节数组
+     * @return 是否成功
+     */
+    private boolean putBytesSync(String key, byte[] data) {
+        if (key == null || data == null || diskCache == null) return false;
+        if (!hasRoom(key, data.length)) return false;
+
+        FlushPolicy policy = flushPolicy;
+        if (policy.isWriteBehind()) {
+            int pending;
+            synchronized (pendingWrites) {
+                pendingWrites.put(key, data);
+                keyIndex.add(key);
+                pending = pendingWrites.size();
+            }
+            if (policy.maxPendingWrites > 0 && pending >= policy.maxPendingWrites) {
+                flush();
+            } else {
+                scheduleFlush(policy);
+            }
+            return true;
+        }
+        diskLock.readLock().lock();
+        try {
+            if (!writeEntry(key, data)) {
+                return false;
+            }
+            diskCache.flush();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "刷新缓存日志失败: " + e.getMessage());
+            return false;
+        } finally {
+            diskLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 同步批量存入，所有数据写入后只刷新一次缓存日志，不受刷新策略影响，返回时数据已写入磁盘
+     * 值按类型编码：Integer、Long、Float、Boolean、String、JSONObject、JSONArray、Parcelable，
+     * Map和其他对象使用当前编码器（与putMapSync、putObjectSync一致）
+     *
+     * @param values 缓存键与值
+     * @return 全部成功返回true
+     */
+    public boolean putAllSync(Map<String, ?> values) {
+        if (values == null || diskCache == null) return false;
+        boolean success = true;
+        // 在锁外编码，写入磁盘期间读取方从flushingWrites读取本批数据
+        LinkedHashMap<String, byte[]> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            String key = entry.getKey();
+            byte[] data = key == null ? null : encodeValue(entry.getValue());
+            if (data == null) {
+                success = false;
+                continue;
+            }
+            batch.put(key, data);
+        }
+        synchronized (flushLock) {
+            diskLock.readLock().lock();
+            try {
+                synchronized (pendingWrites) {
+                    for (String key : batch.keySet()) {
+                        pendingWrites.remove(key);
+                    }
+                    flushingWrites = batch;
+                }
+                for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                    String key = entry.getKey();
+                    byte[] data = entry.getValue();
+                    Object value = values.get(key);
+                    recordAccess(key);
+                    boolean written = writeEntry(key, data);
+                    if (written && isImmutable(value)) {
+                        memoryCache.put(key, memoryTypeOf(value), value, data.length, 0);
+                    } else {
+                        // 可变对象由读取时按解码结果回填
+                        memoryCache.remove(key);
+                    }
+                    success &= written;
+                }
+                diskCache.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "刷新缓存日志失败: " + e.getMessage());
+                return false;
+            } finally {
+                synchronized (pendingWrites) {
+                    flushingWrites = new LinkedHashMap<>();
+                }
+                diskLock.readLock().unlock();
+            }
+        }
+        return success;
+    }
+
+    /**
+     * 异步批量存入
+     *
+     * @param values   缓存键与值
+     * @param callback 结果回调
+     * @return 可用于取消任务的Future
+     */
+    public Future<?> putAll(Map<String, ?> values, EmptyCallback callback) {
+        return submitTask("put_all", () -> {
+            boolean success = putAllSync(values);
+            notifyEmptyCallback(callback, success);
+        });
+    }
+
+    /**
+     * 设置写入刷新策略，默认每次写入后立即刷新，见{@link FlushPolicy}
+     *
+     * @param policy 刷新策略
+     */
+    public void setFlushPolicy(FlushPolicy policy) {
+        if (policy == null) {
+            policy = FlushPolicy.immediate();
+        }
+        flushPolicy = policy;
+        synchronized (pendingWrites) {
+            if (policy.flushOnBackground && backgroundFlushCallback == null) {
+                backgroundFlushCallback = new ActivityLifecycleManager.ActivityLifecycleCallback() {
+                    @Override
+                    public void onForegroundChanged(boolean isForeground) {
+                        if (!isForeground) {
+                            engine.execute(LruCacheUtils.this::flush);
+                        }
+                    }
+                };
+                ActivityLifecycleManager.getInstance().registerCallback(backgroundFlushCallback);
+            } else if (!policy.flushOnBackground && backgroundFlushCallback != null) {
+                ActivityLifecycleManager.getInstance().unregisterCallback(backgroundFlushCallback);
+                backgroundFlushCallback = null;
+            }
+        }
+        if (!policy.isWriteBehind()) {
+            flush();
+        }
+    }
+
+    /**
+     * 将延迟写入的数据写入磁盘并刷新缓存日志
+     *
+     * @return 是否全部写入成功
+     */
+    public boolean flush() {
+        if (diskCache == null) return false;
+        boolean success = true;
+        synchronized (flushLock) {
+            diskLock.readLock().lock();
+            try {
+                // 只在锁内取出待写入的数据，写入磁盘期间不阻塞读取和新的延迟写入
+                LinkedHashMap<String, byte[]> batch;
+                synchronized (pendingWrites) {
+                    if (scheduledFlush != null) {
+                        scheduledFlush.cancel(false);
+                        scheduledFlush = null;
+                    }
+                    batch = new LinkedHashMap<>(pendingWrites);
+                    pendingWrites.clear();
+                    flushingWrites = batch;
+                }
+                for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                    if (!writeEntry(entry.getKey(), entry.getValue())) {
+                        // 写入失败的数据不能继续从内存读取，否则与磁盘不一致
+                        memoryCache.remove(entry.getKey());
+                        success = false;
+                    }
+                }
+                diskCache.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "刷新缓存日志失败: " + e.getMessage());
+                return false;
+            } finally {
+                synchronized (pendingWrites) {
+                    flushingWrites = new LinkedHashMap<>();
+                }
+                diskLock.readLock().unlock();
+            }
+        }
+        return success;
+    }
+
+    private void scheduleFlush(FlushPolicy policy) {
+        if (policy.maxDelayMs <= 0) return;
+        synchronized (pendingWrites) {
+            if (scheduledFlush == null && !pendingWrites.isEmpty()) {
+                scheduledFlush = engine.schedule(this::flush, policy.maxDelayMs);
+            }
+        }
+    }
+
+    /**
+     * 获取尚未写入磁盘或正在写入的数据，调用方需持有pendingWrites的锁
+     *
+     * @param key 缓存键
+     * @return 数据，不存在返回null
+     */
+    private byte[] pendingData(String key) {
+        byte[] data = pendingWrites.get(key);
+        return data != null ? data : flushingWrites.get(key);
+    }
+
+    /**
+     * 按值类型编码，与各类型的put方法一致
+     *
+     * @param value 缓存值
+     * @return 编码后的字节数组，不支持的值返回null
+     */
+    private byte[] encodeValue(Object value) {
+        if (value == null) return null;
+        if (value instanceof Integer) return intToBytes((Integer) value);
+        if (value instanceof Long) return longToBytes((Long) value);
+        if (value instanceof Float) return floatToBytes((Float) value);
+        if (value instanceof Boolean) return booleanToBytes((Boolean) value);
+        if (value instanceof String) return ((String) value).getBytes(StandardCharsets.UTF_8);
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            return value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        if (value instanceof Parcelable) {
+            Parcel parcel = Parcel.obtain();
+            try {
+                ((Parcelable) value).writeToParcel(parcel, 0);
+                return parcel.marshall();
+            } finally {
+                parcel.recycle();
+            }
+        }
+        return encodeObject(value, 0);
+    }
+
+    /**
+     * 获取值在内存缓存中的类型标记，与各类型的put方法一致
+     */
+    private Object memoryTypeOf(Object value) {
+        if (value instanceof Map) return Map.class;
+        if (value instanceof Parcelable) return Parcelable.class;
+        return value.getClass();
+    }
+
+    /**
+     * 检查不淘汰的区域是否还能写入，覆盖已有数据时扣除旧数据的大小；LRU区域总是返回true
+     *
+     * @param key   缓存键
+     * @param bytes 待写入的字节数
+     * @return 是否可以写入
+     */
+    private boolean hasRoom(String key, long bytes) {
+        if (config.evictionPolicy == EvictionPolicy.LRU) return true;
+        DiskLruCache cache = diskCache;
+        if (cache != null && cache.size() + bytes - existingLength(cache, key) <= config.maxSize) return true;
+        Log.w(TAG, "缓存区域已满，拒绝写入: " + config.name);
+        return false;
+    }
+
+    /**
+     * 获取磁盘上已有数据的大小
+     *
+     * @return 数据大小，不存在或读取失败返回0
+     */
+    private long existingLength(DiskLruCache cache, String key) {
+        try (DiskLruCache.Snapshot snapshot = cache.get(hashKeyForDisk(key))) {
+            return snapshot == null ? 0 : snapshot.getLength(0);
+        } catch (IOException | IllegalStateException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 写入一条数据并提交，不刷新缓存日志
+     *
+     * @param key  缓存键
+     * @param data 字节数组
+     * @return 是否成功
+     */
+    private boolean writeEntry(String key, byte[] data) {
+        if (!hasRoom(key, data.length)) return false;
+        String hashedKey = hashKeyForDisk(key);
+        if (admission != null && !admission.admit(key, data.length, diskCache.size())) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "准入过滤拒绝写入: " + key);
+            }
+            // 拒绝覆盖已有数据时删除旧数据，否则之后读取会返回旧值
+            try {
+                if (diskCache.remove(hashedKey)) {
+                    keyIndex.remove(key);
+                    admission.onRemove(key);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "删除被拒绝覆盖的旧数据失败: " + e.getMessage());
+            }
+            return false;
+        }
+        DiskLruCache.Editor editor = null;
+        try {
+            editor = diskCache.edit(hashedKey);
+            if (editor == null) {
+                Log.w(TAG, "获取编辑器失败: " + hashedKey);
+                return false;
+            }
+
+            try (OutputStream os = new BufferedOutputStream(editor.newOutputStream(0), IO_BUFFER_SIZE)) {
+                os.write(data);
+            }
+            editor.commit();
+            keyIndex.add(key);
+            metrics.bytesWritten.addAndGet(data.length);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "存入缓存失败: " + e.getMessage());
+            if (editor != null) {
+                try {
+                    editor.abort();
+                } catch (IOException ex) {
+                    Log.e(TAG, "编辑器回滚失败: " + ex.getMessage());
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 同步获取字节数组
+     *
+     * @param key 缓存键
+     * @return 字节数组，失败返回null
+     */
+    private byte[] getBytesSync(String key) {
+        if (key == null || diskCache == null) return null;
+        synchronized (pendingWrites) {
+            byte[] pending = pendingData(key);
+            if (pending != null) {
+                return pending;
+            }
+        }
+
+        diskLock.readLock().lock();
+        try {
+            return readEntry(key);
+        } finally {
+            diskLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 批量获取字节数组，只获取一次磁盘读锁，延迟写入的数据一次取出
+     *
+     * @param keys 缓存键
+     * @return 存在的缓存键与数据
+     */
+    private Map<String, byte[]> getBytesBatchSync(List<String> keys) {
+        Map<String, byte[]> result = new HashMap<>();
+        if (diskCache == null) return result;
+        diskLock.readLock().lock();
+        try {
+            List<String> fromDisk = new ArrayList<>(keys.size());
+            synchronized (pendingWrites) {
+                for (String key : keys) {
+                    byte[] pending = pendingData(key);
+                    if (pending != null) {
+                        result.put(key, pending);
+                    } else {
+                        fromDisk.add(key);
+                    }
+                }
+            }
+            for (String key : fromDisk) {
+                byte[] data = readEntry(key);
+                if (data != null) {
+                    result.put(key, data);
+                }
+            }
+        } finally {
+            diskLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 从磁盘读取一条数据，调用方需持有磁盘读锁
+     *
+     * @param key 缓存键
+     * @return 字节数组，不存在或失败返回null
      */
-    private void submitTask(String key, Runnable task) {
-        cancelTask(key);
-        Future<?> future = executor.submit(task);
-        activeTasks.put(key, future);
+    private byte[] readEntry(String key) {
+        DiskLruCache cache = diskCache;
+        if (cache == null) return null;
+        String hashedKey = hashKeyForDisk(key);
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            snapshot = cache.get(hashedKey);
+            if (snapshot == null) {
+                return null;
+            }
 
-        // 超时监控
-        executor.submit(() -> {
-            try {
-                Thread.sleep(TimeUnit.SECONDS.toMillis(TRANSACTION_TIMEOUT_SECONDS));
-                cancelTask(key);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            // 按文件长度一次读入，避免经过ByteArrayOutputStream多复制一次
+            long length = snapshot.getLength(0);
+            if (length > Integer.MAX_VALUE) {
+                Log.e(TAG, "缓存过大，请使用openInputStream读取: " + hashedKey);
+                return null;
             }
-        });
+            byte[] data = new byte[(int) length];
+            new DataInputStream(snapshot.getInputStream(0)).readFully(data);
+            if (admission != null) {
+                admission.onRead(key, length);
+            }
+            metrics.bytesRead.addAndGet(length);
+            return data;
+        } catch (IOException e) {
+            Log.e(TAG, "读取缓存失败: " + e.getMessage());
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * 提交任务到任务引擎，同一个key的任务按提交顺序执行，超时（包含排队时间）后取消
+     *
+     * @param key  任务关联的缓存键
+     * @param task 要执行的任务
+     * @return 可用于取消任务的Future
+     */
+    private Future<?> submitTask(String key, Runnable task) {
+        return engine.submit(key, Executors.callable(task), TimeUnit.SECONDS.toMillis(TRANSACTION_TIMEOUT_SECONDS), null);
     }
 
     /**
-     * 取消指定任务
+     * 取消指定key排队中和执行中的异步任务，已取消的任务不会回调
      *
-     * @param key 任务关联的缓存键
+     * @param key 缓存键
      */
-    private void cancelTask(String key) {
-        Future<?> task = activeTasks.remove(key);
-        if (task != null) {
-            task.cancel(true);
+    public void cancel(String key) {
+        if (key != null) {
+            engine.cancel(key);
         }
     }
 
+    /**
+     * 异步存入对象缓存，同一个key的写入按订阅顺序执行
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param <T>   泛型类型
+     * @return 写入失败时以IOException结束，超时以TimeoutException结束，取消订阅时取消任务
+     */
+    public <T> Completable putObjectRx(String key, T value) {
+        return Completable.create(emitter -> {
+            Future<?> future = engine.submit(key, () -> {
+                if (putObjectSync(key, value)) {
+                    emitter.onComplete();
+                } else {
+                    emitter.tryOnError(new IOException("写入缓存失败: " + key));
+                }
+                return null;
+            }, TimeUnit.SECONDS.toMillis(TRANSACTION_TIMEOUT_SECONDS), () -> emitter.tryOnError(new TimeoutException("写入缓存超时: " + key)));
+            emitter.setCancellable(() -> future.cancel(true));
+        });
+    }
+
+    /**
+     * 异步获取对象缓存，与同一个key的写入按订阅顺序执行
+     *
+     * @param key   缓存键
+     * @param clazz 对象类型
+     * @param <T>   泛型类型
+     * @return 缓存不存在或解析失败时直接结束，超时以TimeoutException结束，取消订阅时取消任务
+     */
+    public <T> Maybe<T> getObjectRx(String key, Class<T> clazz) {
+        return Maybe.create(emitter -> {
+            Future<?> future = engine.submit(key, () -> {
+                T value = getObjectSync(key, clazz);
+                if (value != null) {
+                    emitter.onSuccess(value);
+                } else {
+                    emitter.onComplete();
+                }
+                return null;
+            }, TimeUnit.SECONDS.toMillis(TRANSACTION_TIMEOUT_SECONDS), () -> emitter.tryOnError(new TimeoutException("读取缓存超时: " + key)));
+            emitter.setCancellable(() -> future.cancel(true));
+        });
+    }
+
     /**
      * 对key进行MD5哈希处理
      *
@@ -942,25 +2330,24 @@ public class LruCacheUtils {
      * 关闭缓存工具，释放资源
      */
     public void close() {
-        try {
-            // 取消所有任务
-            for (Future<?> task : activeTasks.values()) {
-                task.cancel(true);
-            }
-            activeTasks.clear();
-
-            // 关闭线程池
-            executor.shutdown();
-            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+        stopStatsLogging();
+        synchronized (LruCacheUtils.class) {
+            if (regions.get(config.name) == this) {
+                regions.remove(config.name);
             }
+        }
+        try {
+            // 取消所有任务并关闭线程池
+            engine.cancelAll();
+            engine.shutdown(TimeUnit.SECONDS.toMillis(5));
 
-            // 关闭DiskLruCache
+            // 写入延迟写入的数据并关闭DiskLruCache
             if (diskCache != null && !diskCache.isClosed()) {
-                diskCache.flush();
+                flush();
                 diskCache.close();
                 Log.i(TAG, "缓存工具已关闭");
             }
+            keyIndex.close();
         } catch (IOException | InterruptedException e) {
             Log.e(TAG, "关闭缓存工具失败: " + e.getMessage());
             Thread.currentThread().interrupt();
@@ -986,6 +2373,522 @@ public class LruCacheUtils {
         void onFailure();
     }
 
+    /**
+     * 写入刷新策略
+     * <p>
+     * 立即模式（默认）：每次写入都提交并刷新DiskLruCache日志，返回true时数据已交给文件系统，进程被杀不会丢失。
+     * <p>
+     * 延迟写入模式：写入先保存在内存中，本进程内立即可读，满足任一条件时批量写入磁盘并只刷新一次日志：
+     * 累计N次写入、距第一次未写入的数据超过T毫秒、应用切到后台、调用flush/putAllSync/close。
+     * 写入磁盘前进程被杀会丢失这部分数据，适合可重新生成的数据。删除和putAllSync不受延迟影响，总是立即写入磁盘。
+     * <p>
+     * 两种模式都不会对文件执行fsync（DiskLruCache本身不做），断电时最近写入的数据都可能丢失
+     */
+    public static final class FlushPolicy {
+        private static final FlushPolicy IMMEDIATE = new FlushPolicy(0, 0, false);
+
+        final int maxPendingWrites;
+        final long maxDelayMs;
+        final boolean flushOnBackground;
+
+        private FlushPolicy(int maxPendingWrites, long maxDelayMs, boolean flushOnBackground) {
+            this.maxPendingWrites = maxPendingWrites;
+            this.maxDelayMs = maxDelayMs;
+            this.flushOnBackground = flushOnBackground;
+        }
+
+        /**
+         * 每次写入后立即刷新
+         */
+        public static FlushPolicy immediate() {
+            return IMMEDIATE;
+        }
+
+        /**
+         * 延迟写入，至少需要设置一个触发条件
+         *
+         * @param maxPendingWrites  累计写入次数达到该值时写入磁盘，小于等于0表示不按次数
+         * @param maxDelayMs        未写入的数据最多等待的毫秒数，小于等于0表示不按时间
+         * @param flushOnBackground 应用切到后台时是否写入磁盘
+         * @return 刷新策略
+         */
+        public static FlushPolicy writeBehind(int maxPendingWrites, long maxDelayMs, boolean flushOnBackground) {
+            if (maxPendingWrites <= 0 && maxDelayMs <= 0 && !flushOnBackground) {
+                throw new IllegalArgumentException("At least one flush trigger is required");
+            }
+            return new FlushPolicy(maxPendingWrites, maxDelayMs, flushOnBackground);
+        }
+
+        boolean isWriteBehind() {
+            return this != IMMEDIATE;
+        }
+
+        @Override
+        public String toString() {
+            return isWriteBehind() ? "FlushPolicy{writeBehind, maxPendingWrites=" + maxPendingWrites + ", maxDelayMs=" + maxDelayMs + ", flushOnBackground=" + flushOnBackground + '}' : "FlushPolicy{immediate}";
+        }
+    }
+
+    /**
+     * 区域淘汰策略
+     */
+    public enum EvictionPolicy {
+        /**
+         * 超出容量时淘汰最久未使用的数据，适合可重新获取的数据（图片、接口数据）
+         */
+        LRU,
+        /**
+         * 不淘汰，超出容量时拒绝写入，适合不能丢失的数据（草稿）
+         */
+        NONE
+    }
+
+    /**
+     * 缓存区域配置
+     */
+    public static final class RegionConfig {
+        final String name;
+        final File directory;
+        final long maxSize;
+        final long memoryCacheSize;
+        final EvictionPolicy evictionPolicy;
+        final int workerThreads;
+        final int trimPriority;
+        final boolean admissionEnabled;
+        final boolean shareDecodedValues;
+
+        private RegionConfig(Builder builder) {
+            this.name = builder.name;
+            this.directory = builder.directory;
+            this.maxSize = builder.maxSize;
+            this.memoryCacheSize = builder.memoryCacheSize;
+            this.evictionPolicy = builder.evictionPolicy;
+            this.workerThreads = builder.workerThreads;
+            this.trimPriority = builder.trimPriority;
+            this.admissionEnabled = builder.admissionEnabled;
+            this.shareDecodedValues = builder.shareDecodedValues;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public EvictionPolicy getEvictionPolicy() {
+            return evictionPolicy;
+        }
+
+        public int getTrimPriority() {
+            return trimPriority;
+        }
+
+        public static class Builder {
+            private final String name;
+            private File directory;
+            private long maxSize = MAX_CACHE_SIZE;
+            private long memoryCacheSize = DEFAULT_MEMORY_CACHE_SIZE;
+            private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+            private int workerThreads = WORKER_THREADS;
+            private int trimPriority;
+            private boolean admissionEnabled;
+            private boolean shareDecodedValues;
+
+            /**
+             * @param name 区域名称，同时用于默认缓存目录名
+             */
+            public Builder(String name) {
+                if (name == null || name.isEmpty()) {
+                    throw new IllegalArgumentException("Region name is empty");
+                }
+                this.name = name;
+            }
+
+            /**
+             * 设置缓存目录，默认在应用缓存目录下按区域名称创建
+             */
+            public Builder setDirectory(File directory) {
+                this.directory = directory;
+                return this;
+            }
+
+            /**
+             * 设置磁盘容量（字节），默认20MB
+             */
+            public Builder setMaxSize(long maxSize) {
+                if (maxSize <= 0) {
+                    throw new IllegalArgumentException("maxSize must be positive");
+                }
+                this.maxSize = maxSize;
+                return this;
+            }
+
+            /**
+             * 设置内存缓存容量（字节），默认2MB，为0时不使用内存缓存
+             */
+            public Builder setMemoryCacheSize(long memoryCacheSize) {
+                this.memoryCacheSize = Math.max(0, memoryCacheSize);
+                return this;
+            }
+
+            /**
+             * 设置淘汰策略，默认LRU
+             */
+            public Builder setEvictionPolicy(EvictionPolicy evictionPolicy) {
+                if (evictionPolicy == null) {
+                    throw new IllegalArgumentException("evictionPolicy is null");
+                }
+                this.evictionPolicy = evictionPolicy;
+                return this;
+            }
+
+            /**
+             * 设置该区域的IO线程数，默认按CPU核数取2~4
+             */
+            public Builder setWorkerThreads(int workerThreads) {
+                this.workerThreads = Math.max(1, workerThreads);
+                return this;
+            }
+
+            /**
+             * 设置内存不足时的收缩优先级，数值小的先收缩，默认0
+             */
+            public Builder setTrimPriority(int trimPriority) {
+                this.trimPriority = trimPriority;
+                return this;
+            }
+
+            /**
+             * 设置是否开启TinyLFU准入过滤，默认关闭，只对LRU区域有效；
+             * 开启后缓存已满时新数据可能被拒绝写入（put方法返回false），适合可重新获取的数据
+             */
+            public Builder setAdmissionEnabled(boolean admissionEnabled) {
+                this.admissionEnabled = admissionEnabled;
+                return this;
+            }
+
+            /**
+             * 设置内存缓存是否直接保存解码后的可变对象（如JSONObject、Map、实体类），默认关闭，每次命中重新解码并返回新实例；
+             * 开启后命中时不再解码，所有调用方共享同一个实例，只适合不会修改返回对象的区域
+             */
+            public Builder setShareDecodedValues(boolean shareDecodedValues) {
+                this.shareDecodedValues = shareDecodedValues;
+                return this;
+            }
+
+            public RegionConfig build() {
+                return new RegionConfig(this);
+            }
+        }
+    }
+
+    /**
+     * 数据加载器，用于getOrLoad系列方法在缓存不存在或过期时获取新数据
+     *
+     * @param <T> 数据类型
+     */
+    public interface Loader<T> {
+        /**
+         * 加载数据，在IO线程调用
+         *
+         * @return 新数据，返回null时不写入缓存
+         */
+        T load() throws Exception;
+    }
+
+    /**
+     * 后台刷新统计快照
+     */
+    public static final class RefreshStats {
+        private final long refreshCount;
+        private final long failureCount;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final int runningCount;
+
+        RefreshStats(long refreshCount, long failureCount, long totalNanos, long maxNanos, int runningCount) {
+            this.refreshCount = refreshCount;
+            this.failureCount = failureCount;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.runningCount = runningCount;
+        }
+
+        /**
+         * 获取已完成的刷新次数（含失败）
+         */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        /**
+         * 获取正在进行的刷新数
+         */
+        public int getRunningCount() {
+            return runningCount;
+        }
+
+        /**
+         * 获取平均刷新耗时（毫秒），包括加载和写入缓存
+         */
+        public double getAverageLatencyMs() {
+            return refreshCount == 0 ? 0 : totalNanos / 1e6 / refreshCount;
+        }
+
+        public double getMaxLatencyMs() {
+            return maxNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return "RefreshStats{refreshes=" + refreshCount + ", failures=" + failureCount + ", running=" + runningCount + ", avgMs=" + getAverageLatencyMs() + ", maxMs=" + getMaxLatencyMs() + '}';
+        }
+    }
+
+    /**
+     * 耗时统计快照
+     */
+    public static final class TimerStats {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        TimerStats(long count, long totalNanos, long maxNanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getTotalMs() {
+            return totalNanos / 1e6;
+        }
+
+        public double getAverageMs() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public double getMaxMs() {
+            return maxNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "{n=%d, avg=%.3fms, max=%.3fms}", count, getAverageMs(), getMaxMs());
+        }
+    }
+
+    /**
+     * 缓存统计快照，计数从区域打开开始累计
+     */
+    public static final class CacheStats {
+        private final String regionName;
+        private final long hitCount;
+        private final long missCount;
+        private final long memoryHitCount;
+        private final long bytesRead;
+        private final long bytesWritten;
+        private final long evictionCount;
+        private final long admissionRejectCount;
+        private final long diskSize;
+        private final long memorySize;
+        private final int queueSize;
+        private final TimerStats serialize;
+        private final TimerStats deserialize;
+        private final TimerStats load;
+        private final TimerStats queueWait;
+
+        CacheStats(String regionName, long hitCount, long missCount, long memoryHitCount, long bytesRead, long bytesWritten, long evictionCount, long admissionRejectCount, long diskSize, long memorySize, int queueSize, TimerStats serialize, TimerStats deserialize, TimerStats load, TimerStats queueWait) {
+            this.regionName = regionName;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.memoryHitCount = memoryHitCount;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.evictionCount = evictionCount;
+            this.admissionRejectCount = admissionRejectCount;
+            this.diskSize = diskSize;
+            this.memorySize = memorySize;
+            this.queueSize = queueSize;
+            this.serialize = serialize;
+            this.deserialize = deserialize;
+            this.load = load;
+            this.queueWait = queueWait;
+        }
+
+        public String getRegionName() {
+            return regionName;
+        }
+
+        /**
+         * 获取读取命中次数（内存或磁盘）
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * 获取内存缓存命中次数
+         */
+        public long getMemoryHitCount() {
+            return memoryHitCount;
+        }
+
+        public float getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0f : (float) hitCount / total;
+        }
+
+        /**
+         * 获取从磁盘读取的字节数（不含流式读取）
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * 获取写入磁盘的字节数（不含流式写入）
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * 获取内存缓存淘汰次数，磁盘淘汰由DiskLruCache内部完成，无法统计
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getAdmissionRejectCount() {
+            return admissionRejectCount;
+        }
+
+        public long getDiskSize() {
+            return diskSize;
+        }
+
+        public long getMemorySize() {
+            return memorySize;
+        }
+
+        /**
+         * 获取排队中的任务数
+         */
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        /**
+         * 获取对象编码耗时
+         */
+        public TimerStats getSerialize() {
+            return serialize;
+        }
+
+        /**
+         * 获取解码耗时
+         */
+        public TimerStats getDeserialize() {
+            return deserialize;
+        }
+
+        /**
+         * 获取getOrLoad调用loader加载数据的耗时
+         */
+        public TimerStats getLoad() {
+            return load;
+        }
+
+        /**
+         * 获取异步任务从提交到开始执行的等待时间
+         */
+        public TimerStats getQueueWait() {
+            return queueWait;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{region=" + regionName + ", hits=" + hitCount + ", misses=" + missCount + ", memoryHits=" + memoryHitCount + ", bytesRead=" + bytesRead + ", bytesWritten=" + bytesWritten + ", evictions=" + evictionCount + ", rejects=" + admissionRejectCount + ", disk=" + diskSize + ", memory=" + memorySize + ", queue=" + queueSize + ", serialize=" + serialize + ", deserialize=" + deserialize + ", load=" + load + ", queueWait=" + queueWait + '}';
+        }
+    }
+
+    /**
+     * 内存缓存统计快照
+     */
+    public static final class MemoryStats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final int entryCount;
+        private final long size;
+        private final long maxSize;
+
+        MemoryStats(long hitCount, long missCount, long evictionCount, int entryCount, long size, long maxSize) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.entryCount = entryCount;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * 获取当前占用的字节数（估算）
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * 获取命中率
+         *
+         * @return 0~1之间的命中率，没有读取时返回0
+         */
+        public float getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0f : (float) hitCount / total;
+        }
+
+        @Override
+        public String toString() {
+            return "MemoryStats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + ", entries=" + entryCount + ", size=" + size + "/" + maxSize + '}';
+        }
+    }
+
     /**
      * 无返回值的空回调接口（用于删除、清空等操作）
      */
@@ -0,0 +1,692 @@
+package com.wty.foundation.common.utils;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射追加日志的SharedPreferences实现，作为SPUtils的可选存储引擎
+ * 文件格式：文件头(魔数4字节 + 版本4字节 + 有效数据末尾位置4字节 + 保留4字节) + 记录...
+ * 记录：数据长度(4字节) + CRC32(4字节) + 数据（操作、key、类型、值）。
+ * 每次提交只追加本次修改的记录，写入内存映射区域后更新文件头中的末尾位置，一次提交的多条记录同时生效；
+ * 空间不足时把当前所有数据写入临时文件再重命名替换（压缩重写），必要时扩容。
+ * 打开时按末尾位置重放记录，遇到长度或CRC不正确的记录即停止，丢弃进程崩溃时写了一半的数据。
+ * apply只写入内存映射区域，进程崩溃不丢数据；commit额外调用force同步到磁盘。仅支持单进程访问
+ */
+final class MappedPreferences implements SharedPreferences {
+    private static final String TAG = "MappedPreferences";
+    // "SPKV"
+    private static final int MAGIC = 0x53504B56;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int USED_OFFSET = 8;
+    // 记录头：数据长度 + CRC32
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int OP_PUT = 1;
+    private static final int OP_REMOVE = 2;
+    private static final int OP_CLEAR = 3;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_LONG = 3;
+    private static final int TYPE_FLOAT = 4;
+    private static final int TYPE_BOOLEAN = 5;
+    private static final int TYPE_STRING_SET = 6;
+    // Editor中表示删除的标记
+    private static final Object REMOVED = new Object();
+
+    private final File file;
+    private final HashMap<String, Object> map = new HashMap<>();
+    private final WeakHashMap<OnSharedPreferenceChangeListener, Object> listeners = new WeakHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    // 有效数据末尾位置
+    private int used;
+
+    private MappedPreferences(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 打开存储文件，不存在时创建；文件头损坏时将其重命名为.corrupt后创建新文件
+     *
+     * @param file 存储文件
+     * @return 存储实例
+     */
+    static MappedPreferences open(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + dir.getAbsolutePath());
+        }
+        MappedPreferences preferences = new MappedPreferences(file);
+        synchronized (preferences) {
+            try {
+                preferences.load();
+            } catch (IOException e) {
+                preferences.closeFile();
+                Log.e(TAG, "存储文件损坏，重新创建: " + file.getAbsolutePath(), e);
+                File corrupt = new File(file.getPath() + ".corrupt");
+                if (!file.renameTo(corrupt) && !file.delete()) {
+                    throw new IOException("Failed to discard corrupt file: " + file.getAbsolutePath());
+                }
+                preferences.map.clear();
+                preferences.load();
+            }
+        }
+        return preferences;
+    }
+
+    /**
+     * 打开存储文件，文件不存在时先从SharedPreferences迁移数据：
+     * 先完整写入临时文件再重命名，打开成功且数据条数一致后才清空原SharedPreferences；
+     * 打开失败时删除刚迁移的文件，原SharedPreferences保持不变，调用方可继续使用，下次启动重新迁移
+     *
+     * @param file   存储文件
+     * @param legacy 原SharedPreferences
+     * @return 存储实例
+     */
+    static MappedPreferences openMigrating(File file, SharedPreferences legacy) throws IOException {
+        Map<String, ?> entries = null;
+        int expected = 0;
+        if (!file.exists()) {
+            entries = legacy.getAll();
+            for (Map.Entry<String, ?> entry : entries.entrySet()) {
+                // 与encodeSnapshot一致，跳过null
+                if (entry.getKey() != null && entry.getValue() != null) expected++;
+            }
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Failed to create directory: " + dir.getAbsolutePath());
+            }
+            writeSnapshot(file, encodeSnapshot(entries), INITIAL_CAPACITY);
+        }
+        MappedPreferences preferences;
+        try {
+            preferences = open(file);
+            // open遇到损坏的文件会重新创建空文件，迁移的数据不完整时不能清空原数据
+            if (entries != null && preferences.getAll().size() != expected) {
+                preferences.close();
+                throw new IOException("Migrated store is incomplete: " + file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            if (entries != null && file.exists() && !file.delete()) {
+                Log.w(TAG, "删除迁移失败的存储文件失败: " + file.getAbsolutePath());
+            }
+            throw e;
+        }
+        if (entries != null) {
+            if (!entries.isEmpty()) {
+                legacy.edit().clear().commit();
+            }
+            Log.i(TAG, "已从SharedPreferences迁移" + entries.size() + "条数据");
+        }
+        return preferences;
+    }
+
+    /**
+     * 判断文件是否为有效的存储文件（用于恢复备份前校验）
+     */
+    static boolean isValidFile(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.length() >= HEADER_SIZE && raf.readInt() == MAGIC && raf.readInt() <= VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * 关闭文件，关闭后不能再读写
+     */
+    synchronized void close() {
+        if (buffer != null) {
+            buffer.force();
+        }
+        closeFile();
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(map);
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getString(String key, @Nullable String defValue) {
+        String value = (String) map.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public synchronized Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+        Set<String> value = (Set<String>) map.get(key);
+        return value != null ? value : defValues;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Integer value = (Integer) map.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Long value = (Long) map.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        Float value = (Float) map.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Boolean value = (Boolean) map.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new EditorImpl();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (listeners) {
+            listeners.put(listener, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * 提交修改：先更新内存，再追加记录，空间不足时压缩重写；写入失败时内存恢复为修改前的数据
+     *
+     * @param clear   是否先清空
+     * @param changes 修改的key和值，值为REMOVED或null表示删除
+     * @param force   是否同步到磁盘
+     * @return 是否写入成功
+     */
+    private boolean write(boolean clear, Map<String, Object> changes, boolean force) {
+        List<String> changedKeys = new ArrayList<>();
+        boolean success;
+        synchronized (this) {
+            if (buffer == null) {
+                Log.e(TAG, "存储已关闭: " + file.getAbsolutePath());
+                return false;
+            }
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            // 修改前的数据，写入失败时恢复：清空时保存完整副本，否则保存每个修改的key原来的值
+            HashMap<String, Object> before = clear && !map.isEmpty() ? new HashMap<>(map) : null;
+            HashMap<String, Object> undo = new HashMap<>();
+            try {
+                if (before != null) {
+                    map.clear();
+                    writeRecord(batch, encodeOp(OP_CLEAR, null, null));
+                    changedKeys.add(null);
+                }
+                for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                    String key = entry.getKey();
+                    Object value = entry.getValue();
+                    if (!undo.containsKey(key)) {
+                        undo.put(key, map.containsKey(key) ? map.get(key) : REMOVED);
+                    }
+                    if (value == null || value == REMOVED) {
+                        if (map.remove(key) != null) {
+                            writeRecord(batch, encodeOp(OP_REMOVE, key, null));
+                            changedKeys.add(key);
+                        }
+                    } else if (!value.equals(map.get(key))) {
+                        map.put(key, value);
+                        writeRecord(batch, encodeOp(OP_PUT, key, value));
+                        changedKeys.add(key);
+                    }
+                }
+                success = batch.size() == 0 || append(batch.toByteArray(), force);
+            } catch (IOException e) {
+                Log.e(TAG, "写入存储失败: " + e.getMessage(), e);
+                success = false;
+            }
+            if (!success) {
+                // 记录没有写入，内存中的修改也不生效
+                if (before != null) {
+                    map.clear();
+                    map.putAll(before);
+                } else {
+                    for (Map.Entry<String, Object> entry : undo.entrySet()) {
+                        if (entry.getValue() == REMOVED) {
+                            map.remove(entry.getKey());
+                        } else {
+                            map.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                changedKeys.clear();
+            }
+        }
+        notifyListeners(changedKeys);
+        return success;
+    }
+
+    private boolean append(byte[] records, boolean force) throws IOException {
+        if (used + records.length > capacity) {
+            // 空间不足，按内存中的最新数据重写（已包含本次修改）
+            rewrite(0);
+        } else {
+            ByteBuffer target = buffer.duplicate();
+            target.position(used);
+            target.put(records);
+            used += records.length;
+            // 记录写完后再更新末尾位置，中途崩溃时这批记录整体无效
+            buffer.putInt(USED_OFFSET, used);
+        }
+        if (force) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * 压缩重写：把当前所有数据写入临时文件并映射，重命名替换成功后才切换到新的映射，容量按数据量调整；
+     * 任一步骤失败时删除临时文件，继续使用原来的文件和映射
+     *
+     * @param minFree 重写后至少保留的空闲空间
+     */
+    private void rewrite(int minFree) throws IOException {
+        byte[] snapshot = encodeSnapshot(map);
+        long required = (long) HEADER_SIZE + snapshot.length + minFree;
+        long newCapacity = INITIAL_CAPACITY;
+        while (newCapacity < required + required / 2) {
+            newCapacity <<= 1;
+        }
+        if (newCapacity > Integer.MAX_VALUE) {
+            throw new IOException("Store too large: " + required);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        writeTemp(temp, snapshot, (int) newCapacity);
+        RandomAccessFile newFile = null;
+        MappedByteBuffer newBuffer;
+        try {
+            newFile = new RandomAccessFile(temp, "rw");
+            newBuffer = newFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+            // 映射跟随文件本身，重命名后仍有效
+            if (!temp.renameTo(file)) {
+                throw new IOException("Failed to replace store file: " + file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            CloseableUtils.close(newFile);
+            temp.delete();
+            throw e;
+        }
+        closeFile();
+        randomAccessFile = newFile;
+        buffer = newBuffer;
+        capacity = (int) newCapacity;
+        // 内存中的数据就是快照的内容，不需要重新加载
+        used = HEADER_SIZE + snapshot.length;
+        Log.i(TAG, "存储已压缩重写: " + snapshot.length + "/" + capacity);
+    }
+
+    /**
+     * 映射文件并重放记录
+     */
+    private void load() throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        long length = randomAccessFile.length();
+        if (length < HEADER_SIZE) {
+            randomAccessFile.setLength(INITIAL_CAPACITY);
+            length = INITIAL_CAPACITY;
+            capacity = INITIAL_CAPACITY;
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(USED_OFFSET, HEADER_SIZE);
+            used = HEADER_SIZE;
+            return;
+        }
+        capacity = (int) Math.min(length, Integer.MAX_VALUE);
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Invalid store file");
+        }
+        if (buffer.getInt(4) > VERSION) {
+            throw new IOException("Unsupported store version: " + buffer.getInt(4));
+        }
+        int end = buffer.getInt(USED_OFFSET);
+        if (end < HEADER_SIZE || end > capacity) {
+            // 文件头损坏，尽量按记录CRC恢复
+            end = capacity;
+        }
+        int position = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= end) {
+            int size = buffer.getInt(position);
+            int checksum = buffer.getInt(position + 4);
+            if (size <= 0 || size > end - position - RECORD_HEADER_SIZE) break;
+            byte[] payload = new byte[size];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position + RECORD_HEADER_SIZE);
+            source.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+            try {
+                replay(payload);
+            } catch (IOException | RuntimeException e) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + size;
+        }
+        if (position != buffer.getInt(USED_OFFSET)) {
+            Log.w(TAG, "存储文件末尾有无效记录，已恢复到位置" + position + ": " + file.getAbsolutePath());
+            buffer.putInt(USED_OFFSET, position);
+        }
+        used = position;
+    }
+
+    private void replay(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int op = in.readByte();
+        if (op == OP_CLEAR) {
+            map.clear();
+            return;
+        }
+        String key = readString(in);
+        if (op == OP_REMOVE) {
+            map.remove(key);
+        } else if (op == OP_PUT) {
+            map.put(key, readValue(in));
+        } else {
+            throw new IOException("Unknown op: " + op);
+        }
+    }
+
+    private void closeFile() {
+        buffer = null;
+        CloseableUtils.close(randomAccessFile);
+        randomAccessFile = null;
+    }
+
+    private void notifyListeners(List<String> keys) {
+        if (keys.isEmpty()) return;
+        List<OnSharedPreferenceChangeListener> targets;
+        synchronized (listeners) {
+            if (listeners.isEmpty()) return;
+            targets = new ArrayList<>(listeners.keySet());
+        }
+        Runnable notify = () -> {
+            for (String key : keys) {
+                for (OnSharedPreferenceChangeListener listener : targets) {
+                    listener.onSharedPreferenceChanged(this, key);
+                }
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notify.run();
+        } else {
+            mainHandler.post(notify);
+        }
+    }
+
+    /**
+     * 写入完整的存储文件：先写临时文件并同步到磁盘，再重命名替换
+     */
+    private static void writeSnapshot(File file, byte[] records, int capacity) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        writeTemp(temp, records, capacity);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to replace store file: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 写入完整的临时存储文件并同步到磁盘，失败时删除
+     */
+    private static void writeTemp(File temp, byte[] records, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.setLength(Math.max(capacity, HEADER_SIZE + records.length));
+            raf.seek(0);
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeInt(HEADER_SIZE + records.length);
+            raf.writeInt(0);
+            raf.write(records);
+            raf.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+
+    private static byte[] encodeSnapshot(Map<String, ?> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                writeRecord(out, encodeOp(OP_PUT, entry.getKey(), entry.getValue()));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        writeInt(out, payload.length);
+        writeInt(out, (int) crc.getValue());
+        out.write(payload, 0, payload.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static byte[] encodeOp(int op, String key, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op);
+        if (key != null) {
+            writeString(out, key);
+        }
+        if (value != null) {
+            writeValue(out, value);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Set) {
+            Set<?> set = (Set<?>) value;
+            out.writeByte(TYPE_STRING_SET);
+            out.writeInt(set.size());
+            for (Object item : set) {
+                writeString(out, (String) item);
+            }
+        } else {
+            throw new IOException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        switch (type) {
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_INT:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_STRING_SET:
+                int count = in.readInt();
+                if (count < 0 || count > in.available()) {
+                    throw new IOException("Invalid set size: " + count);
+                }
+                Set<String> set = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    set.add(readString(in));
+                }
+                return set;
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 修改先暂存在Editor中，commit或apply时一次写入
+     */
+    private final class EditorImpl implements Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        @Override
+        public synchronized Editor putString(String key, @Nullable String value) {
+            changes.put(key, value != null ? value : REMOVED);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putStringSet(String key, @Nullable Set<String> values) {
+            changes.put(key, values != null ? new HashSet<>(values) : REMOVED);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putInt(String key, int value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putLong(String key, long value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putFloat(String key, float value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putBoolean(String key, boolean value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor remove(String key) {
+            changes.put(key, REMOVED);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            return commitChanges(true);
+        }
+
+        @Override
+        public void apply() {
+            commitChanges(false);
+        }
+
+        private boolean commitChanges(boolean force) {
+            Map<String, Object> pending;
+            boolean clearFirst;
+            synchronized (this) {
+                pending = new HashMap<>(changes);
+                clearFirst = clear;
+                changes.clear();
+                clear = false;
+            }
+            return write(clearFirst, pending, force);
+        }
+    }
+}
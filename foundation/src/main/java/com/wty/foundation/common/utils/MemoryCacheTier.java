@@ -0,0 +1,215 @@
+package com.wty.foundation.common.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LruCacheUtils的内存缓存层
+ * 按字节数限制大小，保存不可变的值或可变对象编码后的数据（区域开启共享时保存解码后的对象），并记录其类型，读取时类型一致才命中
+ * 写入、删除时失效；通过失效版本号避免读取磁盘期间被并发写入的旧值回填；
+ * 带过期时间的条目过期后get不再命中，peek仍可取到（用于先返回旧数据再刷新）；
+ * 设置了访问频率估算时，放入新条目需要淘汰旧条目的情况下按TinyLFU规则判断是否放入
+ */
+final class MemoryCacheTier {
+    // 每个条目的额外开销估算（节点、键、对象头）
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final LinkedHashMap<String, Node> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    // 访问频率估算，为null时不做准入判断
+    private final FrequencySketch sketch;
+    private long maxBytes;
+    private long currentBytes;
+    // 每次失效递增，读取磁盘前记录，回填时版本变化则放弃回填
+    private long version;
+
+    static final class Node {
+        final Object type;
+        final Object value;
+        final long size;
+        // 过期时间（System.currentTimeMillis），0表示不过期
+        final long expireAt;
+
+        Node(Object type, Object value, long size, long expireAt) {
+            this.type = type;
+            this.value = value;
+            this.size = size;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt > 0 && now >= expireAt;
+        }
+    }
+
+    MemoryCacheTier(long maxBytes, FrequencySketch sketch) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.sketch = sketch;
+    }
+
+    /**
+     * 获取解码后的对象
+     *
+     * @param key  缓存键
+     * @param type 对象类型标记
+     * @return 类型一致时返回对象，否则返回null
+     */
+    synchronized Object get(String key, Object type) {
+        Node node = map.get(key);
+        if (node != null && node.type.equals(type) && !node.isExpired(System.currentTimeMillis())) {
+            hits.incrementAndGet();
+            return node.value;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 获取条目，不检查是否过期
+     *
+     * @param key  缓存键
+     * @param type 对象类型标记
+     * @return 类型一致时返回条目，否则返回null
+     */
+    synchronized Node peek(String key, Object type) {
+        Node node = map.get(key);
+        if (node != null && node.type.equals(type)) {
+            hits.incrementAndGet();
+            return node;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 获取当前失效版本号，在读取磁盘前调用，回填时传入
+     */
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * 写入成功后放入内存
+     *
+     * @param key          缓存键
+     * @param type         对象类型标记
+     * @param value        解码后的对象
+     * @param encodedBytes 编码后的字节数，用于估算占用
+     * @param expireAt     过期时间，0表示不过期
+     */
+    synchronized void put(String key, Object type, Object value, long encodedBytes, long expireAt) {
+        version++;
+        putInternal(key, type, value, encodedBytes, expireAt);
+    }
+
+    /**
+     * 读取磁盘后回填内存，读取期间有写入或删除时放弃
+     *
+     * @param readVersion 读取磁盘前的版本号
+     */
+    synchronized void fill(String key, Object type, Object value, long encodedBytes, long expireAt, long readVersion) {
+        if (readVersion == version) {
+            putInternal(key, type, value, encodedBytes, expireAt);
+        }
+    }
+
+    synchronized void remove(String key) {
+        version++;
+        Node node = map.remove(key);
+        if (node != null) {
+            currentBytes -= node.size;
+        }
+    }
+
+    synchronized void clear() {
+        version++;
+        map.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * 调整容量，超出部分立即淘汰
+     *
+     * @param maxBytes 最大字节数
+     */
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        trimTo(this.maxBytes);
+    }
+
+    synchronized void trimTo(long bytes) {
+        Iterator<Map.Entry<String, Node>> iterator = map.entrySet().iterator();
+        while (currentBytes > bytes && iterator.hasNext()) {
+            Node node = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= node.size;
+            evictions.incrementAndGet();
+        }
+    }
+
+    synchronized long size() {
+        return currentBytes;
+    }
+
+    synchronized long maxSize() {
+        return maxBytes;
+    }
+
+    synchronized int count() {
+        return map.size();
+    }
+
+    long hitCount() {
+        return hits.get();
+    }
+
+    long missCount() {
+        return misses.get();
+    }
+
+    long evictionCount() {
+        return evictions.get();
+    }
+
+    long rejectionCount() {
+        return rejections.get();
+    }
+
+    private void putInternal(String key, Object type, Object value, long encodedBytes, long expireAt) {
+        Node old = map.remove(key);
+        if (old != null) {
+            currentBytes -= old.size;
+        }
+        long size = encodedBytes + ENTRY_OVERHEAD;
+        // 单个条目超过容量的1/8时不放入内存，避免一个大对象挤掉所有热点数据
+        if (value == null || size > maxBytes / 8) {
+            return;
+        }
+        if (sketch != null && currentBytes + size > maxBytes && !admit(key, size)) {
+            rejections.incrementAndGet();
+            return;
+        }
+        map.put(key, new Node(type, value, size, expireAt));
+        currentBytes += size;
+        trimTo(maxBytes);
+    }
+
+    /**
+     * 比较新条目与将被淘汰条目的访问频率
+     */
+    private boolean admit(String key, long size) {
+        long excess = currentBytes + size - maxBytes;
+        int victimFrequency = 0;
+        for (Map.Entry<String, Node> entry : map.entrySet()) {
+            if (excess <= 0) break;
+            victimFrequency = Math.max(victimFrequency, sketch.frequency(entry.getKey()));
+            excess -= entry.getValue().size;
+        }
+        return CacheAdmission.shouldAdmit(sketch.frequency(key), victimFrequency);
+    }
+}
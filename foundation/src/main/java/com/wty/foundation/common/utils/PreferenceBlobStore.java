@@ -0,0 +1,279 @@
+package com.wty.foundation.common.utils;
+
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * SPUtils大数据的文件存储
+ * 超过阈值的数据单独保存为文件，SharedPreferences中只保存引用："@blob:" + 文件名 + ":" + 长度，
+ * '@'和':'不会出现在Base64和JSON的开头，读取时可以与直接保存的数据区分；
+ * 文件名后缀区分文本（JSON，直接保存时为原文）和二进制数据（直接保存时为Base64）。
+ * 每次写入生成新文件（先写临时文件再重命名），替换下来的文件延迟后批量删除，
+ * 事务回滚等原因遗留的无引用文件由启动后的全量清理删除
+ */
+final class PreferenceBlobStore {
+    private static final String TAG = "PreferenceBlobStore";
+    static final String REF_PREFIX = "@blob:";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // 待删除文件的批量处理延迟，给正在读取旧引用的线程留出时间
+    private static final long DELETE_DELAY_MS = 2000;
+    // 全量清理时跳过最近修改的文件，避免删除刚写入还未记录引用的文件
+    private static final long SWEEP_MIN_AGE_MS = 60 * 1000;
+    // 达到该大小的文件通过内存映射读取
+    private static final int MMAP_THRESHOLD = 256 * 1024;
+
+    private final File dir;
+    private final CacheTaskEngine engine = new CacheTaskEngine(1, "PreferenceBlobStore");
+    private final ConcurrentLinkedQueue<File> pendingDeletes = new ConcurrentLinkedQueue<>();
+    private ScheduledFuture<?> deleteTask;
+
+    PreferenceBlobStore(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 判断存储的字符串是否为文件引用
+     */
+    static boolean isReference(String value) {
+        return value != null && value.startsWith(REF_PREFIX);
+    }
+
+    /**
+     * 判断引用的文件是否保存的是文本（UTF-8）
+     */
+    static boolean isText(String ref) {
+        int end = ref.lastIndexOf(':');
+        return isReference(ref) && end > 0 && ref.substring(0, end).endsWith(TEXT_SUFFIX);
+    }
+
+    /**
+     * 写入新文件
+     * 不同步到磁盘时只写入系统缓存，与 SharedPreferences.apply 的持久性一致：
+     * 断电后文件可能不完整，读取时长度与引用不一致视为读取失败
+     *
+     * @param data 数据
+     * @param text 数据是否为文本（UTF-8）
+     * @param sync 是否同步到磁盘后再返回（commit 时使用）
+     * @return 文件引用
+     */
+    String write(byte[] data, boolean text, boolean sync) throws IOException {
+        ensureDir(dir);
+        String name = UUID.randomUUID() + (text ? TEXT_SUFFIX : FILE_SUFFIX);
+        writeFile(new File(dir, name), data, sync);
+        return REF_PREFIX + name + ":" + data.length;
+    }
+
+    /**
+     * 按引用读取文件，长度与引用中记录的不一致时视为损坏
+     *
+     * @param ref 文件引用
+     * @return 数据
+     */
+    byte[] read(String ref) throws IOException {
+        File file = fileOf(ref);
+        int length = lengthOf(ref);
+        if (file.length() != length) {
+            throw new IOException("Blob length mismatch: " + file.getAbsolutePath());
+        }
+        byte[] data = new byte[length];
+        if (length >= MMAP_THRESHOLD) {
+            // 大文件映射后一次复制，不经过流的分段读取
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length).get(data);
+            }
+        } else {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                in.readFully(data);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * 引用不再使用，文件加入待删除队列，延迟后批量删除
+     */
+    void deleteLater(String ref) {
+        if (!isReference(ref)) return;
+        try {
+            pendingDeletes.add(fileOf(ref));
+        } catch (IOException e) {
+            Log.w(TAG, "无效的文件引用: " + ref);
+            return;
+        }
+        synchronized (this) {
+            if (deleteTask == null) {
+                deleteTask = engine.schedule(this::flushDeletes, DELETE_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * 延迟执行任务（在后台线程）
+     */
+    void schedule(Runnable task, long delayMs) {
+        engine.schedule(task, delayMs);
+    }
+
+    /**
+     * 删除目录中没有被引用的文件，最近修改的文件除外
+     *
+     * @param liveRefs 仍在使用的引用
+     * @return 删除的文件数
+     */
+    int sweep(Collection<String> liveRefs) {
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        Set<String> live = new HashSet<>();
+        for (String ref : liveRefs) {
+            try {
+                live.add(fileOf(ref).getName());
+            } catch (IOException ignored) {
+                // 无效的引用不对应任何文件
+            }
+        }
+        long cutoff = System.currentTimeMillis() - SWEEP_MIN_AGE_MS;
+        int deleted = 0;
+        for (File file : files) {
+            if (file.lastModified() > cutoff || live.contains(file.getName())) continue;
+            if (file.delete()) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            Log.i(TAG, "已清理" + deleted + "个无引用的数据文件");
+        }
+        return deleted;
+    }
+
+    /**
+     * 把引用的文件复制到备份目录，目录中原有的文件先删除，没有引用时删除备份目录
+     * 已丢失的文件跳过（对应的值本来也无法读取）
+     *
+     * @param refs      要备份的引用
+     * @param targetDir 备份目录
+     */
+    void exportTo(Collection<String> refs, File targetDir) throws IOException {
+        File[] old = targetDir.listFiles();
+        if (old != null) {
+            for (File file : old) {
+                file.delete();
+            }
+        }
+        if (refs.isEmpty()) {
+            targetDir.delete();
+            return;
+        }
+        ensureDir(targetDir);
+        for (String ref : refs) {
+            File source = fileOf(ref);
+            if (!source.exists()) {
+                Log.w(TAG, "备份时数据文件不存在: " + ref);
+                continue;
+            }
+            byte[] data = read(ref);
+            writeFile(new File(targetDir, source.getName()), data, true);
+        }
+    }
+
+    /**
+     * 把备份目录中的文件复制回存储目录，同名且长度相同的文件已存在时跳过
+     * 复制进来的文件修改时间是当前时间，恢复过程中不会被全量清理删除
+     *
+     * @param sourceDir 备份目录
+     */
+    void importFrom(File sourceDir) throws IOException {
+        File[] files = sourceDir.listFiles();
+        if (files == null) return;
+        ensureDir(dir);
+        for (File source : files) {
+            String name = source.getName();
+            if (!name.endsWith(FILE_SUFFIX) && !name.endsWith(TEXT_SUFFIX)) continue;
+            File target = new File(dir, name);
+            if (target.exists() && target.length() == source.length()) continue;
+            byte[] data = new byte[(int) source.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(source))) {
+                in.readFully(data);
+            }
+            writeFile(target, data, true);
+        }
+    }
+
+    private static void ensureDir(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + dir.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 先写临时文件，需要时同步到磁盘，再重命名为目标文件
+     */
+    private static void writeFile(File file, byte[] data, boolean sync) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            if (sync) {
+                out.getFD().sync();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to rename " + temp.getAbsolutePath());
+        }
+    }
+
+    private void flushDeletes() {
+        synchronized (this) {
+            deleteTask = null;
+        }
+        int failed = 0;
+        File file;
+        while ((file = pendingDeletes.poll()) != null) {
+            if (file.exists() && !file.delete()) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            // 删除失败的文件留给下次启动时的全量清理
+            Log.w(TAG, "删除数据文件失败" + failed + "个");
+        }
+    }
+
+    private File fileOf(String ref) throws IOException {
+        int end = ref.lastIndexOf(':');
+        if (!isReference(ref) || end <= REF_PREFIX.length()) {
+            throw new IOException("Invalid blob reference: " + ref);
+        }
+        String name = ref.substring(REF_PREFIX.length(), end);
+        // 文件名只能是本类生成的名称，防止引用指向目录外
+        if (name.indexOf('/') >= 0 || !(name.endsWith(FILE_SUFFIX) || name.endsWith(TEXT_SUFFIX))) {
+            throw new IOException("Invalid blob reference: " + ref);
+        }
+        return new File(dir, name);
+    }
+
+    private static int lengthOf(String ref) throws IOException {
+        try {
+            return Integer.parseInt(ref.substring(ref.lastIndexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid blob reference: " + ref, e);
+        }
+    }
+}
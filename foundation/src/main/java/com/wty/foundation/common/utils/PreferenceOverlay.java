@@ -0,0 +1,217 @@
+package com.wty.foundation.common.utils;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SPUtils事务的暂存层
+ * 事务中的写入只记录在这里，读取时先查暂存的修改再查底层SharedPreferences，事务内可以读到自己的写入；
+ * 提交时通过flushTo一次写入Editor，回滚时直接丢弃。commit和apply不做任何事，由SPUtils统一提交
+ */
+final class PreferenceOverlay implements SharedPreferences, SharedPreferences.Editor {
+    // 表示删除的标记
+    private static final Object REMOVED = new Object();
+
+    private final SharedPreferences base;
+    private final HashMap<String, Object> staged = new HashMap<>();
+    private boolean cleared;
+
+    PreferenceOverlay(SharedPreferences base) {
+        this.base = base;
+    }
+
+    /**
+     * 把暂存的修改写入Editor，不提交
+     *
+     * @param editor 目标Editor
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void flushTo(SharedPreferences.Editor editor) {
+        if (cleared) {
+            editor.clear();
+        }
+        for (Map.Entry<String, Object> entry : staged.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == REMOVED) {
+                editor.remove(key);
+            } else if (value instanceof String) {
+                editor.putString(key, (String) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(key, (Integer) value);
+            } else if (value instanceof Long) {
+                editor.putLong(key, (Long) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(key, (Float) value);
+            } else if (value instanceof Boolean) {
+                editor.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Set) {
+                editor.putStringSet(key, (Set<String>) value);
+            }
+        }
+    }
+
+    /**
+     * 暂存的修改数
+     */
+    synchronized int size() {
+        return staged.size();
+    }
+
+    /**
+     * 查找暂存的值
+     *
+     * @return 暂存了修改时返回值或REMOVED，否则返回null
+     */
+    private Object lookup(String key) {
+        Object value = staged.get(key);
+        if (value == null && cleared) {
+            return REMOVED;
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        Map<String, Object> all = cleared ? new HashMap<>() : new HashMap<>(base.getAll());
+        for (Map.Entry<String, Object> entry : staged.entrySet()) {
+            if (entry.getValue() == REMOVED) {
+                all.remove(entry.getKey());
+            } else {
+                all.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return all;
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getString(String key, @Nullable String defValue) {
+        Object value = lookup(key);
+        if (value == null) return base.getString(key, defValue);
+        return value == REMOVED ? defValue : (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public synchronized Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+        Object value = lookup(key);
+        if (value == null) return base.getStringSet(key, defValues);
+        return value == REMOVED ? defValues : (Set<String>) value;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Object value = lookup(key);
+        if (value == null) return base.getInt(key, defValue);
+        return value == REMOVED ? defValue : (Integer) value;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Object value = lookup(key);
+        if (value == null) return base.getLong(key, defValue);
+        return value == REMOVED ? defValue : (Long) value;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        Object value = lookup(key);
+        if (value == null) return base.getFloat(key, defValue);
+        return value == REMOVED ? defValue : (Float) value;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object value = lookup(key);
+        if (value == null) return base.getBoolean(key, defValue);
+        return value == REMOVED ? defValue : (Boolean) value;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        Object value = lookup(key);
+        if (value == null) return base.contains(key);
+        return value != REMOVED;
+    }
+
+    @Override
+    public SharedPreferences.Editor edit() {
+        return this;
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        base.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        base.unregisterOnSharedPreferenceChangeListener(listener);
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor putString(String key, @Nullable String value) {
+        staged.put(key, value != null ? value : REMOVED);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor putStringSet(String key, @Nullable Set<String> values) {
+        staged.put(key, values != null ? new HashSet<>(values) : REMOVED);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor putInt(String key, int value) {
+        staged.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor putLong(String key, long value) {
+        staged.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor putFloat(String key, float value) {
+        staged.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor putBoolean(String key, boolean value) {
+        staged.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor remove(String key) {
+        staged.put(key, REMOVED);
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences.Editor clear() {
+        staged.clear();
+        cleared = true;
+        return this;
+    }
+
+    @Override
+    public boolean commit() {
+        return true;
+    }
+
+    @Override
+    public void apply() {
+    }
+}
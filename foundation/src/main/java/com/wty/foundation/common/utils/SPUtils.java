@@ -10,12 +10,13 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.Base64;
 import android.util.Log;
-import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import com.wty.foundation.common.init.AppContext;
@@ -29,9 +30,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,12 +42,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 用于操作 SharedPreferences 的工具类，提供了多种数据类型的存储和读取方法，
@@ -66,8 +68,14 @@ public class SPUtils {
     private static final String BITMAP_DIR_NAME = "bitmaps";
     // 临时恢复文件的名称
     private static final String TEMP_RESTORE_FILE = "sp_restore.tmp";
+    // 内存映射存储引擎的目录名称
+    private static final String MAPPED_DIR_NAME = "sp_store";
+    // 内存映射存储文件的后缀
+    private static final String MAPPED_FILE_SUFFIX = ".kv";
     private static final Gson GSON = new Gson();
     private static volatile SPUtils INSTANCE = null;
+    // 存储引擎，需在第一次调用 getInstance 前设置
+    private static volatile Backend backend = Backend.SHARED_PREFERENCES;
     // SharedPreferences 对象
     private SharedPreferences preferences;
     // SharedPreferences 的编辑器
@@ -76,12 +84,15 @@ public class SPUtils {
     private final ConcurrentLinkedQueue<Runnable> transactionOperations = new ConcurrentLinkedQueue<>();
     // 存储事务回滚操作的队列
     private final ConcurrentLinkedQueue<Runnable> rollbackOperations = new ConcurrentLinkedQueue<>();
-    // 存储原始值的 Map，用于事务回滚
-    private final ConcurrentHashMap<String, Object> originalValues = new ConcurrentHashMap<>();
-    // 用于 Bitmap 操作的读写锁
-    private final ReentrantReadWriteLock bitmapLock = new ReentrantReadWriteLock();
-    // 用于缓存 Bitmap 的 LruCache，使用 SoftReference 防止内存泄漏
-    private final LruCache<String, SoftReference<Bitmap>> bitmapCache;
+    // 事务的暂存层，没有进行中的事务时为 null
+    private volatile PreferenceOverlay overlay;
+    // 开始事务的线程，只有该线程的读写经过暂存层
+    private volatile Thread transactionThread;
+    // Bitmap 的编码、解码、内存缓存和文件清理
+    private final BitmapStore bitmapStore;
+    // 正在编码的 Bitmap 写入的序号，写入完成时序号已变化（被再次写入或移除）则丢弃本次结果
+    private final ConcurrentHashMap<String, Long> pendingBitmapWrites = new ConcurrentHashMap<>();
+    private final AtomicLong bitmapWriteSequence = new AtomicLong();
     // 存储 SharedPreferences 监听器的列表，使用 CopyOnWriteArrayList 保证线程安全
     private final CopyOnWriteArrayList<WeakReference<SharedPreferences.OnSharedPreferenceChangeListener>> listeners = new CopyOnWriteArrayList<>();
     private final Object listenerLock = new Object();
@@ -95,8 +106,30 @@ public class SPUtils {
     private static final CompressFormat DEFAULT_BITMAP_FORMAT = CompressFormat.PNG;
     // 默认的 Bitmap 压缩质量
     private static final int DEFAULT_BITMAP_QUALITY = 70;
-    // 存储 Bitmap 的目录对象
-    private final File bitmapDir;
+    // 保存大数据文件的目录名称
+    private static final String BLOB_DIR_NAME = "sp_blobs";
+    // 备份时大数据文件保存在备份文件旁的同名目录中
+    private static final String BLOB_BACKUP_SUFFIX = ".blobs";
+    // 超过该大小（字节数或字符数）的字节数组和 JSON 保存为单独的文件
+    private static final int BLOB_THRESHOLD = 2048;
+    // 大数据文件存储
+    private final PreferenceBlobStore blobStore;
+    // 启动后延迟清理无引用文件（Bitmap、大数据文件）的时间（毫秒）
+    private static final long FILE_SWEEP_DELAY_MS = 10 * 1000;
+    // 解码对象缓存的默认大小（字节）
+    private static final long DEFAULT_DECODED_CACHE_BYTES = 1024 * 1024;
+    // 对象类数据解析结果的缓存，保存 JSON 解析后的 JsonElement 和对象数据解码后的字节数组，不直接返回给调用方；
+    // getSharedObject 转换后的对象也按类型保存在这里，直接返回给调用方
+    private final DecodedObjectCache decodedCache = new DecodedObjectCache(DEFAULT_DECODED_CACHE_BYTES);
+    // 数据变化时使解码对象缓存失效，SharedPreferences 只弱引用监听器，这里需持有强引用
+    private final SharedPreferences.OnSharedPreferenceChangeListener decodedCacheInvalidator = (prefs, changedKey) -> {
+        if (changedKey == null) {
+            // 清空数据时 key 为 null
+            decodedCache.clear();
+        } else {
+            decodedCache.invalidate(changedKey);
+        }
+    };
 
     /**
      * 私有构造函数，初始化 SharedPreferences、编辑器、Bitmap 缓存和存储目录等
@@ -104,46 +137,88 @@ public class SPUtils {
     private SPUtils() {
         // 获取应用的上下文
         context = AppContext.getInstance().getContext();
-        // 获取 SharedPreferences 实例
-        preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        // 按存储引擎获取 SharedPreferences 实例
+        preferences = openPreferences();
         // 获取 SharedPreferences 的编辑器
         editor = preferences.edit();
+        // 注册解码对象缓存的失效监听
+        preferences.registerOnSharedPreferenceChangeListener(decodedCacheInvalidator);
 
-        // 计算 LruCache 的最大缓存大小，这里设置为应用最大内存的 1/8（以 KB 为单位）
-        int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
-        int cacheSize = maxMemory / 8;
-        // 初始化 LruCache
-        bitmapCache = new LruCache<String, SoftReference<Bitmap>>(cacheSize) {
-            /**
-             * 计算缓存项的大小（以 KB 为单位），返回 Bitmap 的字节数除以 1024
-             * 如果 Bitmap 为 null，则返回 0
-             */
-            @Override
-            protected int sizeOf(String key, SoftReference<Bitmap> value) {
-                Bitmap bitmap = value.get();
-                return (bitmap != null) ? bitmap.getByteCount() / 1024 : 0;
-            }
+        // Bitmap 内存缓存为应用最大内存的 1/8，复用池为 1/32
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        bitmapStore = new BitmapStore(new File(context.getFilesDir(), BITMAP_DIR_NAME), maxMemory / 8, maxMemory / 32);
+        // 延迟清理上次运行遗留的无引用文件
+        bitmapStore.schedule(this::sweepBitmapFiles, FILE_SWEEP_DELAY_MS);
+        blobStore = new PreferenceBlobStore(new File(context.getFilesDir(), BLOB_DIR_NAME));
+        blobStore.schedule(this::sweepBlobFiles, FILE_SWEEP_DELAY_MS);
+    }
 
-            /**
-             * 当缓存项被移除时调用，回收被移除的 Bitmap（如果未被回收）
-             */
-            @Override
-            protected void entryRemoved(boolean evicted, String key, SoftReference<Bitmap> oldValue, SoftReference<Bitmap> newValue) {
-                Bitmap bitmap = oldValue.get();
-                if (bitmap != null && !bitmap.isRecycled()) {
-                    bitmap.recycle();
-                }
+    /**
+     * 存储引擎
+     */
+    public enum Backend {
+        /**
+         * 系统 SharedPreferences（XML 文件，每次提交重写整个文件）
+         */
+        SHARED_PREFERENCES,
+        /**
+         * 内存映射的追加日志，每次提交只追加修改的记录；首次启用时从 SharedPreferences 迁移数据，
+         * 迁移后原 SharedPreferences 被清空，不能再切换回 SHARED_PREFERENCES
+         */
+        MAPPED_LOG
+    }
+
+    /**
+     * 设置存储引擎，必须在第一次调用 getInstance 前调用（如 Application.onCreate 中）
+     *
+     * @param backend 存储引擎
+     * @throws IllegalStateException 实例已创建时抛出
+     */
+    public static void setBackend(@NonNull Backend backend) {
+        synchronized (SPUtils.class) {
+            if (INSTANCE != null && SPUtils.backend != backend) {
+                throw new IllegalStateException("setBackend must be called before getInstance");
             }
-        };
+            SPUtils.backend = backend;
+        }
+    }
 
-        // 创建存储 Bitmap 的目录对象
-        bitmapDir = new File(context.getFilesDir(), BITMAP_DIR_NAME);
-        // 如果目录不存在，则创建目录
-        if (!bitmapDir.exists()) {
-            bitmapDir.mkdirs();
+    /**
+     * 按存储引擎打开 SharedPreferences，内存映射存储打开失败时回退到系统 SharedPreferences
+     *
+     * @return SharedPreferences 实例
+     */
+    private SharedPreferences openPreferences() {
+        // 系统 SharedPreferences，也是迁移的数据来源
+        SharedPreferences legacy = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        if (backend != Backend.MAPPED_LOG) return legacy;
+        File file = getMappedFile();
+        try {
+            // 存储文件不存在时先迁移原有数据，打开成功后才清空原 SharedPreferences
+            return MappedPreferences.openMigrating(file, legacy);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open mapped store, falling back to SharedPreferences: " + file.getAbsolutePath(), e);
+            return legacy;
         }
     }
 
+    /**
+     * 获取内存映射存储文件
+     */
+    private File getMappedFile() {
+        return new File(new File(context.getFilesDir(), MAPPED_DIR_NAME), PREF_NAME + MAPPED_FILE_SUFFIX);
+    }
+
+    /**
+     * 获取当前存储引擎实际使用的文件
+     */
+    private File getBackingFile() {
+        if (preferences instanceof MappedPreferences) {
+            return ((MappedPreferences) preferences).getFile();
+        }
+        return new File(context.getApplicationInfo().dataDir + "/shared_prefs/" + PREF_NAME + ".xml");
+    }
+
     /**
      * 获取 SPUtils 的单例实例
      * 使用双重检查锁定确保线程安全
@@ -179,7 +254,7 @@ public class SPUtils {
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void putString(@NonNull String key, String value, boolean useCommit) {
-        editor.putString(DATA_KEY_PREFIX + key, value);
+        writer().putString(DATA_KEY_PREFIX + key, value);
         commitOrApply(useCommit);
     }
 
@@ -201,7 +276,7 @@ public class SPUtils {
      * @return 存储的字符串值或默认值
      */
     public String getString(@NonNull String key, String defaultValue) {
-        return preferences.getString(DATA_KEY_PREFIX + key, defaultValue);
+        return reader().getString(DATA_KEY_PREFIX + key, defaultValue);
     }
 
     /**
@@ -222,7 +297,7 @@ public class SPUtils {
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void putInt(@NonNull String key, int value, boolean useCommit) {
-        editor.putInt(DATA_KEY_PREFIX + key, value);
+        writer().putInt(DATA_KEY_PREFIX + key, value);
         commitOrApply(useCommit);
     }
 
@@ -244,7 +319,7 @@ public class SPUtils {
      * @return 存储的整数值或默认值
      */
     public int getInt(@NonNull String key, int defaultValue) {
-        return preferences.getInt(DATA_KEY_PREFIX + key, defaultValue);
+        return reader().getInt(DATA_KEY_PREFIX + key, defaultValue);
     }
 
     /**
@@ -265,7 +340,7 @@ public class SPUtils {
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void putLong(@NonNull String key, long value, boolean useCommit) {
-        editor.putLong(DATA_KEY_PREFIX + key, value);
+        writer().putLong(DATA_KEY_PREFIX + key, value);
         commitOrApply(useCommit);
     }
 
@@ -287,7 +362,7 @@ public class SPUtils {
      * @return 存储的长整数值或默认值
      */
     public long getLong(@NonNull String key, long defaultValue) {
-        return preferences.getLong(DATA_KEY_PREFIX + key, defaultValue);
+        return reader().getLong(DATA_KEY_PREFIX + key, defaultValue);
     }
 
     /**
@@ -308,7 +383,7 @@ public class SPUtils {
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void putFloat(@NonNull String key, float value, boolean useCommit) {
-        editor.putFloat(DATA_KEY_PREFIX + key, value);
+        writer().putFloat(DATA_KEY_PREFIX + key, value);
         commitOrApply(useCommit);
     }
 
@@ -330,7 +405,7 @@ public class SPUtils {
      * @return 存储的浮点数值或默认值
      */
     public float getFloat(@NonNull String key, float defaultValue) {
-        return preferences.getFloat(DATA_KEY_PREFIX + key, defaultValue);
+        return reader().getFloat(DATA_KEY_PREFIX + key, defaultValue);
     }
 
     /**
@@ -395,7 +470,7 @@ public class SPUtils {
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void putBoolean(@NonNull String key, boolean value, boolean useCommit) {
-        editor.putBoolean(DATA_KEY_PREFIX + key, value);
+        writer().putBoolean(DATA_KEY_PREFIX + key, value);
         commitOrApply(useCommit);
     }
 
@@ -417,7 +492,7 @@ public class SPUtils {
      * @return 存储的布尔值或默认值
      */
     public boolean getBoolean(@NonNull String key, boolean defaultValue) {
-        return preferences.getBoolean(DATA_KEY_PREFIX + key, defaultValue);
+        return reader().getBoolean(DATA_KEY_PREFIX + key, defaultValue);
     }
 
     /**
@@ -440,7 +515,7 @@ public class SPUtils {
      */
     public void putStringSet(@NonNull String key, Set<String> value, boolean useCommit) {
         Set<String> safeSet = (value != null) ? new HashSet<>(value) : new HashSet<>();
-        editor.putStringSet(DATA_KEY_PREFIX + key, safeSet);
+        writer().putStringSet(DATA_KEY_PREFIX + key, safeSet);
         commitOrApply(useCommit);
     }
 
@@ -462,7 +537,7 @@ public class SPUtils {
      * @return 存储的字符串集合或默认值
      */
     public Set<String> getStringSet(@NonNull String key, Set<String> defaultValue) {
-        Set<String> set = preferences.getStringSet(DATA_KEY_PREFIX + key, null);
+        Set<String> set = reader().getStringSet(DATA_KEY_PREFIX + key, null);
         return set != null ? new HashSet<>(set) : defaultValue;
     }
 
@@ -489,8 +564,7 @@ public class SPUtils {
     public <T extends Serializable> void putSerializableObject(@NonNull String key, T obj, boolean useCommit) {
         try {
             // 将对象转换为 JSON 字符串并存储
-            editor.putString(OBJECT_KEY_PREFIX + key, GSON.toJson(obj));
-            commitOrApply(useCommit);
+            putJson(OBJECT_KEY_PREFIX + key, GSON.toJson(obj), useCommit);
         } catch (Exception e) {
             // 若序列化过程中出现异常，记录错误日志
             Log.e(TAG, "Failed to serialize object, key: " + key, e);
@@ -508,12 +582,10 @@ public class SPUtils {
      * @return 存储的可序列化对象或默认对象
      */
     public <T extends Serializable> T getSerializableObject(@NonNull String key, Class<T> clazz, @Nullable T defaultObject) {
-        // 从 SharedPreferences 中获取存储的 JSON 字符串
-        String json = preferences.getString(OBJECT_KEY_PREFIX + key, null);
-        if (json == null) return defaultObject;
         try {
-            // 将 JSON 字符串转换为对象
-            return GSON.fromJson(json, clazz);
+            // 读取 JSON 并转换为对象
+            T result = readJson(OBJECT_KEY_PREFIX + key, clazz);
+            return result != null ? result : defaultObject;
         } catch (JsonSyntaxException e) {
             // 若反序列化过程中出现异常，记录错误日志并返回默认对象
             Log.e(TAG, "Failed to deserialize object, key: " + key, e);
@@ -573,8 +645,8 @@ public class SPUtils {
      * @return 存储的可打包对象或默认对象
      */
     public <T extends Parcelable> T getParcelableObject(@NonNull String key, Class<T> clazz, @Nullable T defaultObject) {
-        // 从 SharedPreferences 中获取存储的字节数组
-        byte[] bytes = getBytes(OBJECT_KEY_PREFIX + key, null);
+        // 获取存储的字节数组
+        byte[] bytes = readObjectBytes(key);
         if (bytes == null) return defaultObject;
 
         // 获取一个 Parcel 实例
@@ -623,8 +695,7 @@ public class SPUtils {
     public <T extends Serializable> void putSerializableList(@NonNull String key, List<T> list, boolean useCommit) {
         try {
             // 将列表转换为 JSON 字符串并存储
-            editor.putString(OBJECT_KEY_PREFIX + key, GSON.toJson(list));
-            commitOrApply(useCommit);
+            putJson(OBJECT_KEY_PREFIX + key, GSON.toJson(list), useCommit);
         } catch (Exception e) {
             // 若序列化过程中出现异常，记录错误日志
             Log.e(TAG, "Failed to store Serializable list, key: " + key, e);
@@ -641,15 +712,12 @@ public class SPUtils {
      * @return 存储的可序列化对象列表或空列表
      */
     public <T extends Serializable> List<T> getSerializableList(@NonNull String key, Class<T> clazz) {
-        // 从 SharedPreferences 中获取存储的 JSON 字符串
-        String json = preferences.getString(OBJECT_KEY_PREFIX + key, null);
-        if (json == null) return new ArrayList<>();
-
+        // 获取列表的类型
+        Type type = TypeToken.getParameterized(List.class, clazz).getType();
         try {
-            // 获取列表的类型
-            Type type = TypeToken.getParameterized(List.class, clazz).getType();
-            // 将 JSON 字符串转换为列表
-            return GSON.fromJson(json, type);
+            // 读取 JSON 并转换为列表
+            List<T> result = readJson(OBJECT_KEY_PREFIX + key, type);
+            return result != null ? result : new ArrayList<>();
         } catch (JsonSyntaxException e) {
             // 若反序列化过程中出现异常，记录错误日志并返回空列表
             Log.e(TAG, "Failed to get Serializable list, key: " + key, e);
@@ -680,7 +748,7 @@ public class SPUtils {
     public <T extends Parcelable> void putParcelableList(@NonNull String key, List<T> list, boolean useCommit) {
         if (list == null) {
             // 如果列表为空，从 SharedPreferences 中移除该键
-            editor.remove(OBJECT_KEY_PREFIX + key);
+            writer().remove(OBJECT_KEY_PREFIX + key);
             commitOrApply(useCommit);
             return;
         }
@@ -715,8 +783,8 @@ public class SPUtils {
      * @return 存储的可打包对象列表或空列表
      */
     public <T extends Parcelable> List<T> getParcelableList(@NonNull String key, Class<T> clazz) {
-        // 从 SharedPreferences 中获取存储的字节数组
-        byte[] bytes = getBytes(OBJECT_KEY_PREFIX + key, null);
+        // 获取存储的字节数组
+        byte[] bytes = readObjectBytes(key);
         if (bytes == null) return new ArrayList<>();
 
         // 获取一个 Parcel 实例
@@ -781,8 +849,7 @@ public class SPUtils {
     public <K, V> void putMap(@NonNull String key, Map<K, V> map, boolean useCommit) {
         try {
             // 将 Map 转换为 JSON 字符串并存储
-            editor.putString(OBJECT_KEY_PREFIX + key, GSON.toJson(map));
-            commitOrApply(useCommit);
+            putJson(OBJECT_KEY_PREFIX + key, GSON.toJson(map), useCommit);
         } catch (Exception e) {
             // 若序列化过程中出现异常，记录错误日志
             Log.e(TAG, "Failed to store Map, key: " + key);
@@ -801,15 +868,12 @@ public class SPUtils {
      * @return 存储的 Map 对象或空 Map
      */
     public <K, V> Map<K, V> getMap(@NonNull String key, Class<K> keyClass, Class<V> valueClass) {
-        // 从 SharedPreferences 中获取存储的 JSON 字符串
-        String json = preferences.getString(OBJECT_KEY_PREFIX + key, null);
-        if (json == null) return new HashMap<>();
-
+        // 获取 Map 的类型
+        Type type = TypeToken.getParameterized(Map.class, keyClass, valueClass).getType();
         try {
-            // 获取 Map 的类型
-            Type type = TypeToken.getParameterized(Map.class, keyClass, valueClass).getType();
-            // 将 JSON 字符串转换为 Map
-            return GSON.fromJson(json, type);
+            // 读取 JSON 并转换为 Map
+            Map<K, V> result = readJson(OBJECT_KEY_PREFIX + key, type);
+            return result != null ? result : new HashMap<>();
         } catch (JsonSyntaxException e) {
             // 若反序列化过程中出现异常，记录错误日志并返回空 Map
             Log.e(TAG, "Failed to get Map, key: " + key);
@@ -842,8 +906,7 @@ public class SPUtils {
     public <K, V> void putMapList(@NonNull String key, List<Map<K, V>> list, boolean useCommit) {
         try {
             // 将 Map 列表转换为 JSON 字符串并存储
-            editor.putString(OBJECT_KEY_PREFIX + key, GSON.toJson(list));
-            commitOrApply(useCommit);
+            putJson(OBJECT_KEY_PREFIX + key, GSON.toJson(list), useCommit);
         } catch (Exception e) {
             // 若序列化过程中出现异常，记录错误日志
             Log.e(TAG, "Failed to store Map list, key: " + key);
@@ -862,15 +925,12 @@ public class SPUtils {
      * @return 存储的 Map 列表或空列表
      */
     public <K, V> List<Map<K, V>> getMapList(@NonNull String key, Class<K> keyClass, Class<V> valueClass) {
-        // 从 SharedPreferences 中获取存储的 JSON 字符串
-        String json = preferences.getString(OBJECT_KEY_PREFIX + key, null);
-        if (json == null) return new ArrayList<>();
-
+        // 获取 Map 列表的类型
+        Type type = TypeToken.getParameterized(List.class, TypeToken.getParameterized(Map.class, keyClass, valueClass).getType()).getType();
         try {
-            // 获取 Map 列表的类型
-            Type type = TypeToken.getParameterized(List.class, TypeToken.getParameterized(Map.class, keyClass, valueClass).getType()).getType();
-            // 将 JSON 字符串转换为 Map 列表
-            return GSON.fromJson(json, type);
+            // 读取 JSON 并转换为 Map 列表
+            List<Map<K, V>> result = readJson(OBJECT_KEY_PREFIX + key, type);
+            return result != null ? result : new ArrayList<>();
         } catch (JsonSyntaxException e) {
             // 若反序列化过程中出现异常，记录错误日志并返回空列表
             Log.e(TAG, "Failed to get Map list, key: " + key);
@@ -878,90 +938,150 @@ public class SPUtils {
         }
     }
 
+    /**
+     * 获取 putSerializableObject、putSerializableList、putMap、putMapList 存储的对象，返回共享的缓存实例
+     * 数据未变化时同一个键和类型返回同一个实例，省去每次读取时的对象转换，适合频繁读取且只读的场景；
+     * 返回的对象不能修改，需要修改时使用对应的 get 方法获取新的对象，修改后再通过 put 方法保存
+     *
+     * @param <T>           对象的类型
+     * @param key           存储对象的键
+     * @param type          对象的类型，泛型类型可通过 TypeToken 获取
+     * @param defaultObject 如果未找到对应的值或转换失败，返回的默认对象
+     * @return 共享的缓存对象或默认对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getSharedObject(@NonNull String key, @NonNull Type type, @Nullable T defaultObject) {
+        String prefKey = OBJECT_KEY_PREFIX + key;
+        String json = reader().getString(prefKey, null);
+        if (json == null) return defaultObject;
+        Object cached = decodedCache.get(prefKey, type, json);
+        if (cached != null) return (T) cached;
+        try {
+            T result = readJson(prefKey, type);
+            if (result == null) return defaultObject;
+            decodedCache.put(prefKey, type, json, json.length() * 2L, result);
+            return result;
+        } catch (JsonSyntaxException e) {
+            Log.e(TAG, "Failed to get shared object, key: " + key, e);
+            return defaultObject;
+        }
+    }
+
     /**
      * 存储 Bitmap，使用默认的压缩格式和质量，以及默认的提交方式（apply）
      *
      * @param key    存储 Bitmap 的键
      * @param bitmap 要存储的 Bitmap 对象
+     * @return 可用于等待写入完成的 Future，结果表示是否写入成功，参数无效时为 null
      */
-    public void putBitmap(@NonNull String key, @NonNull Bitmap bitmap) {
-        putBitmap(key, bitmap, DEFAULT_BITMAP_FORMAT, DEFAULT_BITMAP_QUALITY, false);
+    @Nullable
+    public Future<Boolean> putBitmap(@NonNull String key, @NonNull Bitmap bitmap) {
+        return putBitmap(key, bitmap, DEFAULT_BITMAP_FORMAT, DEFAULT_BITMAP_QUALITY, false);
     }
 
     /**
      * 存储 Bitmap，可以指定压缩格式、质量和提交方式
-     * 将 Bitmap 压缩后保存为文件，并将文件路径存储到 SharedPreferences 中，同时更新缓存
+     * 先复制一份 Bitmap 放入内存缓存，压缩和写文件在后台线程执行，完成后把文件路径存储到 SharedPreferences 中，
+     * 旧文件随后批量删除；调用返回后即可回收或复用传入的 Bitmap。
+     * 在事务中调用时在当前线程同步写入，文件路径暂存在事务中，提交前不删除旧文件，回滚后新文件由启动后的清理删除
      *
      * @param key       存储 Bitmap 的键
      * @param bitmap    要存储的 Bitmap 对象
      * @param format    压缩格式
      * @param quality   压缩质量（0-100）
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
+     * @return 可用于等待写入完成的 Future，结果表示是否写入成功，参数无效或复制失败时为 null
      */
-    public void putBitmap(@NonNull String key, @NonNull Bitmap bitmap, CompressFormat format, int quality, boolean useCommit) {
+    @Nullable
+    public Future<Boolean> putBitmap(@NonNull String key, @NonNull Bitmap bitmap, CompressFormat format, int quality, boolean useCommit) {
         if (bitmap == null) {
             // 如果 Bitmap 为 null，记录错误日志并返回
             Log.e(TAG, "Attempting to store null Bitmap, key: " + key);
-            return;
+            return null;
         }
 
         if (bitmap.isRecycled()) {
             // 如果 Bitmap 已被回收，记录错误日志并返回
             Log.e(TAG, "Attempting to store a recycled Bitmap, key: " + key);
-            return;
+            return null;
         }
 
-        // 生成唯一的文件名
-        String fileName = UUID.randomUUID().toString() + "." + format.name().toLowerCase();
-        // 创建文件对象
-        File newFile = new File(bitmapDir, fileName);
-        // 获取文件的绝对路径
-        String newFilePath = newFile.getAbsolutePath();
-
-        // 获取写锁，确保同一时间只有一个线程可以写入
-        bitmapLock.writeLock().lock();
-        try (FileOutputStream fos = new FileOutputStream(newFile)) {
-            // 压缩 Bitmap 并写入文件
-            if (bitmap.compress(format, Math.max(0, Math.min(quality, 100)), fos)) {
-                synchronized (transactionLock) {
-                    // 将文件路径存储到 SharedPreferences
-                    editor.putString(BITMAP_KEY_PREFIX + key, newFilePath);
-                    // 提交更改
-                    commitOrApply(useCommit);
-                    // 将 Bitmap 缓存到 LruCache 中，使用 SoftReference 防止内存泄漏
-                    bitmapCache.put(key, new SoftReference<>(bitmap));
-                }
-
-                // 获取之前存储的文件路径
-                String oldFilePath = preferences.getString(BITMAP_KEY_PREFIX + key, null);
-                if (oldFilePath != null && !oldFilePath.equals(newFilePath)) {
-                    // 如果存在旧文件路径且与新路径不同，启动新线程删除旧文件
-                    new Thread(() -> deleteOldFileWithRetry(oldFilePath)).start();
-                }
+        // 记录本次写入的序号，之后的写入或移除会使其失效
+        Long sequence = bitmapWriteSequence.incrementAndGet();
+        pendingBitmapWrites.put(key, sequence);
+        if (activeOverlay() != null) {
+            // 事务中同步写入，路径记录进入当前线程的暂存层；提交或回滚前不缓存新的 Bitmap
+            bitmapStore.removeMemory(key);
+            FutureTask<Boolean> task = new FutureTask<>(() -> writeBitmap(key, bitmap, format, quality, useCommit, sequence, true));
+            task.run();
+            return task;
+        }
+        // 复制一份用于缓存和编码，调用方之后回收或修改原 Bitmap 不影响写入
+        Bitmap copy;
+        try {
+            copy = bitmap.copy(bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888, false);
+        } catch (OutOfMemoryError e) {
+            copy = null;
+        }
+        if (copy == null) {
+            Log.e(TAG, "Failed to copy Bitmap for storing, key: " + key);
+            pendingBitmapWrites.remove(key, sequence);
+            return null;
+        }
+        final Bitmap snapshot = copy;
+        // 先放入内存缓存，编码完成前读取也能取到新的 Bitmap
+        bitmapStore.cacheWritten(key, snapshot);
+        // 同一个键的写入在编码线程中按提交顺序执行
+        return bitmapStore.submit(BITMAP_KEY_PREFIX + key, () -> writeBitmap(key, snapshot, format, quality, useCommit, sequence, false));
+    }
 
-            } else {
-                // 如果压缩失败，记录错误日志
-                Log.e(TAG, "Bitmap compression failed, key: " + key);
-                if (newFile.exists() && !newFile.delete()) {
-                    // 如果无法删除损坏的文件，记录警告日志
-                    Log.w(TAG, "Could not delete corrupted image file: " + newFile.getAbsolutePath());
-                }
+    /**
+     * 压缩 Bitmap 写入新文件并记录文件路径
+     *
+     * @param sequence      本次写入的序号，已被之后的写入或移除取代时丢弃结果
+     * @param inTransaction 是否在事务中（当前线程），事务中不缓存 Bitmap、不删除旧文件
+     * @return 是否写入成功
+     */
+    private boolean writeBitmap(String key, Bitmap bitmap, CompressFormat format, int quality, boolean useCommit, Long sequence, boolean inTransaction) {
+        // 压缩 Bitmap 并写入新文件
+        String newFilePath = bitmapStore.encode(bitmap, format, quality);
+        if (newFilePath == null) {
+            // 如果压缩失败，记录错误日志并移除内存中的新 Bitmap
+            Log.e(TAG, "Bitmap compression failed, key: " + key);
+            if (pendingBitmapWrites.remove(key, sequence)) {
+                bitmapStore.removeMemory(key);
             }
-        } catch (IOException e) {
-            // 如果保存图像时出现异常，记录错误日志
-            Log.e(TAG, "Failed to save image, key: " + key, e);
-            if (newFile.exists() && !newFile.delete()) {
-                // 如果无法删除损坏的文件，记录警告日志
-                Log.w(TAG, "Could not delete corrupted image file: " + newFile.getAbsolutePath());
+            return false;
+        }
+        String oldFilePath;
+        synchronized (transactionLock) {
+            if (!pendingBitmapWrites.remove(key, sequence)) {
+                // 期间被再次写入或移除，丢弃本次结果
+                bitmapStore.deleteLater(newFilePath);
+                return false;
             }
-        } finally {
-            // 释放写锁
-            bitmapLock.writeLock().unlock();
+            // 获取之前存储的文件路径
+            oldFilePath = reader().getString(BITMAP_KEY_PREFIX + key, null);
+            // 将文件路径存储到 SharedPreferences（事务中进入暂存层）
+            writer().putString(BITMAP_KEY_PREFIX + key, newFilePath);
+            // 提交更改
+            commitOrApply(useCommit);
+        }
+        if (inTransaction) {
+            // 回滚后仍使用旧文件，不删除；提交后遗留的旧文件由启动后的清理删除
+            return true;
         }
+        // 移除写入期间按旧文件解码的其他尺寸缓存
+        bitmapStore.cacheWritten(key, bitmap);
+        if (oldFilePath != null && !oldFilePath.equals(newFilePath)) {
+            // 旧文件加入待删除队列，批量删除
+            bitmapStore.deleteLater(oldFilePath);
+        }
+        return true;
     }
 
     /**
-     * 获取 Bitmap
+     * 获取原尺寸 Bitmap
      * 先从缓存中获取，如果缓存中没有则从文件中读取并更新缓存
      *
      * @param key           存储 Bitmap 的键
@@ -969,86 +1089,104 @@ public class SPUtils {
      * @return 存储的 Bitmap 对象或默认 Bitmap
      */
     public Bitmap getBitmap(@NonNull String key, @Nullable Bitmap defaultBitmap) {
-        // 获取读锁，允许多个线程同时读取
-        bitmapLock.readLock().lock();
-        try {
-            // 从缓存中获取 Bitmap 的 SoftReference
-            SoftReference<Bitmap> cachedReference = bitmapCache.get(key);
-            // 获取缓存中的 Bitmap
-            Bitmap cached = (cachedReference != null) ? cachedReference.get() : null;
-
-            if (cached == null) {
-                // 如果缓存中没有，从 SharedPreferences 中获取文件路径
-                String path = preferences.getString(BITMAP_KEY_PREFIX + key, null);
-                if (path != null) {
-                    // 创建文件对象
-                    File file = new File(path);
-                    if (file.exists()) {
-                        try {
-                            // 先只获取图像的边界信息，不实际解码图像
-                            BitmapFactory.Options options = new BitmapFactory.Options();
-                            options.inJustDecodeBounds = true;
-                            BitmapFactory.decodeFile(path, options);
-                            if (options.outWidth <= 0 || options.outHeight <= 0) {
-                                // 如果图像文件损坏，记录错误日志并移除该 Bitmap 的记录
-                                Log.e(TAG, "Corrupted image file: " + path);
-                                removeBitmap(key, true);
-                                return defaultBitmap;
-                            }
-
-                            // 实际解码图像
-                            options.inJustDecodeBounds = false;
-                            Bitmap bitmap = BitmapFactory.decodeFile(path, options);
-                            if (bitmap != null) {
-                                // 将解码后的 Bitmap 缓存到 LruCache 中
-                                bitmapCache.put(key, new SoftReference<>(bitmap));
-                                return bitmap;
-                            }
-                        } catch (Exception e) {
-                            // 如果加载图像时出现异常，记录错误日志
-                            Log.e(TAG, "Failed to load image, key: " + key, e);
-                        }
-                    } else {
-                        // 如果文件不存在，移除该 Bitmap 的记录
-                        removeBitmap(key, true);
-                    }
-                }
-                return defaultBitmap;
-            }
-
-            if (cached.isRecycled()) {
-                // 如果缓存中的 Bitmap 已被回收，从缓存中移除
-                bitmapCache.remove(key);
-                return defaultBitmap;
-            }
+        return getBitmap(key, 0, 0, defaultBitmap);
+    }
 
-            return cached;
-        } finally {
-            // 释放读锁
-            bitmapLock.readLock().unlock();
+    /**
+     * 按目标尺寸获取 Bitmap
+     * 按 2 的幂缩小解码，结果宽高不小于目标尺寸；不同缩放比例分别缓存
+     *
+     * @param key           存储 Bitmap 的键
+     * @param reqWidth      目标宽度，小于等于 0 时按原尺寸解码
+     * @param reqHeight     目标高度，小于等于 0 时按原尺寸解码
+     * @param defaultBitmap 如果未找到对应 Bitmap，返回的默认 Bitmap 对象
+     * @return 存储的 Bitmap 对象或默认 Bitmap
+     */
+    public Bitmap getBitmap(@NonNull String key, int reqWidth, int reqHeight, @Nullable Bitmap defaultBitmap) {
+        if (reqWidth <= 0 || reqHeight <= 0 || pendingBitmapWrites.containsKey(key)) {
+            // 原尺寸请求或正在写入时，优先使用内存中的原尺寸 Bitmap
+            Bitmap cached = bitmapStore.getOriginal(key);
+            if (cached != null) return cached;
+        }
+        // 从 SharedPreferences 中获取文件路径
+        String path = reader().getString(BITMAP_KEY_PREFIX + key, null);
+        if (path == null) return defaultBitmap;
+        try {
+            Bitmap bitmap = bitmapStore.decode(key, path, reqWidth, reqHeight);
+            if (bitmap != null) return bitmap;
+            // 如果图像文件不存在或损坏，记录错误日志并移除该 Bitmap 的记录
+            Log.e(TAG, "Missing or corrupted image file: " + path);
+            removeBitmapIfPath(key, path);
+        } catch (Exception e) {
+            // 如果加载图像时出现异常，记录错误日志
+            Log.e(TAG, "Failed to load image, key: " + key, e);
         }
+        return defaultBitmap;
+    }
+
+    /**
+     * 归还不再显示的 Bitmap，放入复用池供之后解码复用内存
+     * 每次通过 getBitmap 取得的 Bitmap 各归还一次；同一个 Bitmap 被多处取得时，全部归还且已不在内存缓存中才会被复用
+     *
+     * @param bitmap 不再使用的 Bitmap
+     */
+    public void releaseBitmap(@Nullable Bitmap bitmap) {
+        bitmapStore.release(bitmap);
     }
 
     /**
      * 移除 Bitmap
-     * 删除对应的文件，从 SharedPreferences 中移除路径记录，并从缓存中移除
+     * 从 SharedPreferences 中移除路径记录，从缓存中移除，文件加入待删除队列
      *
      * @param key       存储 Bitmap 的键
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void removeBitmap(@NonNull String key, boolean useCommit) {
-        // 从 SharedPreferences 中获取文件路径
-        String path = preferences.getString(BITMAP_KEY_PREFIX + key, null);
-        if (path != null) {
-            // 删除文件
-            new File(path).delete();
-            // 从 SharedPreferences 中移除路径记录
-            editor.remove(BITMAP_KEY_PREFIX + key);
-            // 提交更改
-            commitOrApply(useCommit);
-            // 从缓存中移除 Bitmap
-            bitmapCache.remove(key);
+        String path;
+        synchronized (transactionLock) {
+            // 使正在进行的写入失效
+            pendingBitmapWrites.remove(key);
+            // 从 SharedPreferences 中获取文件路径
+            path = reader().getString(BITMAP_KEY_PREFIX + key, null);
+            if (path != null) {
+                // 从 SharedPreferences 中移除路径记录
+                writer().remove(BITMAP_KEY_PREFIX + key);
+                // 提交更改
+                commitOrApply(useCommit);
+            }
+        }
+        // 从缓存中移除 Bitmap
+        bitmapStore.removeMemory(key);
+        if (activeOverlay() == null) {
+            // 文件加入待删除队列；事务中回滚后仍会使用，由启动后的清理删除
+            bitmapStore.deleteLater(path);
+        }
+    }
+
+    /**
+     * 文件无效时移除记录，记录已指向其他文件时不处理
+     */
+    private void removeBitmapIfPath(String key, String path) {
+        synchronized (transactionLock) {
+            if (!path.equals(reader().getString(BITMAP_KEY_PREFIX + key, null))) return;
+            writer().remove(BITMAP_KEY_PREFIX + key);
+            commitOrApply(true);
+        }
+        bitmapStore.removeMemory(key);
+        bitmapStore.deleteLater(path);
+    }
+
+    /**
+     * 删除 Bitmap 目录中没有被任何键引用的文件
+     */
+    private void sweepBitmapFiles() {
+        List<String> livePaths = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(BITMAP_KEY_PREFIX) && entry.getValue() instanceof String) {
+                livePaths.add((String) entry.getValue());
+            }
         }
+        bitmapStore.sweep(livePaths);
     }
 
     /**
@@ -1063,21 +1201,26 @@ public class SPUtils {
 
     /**
      * 存储字节数组，可以选择提交方式（commit 或 apply）
-     * 将字节数组编码为 Base64 字符串并存储到 SharedPreferences 中
+     * 较小的字节数组编码为 Base64 字符串存储到 SharedPreferences 中，
+     * 超过阈值的保存为单独的文件，SharedPreferences 中只保存文件引用
      *
      * @param key       存储字节数组的键
      * @param value     要存储的字节数组
      * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
      */
     public void putBytes(@NonNull String key, byte[] value, boolean useCommit) {
-        // 将字节数组编码为 Base64 字符串并存储
-        editor.putString(OBJECT_KEY_PREFIX + key, Base64.encodeToString(value, Base64.NO_WRAP));
-        commitOrApply(useCommit);
+        // 超过阈值的数据保存为文件，SharedPreferences 中只保存引用
+        String stored = value.length > BLOB_THRESHOLD ? writeBlob(value, false, useCommit) : null;
+        if (stored == null) {
+            // 将字节数组编码为 Base64 字符串
+            stored = Base64.encodeToString(value, Base64.NO_WRAP);
+        }
+        putObjectString(OBJECT_KEY_PREFIX + key, stored, useCommit);
     }
 
     /**
      * 获取字节数组
-     * 从 SharedPreferences 中读取 Base64 编码的字符串并解码为字节数组
+     * 从 SharedPreferences 中读取 Base64 编码的字符串并解码为字节数组，存储的是文件引用时读取文件
      *
      * @param key          存储字节数组的键
      * @param defaultValue 如果未找到对应的值，返回的默认字节数组
@@ -1085,8 +1228,18 @@ public class SPUtils {
      */
     public byte[] getBytes(@NonNull String key, @Nullable byte[] defaultValue) {
         // 从 SharedPreferences 中获取存储的 Base64 编码字符串
-        String encoded = preferences.getString(OBJECT_KEY_PREFIX + key, null);
+        String encoded = reader().getString(OBJECT_KEY_PREFIX + key, null);
         if (encoded == null) return defaultValue;
+        if (PreferenceBlobStore.isReference(encoded)) {
+            try {
+                // 从文件读取
+                return blobStore.read(encoded);
+            } catch (IOException e) {
+                // 如果文件读取失败，记录错误日志并返回默认字节数组
+                Log.e(TAG, "Failed to read blob file: " + key, e);
+                return defaultValue;
+            }
+        }
         try {
             // 解码 Base64 字符串为字节数组
             return Base64.decode(encoded, Base64.NO_WRAP);
@@ -1097,49 +1250,213 @@ public class SPUtils {
         }
     }
 
+    /**
+     * 存储 JSON 字符串，超过阈值时保存为文件
+     *
+     * @param prefKey   完整的键
+     * @param json      JSON 字符串
+     * @param useCommit 如果为 true，则使用 commit 提交更改；否则使用 apply
+     */
+    private void putJson(String prefKey, String json, boolean useCommit) {
+        String stored = json.length() > BLOB_THRESHOLD ? writeBlob(json.getBytes(StandardCharsets.UTF_8), true, useCommit) : null;
+        putObjectString(prefKey, stored != null ? stored : json, useCommit);
+    }
+
+    /**
+     * 读取 JSON 并转换为指定类型
+     * 解析得到的 JsonElement 保存在解码缓存中，不返回给调用方；每次调用都由 JsonElement 生成新的对象，
+     * 调用方修改返回值不会影响之后的读取
+     *
+     * @param prefKey 存储键（含前缀）
+     * @param type    目标类型
+     * @return 转换结果，不存在或大数据文件读取失败时返回 null
+     * @throws JsonSyntaxException JSON 格式错误或与目标类型不匹配
+     */
+    private <T> T readJson(String prefKey, Type type) {
+        // 从 SharedPreferences 中获取存储的 JSON 字符串
+        String json = reader().getString(prefKey, null);
+        if (json == null) return null;
+        JsonElement tree = (JsonElement) decodedCache.get(prefKey, JsonElement.class, json);
+        if (tree == null) {
+            // 大数据保存在文件中时读取文件内容
+            String content = resolveJson(json);
+            if (content == null) return null;
+            tree = JsonParser.parseString(content);
+            decodedCache.put(prefKey, JsonElement.class, json, content.length() * 2L, tree);
+        }
+        return GSON.fromJson(tree, type);
+    }
+
+    /**
+     * 读取 putParcelableObject、putParcelableList 存储的字节数组
+     * 解码后的字节数组保存在解码缓存中，只用于 Parcel 读取，不返回给调用方
+     *
+     * @param key 存储对象的键（不含前缀）
+     * @return 字节数组，不存在或读取失败时返回 null
+     */
+    private byte[] readObjectBytes(String key) {
+        // putBytes 会再加一次前缀
+        String prefKey = OBJECT_KEY_PREFIX + OBJECT_KEY_PREFIX + key;
+        String encoded = reader().getString(prefKey, null);
+        if (encoded == null) return null;
+        byte[] bytes = (byte[]) decodedCache.get(prefKey, byte[].class, encoded);
+        if (bytes == null) {
+            bytes = getBytes(OBJECT_KEY_PREFIX + key, null);
+            if (bytes != null) {
+                decodedCache.put(prefKey, byte[].class, encoded, bytes.length, bytes);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 读取 JSON 字符串，存储的是文件引用时读取文件内容
+     *
+     * @param stored SharedPreferences 中存储的字符串
+     * @return JSON 字符串，文件读取失败时返回 null
+     */
+    @Nullable
+    private String resolveJson(String stored) {
+        if (!PreferenceBlobStore.isReference(stored)) return stored;
+        try {
+            return new String(blobStore.read(stored), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read blob file: " + stored, e);
+            return null;
+        }
+    }
+
+    /**
+     * 读取文件引用对应的数据，转换为直接存储时的形式：JSON 为原文，字节数组为 Base64 字符串
+     *
+     * @param ref 文件引用
+     * @return 直接存储时的字符串，文件读取失败时返回 null
+     */
+    @Nullable
+    private String resolveInline(String ref) {
+        try {
+            byte[] data = blobStore.read(ref);
+            return PreferenceBlobStore.isText(ref) ? new String(data, StandardCharsets.UTF_8) : Base64.encodeToString(data, Base64.NO_WRAP);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read blob file: " + ref, e);
+            return null;
+        }
+    }
+
+    /**
+     * 把数据写入文件，commit 时同步到磁盘后再返回，apply 时只写入系统缓存，不在调用线程等待磁盘同步
+     *
+     * @param text      数据是否为 JSON 文本
+     * @param useCommit 是否使用 commit 提交
+     * @return 文件引用，写入失败时返回 null（由调用方改为直接存储）
+     */
+    @Nullable
+    private String writeBlob(byte[] data, boolean text, boolean useCommit) {
+        try {
+            return blobStore.write(data, text, useCommit);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write blob file, storing inline", e);
+            return null;
+        }
+    }
+
+    /**
+     * 存储对象类数据，原来的值是文件引用时删除旧文件
+     * 事务中不删除旧文件（回滚后仍会使用），遗留的文件由启动后的清理删除
+     */
+    private void putObjectString(String prefKey, String value, boolean useCommit) {
+        String old = reader().getString(prefKey, null);
+        writer().putString(prefKey, value);
+        commitOrApply(useCommit);
+        if (activeOverlay() == null && isBlobReference(prefKey, old) && !old.equals(value)) {
+            blobStore.deleteLater(old);
+        }
+    }
+
+    /**
+     * 删除 Blob 目录中没有被任何键引用的文件
+     */
+    private void sweepBlobFiles() {
+        blobStore.sweep(liveBlobRefs());
+    }
+
+    /**
+     * 当前存储中所有的文件引用
+     */
+    private List<String> liveBlobRefs() {
+        List<String> liveRefs = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (isBlobReference(entry.getKey(), entry.getValue())) {
+                liveRefs.add((String) entry.getValue());
+            }
+        }
+        return liveRefs;
+    }
+
+    /**
+     * 判断存储的值是否为文件引用
+     * 只有 OBJECT_KEY_PREFIX 下的键会保存为文件，其他键（如 putString 保存的普通字符串）即使以引用前缀开头也按原值处理
+     *
+     * @param prefKey 存储的键
+     * @param value   存储的值
+     * @return 是否为文件引用
+     */
+    private static boolean isBlobReference(String prefKey, Object value) {
+        return prefKey != null && prefKey.startsWith(OBJECT_KEY_PREFIX) && value instanceof String && PreferenceBlobStore.isReference((String) value);
+    }
+
     /**
      * 获取 SharedPreferences 中所有的键值对
+     * 保存为文件的大数据读取后按直接存储的形式返回（JSON 为原文，字节数组为 Base64 字符串），
+     * 文件读取失败的键不返回
      *
      * @return 包含所有键值对的 Map
      */
     public Map<String, Object> getAllEntries() {
         // 获取 SharedPreferences 中所有的键值对
-        Map<String, ?> all = preferences.getAll();
+        Map<String, ?> all = reader().getAll();
         // 创建一个 LinkedHashMap 用于存储结果
         Map<String, Object> result = new LinkedHashMap<>();
         for (Map.Entry<String, ?> entry : all.entrySet()) {
+            Object value = entry.getValue();
+            if (isBlobReference(entry.getKey(), value)) {
+                // 文件引用替换为文件中的数据
+                value = resolveInline((String) value);
+                if (value == null) continue;
+            }
             // 将键值对添加到结果 Map 中
-            result.put(entry.getKey(), entry.getValue());
+            result.put(entry.getKey(), value);
         }
         return result;
     }
 
     /**
      * 开始一个事务
-     * 清空事务操作队列、回滚操作队列和原始值 Map
+     * 之后当前线程的写入只暂存在事务中（读取能读到暂存的值），commitTransaction 时一次提交，
+     * rollbackTransaction 或提交失败时丢弃；未提交的上一个事务会被丢弃
      */
     public void beginTransaction() {
         synchronized (transactionLock) {
             transactionOperations.clear();
             rollbackOperations.clear();
-            originalValues.clear();
+            // 创建新的暂存层，只对当前线程生效
+            overlay = new PreferenceOverlay(preferences);
+            transactionThread = Thread.currentThread();
         }
     }
 
     /**
      * 向事务中添加一个操作和对应的回滚操作
+     * 操作在 commitTransaction 时执行，其中通过 SPUtils 的写入同样暂存在事务中，失败时自动丢弃，
+     * 回滚操作只需处理 SPUtils 以外的副作用
      *
      * @param operation 要执行的操作
-     * @param key       操作对应的键（用于存储原始值）
+     * @param key       操作对应的键（暂存层不需要保存原始值，保留参数以兼容旧调用）
      * @param rollback  操作失败时的回滚操作
      */
     public void addToTransaction(Runnable operation, String key, Runnable rollback) {
         if (operation == null) return;
         synchronized (transactionLock) {
-            if (key != null && preferences.contains(key)) {
-                // 如果键存在，存储其原始值
-                originalValues.put(key, preferences.getAll().get(key));
-            }
             // 添加操作到事务操作队列
             transactionOperations.add(operation);
             if (rollback != null) {
@@ -1151,12 +1468,19 @@ public class SPUtils {
 
     /**
      * 提交事务
-     * 执行事务操作队列中的所有操作，如果出现异常或超时则回滚事务
+     * 执行事务操作队列中的所有操作，全部成功后把暂存的修改一次写入 SharedPreferences，
+     * 如果出现异常或超时则回滚事务
      *
      * @return 如果事务成功提交返回 true，否则返回 false
      */
     public boolean commitTransaction() {
         synchronized (transactionLock) {
+            // 未调用 beginTransaction 时为本次提交创建暂存层
+            if (overlay == null) {
+                overlay = new PreferenceOverlay(preferences);
+            }
+            // 操作在当前线程执行，其写入进入暂存层
+            transactionThread = Thread.currentThread();
             long startTime = System.currentTimeMillis();
             boolean success = true;
             Iterator<Runnable> iterator = transactionOperations.iterator();
@@ -1185,7 +1509,10 @@ public class SPUtils {
                 // 如果事务失败，回滚事务
                 rollbackTransaction();
             } else {
-                // 如果事务成功，提交 SharedPreferences 的更改
+                PreferenceOverlay staged = overlay;
+                endTransaction();
+                // 如果事务成功，把暂存的修改写入编辑器并一次提交
+                staged.flushTo(editor);
                 editor.apply();
             }
             // 清空事务操作队列和回滚操作队列
@@ -1197,10 +1524,12 @@ public class SPUtils {
 
     /**
      * 回滚事务
-     * 执行回滚操作队列中的所有操作，并恢复原始值
+     * 丢弃暂存的修改，并执行回滚操作队列中的所有操作
      */
-    private void rollbackTransaction() {
+    public void rollbackTransaction() {
         synchronized (transactionLock) {
+            // 暂存的修改从未写入 SharedPreferences，直接丢弃
+            endTransaction();
             Iterator<Runnable> rollbackIterator = rollbackOperations.iterator();
             while (rollbackIterator.hasNext()) {
                 // 获取并执行下一个回滚操作
@@ -1214,47 +1543,67 @@ public class SPUtils {
                     rollbackIterator.remove();
                 }
             }
-
-            for (Map.Entry<String, Object> entry : originalValues.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-
-                if (value == null) {
-                    // 如果原始值为 null，从 SharedPreferences 中移除该键
-                    editor.remove(key);
-                } else if (value instanceof String) {
-                    // 如果原始值为字符串，恢复字符串值
-                    editor.putString(key, (String) value);
-                } else if (value instanceof Integer) {
-                    // 如果原始值为整数，恢复整数值
-                    editor.putInt(key, (Integer) value);
-                } else if (value instanceof Long) {
-                    // 如果原始值为长整数，恢复长整数值
-                    editor.putLong(key, (Long) value);
-                } else if (value instanceof Float) {
-                    // 如果原始值为浮点数，恢复浮点数值
-                    editor.putFloat(key, (Float) value);
-                } else if (value instanceof Boolean) {
-                    // 如果原始值为布尔值，恢复布尔值
-                    editor.putBoolean(key, (Boolean) value);
-                } else if (value instanceof Set<?>) {
-                    try {
-                        // 如果原始值为字符串集合，恢复字符串集合值
-                        @SuppressWarnings("unchecked") Set<String> stringSet = (Set<String>) value;
-                        editor.putStringSet(key, stringSet);
-                    } catch (ClassCastException e) {
-                        // 如果类型转换失败，记录警告日志
-                        Log.w(TAG, "Type conversion failed, skipping rollback key: " + key);
-                    }
-                }
-            }
-            // 提交 SharedPreferences 的更改
-            editor.apply();
-            // 清空原始值 Map
-            originalValues.clear();
+            transactionOperations.clear();
         }
     }
 
+    /**
+     * 结束事务，之后的读写直接访问 SharedPreferences
+     */
+    private void endTransaction() {
+        overlay = null;
+        transactionThread = null;
+    }
+
+    /**
+     * 获取读取用的 SharedPreferences，当前线程处于事务中时返回暂存层
+     */
+    private SharedPreferences reader() {
+        PreferenceOverlay current = activeOverlay();
+        return current != null ? current : preferences;
+    }
+
+    /**
+     * 获取写入用的编辑器，当前线程处于事务中时返回暂存层
+     */
+    private SharedPreferences.Editor writer() {
+        PreferenceOverlay current = activeOverlay();
+        return current != null ? current : editor;
+    }
+
+    /**
+     * 获取当前线程的事务暂存层
+     *
+     * @return 当前线程不在事务中时返回 null
+     */
+    @Nullable
+    private PreferenceOverlay activeOverlay() {
+        PreferenceOverlay current = overlay;
+        return current != null && transactionThread == Thread.currentThread() ? current : null;
+    }
+
+    /**
+     * 设置解码对象缓存的大小，超出部分立即淘汰
+     * 缓存 getSerializableObject、getSerializableList、getMap、getMapList 解析后的 JsonElement，
+     * 以及 getParcelableObject、getParcelableList 解码后的字节数组；每次读取都返回新的对象，调用方可以修改。
+     * getSharedObject 返回的共享对象也计入该缓存
+     *
+     * @param maxBytes 最大字节数（按解码前数据大小估算），为 0 时不缓存
+     */
+    public void setDecodedCacheSize(long maxBytes) {
+        decodedCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * 获取解码对象缓存的统计信息
+     *
+     * @return 统计信息快照
+     */
+    @NonNull
+    public DecodedCacheStats getDecodedCacheStats() {
+        return new DecodedCacheStats(decodedCache.hitCount(), decodedCache.missCount(), decodedCache.evictionCount(), decodedCache.size(), decodedCache.maxSize());
+    }
+
     /**
      * 注册 SharedPreferences 的监听器
      *
@@ -1311,34 +1660,42 @@ public class SPUtils {
 
     /**
      * 备份 SharedPreferences 文件
+     * 保存为文件的大数据复制到备份文件旁的同名目录（备份文件路径 + ".blobs"）中，
+     * 移动或拷贝备份时需连同该目录一起处理，恢复时从该目录取回
      *
      * @param backupFile 备份文件的 File 对象
      * @return 如果备份成功返回 true，否则返回 false
      */
     public synchronized boolean backupSharedPreferences(File backupFile) {
-        // 获取 SharedPreferences 文件对象
-        File prefFile = new File(context.getApplicationInfo().dataDir + "/shared_prefs/" + PREF_NAME + ".xml");
+        // 获取当前存储引擎的文件对象
+        File prefFile = getBackingFile();
         if (!prefFile.exists()) return false;
 
-        try (InputStream in = new FileInputStream(prefFile); OutputStream out = new FileOutputStream(backupFile)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = in.read(buffer)) > 0) {
-                // 将文件内容写入备份文件
-                out.write(buffer, 0, length);
+        // 加锁使配置文件与引用的数据文件一致
+        synchronized (transactionLock) {
+            try (InputStream in = new FileInputStream(prefFile); OutputStream out = new FileOutputStream(backupFile)) {
+                byte[] buffer = new byte[1024];
+                int length;
+                while ((length = in.read(buffer)) > 0) {
+                    // 将文件内容写入备份文件
+                    out.write(buffer, 0, length);
+                }
+                // 复制仍在引用的大数据文件
+                blobStore.exportTo(liveBlobRefs(), new File(backupFile.getPath() + BLOB_BACKUP_SUFFIX));
+                return true;
+            } catch (IOException e) {
+                // 如果备份失败，记录错误日志
+                Log.e(TAG, "Backup failed: " + e.getMessage(), e);
+                return false;
             }
-            return true;
-        } catch (IOException e) {
-            // 如果备份失败，记录错误日志
-            Log.e(TAG, "Backup failed: " + e.getMessage(), e);
-            return false;
         }
     }
 
     /**
      * 恢复 SharedPreferences 文件，从指定的备份文件中恢复数据
      * 此方法会将备份文件内容复制到临时文件，验证临时文件的有效性，
-     * 若有效则删除原配置文件并将临时文件重命名为原配置文件，最后更新相关对象状态
+     * 若有效则先取回备份的大数据文件，再删除原配置文件并将临时文件重命名为原配置文件，最后更新相关对象状态；
+     * 原来的大数据文件由之后的清理任务删除
      *
      * @param backupFile 用于恢复的备份文件对象
      * @return 若恢复成功返回 true，否则返回 false
@@ -1352,8 +1709,9 @@ public class SPUtils {
 
         // 创建临时文件对象，用于存储备份文件内容
         File tempFile = new File(context.getFilesDir(), TEMP_RESTORE_FILE);
-        // 获取原 SharedPreferences 文件对象
-        File prefFile = new File(context.getApplicationInfo().dataDir + "/shared_prefs/" + PREF_NAME + ".xml");
+        // 获取当前存储引擎的文件对象
+        File prefFile = getBackingFile();
+        boolean mapped = preferences instanceof MappedPreferences;
 
         try (
                 // 创建输入流，用于读取备份文件内容
@@ -1368,12 +1726,18 @@ public class SPUtils {
             }
 
             // 验证临时文件是否为有效的 SharedPreferences 文件
-            if (!isValidSharedPreferences(tempFile)) {
+            if (mapped ? !MappedPreferences.isValidFile(tempFile) : !isValidSharedPreferences(tempFile)) {
                 // 若无效，记录详细错误日志并返回 false
                 Log.e(TAG, "The temporary file created from the backup file is not a valid SharedPreferences file. File path: " + tempFile.getAbsolutePath());
                 return false;
             }
 
+            // 先取回备份的大数据文件，失败时原配置保持不变
+            File blobBackupDir = new File(backupFile.getPath() + BLOB_BACKUP_SUFFIX);
+            if (blobBackupDir.isDirectory()) {
+                blobStore.importFrom(blobBackupDir);
+            }
+
             // 加锁以保证在恢复过程中不会有其他操作干扰
             synchronized (transactionLock) {
                 // 若原配置文件存在且无法删除，记录详细错误日志并返回 false
@@ -1387,19 +1751,40 @@ public class SPUtils {
                     return false;
                 }
 
+                // 内存映射存储的旧实例仍映射着被替换的文件，关闭后重新打开
+                if (mapped) {
+                    ((MappedPreferences) preferences).close();
+                }
                 // 获取新的 SharedPreferences 实例
-                SharedPreferences newPrefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+                SharedPreferences newPrefs = mapped ? MappedPreferences.open(prefFile) : context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
                 // 加锁更新当前的 preferences 和 editor 对象
                 synchronized (this) {
                     preferences = newPrefs;
                     editor = newPrefs.edit();
                 }
+                // 恢复后的数据与缓存的解码对象无关
+                decodedCache.clear();
+                // 内存映射存储重新打开后是新实例，需重新注册监听器
+                if (mapped) {
+                    newPrefs.registerOnSharedPreferenceChangeListener(decodedCacheInvalidator);
+                    synchronized (listenerLock) {
+                        for (WeakReference<SharedPreferences.OnSharedPreferenceChangeListener> ref : listeners) {
+                            SharedPreferences.OnSharedPreferenceChangeListener l = ref.get();
+                            if (l != null) {
+                                newPrefs.registerOnSharedPreferenceChangeListener(l);
+                            }
+                        }
+                    }
+                }
 
                 // 清空 Bitmap 缓存
-                bitmapCache.evictAll();
+                bitmapStore.clearMemory();
+                pendingBitmapWrites.clear();
                 // 清空事务操作列表
                 transactionOperations.clear();
             }
+            // 删除恢复前的数据使用的文件
+            blobStore.schedule(this::sweepBlobFiles, FILE_SWEEP_DELAY_MS);
             // 恢复成功，返回 true
             return true;
         } catch (IOException e) {
@@ -1414,35 +1799,6 @@ public class SPUtils {
         }
     }
 
-    /**
-     * 尝试删除指定路径的旧文件，最多重试 3 次
-     * 每次删除失败后会等待 500 毫秒再进行下一次尝试
-     *
-     * @param path 要删除的旧文件的路径
-     */
-    private void deleteOldFileWithRetry(String path) {
-        // 创建文件对象
-        File oldFile = new File(path);
-        int retryCount = 0;
-        // 当文件存在且重试次数小于 3 时，继续尝试删除
-        while (oldFile.exists() && retryCount < 3) {
-            if (oldFile.delete()) {
-                // 若删除成功，跳出循环
-                break;
-            }
-            retryCount++;
-            try {
-                // 每次删除失败后，线程休眠 500 毫秒
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                // 若线程被中断，恢复中断状态并记录错误日志
-                Thread.currentThread().interrupt();
-                Log.e(TAG, "Interrupted while deleting old file: " + path, e);
-                break;
-            }
-        }
-    }
-
     /**
      * 验证指定文件是否为有效的 SharedPreferences 文件
      * 通过检查文件的第一行是否以特定的 XML 声明开头来判断
@@ -1470,6 +1826,8 @@ public class SPUtils {
      * @param useCommit 若为 true 则使用 commit 方法，若为 false 则使用 apply 方法
      */
     private void commitOrApply(boolean useCommit) {
+        // 事务中的写入由 commitTransaction 统一提交
+        if (activeOverlay() != null) return;
         if (useCommit) {
             // 使用 commit 方法提交更改，会同步操作并返回结果
             editor.commit();
@@ -1487,7 +1845,7 @@ public class SPUtils {
      * @return 若包含返回 true，否则返回 false
      */
     public boolean contains(@NonNull String key) {
-        return preferences.contains(DATA_KEY_PREFIX + key) || preferences.contains(OBJECT_KEY_PREFIX + key);
+        return reader().contains(DATA_KEY_PREFIX + key) || reader().contains(OBJECT_KEY_PREFIX + key);
     }
 
     /**
@@ -1508,11 +1866,16 @@ public class SPUtils {
      */
     public void remove(@NonNull String key, boolean useCommit) {
         // 移除以 DATA_KEY_PREFIX 为前缀的键
-        editor.remove(DATA_KEY_PREFIX + key);
+        writer().remove(DATA_KEY_PREFIX + key);
+        // 原来的值是文件引用时，提交后删除文件
+        String old = reader().getString(OBJECT_KEY_PREFIX + key, null);
         // 移除以 OBJECT_KEY_PREFIX 为前缀的键
-        editor.remove(OBJECT_KEY_PREFIX + key);
+        writer().remove(OBJECT_KEY_PREFIX + key);
         // 根据 useCommit 的值选择提交方式
         commitOrApply(useCommit);
+        if (activeOverlay() == null) {
+            blobStore.deleteLater(old);
+        }
     }
 
     /**
@@ -1531,10 +1894,71 @@ public class SPUtils {
      */
     public void clear(boolean useCommit) {
         // 清空 SharedPreferences 中的所有数据
-        editor.clear();
+        writer().clear();
         // 根据 useCommit 的值选择提交方式
         commitOrApply(useCommit);
-        // 清空 Bitmap 缓存
-        bitmapCache.evictAll();
+        // 清空 Bitmap 缓存，文件由之后的清理任务删除
+        bitmapStore.clearMemory();
+        pendingBitmapWrites.clear();
+        bitmapStore.schedule(this::sweepBitmapFiles, FILE_SWEEP_DELAY_MS);
+        blobStore.schedule(this::sweepBlobFiles, FILE_SWEEP_DELAY_MS);
+        // 清空解码对象缓存
+        decodedCache.clear();
+    }
+
+    /**
+     * 解码对象缓存的统计信息快照
+     */
+    public static final class DecodedCacheStats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long size;
+        private final long maxSize;
+
+        DecodedCacheStats(long hitCount, long missCount, long evictionCount, long size, long maxSize) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * 获取命中率，没有读取时返回 0
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        /**
+         * 获取当前占用（按解码前数据大小估算的字节数）
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "DecodedCacheStats{hit=" + hitCount + ", miss=" + missCount + ", eviction=" + evictionCount + ", size=" + size + "/" + maxSize + "}";
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,391 @@
+package com.wty.foundation.core.adapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.wty.foundation.core.http.Page;
+import com.wty.foundation.core.http.Response;
+import com.wty.foundation.core.utils.HttpResponseHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import io.reactivex.rxjava3.core.Observable;
+
+/**
+ * @param <D> 实体数据类
+ * @author wutianyu
+ * @createTime 2024/6/20 9:40
+ * @describe 分页加载引擎，滚动到距离末尾prefetchDistance条以内时预加载下一页，内存中只保留maxPages页数据，
+ *           超出时丢弃离当前位置最远的一页，往回滚动时重新加载；可按key对数据去重。
+ *           加载失败后滚动不再自动请求该方向，需调用retry（如点击重试按钮）重新加载。所有方法需在主线程调用
+ */
+public class PagingHelper<D> {
+    private final BaseAdapter<?, D> mAdapter;
+    private final PageLoader<D> mLoader;
+    private int mFirstPage = 1;
+    private int mPageSize = 20;
+    private int mPrefetchDistance = 10;
+    private int mMaxPages = 5;
+    private @Nullable KeyProvider<D> mKeyProvider;
+    private @Nullable OnPageListener<D> mListener;
+
+    // 当前保留在适配器中的页，按页码顺序排列
+    private final ArrayDeque<LoadedPage<D>> mPages = new ArrayDeque<>();
+    // 当前保留数据的key，用于去重
+    private final Set<Object> mKeys = new HashSet<>();
+    private boolean mLoadingNext;
+    private boolean mLoadingPrevious;
+    // 上次加载失败的方向，失败后滚动不再自动加载，调用retry或loadNext/loadPrevious后清除
+    private boolean mNextFailed;
+    private boolean mPreviousFailed;
+    // 已加载到最后一页
+    private boolean mReachedEnd;
+    // 每次刷新后递增，用于丢弃刷新前发出的请求结果
+    private int mGeneration;
+    private @Nullable RecyclerView mRecyclerView;
+
+    /**
+     * 分页数据加载接口
+     */
+    public interface PageLoader<D> {
+        /**
+         * 加载指定页数据
+         *
+         * @param pageNo 页码
+         * @param pageSize 每页条数
+         * @return 网络请求Observable
+         */
+        Observable<Response<Page<D>>> load(int pageNo, int pageSize);
+    }
+
+    /**
+     * 数据去重key
+     */
+    public interface KeyProvider<D> {
+        /**
+         * 获取数据的唯一标识
+         *
+         * @param data 数据
+         * @return 唯一标识
+         */
+        Object getKey(D data);
+    }
+
+    /**
+     * 分页加载回调
+     */
+    public interface OnPageListener<D> {
+        /**
+         * 一页数据加载完成并已添加到适配器
+         *
+         * @param pageNo 页码
+         * @param page 分页数据
+         */
+        default void onPageLoaded(int pageNo, @NonNull Page<D> page) {}
+
+        /**
+         * 加载失败，之后滚动不会自动重新请求该页，需调用retry
+         *
+         * @param pageNo 页码
+         * @param response 请求结果，包含错误信息
+         */
+        default void onPageError(int pageNo, @NonNull Response<Page<D>> response) {}
+
+        /**
+         * 已加载到最后一页
+         */
+        default void onReachedEnd() {}
+    }
+
+    /**
+     * 已加载的一页数据
+     */
+    private static final class LoadedPage<D> {
+        private final int pageNo;
+        // 去重后实际添加到适配器的数据
+        private final List<D> rows;
+
+        LoadedPage(int pageNo, List<D> rows) {
+            this.pageNo = pageNo;
+            this.rows = rows;
+        }
+    }
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (!(layoutManager instanceof LinearLayoutManager)) {
+                return;
+            }
+            LinearLayoutManager manager = (LinearLayoutManager)layoutManager;
+            int first = manager.findFirstVisibleItemPosition();
+            int last = manager.findLastVisibleItemPosition();
+            if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+                return;
+            }
+            // 在滚动回调中不能修改适配器数据，加载结果会在请求返回后处理
+            if (!mNextFailed && last >= mAdapter.getItemCount() - 1 - mPrefetchDistance) {
+                loadNext();
+            }
+            if (!mPreviousFailed && first <= mPrefetchDistance) {
+                loadPrevious();
+            }
+        }
+    };
+
+    public PagingHelper(@NonNull BaseAdapter<?, D> adapter, @NonNull PageLoader<D> loader) {
+        mAdapter = adapter;
+        mLoader = loader;
+    }
+
+    /**
+     * 设置起始页码，默认1
+     */
+    public PagingHelper<D> setFirstPage(int firstPage) {
+        mFirstPage = firstPage;
+        return this;
+    }
+
+    /**
+     * 设置每页条数，默认20
+     */
+    public PagingHelper<D> setPageSize(int pageSize) {
+        mPageSize = Math.max(1, pageSize);
+        return this;
+    }
+
+    /**
+     * 设置预加载距离，可见的最后一条距离末尾小于该值时加载下一页，默认10
+     */
+    public PagingHelper<D> setPrefetchDistance(int prefetchDistance) {
+        mPrefetchDistance = Math.max(0, prefetchDistance);
+        return this;
+    }
+
+    /**
+     * 设置内存中最多保留的页数，默认5，最小2
+     */
+    public PagingHelper<D> setMaxPages(int maxPages) {
+        mMaxPages = Math.max(2, maxPages);
+        return this;
+    }
+
+    /**
+     * 设置去重key，设置后key相同的数据只保留先加载的一条
+     */
+    public PagingHelper<D> setKeyProvider(@Nullable KeyProvider<D> keyProvider) {
+        mKeyProvider = keyProvider;
+        return this;
+    }
+
+    public PagingHelper<D> setOnPageListener(@Nullable OnPageListener<D> listener) {
+        mListener = listener;
+        return this;
+    }
+
+    /**
+     * 绑定RecyclerView，滚动时自动预加载
+     *
+     * @param recyclerView RecyclerView
+     */
+    public void attach(@NonNull RecyclerView recyclerView) {
+        detach();
+        mRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(mScrollListener);
+    }
+
+    /**
+     * 解除与RecyclerView的绑定
+     */
+    public void detach() {
+        if (mRecyclerView != null) {
+            mRecyclerView.removeOnScrollListener(mScrollListener);
+            mRecyclerView = null;
+        }
+    }
+
+    /**
+     * 清空数据并从第一页重新加载
+     */
+    public void refresh() {
+        mGeneration++;
+        mLoadingNext = false;
+        mLoadingPrevious = false;
+        mNextFailed = false;
+        mPreviousFailed = false;
+        mReachedEnd = false;
+        mPages.clear();
+        mKeys.clear();
+        int count = mAdapter.mDatas.size();
+        if (count > 0) {
+            // BaseAdapter会在收到移除通知时同步删除mDatas中的数据
+            mAdapter.notifyItemRangeRemoved(0, count);
+        }
+        load(mFirstPage, true);
+    }
+
+    /**
+     * 重新加载上次失败的页，没有失败的请求时忽略
+     */
+    public void retry() {
+        if (mNextFailed) {
+            loadNext();
+        }
+        if (mPreviousFailed) {
+            loadPrevious();
+        }
+    }
+
+    /**
+     * 上次加载是否失败，失败时可显示重试入口
+     */
+    public boolean isLoadFailed() {
+        return mNextFailed || mPreviousFailed;
+    }
+
+    /**
+     * 加载下一页，正在加载或已加载到最后一页时忽略
+     */
+    public void loadNext() {
+        if (mLoadingNext || mReachedEnd) {
+            return;
+        }
+        mNextFailed = false;
+        LoadedPage<D> last = mPages.peekLast();
+        load(last == null ? mFirstPage : last.pageNo + 1, true);
+    }
+
+    /**
+     * 加载已被丢弃的上一页，正在加载或已在第一页时忽略
+     */
+    public void loadPrevious() {
+        LoadedPage<D> first = mPages.peekFirst();
+        if (mLoadingPrevious || first == null || first.pageNo <= mFirstPage) {
+            return;
+        }
+        mPreviousFailed = false;
+        load(first.pageNo - 1, false);
+    }
+
+    public boolean isLoading() {
+        return mLoadingNext || mLoadingPrevious;
+    }
+
+    public boolean isReachedEnd() {
+        return mReachedEnd;
+    }
+
+    private void load(int pageNo, boolean append) {
+        if (append) {
+            mLoadingNext = true;
+        } else {
+            mLoadingPrevious = true;
+        }
+        int generation = mGeneration;
+        HttpResponseHelper.doResult(mLoader.load(pageNo, mPageSize), true, response -> {
+            if (generation != mGeneration) {
+                return;
+            }
+            if (append) {
+                mLoadingNext = false;
+            } else {
+                mLoadingPrevious = false;
+            }
+            if (!response.isSuccess() || response.getData() == null) {
+                // 记录失败方向，避免每次滚动回调都重新发出失败的请求
+                if (append) {
+                    mNextFailed = true;
+                } else {
+                    mPreviousFailed = true;
+                }
+                if (mListener != null) {
+                    mListener.onPageError(pageNo, response);
+                }
+                return;
+            }
+            onPageResult(pageNo, append, response.getData());
+        });
+    }
+
+    private void onPageResult(int pageNo, boolean append, Page<D> page) {
+        // 请求期间窗口已变化（如另一端丢弃了页），结果不再相邻时丢弃
+        LoadedPage<D> edge = append ? mPages.peekLast() : mPages.peekFirst();
+        int expected = edge == null ? mFirstPage : (append ? edge.pageNo + 1 : edge.pageNo - 1);
+        if (pageNo != expected) {
+            return;
+        }
+        List<D> rows = dedupe(page.getRows());
+        LoadedPage<D> loaded = new LoadedPage<>(pageNo, rows);
+        if (append) {
+            mPages.addLast(loaded);
+            mAdapter.notifyItemRangeInserted(mAdapter.mDatas.size(), rows);
+            int loadedCount = (pageNo - mFirstPage + 1) * mPageSize;
+            mReachedEnd = page.getTotal() > 0 ? loadedCount >= page.getTotal() : page.getRows().size() < mPageSize;
+            while (mPages.size() > mMaxPages) {
+                dropFirst();
+            }
+        } else {
+            mPages.addFirst(loaded);
+            mAdapter.notifyItemRangeInserted(0, rows);
+            while (mPages.size() > mMaxPages) {
+                dropLast();
+            }
+        }
+        if (mListener != null) {
+            mListener.onPageLoaded(pageNo, page);
+            if (mReachedEnd && append) {
+                mListener.onReachedEnd();
+            }
+        }
+    }
+
+    private List<D> dedupe(List<D> rows) {
+        List<D> result = new ArrayList<>(rows.size());
+        for (D row : rows) {
+            if (mKeyProvider == null || mKeys.add(mKeyProvider.getKey(row))) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private void dropFirst() {
+        LoadedPage<D> page = mPages.pollFirst();
+        if (page == null) {
+            return;
+        }
+        releaseKeys(page);
+        if (!page.rows.isEmpty()) {
+            mAdapter.notifyItemRangeRemoved(0, page.rows.size());
+        }
+    }
+
+    private void dropLast() {
+        LoadedPage<D> page = mPages.pollLast();
+        if (page == null) {
+            return;
+        }
+        releaseKeys(page);
+        // 丢弃了末尾的页，之后需要重新加载
+        mReachedEnd = false;
+        if (!page.rows.isEmpty()) {
+            mAdapter.notifyItemRangeRemoved(mAdapter.mDatas.size() - page.rows.size(), page.rows.size());
+        }
+    }
+
+    private void releaseKeys(LoadedPage<D> page) {
+        if (mKeyProvider == null) {
+            return;
+        }
+        for (D row : page.rows) {
+            mKeys.remove(mKeyProvider.getKey(row));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.wty.foundation.core.exception;
+
+import java.io.IOException;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/27 9:50
+ * @describe 请求因无网络或网络错误已加入离线队列，网络恢复后会自动重新发送
+ */
+public class OfflineQueuedException extends IOException {
+    private final String mEntryId;
+
+    public OfflineQueuedException(String entryId, Throwable cause) {
+        super("request queued offline: " + entryId, cause);
+        mEntryId = entryId;
+    }
+
+    /**
+     * 获取离线队列中的记录ID（即请求的幂等键）
+     *
+     * @return 记录ID
+     */
+    public String getEntryId() {
+        return mEntryId;
+    }
+}
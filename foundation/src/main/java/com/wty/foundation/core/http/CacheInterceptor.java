@@ -0,0 +1,239 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.wty.foundation.common.utils.NetWorkUtils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import retrofit2.Invocation;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/5 10:05
+ * @describe 按接口CachePolicy注解处理响应缓存，支持过期后台刷新和离线兜底；
+ *           只缓存rtnCode为0（或不是Response格式）的响应，缓存按token区分，切换账号后不会读到其他账号的数据
+ */
+class CacheInterceptor implements Interceptor {
+    private static final String TAG = "CacheInterceptor";
+    // OkHttp返回过期缓存时添加的Warning头
+    private static final String STALE_WARNING = "110";
+    // only-if-cached请求未命中时OkHttp返回的状态码
+    private static final int CODE_UNSATISFIABLE = 504;
+    // 缓存按这些请求头区分
+    private static final String VARY_CREDENTIALS = "token, Authorization";
+
+    private final CacheStats mStats;
+    // 正在后台刷新的缓存条目（URL及Vary中请求头的值），同一条目同时只刷新一次
+    private final Set<String> mRevalidating = ConcurrentHashMap.newKeySet();
+    private volatile OkHttpClient mClient;
+
+    /**
+     * 后台刷新请求的标记
+     */
+    private static final class Revalidate {
+    }
+
+    CacheInterceptor(CacheStats stats) {
+        mStats = stats;
+    }
+
+    /**
+     * 绑定用于后台刷新的OkHttpClient
+     *
+     * @param client 共享的OkHttpClient
+     */
+    void attach(OkHttpClient client) {
+        mClient = client;
+    }
+
+    /**
+     * 获取重写响应缓存头的网络拦截器
+     *
+     * @return 网络拦截器
+     */
+    Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            CachePolicy policy = getPolicy(request);
+            if (policy == null || !"GET".equals(request.method()) || !response.isSuccessful()) {
+                return response;
+            }
+            int code = ResponseConverterFactory.peekCode(response);
+            if (code != 0 && code != ResponseConverterFactory.NO_CODE) {
+                // 接口返回失败（如token失效）时不能缓存，否则过期刷新和离线兜底会返回失败结果
+                return response.newBuilder().header("Cache-Control", "no-store").build();
+            }
+            // 服务端通常返回no-cache，按注解改写后OkHttp才会写入缓存
+            return response.newBuilder().removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=" + Math.max(0, policy.maxAge()))
+                .header("Vary", withCredentials(response.header("Vary"))).build();
+        };
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        CachePolicy policy = getPolicy(request);
+        if (policy == null || !"GET".equals(request.method()) || request.tag(Revalidate.class) != null) {
+            return chain.proceed(request);
+        }
+
+        if (policy.offlineFallback() && !isNetworkAvailable()) {
+            Response cached = proceedCacheOnly(chain, request, Integer.MAX_VALUE);
+            if (cached != null) {
+                mStats.mOfflineHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        if (policy.staleWhileRevalidate() > 0) {
+            Response cached = proceedCacheOnly(chain, request, policy.staleWhileRevalidate());
+            if (cached != null) {
+                String warning = cached.header("Warning");
+                if (warning != null && warning.startsWith(STALE_WARNING)) {
+                    mStats.mStaleHits.incrementAndGet();
+                    revalidate(request, cached);
+                } else {
+                    mStats.mHits.incrementAndGet();
+                }
+                return cached;
+            }
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (policy.offlineFallback()) {
+                Response cached = proceedCacheOnly(chain, request, Integer.MAX_VALUE);
+                if (cached != null) {
+                    mStats.mOfflineHits.incrementAndGet();
+                    return cached;
+                }
+            }
+            throw e;
+        }
+        if (response.networkResponse() == null && response.cacheResponse() != null) {
+            mStats.mHits.incrementAndGet();
+        } else {
+            mStats.mMisses.incrementAndGet();
+        }
+        return response;
+    }
+
+    /**
+     * 仅从缓存读取响应
+     *
+     * @param maxStaleSeconds 允许使用的过期时长（秒）
+     * @return 缓存响应，未命中返回null
+     */
+    private Response proceedCacheOnly(Chain chain, Request request, int maxStaleSeconds) throws IOException {
+        CacheControl cacheControl =
+            new CacheControl.Builder().onlyIfCached().maxStale(maxStaleSeconds, TimeUnit.SECONDS).build();
+        Response cached = chain.proceed(request.newBuilder().cacheControl(cacheControl).build());
+        if (cached.code() == CODE_UNSATISFIABLE) {
+            cached.close();
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 在后台强制访问网络刷新缓存
+     *
+     * @param cached 命中的过期缓存，按其Vary区分不同账号的缓存条目
+     */
+    private void revalidate(Request request, Response cached) {
+        OkHttpClient client = mClient;
+        String url = request.url().toString();
+        String key = getRevalidateKey(request, cached);
+        if (client == null || !mRevalidating.add(key)) {
+            return;
+        }
+        mStats.mRevalidations.incrementAndGet();
+        Request refresh =
+            request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).tag(Revalidate.class, new Revalidate()).build();
+        client.newCall(refresh).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                mRevalidating.remove(key);
+                Log.w(TAG, "revalidate failed: " + url, e);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                mRevalidating.remove(key);
+                // 响应体需读取完整才会写入缓存
+                try (Response r = response) {
+                    if (r.body() != null) {
+                        r.body().bytes();
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "revalidate read failed: " + url, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 生成后台刷新的去重键，与OkHttp缓存条目对应：URL加上Vary中各请求头的值（如token），
+     * 不同账号的过期缓存各自刷新；键中只保存摘要，不保存token原文
+     */
+    private static String getRevalidateKey(Request request, Response cached) {
+        String vary = cached.header("Vary");
+        Buffer buffer = new Buffer().writeUtf8(request.url().toString());
+        for (String name : (vary == null ? VARY_CREDENTIALS : vary).split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            buffer.writeByte('\n').writeUtf8(name.toLowerCase(Locale.US)).writeByte(':');
+            for (String value : request.headers(name)) {
+                buffer.writeUtf8(value).writeByte(',');
+            }
+        }
+        return buffer.sha256().hex();
+    }
+
+    /**
+     * 在服务端返回的Vary上追加认证头，不同token的请求不共用缓存
+     */
+    private static String withCredentials(String vary) {
+        if (vary == null || vary.trim().isEmpty()) {
+            return VARY_CREDENTIALS;
+        }
+        // "*"表示不可缓存，保持原样
+        return "*".equals(vary.trim()) ? vary : vary + ", " + VARY_CREDENTIALS;
+    }
+
+    private static CachePolicy getPolicy(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        return invocation == null ? null : invocation.method().getAnnotation(CachePolicy.class);
+    }
+
+    private static boolean isNetworkAvailable() {
+        try {
+            return NetWorkUtils.isNetworkAvailable();
+        } catch (Exception e) {
+            // 未初始化上下文时按有网络处理
+            return true;
+        }
+    }
+}
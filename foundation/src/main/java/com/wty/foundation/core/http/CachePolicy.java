@@ -0,0 +1,38 @@
+package com.wty.foundation.core.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/5 9:30
+ * @describe 接口缓存策略注解，标注在Retrofit接口方法上，需在Config中配置缓存目录后生效
+ *
+ *           <pre>
+ * &#64;CachePolicy(maxAge = 60, staleWhileRevalidate = 600, offlineFallback = true)
+ * &#64;GET("goods/list")
+ * Observable&lt;Response&lt;Page&lt;Goods&gt;&gt;&gt; getGoods(&#64;Query("page") int page);
+ *           </pre>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePolicy {
+    /**
+     * 缓存有效时长（秒），有效期内直接使用缓存，不访问网络
+     */
+    int maxAge() default 0;
+
+    /**
+     * 缓存过期后仍可使用的时长（秒），该时间内先返回过期缓存，同时在后台刷新
+     */
+    int staleWhileRevalidate() default 0;
+
+    /**
+     * 无网络或请求失败时是否使用缓存（不论是否过期）
+     */
+    boolean offlineFallback() default false;
+}
@@ -0,0 +1,96 @@
+package com.wty.foundation.core.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Cache;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/5 9:42
+ * @describe 网络响应缓存统计，记录带有CachePolicy注解的请求的缓存命中情况
+ */
+public class CacheStats {
+    private final Cache mCache;
+    // 命中未过期缓存
+    final AtomicLong mHits = new AtomicLong();
+    // 命中过期缓存并触发后台刷新
+    final AtomicLong mStaleHits = new AtomicLong();
+    // 网络不可用时使用缓存
+    final AtomicLong mOfflineHits = new AtomicLong();
+    // 未命中，访问网络
+    final AtomicLong mMisses = new AtomicLong();
+    // 后台刷新次数
+    final AtomicLong mRevalidations = new AtomicLong();
+
+    CacheStats(Cache cache) {
+        mCache = cache;
+    }
+
+    public long getHits() {
+        return mHits.get();
+    }
+
+    public long getStaleHits() {
+        return mStaleHits.get();
+    }
+
+    public long getOfflineHits() {
+        return mOfflineHits.get();
+    }
+
+    public long getMisses() {
+        return mMisses.get();
+    }
+
+    public long getRevalidations() {
+        return mRevalidations.get();
+    }
+
+    /**
+     * 获取缓存命中率（包括过期缓存和离线缓存）
+     *
+     * @return 0~1之间的命中率，没有请求时返回0
+     */
+    public float getHitRate() {
+        long hits = mHits.get() + mStaleHits.get() + mOfflineHits.get();
+        long total = hits + mMisses.get();
+        return total == 0 ? 0f : (float)hits / total;
+    }
+
+    /**
+     * 获取磁盘缓存当前占用大小
+     *
+     * @return 字节数，读取失败返回-1
+     */
+    public long getCacheSize() {
+        try {
+            return mCache.size();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    public long getMaxCacheSize() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * 重置计数
+     */
+    public void reset() {
+        mHits.set(0);
+        mStaleHits.set(0);
+        mOfflineHits.set(0);
+        mMisses.set(0);
+        mRevalidations.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + getHits() + ", staleHits=" + getStaleHits() + ", offlineHits=" + getOfflineHits()
+            + ", misses=" + getMisses() + ", revalidations=" + getRevalidations() + ", size=" + getCacheSize() + '}';
+    }
+}
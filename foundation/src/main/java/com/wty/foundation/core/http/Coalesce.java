@@ -0,0 +1,18 @@
+package com.wty.foundation.core.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/7 14:20
+ * @describe 标记非GET/HEAD的幂等接口（如POST查询），同时发出的相同请求会合并为一次网络请求
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+}
@@ -0,0 +1,219 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import retrofit2.Invocation;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/7 14:45
+ * @describe 合并同时进行中的相同幂等请求（方法、URL、请求头、请求体相同），只发出一次网络请求并将结果分发给所有调用方；
+ *           等待的调用方按自身的超时和取消状态结束等待，发起请求的调用方被取消时由等待的调用方重新发出请求。
+ *           等待期间会占用执行请求的线程（OkHttp调度器线程或同步调用的线程）；分发时需要把响应体完整读入内存，
+ *           响应体长度未知或超过MAX_SHARED_BODY_BYTES时不分发，等待的调用方各自发出请求
+ */
+class CoalescingInterceptor implements Interceptor {
+    // 等待期间检查调用是否被取消的间隔
+    private static final long CANCEL_CHECK_INTERVAL_MS = 100;
+    // 可分发给等待者的响应体最大长度，更大的响应体（如大分页数据）不缓冲，避免一次分配大数组
+    private static final long MAX_SHARED_BODY_BYTES = 256 * 1024;
+    // 不影响响应内容的请求头，不参与合并键（名称为小写）
+    private static final Set<String> IGNORED_HEADERS = new HashSet<>(
+        Arrays.asList("user-agent", "accept-encoding", "connection", "content-length", "host", "keep-alive"));
+
+    private final ConcurrentHashMap<String, InFlight> mInFlight = new ConcurrentHashMap<>();
+    private final CoalescingStats mStats;
+
+    /**
+     * 进行中的请求
+     */
+    private static final class InFlight {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        // 等待结果的请求数，只在ConcurrentHashMap.compute中修改
+        private int waiters;
+        private Response response;
+        private MediaType contentType;
+        private byte[] body;
+        private IOException error;
+        // 发起请求的调用被取消，结果不能分发给其他调用方
+        private boolean canceled;
+        // 响应体过大或长度未知，不分发，等待的调用方各自发出请求
+        private boolean unshared;
+    }
+
+    CoalescingInterceptor(CoalescingStats stats) {
+        mStats = stats;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String key = isCoalescable(request) ? getKey(request) : null;
+        if (key == null) {
+            return chain.proceed(request);
+        }
+        final boolean[] leader = new boolean[1];
+        InFlight inFlight = mInFlight.compute(key, (k, v) -> {
+            if (v == null) {
+                leader[0] = true;
+                return new InFlight();
+            }
+            v.waiters++;
+            return v;
+        });
+        return leader[0] ? execute(chain, key, inFlight) : await(chain, inFlight);
+    }
+
+    /**
+     * 发出实际的网络请求，有其他调用方等待时缓冲响应体用于分发
+     */
+    private Response execute(Chain chain, String key, InFlight inFlight) throws IOException {
+        mStats.mExecuted.incrementAndGet();
+        mStats.mInFlight.incrementAndGet();
+        try {
+            Response response = chain.proceed(chain.request());
+            // 移除后不会再有新的等待者加入，此时waiters的值是确定的
+            mInFlight.remove(key, inFlight);
+            if (inFlight.waiters == 0) {
+                return response;
+            }
+            ResponseBody body = response.body();
+            if (body != null && (body.contentLength() < 0 || body.contentLength() > MAX_SHARED_BODY_BYTES)) {
+                // 直接把响应流返回给发起请求的调用方
+                inFlight.unshared = true;
+                return response;
+            }
+            try {
+                inFlight.contentType = body == null ? null : body.contentType();
+                inFlight.body = body == null ? new byte[0] : body.bytes();
+            } catch (IOException e) {
+                inFlight.error = e;
+                throw e;
+            } finally {
+                response.close();
+            }
+            inFlight.response = response.newBuilder().body(null).build();
+            return copy(inFlight, chain.request());
+        } catch (IOException e) {
+            inFlight.error = e;
+            inFlight.canceled = chain.call().isCanceled();
+            throw e;
+        } catch (RuntimeException e) {
+            inFlight.error = new IOException(e);
+            throw e;
+        } finally {
+            mInFlight.remove(key, inFlight);
+            mStats.mInFlight.decrementAndGet();
+            inFlight.latch.countDown();
+        }
+    }
+
+    /**
+     * 等待进行中的相同请求返回结果，超过本调用的超时时间或本调用被取消时结束等待
+     */
+    private Response await(Chain chain, InFlight inFlight) throws IOException {
+        Call call = chain.call();
+        long timeoutNanos = call.timeout().timeoutNanos();
+        long start = System.nanoTime();
+        try {
+            while (!inFlight.latch.await(CANCEL_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (call.isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                if (timeoutNanos > 0 && System.nanoTime() - start >= timeoutNanos) {
+                    throw new InterruptedIOException("timeout");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("coalesced request interrupted");
+        }
+        if (inFlight.canceled && !call.isCanceled()) {
+            // 发起请求的调用方已取消（如页面关闭），不影响本调用，重新合并发出请求
+            return intercept(chain);
+        }
+        if (inFlight.error != null) {
+            throw new IOException("coalesced request failed", inFlight.error);
+        }
+        if (inFlight.unshared) {
+            // 响应体不适合缓冲分发，自己发出请求
+            mStats.mExecuted.incrementAndGet();
+            return chain.proceed(chain.request());
+        }
+        mStats.mCoalesced.incrementAndGet();
+        return copy(inFlight, chain.request());
+    }
+
+    private static Response copy(InFlight inFlight, Request request) {
+        return inFlight.response.newBuilder().request(request)
+            .body(ResponseBody.create(inFlight.body, inFlight.contentType)).build();
+    }
+
+    private static boolean isCoalescable(Request request) {
+        String method = request.method();
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return true;
+        }
+        Invocation invocation = request.tag(Invocation.class);
+        return invocation != null && invocation.method().isAnnotationPresent(Coalesce.class);
+    }
+
+    /**
+     * 生成请求的合并键，请求体无法重复读取时返回null
+     * 键中包含除IGNORED_HEADERS以外的全部请求头（认证、语言等请求头不同的请求不会合并），按名称排序后取摘要，键中不保存请求头原文；
+     * 其中包括Cache-Control，缓存拦截器发出的only-if-cached探测和强制刷新请求不会与普通请求合并
+     */
+    private static String getKey(Request request) throws IOException {
+        StringBuilder key = new StringBuilder(request.method()).append(' ').append(request.url());
+        Headers headers = request.headers();
+        List<String> lines = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            String name = headers.name(i).toLowerCase(Locale.US);
+            if (!IGNORED_HEADERS.contains(name)) {
+                lines.add(name + ':' + headers.value(i));
+            }
+        }
+        if (!lines.isEmpty()) {
+            // 同名请求头保持原有顺序
+            Collections.sort(lines, (a, b) -> a.substring(0, a.indexOf(':')).compareTo(b.substring(0, b.indexOf(':'))));
+            Buffer buffer = new Buffer();
+            for (String line : lines) {
+                buffer.writeUtf8(line).writeByte('\n');
+            }
+            key.append(" [").append(buffer.sha256().hex()).append(']');
+        }
+        RequestBody body = request.body();
+        if (body != null) {
+            if (body.isOneShot() || body.isDuplex()) {
+                return null;
+            }
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            key.append('#').append(buffer.sha256().hex());
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.wty.foundation.core.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/7 14:32
+ * @describe 请求合并统计，记录实际发出的请求数和被合并的请求数
+ */
+public class CoalescingStats {
+    // 实际发出的可合并请求数
+    final AtomicLong mExecuted = new AtomicLong();
+    // 复用其他请求结果的请求数
+    final AtomicLong mCoalesced = new AtomicLong();
+    // 正在进行中的可合并请求数
+    final AtomicLong mInFlight = new AtomicLong();
+
+    CoalescingStats() {
+    }
+
+    public long getExecuted() {
+        return mExecuted.get();
+    }
+
+    public long getCoalesced() {
+        return mCoalesced.get();
+    }
+
+    public long getInFlight() {
+        return mInFlight.get();
+    }
+
+    /**
+     * 获取请求合并率
+     *
+     * @return 0~1之间的合并率，没有请求时返回0
+     */
+    public float getCoalescedRate() {
+        long total = mExecuted.get() + mCoalesced.get();
+        return total == 0 ? 0f : (float)mCoalesced.get() / total;
+    }
+
+    /**
+     * 重置计数
+     */
+    public void reset() {
+        mExecuted.set(0);
+        mCoalesced.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CoalescingStats{executed=" + getExecuted() + ", coalesced=" + getCoalesced() + ", inFlight="
+            + getInFlight() + '}';
+    }
+}
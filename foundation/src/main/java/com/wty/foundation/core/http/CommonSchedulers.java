@@ -1,8 +1,11 @@
 package com.wty.foundation.core.http;
 
+import android.os.SystemClock;
+
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.ObservableTransformer;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.core.Scheduler;
 
 /**
  * @author wutianyu
@@ -10,7 +13,45 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
  * @describe 通用线程调度器
  */
 public class CommonSchedulers {
+    /**
+     * 在{@link HttpSchedulers#io()}上订阅，在主线程回调
+     * Retrofit的请求由OkHttp调度器异步执行，订阅只负责把请求加入调度器，不会在请求期间占用线程
+     *
+     * @param <T> 数据类型
+     * @return ObservableTransformer
+     */
     public static <T> ObservableTransformer<T, T> io2main() {
-        return upstream -> upstream.subscribeOn(Schedulers.io()).observeOn(AndroidSchedulers.mainThread());
+        return io2main(HttpSchedulers.io());
+    }
+
+    /**
+     * 在指定调度器上执行，在主线程回调
+     *
+     * @param scheduler 执行调度器，见{@link HttpSchedulers}
+     * @param <T> 数据类型
+     * @return ObservableTransformer
+     */
+    public static <T> ObservableTransformer<T, T> io2main(Scheduler scheduler) {
+        return upstream -> upstream.subscribeOn(scheduler).compose(toMain());
+    }
+
+    /**
+     * 切换到主线程回调，开启耗时统计时记录从发出结果到主线程收到结果的耗时
+     *
+     * @param <T> 数据类型
+     * @return ObservableTransformer
+     */
+    public static <T> ObservableTransformer<T, T> toMain() {
+        return upstream -> Observable.defer(() -> {
+            HttpMetrics metrics = RetrofitManager.getInstance().getMetrics();
+            if (metrics == null) {
+                return upstream.observeOn(AndroidSchedulers.mainThread());
+            }
+            long[] emitted = new long[1];
+            return upstream.doOnNext(t -> emitted[0] = SystemClock.elapsedRealtimeNanos())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnNext(t -> metrics.record(HttpMetrics.MAIN_THREAD_ENDPOINT, HttpMetrics.Phase.MAIN_HOP,
+                    (SystemClock.elapsedRealtimeNanos() - emitted[0]) / 1000));
+        });
     }
 }
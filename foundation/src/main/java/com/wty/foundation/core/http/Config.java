@@ -1,5 +1,6 @@
 package com.wty.foundation.core.http;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.List;
 
@@ -17,6 +18,18 @@ public class Config {
     private long mWriteTimeoutTimeoutMs;
     private List<Interceptor> mNetworkInterceptor;
     private List<Interceptor> mInterceptor;
+    private int mMaxIdleConnections;
+    private long mKeepAliveDurationMs;
+    private int mMaxRequests;
+    private int mMaxRequestsPerHost;
+    private File mCacheDir;
+    private long mCacheMaxSize;
+    private boolean mRequestCoalescing;
+    private TokenExpiredHandler mTokenExpiredHandler;
+    private NetworkPolicy mNetworkPolicy;
+    private File mOutboxDir;
+    private int mOutboxMaxAttempts;
+    private boolean mMetricsEnabled;
 
     private Config(Builder builder) {
         mBaseUrl = builder.mBaseUrl;
@@ -25,6 +38,18 @@ public class Config {
         mWriteTimeoutTimeoutMs = builder.mWriteTimeoutTimeoutMs;
         mNetworkInterceptor = builder.mNetworkInterceptor;
         mInterceptor = builder.mInterceptor;
+        mMaxIdleConnections = builder.mMaxIdleConnections;
+        mKeepAliveDurationMs = builder.mKeepAliveDurationMs;
+        mMaxRequests = builder.mMaxRequests;
+        mMaxRequestsPerHost = builder.mMaxRequestsPerHost;
+        mCacheDir = builder.mCacheDir;
+        mCacheMaxSize = builder.mCacheMaxSize;
+        mRequestCoalescing = builder.mRequestCoalescing;
+        mTokenExpiredHandler = builder.mTokenExpiredHandler;
+        mNetworkPolicy = builder.mNetworkPolicy;
+        mOutboxDir = builder.mOutboxDir;
+        mOutboxMaxAttempts = builder.mOutboxMaxAttempts;
+        mMetricsEnabled = builder.mMetricsEnabled;
     }
 
     public String getBaseUrl() {
@@ -51,6 +76,67 @@ public class Config {
         return mInterceptor == null ? Collections.EMPTY_LIST : mInterceptor;
     }
 
+    public int getMaxIdleConnections() {
+        return mMaxIdleConnections;
+    }
+
+    public long getKeepAliveDurationMs() {
+        return mKeepAliveDurationMs;
+    }
+
+    public int getMaxRequests() {
+        return mMaxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return mMaxRequestsPerHost;
+    }
+
+    public File getCacheDir() {
+        return mCacheDir;
+    }
+
+    public long getCacheMaxSize() {
+        return mCacheMaxSize;
+    }
+
+    public boolean isRequestCoalescing() {
+        return mRequestCoalescing;
+    }
+
+    /**
+     * 获取token失效处理器，未设置时使用拦截器中实现了TokenExpiredHandler的拦截器
+     *
+     * @return token失效处理器，可能为null
+     */
+    public TokenExpiredHandler getTokenExpiredHandler() {
+        if (mTokenExpiredHandler != null) {
+            return mTokenExpiredHandler;
+        }
+        for (Interceptor interceptor : getInterceptor()) {
+            if (interceptor instanceof TokenExpiredHandler) {
+                return (TokenExpiredHandler)interceptor;
+            }
+        }
+        return null;
+    }
+
+    public NetworkPolicy getNetworkPolicy() {
+        return mNetworkPolicy;
+    }
+
+    public File getOutboxDir() {
+        return mOutboxDir;
+    }
+
+    public int getOutboxMaxAttempts() {
+        return mOutboxMaxAttempts;
+    }
+
+    public boolean isMetricsEnabled() {
+        return mMetricsEnabled;
+    }
+
     public static class Builder {
         private String mBaseUrl;
         private long mConnectTimeoutMs;
@@ -58,6 +144,19 @@ public class Config {
         private long mWriteTimeoutTimeoutMs;
         private List<Interceptor> mNetworkInterceptor;
         private List<Interceptor> mInterceptor;
+        // 连接池与调度器默认值与OkHttp保持一致
+        private int mMaxIdleConnections = 5;
+        private long mKeepAliveDurationMs = 5 * 60 * 1000L;
+        private int mMaxRequests = 64;
+        private int mMaxRequestsPerHost = 5;
+        private File mCacheDir;
+        private long mCacheMaxSize = 10 * 1024 * 1024;
+        private boolean mRequestCoalescing;
+        private TokenExpiredHandler mTokenExpiredHandler;
+        private NetworkPolicy mNetworkPolicy;
+        private File mOutboxDir;
+        private int mOutboxMaxAttempts = 8;
+        private boolean mMetricsEnabled;
 
         public Builder setBaseUrl(String mBaseUrl) {
             this.mBaseUrl = mBaseUrl;
@@ -89,6 +188,140 @@ public class Config {
             return this;
         }
 
+        /**
+         * 设置连接池最大空闲连接数，所有BaseUrl共享同一个连接池
+         *
+         * @param mMaxIdleConnections 最大空闲连接数
+         * @return Builder
+         */
+        public Builder setMaxIdleConnections(int mMaxIdleConnections) {
+            this.mMaxIdleConnections = mMaxIdleConnections;
+            return this;
+        }
+
+        /**
+         * 设置空闲连接保活时长
+         *
+         * @param mKeepAliveDurationMs 保活时长（毫秒）
+         * @return Builder
+         */
+        public Builder setKeepAliveDurationMs(long mKeepAliveDurationMs) {
+            this.mKeepAliveDurationMs = mKeepAliveDurationMs;
+            return this;
+        }
+
+        /**
+         * 设置同时执行的最大请求数
+         *
+         * @param mMaxRequests 最大并发请求数
+         * @return Builder
+         */
+        public Builder setMaxRequests(int mMaxRequests) {
+            this.mMaxRequests = mMaxRequests;
+            return this;
+        }
+
+        /**
+         * 设置每个主机同时执行的最大请求数
+         *
+         * @param mMaxRequestsPerHost 单主机最大并发请求数
+         * @return Builder
+         */
+        public Builder setMaxRequestsPerHost(int mMaxRequestsPerHost) {
+            this.mMaxRequestsPerHost = mMaxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * 设置响应缓存目录，设置后带有CachePolicy注解的接口才会使用缓存
+         *
+         * @param mCacheDir 缓存目录
+         * @return Builder
+         */
+        public Builder setCacheDir(File mCacheDir) {
+            this.mCacheDir = mCacheDir;
+            return this;
+        }
+
+        /**
+         * 设置响应缓存的最大占用空间，默认10MB
+         *
+         * @param mCacheMaxSize 最大字节数
+         * @return Builder
+         */
+        public Builder setCacheMaxSize(long mCacheMaxSize) {
+            this.mCacheMaxSize = mCacheMaxSize;
+            return this;
+        }
+
+        /**
+         * 设置是否合并同时进行中的相同请求，默认关闭
+         * GET/HEAD请求自动合并，其他方法需在接口上添加Coalesce注解；方法、URL、请求头、请求体都相同才会合并，
+         * 在请求合并之后添加的请求头（如应用拦截器添加的token）不参与比较，按用户区分结果的接口应通过请求头或URL区分
+         *
+         * @param mRequestCoalescing 是否开启
+         * @return Builder
+         */
+        public Builder setRequestCoalescing(boolean mRequestCoalescing) {
+            this.mRequestCoalescing = mRequestCoalescing;
+            return this;
+        }
+
+        /**
+         * 设置token失效处理器，接口返回token失效时等待刷新完成后自动重新发起请求
+         *
+         * @param mTokenExpiredHandler token失效处理器
+         * @return Builder
+         */
+        public Builder setTokenExpiredHandler(TokenExpiredHandler mTokenExpiredHandler) {
+            this.mTokenExpiredHandler = mTokenExpiredHandler;
+            return this;
+        }
+
+        /**
+         * 设置按网络类型调整请求的策略，不设置时所有请求平等竞争
+         *
+         * @param mNetworkPolicy 网络策略
+         * @return Builder
+         */
+        public Builder setNetworkPolicy(NetworkPolicy mNetworkPolicy) {
+            this.mNetworkPolicy = mNetworkPolicy;
+            return this;
+        }
+
+        /**
+         * 设置离线队列目录，设置后带有OfflineQueue注解的接口在无网络时会持久化并在网络恢复后重新发送
+         *
+         * @param mOutboxDir 离线队列目录
+         * @return Builder
+         */
+        public Builder setOutboxDir(File mOutboxDir) {
+            this.mOutboxDir = mOutboxDir;
+            return this;
+        }
+
+        /**
+         * 设置离线请求最大重试次数，默认8次
+         *
+         * @param mOutboxMaxAttempts 最大重试次数
+         * @return Builder
+         */
+        public Builder setOutboxMaxAttempts(int mOutboxMaxAttempts) {
+            this.mOutboxMaxAttempts = mOutboxMaxAttempts;
+            return this;
+        }
+
+        /**
+         * 设置是否按接口统计各阶段耗时（DNS、建连、TLS、首字节、读取响应体、解析、切换主线程），默认关闭
+         *
+         * @param mMetricsEnabled 是否开启
+         * @return Builder
+         */
+        public Builder setMetricsEnabled(boolean mMetricsEnabled) {
+            this.mMetricsEnabled = mMetricsEnabled;
+            return this;
+        }
+
         public Config builder() {
             return new Config(this);
         }
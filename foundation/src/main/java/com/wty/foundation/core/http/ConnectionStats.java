@@ -0,0 +1,123 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/3 10:12
+ * @describe 共享连接池统计，记录连接复用（命中连接池）与新建连接的次数
+ */
+public class ConnectionStats extends EventListener {
+    private final ConnectionPool mPool;
+    // 获取到连接的总次数（包括复用和新建）
+    private final AtomicLong mAcquired = new AtomicLong();
+    // 新建连接成功的次数
+    private final AtomicLong mConnected = new AtomicLong();
+    // 新建连接失败的次数
+    private final AtomicLong mConnectFailed = new AtomicLong();
+
+    ConnectionStats(ConnectionPool pool) {
+        mPool = pool;
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        mAcquired.incrementAndGet();
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+        @Nullable Protocol protocol) {
+        mConnected.incrementAndGet();
+    }
+
+    @Override
+    public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+        @Nullable Protocol protocol, @NonNull IOException ioe) {
+        mConnectFailed.incrementAndGet();
+    }
+
+    /**
+     * 获取复用连接池中已有连接的次数
+     *
+     * @return 连接池命中次数
+     */
+    public long getPoolHits() {
+        return Math.max(0, mAcquired.get() - mConnected.get());
+    }
+
+    /**
+     * 获取新建连接的次数
+     *
+     * @return 新建连接次数
+     */
+    public long getNewConnections() {
+        return mConnected.get();
+    }
+
+    /**
+     * 获取新建连接失败的次数
+     *
+     * @return 连接失败次数
+     */
+    public long getConnectFailures() {
+        return mConnectFailed.get();
+    }
+
+    /**
+     * 获取连接池命中率
+     *
+     * @return 0~1之间的命中率，没有请求时返回0
+     */
+    public float getPoolHitRate() {
+        long acquired = mAcquired.get();
+        return acquired == 0 ? 0f : (float)getPoolHits() / acquired;
+    }
+
+    /**
+     * 获取连接池中当前的连接总数
+     *
+     * @return 连接总数
+     */
+    public int getConnectionCount() {
+        return mPool.connectionCount();
+    }
+
+    /**
+     * 获取连接池中当前的空闲连接数
+     *
+     * @return 空闲连接数
+     */
+    public int getIdleConnectionCount() {
+        return mPool.idleConnectionCount();
+    }
+
+    /**
+     * 重置计数
+     */
+    public void reset() {
+        mAcquired.set(0);
+        mConnected.set(0);
+        mConnectFailed.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ConnectionStats{poolHits=" + getPoolHits() + ", newConnections=" + getNewConnections()
+            + ", connectFailures=" + getConnectFailures() + ", connections=" + getConnectionCount() + ", idle="
+            + getIdleConnectionCount() + '}';
+    }
+}
@@ -0,0 +1,264 @@
+package com.wty.foundation.core.http;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.EventListener;
+import okhttp3.Request;
+import retrofit2.Invocation;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+import retrofit2.http.OPTIONS;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/7/1 10:00
+ * @describe 按接口模板（如"GET user/{id}"）统计请求各阶段耗时，每个阶段使用固定内存的直方图，
+ *           可通过export导出JSON随日志上报
+ */
+public class HttpMetrics {
+    /**
+     * 无法识别接口模板的请求统一记录到该接口下
+     */
+    public static final String OTHER_ENDPOINT = "other";
+    /**
+     * 切换到主线程的耗时与具体接口无关，统一记录到该接口下
+     */
+    public static final String MAIN_THREAD_ENDPOINT = "main-thread";
+    // 最多统计的接口数，超过后记录到OTHER_ENDPOINT，防止内存无限增长
+    private static final int MAX_ENDPOINTS = 128;
+
+    /**
+     * 请求阶段
+     */
+    public enum Phase {
+        // DNS解析
+        DNS,
+        // TCP建连（包含TLS握手）
+        CONNECT,
+        // TLS握手
+        TLS,
+        // 开始发送请求到收到响应头
+        TTFB,
+        // 读取响应体
+        BODY,
+        // 响应体转换为实体类（流式解析时包含读取响应体）
+        PARSE,
+        // 整个请求
+        TOTAL,
+        // 请求线程发出结果到主线程收到结果
+        MAIN_HOP
+    }
+
+    private final ConcurrentHashMap<String, Endpoint> mEndpoints = new ConcurrentHashMap<>();
+    private final Map<Method, String> mTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * 单个接口的统计
+     */
+    public static final class Endpoint {
+        private final String name;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+        private final AtomicLong failures = new AtomicLong();
+
+        Endpoint(String name) {
+            this.name = name;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getHistogram(Phase phase) {
+            return histograms[phase.ordinal()];
+        }
+
+        /**
+         * 获取失败次数（网络错误或HTTP状态码不是2xx）
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+    }
+
+    HttpMetrics() {
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param endpoint 接口模板
+     * @param phase 阶段
+     * @param micros 耗时（微秒）
+     */
+    public void record(@NonNull String endpoint, @NonNull Phase phase, long micros) {
+        endpoint(endpoint).histograms[phase.ordinal()].record(micros);
+    }
+
+    void recordFailure(String endpoint) {
+        endpoint(endpoint).failures.incrementAndGet();
+    }
+
+    /**
+     * 获取指定接口的统计
+     *
+     * @param endpoint 接口模板
+     * @return 统计信息，没有记录时返回null
+     */
+    @Nullable
+    public Endpoint getEndpoint(@NonNull String endpoint) {
+        return mEndpoints.get(endpoint);
+    }
+
+    /**
+     * 获取所有已记录的接口统计
+     */
+    @NonNull
+    public List<Endpoint> getEndpoints() {
+        return new ArrayList<>(mEndpoints.values());
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        mEndpoints.clear();
+    }
+
+    /**
+     * 导出统计快照，格式为：[{"endpoint":"GET user/{id}","failures":0,"phases":{"TTFB":{"count":..,"mean":..,
+     * "p50":..,"p90":..,"p99":..,"max":..}}}]，耗时单位为微秒，没有记录的阶段不输出
+     *
+     * @return JSON字符串
+     */
+    @NonNull
+    public String export() {
+        JSONArray array = new JSONArray();
+        try {
+            for (Endpoint endpoint : mEndpoints.values()) {
+                JSONObject phases = new JSONObject();
+                for (Phase phase : Phase.values()) {
+                    LatencyHistogram histogram = endpoint.getHistogram(phase);
+                    if (histogram.getCount() == 0) {
+                        continue;
+                    }
+                    JSONObject item = new JSONObject();
+                    item.put("count", histogram.getCount());
+                    item.put("mean", histogram.getMeanMicros());
+                    item.put("p50", histogram.getValueAtPercentile(50));
+                    item.put("p90", histogram.getValueAtPercentile(90));
+                    item.put("p99", histogram.getValueAtPercentile(99));
+                    item.put("max", histogram.getMaxMicros());
+                    phases.put(phase.name(), item);
+                }
+                JSONObject object = new JSONObject();
+                object.put("endpoint", endpoint.getName());
+                object.put("failures", endpoint.getFailures());
+                object.put("phases", phases);
+                array.put(object);
+            }
+        } catch (JSONException e) {
+            // 键都不为空，不会发生
+        }
+        return array.toString();
+    }
+
+    /**
+     * 创建记录各阶段耗时的EventListener工厂，事件同时转发给delegate
+     *
+     * @param delegate 原有的EventListener
+     * @return EventListener工厂
+     */
+    EventListener.Factory eventListenerFactory(EventListener delegate) {
+        return call -> new MetricsEventListener(this, endpointOf(call.request()), delegate);
+    }
+
+    /**
+     * 获取请求对应的接口模板
+     *
+     * @param request 请求
+     * @return 接口模板，非Retrofit发起的请求返回OTHER_ENDPOINT
+     */
+    String endpointOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null) {
+            return OTHER_ENDPOINT;
+        }
+        Method method = invocation.method();
+        String template = mTemplates.get(method);
+        if (template == null) {
+            template = templateOf(method.getAnnotations());
+            mTemplates.put(method, template);
+        }
+        return template;
+    }
+
+    /**
+     * 根据Retrofit方法注解获取接口模板
+     *
+     * @param annotations 方法注解
+     * @return 如"GET user/{id}"，没有请求方法注解时返回OTHER_ENDPOINT
+     */
+    static String templateOf(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof GET) {
+                return "GET " + ((GET)annotation).value();
+            } else if (annotation instanceof POST) {
+                return "POST " + ((POST)annotation).value();
+            } else if (annotation instanceof PUT) {
+                return "PUT " + ((PUT)annotation).value();
+            } else if (annotation instanceof DELETE) {
+                return "DELETE " + ((DELETE)annotation).value();
+            } else if (annotation instanceof PATCH) {
+                return "PATCH " + ((PATCH)annotation).value();
+            } else if (annotation instanceof HEAD) {
+                return "HEAD " + ((HEAD)annotation).value();
+            } else if (annotation instanceof OPTIONS) {
+                return "OPTIONS " + ((OPTIONS)annotation).value();
+            } else if (annotation instanceof HTTP) {
+                return ((HTTP)annotation).method() + " " + ((HTTP)annotation).path();
+            }
+        }
+        return OTHER_ENDPOINT;
+    }
+
+    private Endpoint endpoint(String name) {
+        Endpoint endpoint = mEndpoints.get(name);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        if (mEndpoints.size() >= MAX_ENDPOINTS && !OTHER_ENDPOINT.equals(name)
+            && !MAIN_THREAD_ENDPOINT.equals(name)) {
+            name = OTHER_ENDPOINT;
+        }
+        Endpoint created = new Endpoint(name);
+        endpoint = mEndpoints.putIfAbsent(name, created);
+        return endpoint == null ? created : endpoint;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "HttpMetrics{endpoints=" + mEndpoints.size() + '}';
+    }
+}
@@ -0,0 +1,199 @@
+package com.wty.foundation.core.http;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/17 10:45
+ * @describe 网络请求线程调度器注册表，提供有界且支持优先级的IO调度器、解析数据用的CPU调度器，
+ *           以及JVM支持时的虚拟线程调度器，可通过register注册自定义调度器。
+ *           Retrofit请求由OkHttp调度器异步执行（并发数受Config.maxRequests限制），在IO调度器上订阅只占用很短时间，
+ *           io2main、HttpResponseHelper默认使用IO调度器；不要在IO调度器上执行长时间阻塞的任务
+ */
+public class HttpSchedulers {
+    public static final String IO = "io";
+    public static final String CPU = "cpu";
+    public static final String VIRTUAL = "virtual";
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    // IO线程数上限，避免请求高峰时无限制创建线程
+    private static final int IO_POOL_SIZE = Math.max(4, Math.min(CPU_COUNT * 2, 16));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 任务优先级
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private static final Map<String, MonitoredExecutor> sExecutors = new ConcurrentHashMap<>();
+    private static final Map<String, Scheduler> sSchedulers = new ConcurrentHashMap<>();
+    private static final Map<Priority, Scheduler> sIoSchedulers = new EnumMap<>(Priority.class);
+
+    static {
+        ThreadPoolExecutor io = new ThreadPoolExecutor(IO_POOL_SIZE, IO_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(), new NamedThreadFactory("http-io"));
+        io.allowCoreThreadTimeOut(true);
+        MonitoredExecutor ioExecutor = new MonitoredExecutor(IO, io);
+        for (Priority priority : Priority.values()) {
+            sIoSchedulers.put(priority, Schedulers.from(command -> ioExecutor.execute(command, priority), false, true));
+        }
+        sExecutors.put(IO, ioExecutor);
+        sSchedulers.put(IO, sIoSchedulers.get(Priority.NORMAL));
+
+        ThreadPoolExecutor cpu = new ThreadPoolExecutor(CPU_COUNT, CPU_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new NamedThreadFactory("http-cpu"));
+        cpu.allowCoreThreadTimeOut(true);
+        register(CPU, cpu);
+
+        Executor virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            register(VIRTUAL, virtual);
+        }
+    }
+
+    private HttpSchedulers() {
+    }
+
+    /**
+     * 获取普通优先级的IO调度器，线程数有上限
+     *
+     * @return IO调度器
+     */
+    public static Scheduler io() {
+        return io(Priority.NORMAL);
+    }
+
+    /**
+     * 获取指定优先级的IO调度器，所有优先级共用同一个有界线程池
+     *
+     * @param priority 优先级
+     * @return IO调度器
+     */
+    public static Scheduler io(Priority priority) {
+        return sIoSchedulers.get(priority == null ? Priority.NORMAL : priority);
+    }
+
+    /**
+     * 获取CPU调度器，用于数据解析等计算任务
+     *
+     * @return CPU调度器
+     */
+    public static Scheduler cpu() {
+        return sSchedulers.get(CPU);
+    }
+
+    /**
+     * 获取虚拟线程调度器，运行环境不支持虚拟线程（如Android）时返回IO调度器
+     *
+     * @return 虚拟线程调度器
+     */
+    public static Scheduler virtual() {
+        Scheduler scheduler = sSchedulers.get(VIRTUAL);
+        return scheduler == null ? io() : scheduler;
+    }
+
+    /**
+     * 判断当前运行环境是否支持虚拟线程
+     *
+     * @return true表示支持
+     */
+    public static boolean isVirtualThreadSupported() {
+        return sExecutors.containsKey(VIRTUAL);
+    }
+
+    /**
+     * 按名称获取调度器
+     *
+     * @param name 调度器名称
+     * @return 调度器，不存在时返回IO调度器
+     */
+    public static Scheduler get(String name) {
+        Scheduler scheduler = name == null ? null : sSchedulers.get(name);
+        return scheduler == null ? io() : scheduler;
+    }
+
+    /**
+     * 注册自定义调度器，已存在同名调度器时替换（IO调度器不可替换）
+     *
+     * @param name 调度器名称
+     * @param executor 执行任务的线程池
+     */
+    public static void register(String name, Executor executor) {
+        if (name == null || executor == null) {
+            throw new IllegalArgumentException("name or executor is null");
+        }
+        if (IO.equals(name)) {
+            throw new IllegalArgumentException("io scheduler can not be replaced");
+        }
+        MonitoredExecutor monitored = new MonitoredExecutor(name, executor);
+        sExecutors.put(name, monitored);
+        sSchedulers.put(name, Schedulers.from(monitored, false, true));
+    }
+
+    /**
+     * 获取调度器的监控信息
+     *
+     * @param name 调度器名称
+     * @return 监控信息，不存在时返回null
+     */
+    public static MonitoredExecutor getStats(String name) {
+        return name == null ? null : sExecutors.get(name);
+    }
+
+    /**
+     * 获取所有调度器的监控信息
+     *
+     * @return 调度器名称与监控信息的映射
+     */
+    public static Map<String, MonitoredExecutor> getAllStats() {
+        return Collections.unmodifiableMap(sExecutors);
+    }
+
+    /**
+     * 通过反射创建虚拟线程线程池，JDK21以下及Android环境返回null
+     */
+    private static Executor newVirtualThreadExecutor() {
+        try {
+            return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (Throwable e) {
+            // 不支持虚拟线程，使用IO调度器代替
+            return null;
+        }
+    }
+
+    /**
+     * 带名称的线程工厂
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/7/1 10:40
+ * @describe 单个请求的耗时记录，每个请求创建一个实例，记录各阶段的开始时间并在结束时写入HttpMetrics，
+ *           所有事件同时转发给delegate（如ConnectionStats）
+ */
+final class MetricsEventListener extends EventListener {
+    private final HttpMetrics mMetrics;
+    private final String mEndpoint;
+    private final EventListener mDelegate;
+    private long mCallStart;
+    private long mDnsStart;
+    private long mConnectStart;
+    private long mSecureConnectStart;
+    private long mRequestStart;
+    private long mBodyStart;
+    private boolean mHttpFailed;
+
+    MetricsEventListener(HttpMetrics metrics, String endpoint, EventListener delegate) {
+        mMetrics = metrics;
+        mEndpoint = endpoint;
+        mDelegate = delegate;
+    }
+
+    private void record(HttpMetrics.Phase phase, long startNanos) {
+        if (startNanos != 0) {
+            mMetrics.record(mEndpoint, phase, (System.nanoTime() - startNanos) / 1000);
+        }
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        mCallStart = System.nanoTime();
+        mDelegate.callStart(call);
+    }
+
+    @Override
+    public void proxySelectStart(@NonNull Call call, @NonNull HttpUrl url) {
+        mDelegate.proxySelectStart(call, url);
+    }
+
+    @Override
+    public void proxySelectEnd(@NonNull Call call, @NonNull HttpUrl url, @NonNull List<Proxy> proxies) {
+        mDelegate.proxySelectEnd(call, url, proxies);
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        mDnsStart = System.nanoTime();
+        mDelegate.dnsStart(call, domainName);
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        record(HttpMetrics.Phase.DNS, mDnsStart);
+        mDnsStart = 0;
+        mDelegate.dnsEnd(call, domainName, inetAddressList);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        mConnectStart = System.nanoTime();
+        mDelegate.connectStart(call, inetSocketAddress, proxy);
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        mSecureConnectStart = System.nanoTime();
+        mDelegate.secureConnectStart(call);
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        record(HttpMetrics.Phase.TLS, mSecureConnectStart);
+        mSecureConnectStart = 0;
+        mDelegate.secureConnectEnd(call, handshake);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+        @Nullable Protocol protocol) {
+        record(HttpMetrics.Phase.CONNECT, mConnectStart);
+        mConnectStart = 0;
+        mDelegate.connectEnd(call, inetSocketAddress, proxy, protocol);
+    }
+
+    @Override
+    public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+        @Nullable Protocol protocol, @NonNull IOException ioe) {
+        mConnectStart = 0;
+        mSecureConnectStart = 0;
+        mDelegate.connectFailed(call, inetSocketAddress, proxy, protocol, ioe);
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        mDelegate.connectionAcquired(call, connection);
+    }
+
+    @Override
+    public void connectionReleased(@NonNull Call call, @NonNull Connection connection) {
+        mDelegate.connectionReleased(call, connection);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        mRequestStart = System.nanoTime();
+        mDelegate.requestHeadersStart(call);
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        mDelegate.requestHeadersEnd(call, request);
+    }
+
+    @Override
+    public void requestBodyStart(@NonNull Call call) {
+        mDelegate.requestBodyStart(call);
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        mDelegate.requestBodyEnd(call, byteCount);
+    }
+
+    @Override
+    public void requestFailed(@NonNull Call call, @NonNull IOException ioe) {
+        mDelegate.requestFailed(call, ioe);
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        record(HttpMetrics.Phase.TTFB, mRequestStart);
+        mRequestStart = 0;
+        mDelegate.responseHeadersStart(call);
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        mHttpFailed = response.code() >= 400;
+        mDelegate.responseHeadersEnd(call, response);
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        mBodyStart = System.nanoTime();
+        mDelegate.responseBodyStart(call);
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        record(HttpMetrics.Phase.BODY, mBodyStart);
+        mBodyStart = 0;
+        mDelegate.responseBodyEnd(call, byteCount);
+    }
+
+    @Override
+    public void responseFailed(@NonNull Call call, @NonNull IOException ioe) {
+        mDelegate.responseFailed(call, ioe);
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        record(HttpMetrics.Phase.TOTAL, mCallStart);
+        if (mHttpFailed) {
+            mMetrics.recordFailure(mEndpoint);
+        }
+        mDelegate.callEnd(call);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        record(HttpMetrics.Phase.TOTAL, mCallStart);
+        mMetrics.recordFailure(mEndpoint);
+        mDelegate.callFailed(call, ioe);
+    }
+
+    @Override
+    public void canceled(@NonNull Call call) {
+        mDelegate.canceled(call);
+    }
+
+    @Override
+    public void satisfactionFailure(@NonNull Call call, @NonNull Response response) {
+        mDelegate.satisfactionFailure(call, response);
+    }
+
+    @Override
+    public void cacheHit(@NonNull Call call, @NonNull Response response) {
+        mDelegate.cacheHit(call, response);
+    }
+
+    @Override
+    public void cacheMiss(@NonNull Call call) {
+        mDelegate.cacheMiss(call);
+    }
+
+    @Override
+    public void cacheConditionalHit(@NonNull Call call, @NonNull Response cachedResponse) {
+        mDelegate.cacheConditionalHit(call, cachedResponse);
+    }
+}
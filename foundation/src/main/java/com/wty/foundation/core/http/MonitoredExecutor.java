@@ -0,0 +1,122 @@
+package com.wty.foundation.core.http;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/17 10:20
+ * @describe 带监控的线程池包装，统计排队任务数、执行中任务数和已完成任务数，任务按优先级排序执行
+ */
+public class MonitoredExecutor implements Executor {
+    private final String mName;
+    private final Executor mDelegate;
+    private final AtomicInteger mQueued = new AtomicInteger();
+    private final AtomicInteger mActive = new AtomicInteger();
+    private final AtomicInteger mMaxQueued = new AtomicInteger();
+    private final AtomicLong mCompleted = new AtomicLong();
+    // 相同优先级的任务按提交顺序执行
+    private final AtomicLong mSequence = new AtomicLong();
+
+    MonitoredExecutor(String name, Executor delegate) {
+        mName = name;
+        mDelegate = delegate;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(command, HttpSchedulers.Priority.NORMAL);
+    }
+
+    /**
+     * 按指定优先级提交任务，只有使用优先级队列的线程池才会按优先级执行
+     *
+     * @param command 任务
+     * @param priority 优先级
+     */
+    public void execute(@NonNull Runnable command, HttpSchedulers.Priority priority) {
+        int queued = mQueued.incrementAndGet();
+        mMaxQueued.accumulateAndGet(queued, Math::max);
+        try {
+            mDelegate.execute(new Task(command, priority, mSequence.getAndIncrement()));
+        } catch (RuntimeException e) {
+            mQueued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * 获取排队等待执行的任务数
+     */
+    public int getQueueDepth() {
+        return mQueued.get();
+    }
+
+    /**
+     * 获取排队任务数的峰值
+     */
+    public int getMaxQueueDepth() {
+        return mMaxQueued.get();
+    }
+
+    /**
+     * 获取正在执行任务的线程数
+     */
+    public int getActiveThreads() {
+        return mActive.get();
+    }
+
+    /**
+     * 获取已完成的任务数
+     */
+    public long getCompletedTasks() {
+        return mCompleted.get();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "MonitoredExecutor{name=" + mName + ", queued=" + getQueueDepth() + ", active=" + getActiveThreads()
+            + ", completed=" + getCompletedTasks() + '}';
+    }
+
+    /**
+     * 可排序的任务，优先级高的先执行
+     */
+    private final class Task implements Runnable, Comparable<Task> {
+        private final Runnable command;
+        private final HttpSchedulers.Priority priority;
+        private final long sequence;
+
+        Task(Runnable command, HttpSchedulers.Priority priority, long sequence) {
+            this.command = command;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mQueued.decrementAndGet();
+            mActive.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                mActive.decrementAndGet();
+                mCompleted.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int result = priority.compareTo(o.priority);
+            return result != 0 ? result : Long.compare(sequence, o.sequence);
+        }
+    }
+}
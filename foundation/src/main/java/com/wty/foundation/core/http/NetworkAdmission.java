@@ -0,0 +1,277 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.wty.foundation.common.utils.NetWorkUtils;
+
+import android.os.SystemClock;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/24 11:20
+ * @describe 按网络策略控制请求发出的时机：请求在加入OkHttp调度器之前排队，有并发名额时按优先级和加入顺序发出，
+ *           弱网下低优先级请求等待高优先级请求完成后再发出，慢主机减少并发。排队时不占用任何线程，
+ *           高优先级请求不会排在等待中的低优先级请求之后；等待的请求数和等待时间都有上限，超过后请求失败
+ */
+final class NetworkAdmission {
+    // 网络类型缓存时长，避免每个请求都查询系统服务
+    private static final long NETWORK_CLASS_TTL_MS = 3000;
+
+    private final NetworkPolicy mPolicy;
+    private final NetworkQualityStats mStats;
+    // 以下字段只在this锁中读写
+    private final PriorityQueue<Ticket> mQueue = new PriorityQueue<>();
+    private final Map<String, Integer> mHostInFlight = new HashMap<>();
+    private int mInFlight;
+    private int mUrgentInFlight;
+    private long mSequence;
+    private long mTimerDeadline;
+    private Disposable mTimer;
+    private volatile long mNetworkClassTime;
+
+    /**
+     * 排队中的请求，开始执行后通过{@link #release()}归还名额
+     */
+    abstract static class Ticket implements Comparable<Ticket> {
+        private NetworkAdmission mOwner;
+        private String mHost;
+        private HttpSchedulers.Priority mPriority;
+        private long mSequence;
+        private long mDeferDeadline;
+        private long mQueueDeadline;
+        private boolean mDeferred;
+        private boolean mThrottled;
+        // 0排队中，1已发出，2已结束
+        private int mState;
+
+        /**
+         * 获得名额后调用，在释放名额或加入请求的线程执行，不能阻塞
+         */
+        abstract void onAdmitted();
+
+        /**
+         * 等待超时、等待的请求过多或取消时调用，调用后不再调用onAdmitted
+         */
+        abstract void onRejected(IOException e);
+
+        /**
+         * 请求结束后归还名额，可重复调用
+         */
+        final void release() {
+            if (mOwner != null) {
+                mOwner.release(this);
+            }
+        }
+
+        /**
+         * 取消排队中的请求，已发出的请求不受影响
+         *
+         * @return true表示请求还在排队并已移除
+         */
+        final boolean cancel() {
+            return mOwner != null && mOwner.cancel(this);
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int result = mPriority.compareTo(other.mPriority);
+            return result != 0 ? result : Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+    NetworkAdmission(NetworkPolicy policy, NetworkQualityStats stats) {
+        mPolicy = policy;
+        mStats = stats;
+    }
+
+    NetworkPolicy getPolicy() {
+        return mPolicy;
+    }
+
+    NetworkQualityStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * 加入请求，有名额时在当前线程立即调用onAdmitted
+     *
+     * @param ticket 请求
+     * @param host 请求的主机
+     * @param priority 请求的优先级
+     */
+    void submit(Ticket ticket, String host, HttpSchedulers.Priority priority) {
+        long now = SystemClock.elapsedRealtime();
+        String networkClass = getNetworkClass();
+        IOException rejected = null;
+        synchronized (this) {
+            ticket.mOwner = this;
+            ticket.mHost = host;
+            ticket.mPriority = priority == null ? HttpSchedulers.Priority.NORMAL : priority;
+            ticket.mSequence = mSequence++;
+            boolean low = ticket.mPriority == HttpSchedulers.Priority.LOW;
+            ticket.mDeferDeadline = low && mPolicy.isDeferLowPriority(networkClass) ? now + mPolicy.getMaxDeferMs() : 0;
+            ticket.mQueueDeadline = now + mPolicy.getMaxQueueMs();
+            if (mQueue.size() >= mPolicy.getMaxQueued()) {
+                ticket.mState = 2;
+                rejected = new IOException("Too many requests waiting for network slot");
+            } else {
+                mQueue.add(ticket);
+            }
+        }
+        if (rejected != null) {
+            mStats.mRejected.incrementAndGet();
+            ticket.onRejected(rejected);
+            return;
+        }
+        drain();
+    }
+
+    private void release(Ticket ticket) {
+        synchronized (this) {
+            if (ticket.mState != 1) {
+                return;
+            }
+            ticket.mState = 2;
+            mInFlight--;
+            if (ticket.mPriority != HttpSchedulers.Priority.LOW) {
+                mUrgentInFlight--;
+            }
+            int count = getHostInFlight(ticket.mHost) - 1;
+            if (count <= 0) {
+                mHostInFlight.remove(ticket.mHost);
+            } else {
+                mHostInFlight.put(ticket.mHost, count);
+            }
+            mStats.mInFlight.set(mInFlight);
+        }
+        drain();
+    }
+
+    private boolean cancel(Ticket ticket) {
+        synchronized (this) {
+            if (ticket.mState != 0 || !mQueue.remove(ticket)) {
+                return false;
+            }
+            ticket.mState = 2;
+        }
+        ticket.onRejected(new IOException("Canceled"));
+        return true;
+    }
+
+    /**
+     * 按优先级发出有名额的请求，拒绝等待超时的请求，并在最近的截止时间再次检查。
+     * 回调在锁外执行，避免回调中再次加入请求时死锁
+     */
+    private void drain() {
+        NetworkPolicy.Limits limits = mPolicy.getLimits(getNetworkClass());
+        List<Ticket> admitted = new ArrayList<>();
+        List<Ticket> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            long nextDeadline = Long.MAX_VALUE;
+            List<Ticket> ordered = new ArrayList<>(mQueue);
+            ordered.sort(null);
+            for (Ticket ticket : ordered) {
+                boolean defer = ticket.mDeferDeadline > now && mUrgentInFlight > 0;
+                boolean full = mInFlight >= limits.getMaxConcurrent()
+                    || getHostInFlight(ticket.mHost) >= getHostLimit(ticket.mHost, limits);
+                if (!defer && !full) {
+                    mQueue.remove(ticket);
+                    admit(ticket);
+                    admitted.add(ticket);
+                    continue;
+                }
+                if (full && now >= ticket.mQueueDeadline) {
+                    mQueue.remove(ticket);
+                    ticket.mState = 2;
+                    expired.add(ticket);
+                    continue;
+                }
+                ticket.mDeferred |= defer;
+                ticket.mThrottled |= full;
+                nextDeadline = Math.min(nextDeadline, full ? ticket.mQueueDeadline : ticket.mDeferDeadline);
+            }
+            scheduleTimer(nextDeadline, now);
+        }
+        for (Ticket ticket : expired) {
+            mStats.mRejected.incrementAndGet();
+            ticket.onRejected(new InterruptedIOException("timeout waiting for network slot"));
+        }
+        for (Ticket ticket : admitted) {
+            if (ticket.mDeferred) {
+                mStats.mDeferred.incrementAndGet();
+            }
+            if (ticket.mThrottled) {
+                mStats.mThrottled.incrementAndGet();
+            }
+            ticket.onAdmitted();
+        }
+    }
+
+    private void admit(Ticket ticket) {
+        ticket.mState = 1;
+        mInFlight++;
+        if (ticket.mPriority != HttpSchedulers.Priority.LOW) {
+            mUrgentInFlight++;
+        }
+        mHostInFlight.put(ticket.mHost, getHostInFlight(ticket.mHost) + 1);
+        mStats.mInFlight.set(mInFlight);
+    }
+
+    /**
+     * 在最近的截止时间检查排队的请求，名额释放时也会检查，这里只处理没有名额释放的情况
+     */
+    private void scheduleTimer(long deadline, long now) {
+        // 已有更早的检查时可复用；截止时间已过的检查正在执行或已结束，需要重新安排
+        if (deadline == Long.MAX_VALUE || (mTimer != null && mTimerDeadline > now && mTimerDeadline <= deadline)) {
+            return;
+        }
+        if (mTimer != null) {
+            mTimer.dispose();
+        }
+        mTimerDeadline = deadline;
+        mTimer = Schedulers.single().scheduleDirect(this::drain, Math.max(1, deadline - now), TimeUnit.MILLISECONDS);
+    }
+
+    private int getHostInFlight(String host) {
+        Integer count = mHostInFlight.get(host);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 平均耗时超过阈值的主机并发数减半
+     */
+    private int getHostLimit(String host, NetworkPolicy.Limits limits) {
+        long latency = mStats.getHostLatencyMs(host);
+        int max = limits.getMaxConcurrent();
+        return latency > mPolicy.getSlowHostLatencyMs() ? Math.max(1, max / 2) : max;
+    }
+
+    /**
+     * 获取当前网络类型，短时间内复用上次的结果
+     */
+    String getNetworkClass() {
+        long now = SystemClock.elapsedRealtime();
+        if (now - mNetworkClassTime > NETWORK_CLASS_TTL_MS) {
+            String networkClass;
+            try {
+                networkClass = NetWorkUtils.getConnNetworkType2();
+            } catch (Exception e) {
+                networkClass = NetworkPolicy.UNKNOWN;
+            }
+            mStats.mNetworkClass = networkClass;
+            mNetworkClassTime = now;
+        }
+        return mStats.mNetworkClass;
+    }
+}
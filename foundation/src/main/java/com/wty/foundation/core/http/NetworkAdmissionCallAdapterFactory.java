@@ -0,0 +1,219 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.CountDownLatch;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Retrofit;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/24 11:25
+ * @describe 请求加入OkHttp调度器之前先经过NetworkAdmission排队，获得并发名额后再发出，结束后归还名额。
+ *           异步请求（enqueue，包括RxJava的请求）排队时不占用线程；同步请求（execute）在调用方线程等待名额，不要在主线程调用。
+ *           only-if-cached请求（缓存探测）不排队
+ */
+final class NetworkAdmissionCallAdapterFactory extends CallAdapter.Factory {
+    private final NetworkAdmission mAdmission;
+
+    NetworkAdmissionCallAdapterFactory(NetworkAdmission admission) {
+        mAdmission = admission;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+        @NonNull Retrofit retrofit) {
+        final CallAdapter<Object, Object> delegate =
+            (CallAdapter<Object, Object>)retrofit.nextCallAdapter(this, returnType, annotations);
+        final HttpSchedulers.Priority priority = getPriority(annotations);
+        return new CallAdapter<Object, Object>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Object adapt(@NonNull Call<Object> call) {
+                return delegate.adapt(new AdmissionCall<>(call, priority));
+            }
+        };
+    }
+
+    private static HttpSchedulers.Priority getPriority(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof NetworkPriority) {
+                return ((NetworkPriority)annotation).value();
+            }
+        }
+        return HttpSchedulers.Priority.NORMAL;
+    }
+
+    /**
+     * 获得并发名额后才发出的Call
+     */
+    private final class AdmissionCall<T> implements Call<T> {
+        private final Call<T> mDelegate;
+        private final HttpSchedulers.Priority mPriority;
+        private volatile NetworkAdmission.Ticket mTicket;
+
+        AdmissionCall(Call<T> delegate, HttpSchedulers.Priority priority) {
+            mDelegate = delegate;
+            mPriority = priority;
+        }
+
+        @NonNull
+        @Override
+        public retrofit2.Response<T> execute() throws IOException {
+            String host = getAdmissionHost();
+            if (host == null) {
+                return mDelegate.execute();
+            }
+            CountDownLatch admitted = new CountDownLatch(1);
+            IOException[] error = new IOException[1];
+            NetworkAdmission.Ticket ticket = new NetworkAdmission.Ticket() {
+                @Override
+                void onAdmitted() {
+                    admitted.countDown();
+                }
+
+                @Override
+                void onRejected(IOException e) {
+                    error[0] = e;
+                    admitted.countDown();
+                }
+            };
+            mTicket = ticket;
+            mAdmission.submit(ticket, host, mPriority);
+            try {
+                admitted.await();
+            } catch (InterruptedException e) {
+                // 等待期间可能已获得名额，取消失败时归还
+                if (!ticket.cancel()) {
+                    ticket.release();
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for network slot");
+            }
+            if (error[0] != null) {
+                throw error[0];
+            }
+            try {
+                return mDelegate.execute();
+            } finally {
+                ticket.release();
+            }
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            String host = getAdmissionHost();
+            if (host == null) {
+                mDelegate.enqueue(wrap(callback, null));
+                return;
+            }
+            NetworkAdmission.Ticket ticket = new NetworkAdmission.Ticket() {
+                @Override
+                void onAdmitted() {
+                    mDelegate.enqueue(wrap(callback, this));
+                }
+
+                @Override
+                void onRejected(IOException e) {
+                    callback.onFailure(AdmissionCall.this, e);
+                }
+            };
+            mTicket = ticket;
+            mAdmission.submit(ticket, host, mPriority);
+        }
+
+        /**
+         * 获取需要排队的请求的主机，only-if-cached请求不访问网络，返回null；
+         * 创建请求失败时也返回null，由原请求报告错误
+         */
+        @Nullable
+        private String getAdmissionHost() {
+            Request request;
+            try {
+                request = mDelegate.request();
+            } catch (RuntimeException e) {
+                return null;
+            }
+            return request.cacheControl().onlyIfCached() ? null : request.url().host();
+        }
+
+        /**
+         * 请求结束后先归还名额再回调，回调中发出的新请求可以使用归还的名额
+         */
+        private Callback<T> wrap(Callback<T> callback, @Nullable NetworkAdmission.Ticket ticket) {
+            return new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull retrofit2.Response<T> response) {
+                    if (ticket != null) {
+                        ticket.release();
+                    }
+                    callback.onResponse(AdmissionCall.this, response);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    if (ticket != null) {
+                        ticket.release();
+                    }
+                    callback.onFailure(AdmissionCall.this, t);
+                }
+            };
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return mTicket != null || mDelegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            // 先取消原请求，排队中的请求回调失败时isCanceled已为true
+            mDelegate.cancel();
+            NetworkAdmission.Ticket ticket = mTicket;
+            if (ticket != null) {
+                ticket.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mDelegate.isCanceled();
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new AdmissionCall<>(mDelegate.clone(), mPriority);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return mDelegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return mDelegate.timeout();
+        }
+    }
+}
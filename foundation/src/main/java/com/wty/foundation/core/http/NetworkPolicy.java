@@ -0,0 +1,194 @@
+package com.wty.foundation.core.http;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/24 10:20
+ * @describe 按网络类型调整请求的策略：不同网络类型使用不同的超时时间和最大并发数，弱网下延后低优先级请求，
+ *           平均耗时较高的主机减少并发。网络类型取值与NetWorkUtils.getConnNetworkType2()一致
+ */
+public class NetworkPolicy {
+    public static final String WIFI = "WIFI";
+    public static final String NETWORK_2G = "2G";
+    public static final String NETWORK_3G = "3G";
+    public static final String NETWORK_4G = "4G";
+    public static final String NETWORK_5G = "5G";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final Map<String, Limits> mLimits;
+    private final Limits mDefaultLimits;
+    private final Set<String> mDeferLowPriority;
+    private final long mMaxDeferMs;
+    private final long mSlowHostLatencyMs;
+    private final long mMaxQueueMs;
+    private final int mMaxQueued;
+
+    private NetworkPolicy(Builder builder) {
+        mLimits = Collections.unmodifiableMap(new HashMap<>(builder.mLimits));
+        mDefaultLimits = builder.mDefaultLimits;
+        mDeferLowPriority = Collections.unmodifiableSet(new HashSet<>(builder.mDeferLowPriority));
+        mMaxDeferMs = builder.mMaxDeferMs;
+        mSlowHostLatencyMs = builder.mSlowHostLatencyMs;
+        mMaxQueueMs = builder.mMaxQueueMs;
+        mMaxQueued = builder.mMaxQueued;
+    }
+
+    /**
+     * 获取指定网络类型的限制，未配置时返回默认限制
+     *
+     * @param networkClass 网络类型
+     * @return 限制
+     */
+    public Limits getLimits(String networkClass) {
+        Limits limits = networkClass == null ? null : mLimits.get(networkClass);
+        return limits == null ? mDefaultLimits : limits;
+    }
+
+    /**
+     * 指定网络类型下是否延后低优先级请求
+     */
+    public boolean isDeferLowPriority(String networkClass) {
+        return networkClass != null && mDeferLowPriority.contains(networkClass);
+    }
+
+    public long getMaxDeferMs() {
+        return mMaxDeferMs;
+    }
+
+    public long getSlowHostLatencyMs() {
+        return mSlowHostLatencyMs;
+    }
+
+    public long getMaxQueueMs() {
+        return mMaxQueueMs;
+    }
+
+    public int getMaxQueued() {
+        return mMaxQueued;
+    }
+
+    /**
+     * 单个网络类型的超时时间和并发限制，超时时间为0表示使用Config中的配置
+     */
+    public static class Limits {
+        private final long mConnectTimeoutMs;
+        private final long mReadTimeoutMs;
+        private final long mWriteTimeoutMs;
+        private final int mMaxConcurrent;
+
+        public Limits(long connectTimeoutMs, long readTimeoutMs, long writeTimeoutMs, int maxConcurrent) {
+            mConnectTimeoutMs = connectTimeoutMs;
+            mReadTimeoutMs = readTimeoutMs;
+            mWriteTimeoutMs = writeTimeoutMs;
+            mMaxConcurrent = Math.max(1, maxConcurrent);
+        }
+
+        public long getConnectTimeoutMs() {
+            return mConnectTimeoutMs;
+        }
+
+        public long getReadTimeoutMs() {
+            return mReadTimeoutMs;
+        }
+
+        public long getWriteTimeoutMs() {
+            return mWriteTimeoutMs;
+        }
+
+        public int getMaxConcurrent() {
+            return mMaxConcurrent;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, Limits> mLimits = new HashMap<>();
+        private Limits mDefaultLimits = new Limits(0, 0, 0, 6);
+        private final Set<String> mDeferLowPriority = new HashSet<>();
+        private long mMaxDeferMs = 10 * 1000L;
+        private long mSlowHostLatencyMs = 2000L;
+        private long mMaxQueueMs = 15 * 1000L;
+        private int mMaxQueued = 32;
+
+        public Builder() {
+            mLimits.put(NETWORK_2G, new Limits(30 * 1000L, 60 * 1000L, 60 * 1000L, 2));
+            mLimits.put(NETWORK_3G, new Limits(20 * 1000L, 30 * 1000L, 30 * 1000L, 4));
+            mLimits.put(NETWORK_4G, new Limits(0, 0, 0, 8));
+            mLimits.put(NETWORK_5G, new Limits(0, 0, 0, 8));
+            mLimits.put(WIFI, new Limits(0, 0, 0, 16));
+            mDeferLowPriority.add(NETWORK_2G);
+            mDeferLowPriority.add(NETWORK_3G);
+        }
+
+        /**
+         * 设置指定网络类型的限制
+         *
+         * @param networkClass 网络类型，如{@link #NETWORK_3G}
+         * @param limits 限制
+         * @return Builder
+         */
+        public Builder setLimits(String networkClass, Limits limits) {
+            mLimits.put(networkClass, limits);
+            return this;
+        }
+
+        /**
+         * 设置未单独配置的网络类型使用的限制
+         */
+        public Builder setDefaultLimits(Limits limits) {
+            mDefaultLimits = limits;
+            return this;
+        }
+
+        /**
+         * 设置哪些网络类型下延后低优先级请求，默认2G和3G
+         */
+        public Builder setDeferLowPriority(Set<String> networkClasses) {
+            mDeferLowPriority.clear();
+            if (networkClasses != null) {
+                mDeferLowPriority.addAll(networkClasses);
+            }
+            return this;
+        }
+
+        /**
+         * 设置低优先级请求最长延后时间，超过后不再等待，默认10秒
+         */
+        public Builder setMaxDeferMs(long maxDeferMs) {
+            mMaxDeferMs = maxDeferMs;
+            return this;
+        }
+
+        /**
+         * 设置慢主机的平均耗时阈值，超过该值的主机并发数减半，默认2秒
+         */
+        public Builder setSlowHostLatencyMs(long slowHostLatencyMs) {
+            mSlowHostLatencyMs = slowHostLatencyMs;
+            return this;
+        }
+
+        /**
+         * 设置达到并发上限时请求最长等待时间，超过后请求失败，默认15秒
+         */
+        public Builder setMaxQueueMs(long maxQueueMs) {
+            mMaxQueueMs = maxQueueMs;
+            return this;
+        }
+
+        /**
+         * 设置同时等待并发名额的最大请求数，超过后新请求直接失败，默认32
+         */
+        public Builder setMaxQueued(int maxQueued) {
+            mMaxQueued = maxQueued;
+            return this;
+        }
+
+        public NetworkPolicy builder() {
+            return new NetworkPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.wty.foundation.core.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/24 10:05
+ * @describe 接口请求优先级注解，配合Config中的NetworkPolicy使用，弱网下低优先级请求会延后发出
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NetworkPriority {
+    HttpSchedulers.Priority value() default HttpSchedulers.Priority.NORMAL;
+}
@@ -0,0 +1,55 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/24 11:30
+ * @describe 按当前网络类型设置超时时间，并记录主机耗时供NetworkAdmission判断慢主机。
+ *           并发限制和弱网下延后低优先级请求由NetworkAdmission在请求加入OkHttp调度器之前处理，这里不等待、不占用线程；
+ *           只有经过网络的响应才计入主机耗时
+ */
+class NetworkQualityInterceptor implements Interceptor {
+    private final NetworkAdmission mAdmission;
+
+    NetworkQualityInterceptor(NetworkAdmission admission) {
+        mAdmission = admission;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.cacheControl().onlyIfCached()) {
+            // 只读缓存，不访问网络
+            return chain.proceed(request);
+        }
+        NetworkPolicy.Limits limits = mAdmission.getPolicy().getLimits(mAdmission.getNetworkClass());
+        Chain target = chain;
+        if (limits.getConnectTimeoutMs() > 0) {
+            target = target.withConnectTimeout((int)limits.getConnectTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        if (limits.getReadTimeoutMs() > 0) {
+            target = target.withReadTimeout((int)limits.getReadTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        if (limits.getWriteTimeoutMs() > 0) {
+            target = target.withWriteTimeout((int)limits.getWriteTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        long start = SystemClock.elapsedRealtime();
+        Response response = target.proceed(request);
+        if (response.networkResponse() != null) {
+            // 缓存命中的耗时接近0，不能计入主机耗时
+            mAdmission.getStats().recordLatency(request.url().host(), SystemClock.elapsedRealtime() - start);
+        }
+        return response;
+    }
+}
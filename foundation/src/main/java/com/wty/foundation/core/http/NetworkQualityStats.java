@@ -0,0 +1,105 @@
+package com.wty.foundation.core.http;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/24 11:10
+ * @describe 网络质量统计，记录当前网络类型、各主机请求耗时的移动平均值以及并发和延后情况
+ */
+public class NetworkQualityStats {
+    // 移动平均的权重，越大越偏向最近的耗时
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final ConcurrentHashMap<String, Double> mHostLatency = new ConcurrentHashMap<>();
+    final AtomicInteger mInFlight = new AtomicInteger();
+    final AtomicLong mDeferred = new AtomicLong();
+    final AtomicLong mThrottled = new AtomicLong();
+    final AtomicLong mRejected = new AtomicLong();
+    volatile String mNetworkClass = NetworkPolicy.UNKNOWN;
+
+    NetworkQualityStats() {
+    }
+
+    /**
+     * 记录一次请求耗时
+     *
+     * @param host 主机
+     * @param latencyMs 从发出请求到收到响应头的耗时
+     */
+    void recordLatency(String host, long latencyMs) {
+        mHostLatency.merge(host, (double)latencyMs, (old, value) -> old + EWMA_ALPHA * (value - old));
+    }
+
+    /**
+     * 获取主机请求耗时的移动平均值
+     *
+     * @param host 主机
+     * @return 平均耗时（毫秒），没有记录时返回-1
+     */
+    public long getHostLatencyMs(String host) {
+        Double latency = host == null ? null : mHostLatency.get(host);
+        return latency == null ? -1 : Math.round(latency);
+    }
+
+    /**
+     * 获取所有主机请求耗时的移动平均值
+     *
+     * @return 主机与平均耗时（毫秒）的映射
+     */
+    public Map<String, Long> getHostLatencies() {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, Double> entry : mHostLatency.entrySet()) {
+            result.put(entry.getKey(), Math.round(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 获取最近一次检测到的网络类型
+     */
+    public String getNetworkClass() {
+        return mNetworkClass;
+    }
+
+    /**
+     * 获取正在进行的请求数
+     */
+    public int getInFlight() {
+        return mInFlight.get();
+    }
+
+    /**
+     * 获取因弱网被延后的低优先级请求数
+     */
+    public long getDeferred() {
+        return mDeferred.get();
+    }
+
+    /**
+     * 获取因达到并发上限而等待的请求数
+     */
+    public long getThrottled() {
+        return mThrottled.get();
+    }
+
+    /**
+     * 获取因等待的请求过多或等待超时而失败的请求数
+     */
+    public long getRejected() {
+        return mRejected.get();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "NetworkQualityStats{networkClass=" + mNetworkClass + ", inFlight=" + getInFlight() + ", deferred="
+            + getDeferred() + ", throttled=" + getThrottled() + ", rejected=" + getRejected() + ", hostLatency=" + getHostLatencies() + '}';
+    }
+}
@@ -0,0 +1,20 @@
+package com.wty.foundation.core.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/27 9:40
+ * @describe 标记POST/PUT/PATCH/DELETE接口在无网络或网络错误时加入离线队列，网络恢复后按顺序重新发送；
+ *           队列中还有未发送的请求时，新请求同样加入队列排在其后。
+ *           需在Config中设置离线队列目录。加入队列时调用方收到OfflineQueuedException
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OfflineQueue {
+}
@@ -0,0 +1,400 @@
+package com.wty.foundation.core.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.wty.foundation.common.init.AppContext;
+import com.wty.foundation.common.utils.NetWorkUtils;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import io.reactivex.rxjava3.core.Completable;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/27 11:00
+ * @describe 离线请求队列。带OfflineQueue注解的修改类请求在无网络时持久化到追加写日志中，
+ *           网络恢复后按加入顺序分批重新发送，每个请求带幂等键，失败时按指数退避重试，超过最大次数后丢弃；
+ *           队列中不保存token等认证头，重新发送时由TokenInterceptor添加当前token，返回token失效时刷新后再发送
+ */
+public class Outbox {
+    private static final String TAG = "Outbox";
+    public static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String LOG_FILE_NAME = "outbox.log";
+    // 每批发送的请求数
+    private static final int BATCH_SIZE = 20;
+    private static final long BASE_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+    // 无效记录超过该值时重写日志文件
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final int CODE_TOKEN_EXPIRED = com.wty.foundation.core.http.Response.CODE_TOKEN_EXPIRED;
+    // 不写入队列的认证相关请求头（小写），重新发送时按当前登录状态重新生成
+    private static final Set<String> CREDENTIAL_HEADERS =
+        new HashSet<>(Arrays.asList("token", "tokenencrypt", "datetime", "authorization", "cookie"));
+
+    private final OutboxLog mLog;
+    private final LinkedHashMap<String, OutboxLog.Entry> mPending;
+    private final int mMaxAttempts;
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile OkHttpClient mClient;
+    private volatile OutboxListener mListener;
+    private volatile TokenExpiredHandler mTokenExpiredHandler;
+    private boolean mReplayScheduled;
+    private boolean mCallbackRegistered;
+
+    /**
+     * 离线请求重新发送结果回调，在离线队列线程回调
+     */
+    public interface OutboxListener {
+        /**
+         * 请求重新发送成功
+         *
+         * @param entryId 记录ID
+         * @param code HTTP状态码
+         * @param body 响应体
+         */
+        default void onReplayed(@NonNull String entryId, int code, @Nullable String body) {}
+
+        /**
+         * 请求被服务端拒绝或超过最大重试次数，已从队列中移除
+         *
+         * @param entryId 记录ID
+         * @param code HTTP状态码；HTTP成功但接口返回失败时为rtnCode；网络错误时为-1
+         */
+        default void onDropped(@NonNull String entryId, int code) {}
+    }
+
+    /**
+     * 标记重新发送的请求，避免再次进入队列
+     */
+    static final class Replay {
+    }
+
+    Outbox(File dir, int maxAttempts) throws IOException {
+        mLog = new OutboxLog(new File(dir, LOG_FILE_NAME));
+        mPending = mLog.load();
+        mMaxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * 判断请求是否为离线队列重新发送的请求
+     *
+     * @param request 请求
+     * @return 是重新发送的请求时返回true
+     */
+    public static boolean isReplay(@NonNull Request request) {
+        return request.tag(Replay.class) != null;
+    }
+
+    /**
+     * 绑定用于重新发送的OkHttpClient并监听网络恢复
+     *
+     * @param client 共享的OkHttpClient
+     * @param handler token失效处理器，为null时token失效按普通失败重试
+     */
+    void attach(OkHttpClient client, @Nullable TokenExpiredHandler handler) {
+        mClient = client;
+        mTokenExpiredHandler = handler;
+        synchronized (this) {
+            if (!mCallbackRegistered) {
+                mCallbackRegistered = true;
+                registerNetworkCallback();
+            }
+        }
+        replay();
+    }
+
+    public void setListener(@Nullable OutboxListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 获取队列中等待发送的请求数
+     */
+    public synchronized int size() {
+        return mPending.size();
+    }
+
+    /**
+     * 立即尝试发送队列中的请求
+     */
+    public void replay() {
+        synchronized (this) {
+            if (mReplayScheduled) {
+                return;
+            }
+            mReplayScheduled = true;
+        }
+        mExecutor.execute(this::drain);
+    }
+
+    /**
+     * 将请求加入队列并写入磁盘
+     *
+     * @param request 请求，需已带有幂等键
+     * @return 记录ID
+     * @throws IOException 写入失败或请求体超过{@link OutboxLog#MAX_BODY_SIZE}，此时请求未加入队列
+     */
+    String enqueue(Request request) throws IOException {
+        RequestBody body = request.body();
+        if (body != null && body.contentLength() > OutboxLog.MAX_BODY_SIZE) {
+            throw new IOException("Request body too large for outbox: " + body.contentLength());
+        }
+        OutboxLog.Entry entry = new OutboxLog.Entry();
+        entry.id = request.header(HEADER_IDEMPOTENCY_KEY);
+        if (entry.id == null) {
+            entry.id = UUID.randomUUID().toString();
+        }
+        entry.createdAt = System.currentTimeMillis();
+        entry.method = request.method();
+        entry.url = request.url().toString();
+        entry.headers = new ArrayList<>();
+        for (int i = 0; i < request.headers().size(); i++) {
+            String name = request.headers().name(i);
+            if (isCredentialHeader(name)) {
+                continue;
+            }
+            entry.headers.add(name);
+            entry.headers.add(request.headers().value(i));
+        }
+        // 请求头名称不区分大小写，与上面读取幂等键的方式一致，避免重复添加
+        if (request.header(HEADER_IDEMPOTENCY_KEY) == null) {
+            entry.headers.add(HEADER_IDEMPOTENCY_KEY);
+            entry.headers.add(entry.id);
+        }
+        if (body != null) {
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            entry.body = buffer.readByteArray();
+            MediaType contentType = body.contentType();
+            entry.contentType = contentType == null ? null : contentType.toString();
+        }
+        synchronized (this) {
+            if (!mPending.containsKey(entry.id)) {
+                mLog.appendEnqueue(entry);
+                mPending.put(entry.id, entry);
+            }
+        }
+        return entry.id;
+    }
+
+    /**
+     * 在队列线程中按顺序分批发送请求，遇到需要重试的请求时停止，保证顺序
+     */
+    private void drain() {
+        synchronized (this) {
+            mReplayScheduled = false;
+        }
+        OkHttpClient client = mClient;
+        if (client == null || !isNetworkAvailable()) {
+            return;
+        }
+        while (true) {
+            List<OutboxLog.Entry> batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (OutboxLog.Entry entry : batch) {
+                long delay = entry.nextAttemptAt - System.currentTimeMillis();
+                if (delay > 0) {
+                    scheduleReplay(delay);
+                    return;
+                }
+                if (!send(client, entry)) {
+                    scheduleReplay(entry.nextAttemptAt - System.currentTimeMillis());
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized List<OutboxLog.Entry> nextBatch() {
+        List<OutboxLog.Entry> batch = new ArrayList<>(Math.min(BATCH_SIZE, mPending.size()));
+        for (OutboxLog.Entry entry : mPending.values()) {
+            if (batch.size() >= BATCH_SIZE) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    /**
+     * 发送一条请求
+     *
+     * @return true表示已处理完成（成功或被丢弃），false表示需要稍后重试
+     */
+    private boolean send(OkHttpClient client, OutboxLog.Entry entry) {
+        Request.Builder builder = new Request.Builder().url(entry.url).tag(Replay.class, new Replay());
+        for (int i = 0; i + 1 < entry.headers.size(); i += 2) {
+            builder.addHeader(entry.headers.get(i), entry.headers.get(i + 1));
+        }
+        RequestBody body = null;
+        if (entry.body != null) {
+            body = RequestBody.create(entry.body, entry.contentType == null ? null : MediaType.parse(entry.contentType));
+        }
+        builder.method(entry.method, body);
+
+        int code = -1;
+        try (Response response = client.newCall(builder.build()).execute()) {
+            code = response.code();
+            if (response.isSuccessful()) {
+                int rtnCode = ResponseConverterFactory.peekCode(response);
+                if (rtnCode == CODE_TOKEN_EXPIRED) {
+                    // token失效，刷新完成后再发送，不计入重试次数；无法刷新时按普通失败重试
+                    if (awaitTokenRefresh(entry)) {
+                        return false;
+                    }
+                    code = rtnCode;
+                } else if (rtnCode != 0 && rtnCode != ResponseConverterFactory.NO_CODE) {
+                    // 接口返回失败，重试也不会成功
+                    drop(entry, rtnCode);
+                    return true;
+                } else {
+                    OutboxListener listener = mListener;
+                    ResponseBody responseBody = response.body();
+                    String result = listener == null || responseBody == null ? null : responseBody.string();
+                    remove(entry);
+                    if (listener != null) {
+                        listener.onReplayed(entry.id, code, result);
+                    }
+                    return true;
+                }
+            }
+            if (code >= 400 && code < 500 && code != 408 && code != 429) {
+                // 服务端拒绝，重试也不会成功
+                drop(entry, code);
+                return true;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "replay failed: " + entry.id, e);
+        }
+        entry.attempts++;
+        if (entry.attempts >= mMaxAttempts) {
+            drop(entry, code);
+            return true;
+        }
+        entry.nextAttemptAt = System.currentTimeMillis() + Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(entry.attempts - 1, 16));
+        synchronized (this) {
+            try {
+                mLog.appendAttempt(entry);
+            } catch (IOException e) {
+                Log.e(TAG, "persist attempt failed: " + entry.id, e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 触发token刷新，刷新完成后立即重新发送
+     *
+     * @return 已开始等待刷新时返回true，没有token失效处理器或当前无法刷新时返回false
+     */
+    private boolean awaitTokenRefresh(OutboxLog.Entry entry) {
+        TokenExpiredHandler handler = mTokenExpiredHandler;
+        Completable refresh = handler == null ? null : handler.onTokenExpired();
+        if (refresh == null) {
+            return false;
+        }
+        // 刷新结果未返回时按最大退避时间兜底，只保存在内存中
+        entry.nextAttemptAt = System.currentTimeMillis() + MAX_BACKOFF_MS;
+        refresh.onErrorComplete().subscribe(() -> mExecutor.execute(() -> {
+            entry.nextAttemptAt = 0;
+            drain();
+        }));
+        return true;
+    }
+
+    private static boolean isCredentialHeader(String name) {
+        return CREDENTIAL_HEADERS.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    private void drop(OutboxLog.Entry entry, int code) {
+        Log.w(TAG, "drop outbox entry: " + entry.id + ", code=" + code);
+        remove(entry);
+        OutboxListener listener = mListener;
+        if (listener != null) {
+            listener.onDropped(entry.id, code);
+        }
+    }
+
+    private synchronized void remove(OutboxLog.Entry entry) {
+        mPending.remove(entry.id);
+        try {
+            mLog.appendRemove(entry.id);
+            if (mLog.getGarbage() > COMPACT_THRESHOLD) {
+                mLog.compact(mPending.values());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "persist remove failed: " + entry.id, e);
+        }
+    }
+
+    private void scheduleReplay(long delayMs) {
+        synchronized (this) {
+            if (mReplayScheduled) {
+                return;
+            }
+            mReplayScheduled = true;
+        }
+        mExecutor.schedule(this::drain, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void registerNetworkCallback() {
+        try {
+            Context context = AppContext.getInstance().getContext();
+            ConnectivityManager cm = (ConnectivityManager)context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (cm == null) {
+                return;
+            }
+            NetworkRequest request =
+                new NetworkRequest.Builder().addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET).build();
+            cm.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    replay();
+                }
+            });
+        } catch (Exception e) {
+            Log.w(TAG, "register network callback failed", e);
+        }
+    }
+
+    static boolean isNetworkAvailable() {
+        try {
+            return NetWorkUtils.isNetworkAvailable();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import com.wty.foundation.core.exception.OfflineQueuedException;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/27 11:40
+ * @describe 为带OfflineQueue注解的修改类请求添加幂等键，无网络、网络错误或队列中还有未发送的请求时写入离线队列
+ */
+class OutboxInterceptor implements Interceptor {
+    private final Outbox mOutbox;
+
+    OutboxInterceptor(Outbox outbox) {
+        mOutbox = outbox;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isQueueable(request)) {
+            return chain.proceed(request);
+        }
+        if (request.header(Outbox.HEADER_IDEMPOTENCY_KEY) == null) {
+            request = request.newBuilder().header(Outbox.HEADER_IDEMPOTENCY_KEY, UUID.randomUUID().toString()).build();
+        }
+        if (!Outbox.isNetworkAvailable() || mOutbox.size() > 0) {
+            // 队列中还有未发送的请求时也加入队列，排在其后发送，保证按加入顺序到达服务端
+            String id = mOutbox.enqueue(request);
+            mOutbox.replay();
+            throw new OfflineQueuedException(id, null);
+        }
+        try {
+            return chain.proceed(request);
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                throw e;
+            }
+            // 请求可能已到达服务端，重新发送时由幂等键去重
+            String id;
+            try {
+                id = mOutbox.enqueue(request);
+            } catch (IOException queueError) {
+                // 无法加入队列时返回原始网络错误
+                e.addSuppressed(queueError);
+                throw e;
+            }
+            mOutbox.replay();
+            throw new OfflineQueuedException(id, e);
+        }
+    }
+
+    private static boolean isQueueable(Request request) {
+        if (request.tag(Outbox.Replay.class) != null) {
+            return false;
+        }
+        String method = request.method();
+        if (!"POST".equals(method) && !"PUT".equals(method) && !"PATCH".equals(method) && !"DELETE".equals(method)) {
+            return false;
+        }
+        RequestBody body = request.body();
+        if (body != null && (body.isOneShot() || body.isDuplex())) {
+            return false;
+        }
+        Invocation invocation = request.tag(Invocation.class);
+        return invocation != null && invocation.method().isAnnotationPresent(OfflineQueue.class);
+    }
+}
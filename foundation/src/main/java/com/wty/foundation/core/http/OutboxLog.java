@@ -0,0 +1,341 @@
+package com.wty.foundation.core.http;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.wty.foundation.common.utils.CloseableUtils;
+
+import android.util.Log;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/27 10:10
+ * @describe 离线队列的追加写日志文件。每条记录格式为：长度(int) + 内容 + CRC32(long)，
+ *           写入后立即sync；加载时遇到不完整或校验失败的记录会截断文件，校验通过但内容无法解析的记录跳过，
+ *           删除记录过多时重写文件。所有记录的字符串字段（包括记录ID）按长度(int) + UTF-8写入，不受writeUTF的64KB限制，长度为-1表示null
+ */
+final class OutboxLog {
+    private static final String TAG = "OutboxLog";
+    private static final byte TYPE_ENQUEUE = 1;
+    private static final byte TYPE_ATTEMPT = 2;
+    private static final byte TYPE_REMOVE = 3;
+    // 单条记录最大长度，超过视为文件损坏
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    // 请求体最大长度，给请求头等字段预留空间，保证写入的记录都能被重新读取
+    static final int MAX_BODY_SIZE = MAX_RECORD_SIZE - 1024 * 1024;
+
+    private final File mFile;
+    private FileOutputStream mOut;
+    // 不再有效的记录数，用于判断是否需要重写文件
+    private int mGarbage;
+
+    /**
+     * 队列中的一条请求
+     */
+    static final class Entry {
+        String id;
+        long createdAt;
+        String method;
+        String url;
+        // 请求头，按名称、值交替存放
+        List<String> headers;
+        String contentType;
+        byte[] body;
+        int attempts;
+        long nextAttemptAt;
+    }
+
+    OutboxLog(File file) {
+        mFile = file;
+    }
+
+    /**
+     * 读取日志文件，恢复队列中未完成的请求
+     *
+     * @return 按加入顺序排列的请求
+     */
+    LinkedHashMap<String, Entry> load() throws IOException {
+        LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+        File parent = mFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create outbox dir: " + parent);
+        }
+        long validLength = 0;
+        int records = 0;
+        if (mFile.exists()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            try {
+                while (true) {
+                    byte[] payload = readRecord(in);
+                    if (payload == null) {
+                        break;
+                    }
+                    try {
+                        apply(entries, payload);
+                    } catch (IOException e) {
+                        // 记录完整但内容无法解析，跳过该条继续读取，重写文件时丢弃
+                        Log.e(TAG, "skip malformed outbox record at " + validLength, e);
+                    }
+                    records++;
+                    validLength += 4 + payload.length + 8;
+                }
+            } finally {
+                CloseableUtils.close(in);
+            }
+            if (validLength < mFile.length()) {
+                // 上次写入时崩溃，丢弃不完整的尾部记录
+                Log.w(TAG, "truncate corrupted outbox tail: " + (mFile.length() - validLength) + " bytes");
+                RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+                try {
+                    raf.setLength(validLength);
+                } finally {
+                    CloseableUtils.close(raf);
+                }
+            }
+        }
+        mGarbage = records - entries.size();
+        mOut = new FileOutputStream(mFile, true);
+        return entries;
+    }
+
+    /**
+     * 写入入队记录
+     *
+     * @throws IOException 写入失败，或记录超过读取时允许的最大长度（不写入，避免加载时被当作损坏截断后续记录）
+     */
+    void appendEnqueue(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (entry.body == null ? 0 : entry.body.length));
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeEnqueue(out, entry);
+        if (bytes.size() > MAX_RECORD_SIZE) {
+            throw new IOException("Outbox record too large: " + bytes.size());
+        }
+        append(bytes.toByteArray());
+    }
+
+    void appendAttempt(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeAttempt(out, entry);
+        append(bytes.toByteArray());
+        mGarbage++;
+    }
+
+    void appendRemove(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_REMOVE);
+        writeString(out, id);
+        append(bytes.toByteArray());
+        // 删除记录本身及对应的入队记录都已无效
+        mGarbage += 2;
+    }
+
+    int getGarbage() {
+        return mGarbage;
+    }
+
+    /**
+     * 只保留未完成的请求重写日志文件，先写临时文件再重命名，保证重写过程中崩溃不丢数据
+     *
+     * @param entries 未完成的请求
+     */
+    void compact(Collection<Entry> entries) throws IOException {
+        File tmp = new File(mFile.getPath() + ".tmp");
+        FileOutputStream tmpOut = new FileOutputStream(tmp);
+        try {
+            for (Entry entry : entries) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                DataOutputStream out = new DataOutputStream(bytes);
+                writeEnqueue(out, entry);
+                tmpOut.write(frame(bytes.toByteArray()));
+                if (entry.attempts > 0) {
+                    bytes.reset();
+                    writeAttempt(out, entry);
+                    tmpOut.write(frame(bytes.toByteArray()));
+                }
+            }
+            tmpOut.getFD().sync();
+        } finally {
+            CloseableUtils.close(tmpOut);
+        }
+        CloseableUtils.close(mOut);
+        if (!tmp.renameTo(mFile)) {
+            mOut = new FileOutputStream(mFile, true);
+            throw new IOException("Failed to replace outbox log");
+        }
+        mOut = new FileOutputStream(mFile, true);
+        mGarbage = 0;
+    }
+
+    void close() {
+        CloseableUtils.close(mOut);
+    }
+
+    private void append(byte[] payload) throws IOException {
+        mOut.write(frame(payload));
+        mOut.getFD().sync();
+    }
+
+    private static byte[] frame(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 12);
+        DataOutputStream out = new DataOutputStream(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 读取一条记录
+     *
+     * @return 记录内容，到达文件末尾或记录损坏时返回null
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            long expected = in.readLong();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return crc.getValue() == expected ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void apply(LinkedHashMap<String, Entry> entries, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_ENQUEUE:
+                Entry entry = new Entry();
+                entry.id = readString(in);
+                entry.createdAt = in.readLong();
+                entry.method = readString(in);
+                entry.url = readString(in);
+                if (entry.id == null || entry.method == null || entry.url == null) {
+                    throw new IOException("Missing required outbox field");
+                }
+                int headerCount = in.readInt();
+                if (headerCount < 0 || headerCount > in.available()) {
+                    throw new IOException("Invalid header count: " + headerCount);
+                }
+                entry.headers = new ArrayList<>(headerCount * 2);
+                for (int i = 0; i < headerCount * 2; i++) {
+                    entry.headers.add(readString(in));
+                }
+                entry.contentType = readString(in);
+                int bodyLength = in.readInt();
+                if (bodyLength > in.available()) {
+                    throw new IOException("Invalid body length: " + bodyLength);
+                }
+                if (bodyLength >= 0) {
+                    entry.body = new byte[bodyLength];
+                    in.readFully(entry.body);
+                }
+                entries.put(entry.id, entry);
+                break;
+            case TYPE_ATTEMPT:
+                Entry target = entries.get(readId(in));
+                if (target != null) {
+                    target.attempts = in.readInt();
+                    target.nextAttemptAt = in.readLong();
+                }
+                break;
+            case TYPE_REMOVE:
+                entries.remove(readId(in));
+                break;
+            default:
+                Log.w(TAG, "unknown outbox record type: " + type);
+                break;
+        }
+    }
+
+    private static void writeEnqueue(DataOutputStream out, Entry entry) throws IOException {
+        out.writeByte(TYPE_ENQUEUE);
+        writeString(out, entry.id);
+        out.writeLong(entry.createdAt);
+        writeString(out, entry.method);
+        writeString(out, entry.url);
+        out.writeInt(entry.headers.size() / 2);
+        for (String value : entry.headers) {
+            writeString(out, value);
+        }
+        writeString(out, entry.contentType);
+        if (entry.body == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+        }
+    }
+
+    /**
+     * 写入长度(int) + UTF-8内容，null写入长度-1
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * 读取长度(int) + UTF-8内容，长度-1表示null
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取重试、删除记录中的记录ID，不能为null
+     */
+    private static String readId(DataInputStream in) throws IOException {
+        String id = readString(in);
+        if (id == null) {
+            throw new IOException("Missing outbox entry id");
+        }
+        return id;
+    }
+
+    private static void writeAttempt(DataOutputStream out, Entry entry) throws IOException {
+        out.writeByte(TYPE_ATTEMPT);
+        writeString(out, entry.id);
+        out.writeInt(entry.attempts);
+        out.writeLong(entry.nextAttemptAt);
+    }
+}
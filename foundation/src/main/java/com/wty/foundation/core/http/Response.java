@@ -6,6 +6,11 @@ package com.wty.foundation.core.http;
  * @describe 网络请求响应数据封装类，包含状态码、消息和返回数据
  */
 public class Response<T> {
+    /**
+     * token失效返回码
+     */
+    public static final int CODE_TOKEN_EXPIRED = -2;
+
     /**
      * 返回码
      */
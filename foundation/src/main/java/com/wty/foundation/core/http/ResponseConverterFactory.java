@@ -0,0 +1,240 @@
+package com.wty.foundation.core.http;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.Okio;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/11 9:15
+ * @describe 流式解析Response信封（rtnCode/rtnMsg/rtnData）的转换器，边读边解析，不把响应体读成字符串；
+ *           其他类型交给GsonConverterFactory处理
+ */
+public class ResponseConverterFactory extends Converter.Factory {
+    /**
+     * peekCode未读取到rtnCode时的返回值
+     */
+    public static final int NO_CODE = Integer.MIN_VALUE;
+
+    private final Gson mGson;
+    private final GsonConverterFactory mDelegate;
+    // 解析耗时统计，未开启统计时为null
+    private volatile HttpMetrics mMetrics;
+
+    public static ResponseConverterFactory create() {
+        return create(new Gson());
+    }
+
+    public static ResponseConverterFactory create(Gson gson) {
+        if (gson == null) {
+            throw new IllegalArgumentException("Gson is null");
+        }
+        return new ResponseConverterFactory(gson);
+    }
+
+    private ResponseConverterFactory(Gson gson) {
+        mGson = gson;
+        mDelegate = GsonConverterFactory.create(gson);
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type, @NonNull Annotation[] annotations,
+        @NonNull Retrofit retrofit) {
+        Converter<ResponseBody, ?> converter;
+        if (getRawType(type) != Response.class) {
+            converter = mDelegate.responseBodyConverter(type, annotations, retrofit);
+        } else {
+            Type dataType =
+                type instanceof ParameterizedType ? getParameterUpperBound(0, (ParameterizedType)type) : Object.class;
+            converter = new EnvelopeConverter<>(mGson, mGson.getAdapter(TypeToken.get(dataType)));
+        }
+        return converter == null ? null : new TimedConverter<>(this, HttpMetrics.templateOf(annotations), converter);
+    }
+
+    /**
+     * 设置解析耗时统计
+     *
+     * @param metrics 耗时统计，为null时不统计
+     */
+    void setMetrics(HttpMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@NonNull Type type, @NonNull Annotation[] parameterAnnotations,
+        @NonNull Annotation[] methodAnnotations, @NonNull Retrofit retrofit) {
+        return mDelegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    /**
+     * 只读取响应体开头直到rtnCode字段，不消费响应体，用于在拦截器中判断返回码
+     *
+     * @param source 响应体数据源
+     * @param charset 响应体编码
+     * @return rtnCode的值，不是Response格式或读取失败时返回{@link #NO_CODE}
+     */
+    public static int peekCode(BufferedSource source, Charset charset) {
+        JsonReader reader = new JsonReader(new InputStreamReader(source.peek().inputStream(), charset));
+        reader.setLenient(true);
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return NO_CODE;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("rtnCode".equals(reader.nextName()) && reader.peek() == JsonToken.NUMBER) {
+                    return reader.nextInt();
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // 非JSON对象或格式错误，交由后续转换器处理
+        }
+        return NO_CODE;
+    }
+
+    /**
+     * 预读HTTP响应体中的rtnCode，不消费响应体，响应体经过gzip压缩时先解压（网络拦截器中看到的是原始数据）
+     *
+     * @param response HTTP响应
+     * @return rtnCode的值，没有响应体、不是Response格式或读取失败时返回{@link #NO_CODE}
+     */
+    public static int peekCode(okhttp3.Response response) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return NO_CODE;
+        }
+        BufferedSource source = body.source();
+        if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            source = Okio.buffer(new GzipSource(source.peek()));
+        }
+        Charset utf8 = Charset.forName("UTF-8");
+        MediaType contentType = body.contentType();
+        Charset charset = contentType == null ? utf8 : contentType.charset(utf8);
+        return peekCode(source, charset == null ? utf8 : charset);
+    }
+
+    /**
+     * 记录解析耗时的转换器
+     */
+    private static final class TimedConverter<T> implements Converter<ResponseBody, T> {
+        private final ResponseConverterFactory factory;
+        private final String endpoint;
+        private final Converter<ResponseBody, T> delegate;
+
+        TimedConverter(ResponseConverterFactory factory, String endpoint, Converter<ResponseBody, T> delegate) {
+            this.factory = factory;
+            this.endpoint = endpoint;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public T convert(@NonNull ResponseBody value) throws IOException {
+            HttpMetrics metrics = factory.mMetrics;
+            if (metrics == null) {
+                return delegate.convert(value);
+            }
+            long start = System.nanoTime();
+            try {
+                return delegate.convert(value);
+            } finally {
+                metrics.record(endpoint, HttpMetrics.Phase.PARSE, (System.nanoTime() - start) / 1000);
+            }
+        }
+    }
+
+    /**
+     * Response信封流式转换器
+     */
+    private static final class EnvelopeConverter<T> implements Converter<ResponseBody, Response<T>> {
+        private final Gson gson;
+        private final TypeAdapter<T> dataAdapter;
+
+        EnvelopeConverter(Gson gson, TypeAdapter<T> dataAdapter) {
+            this.gson = gson;
+            this.dataAdapter = dataAdapter;
+        }
+
+        @Override
+        public Response<T> convert(@NonNull ResponseBody value) throws IOException {
+            Response<T> response = new Response<>();
+            try (ResponseBody body = value) {
+                JsonReader reader = gson.newJsonReader(body.charStream());
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    return null;
+                }
+                reader.beginObject();
+                boolean hasCode = false;
+                // rtnCode之前出现的rtnData，先保存为JsonElement，确定不是token失效后再解析
+                JsonElement pendingData = null;
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        continue;
+                    }
+                    switch (name) {
+                        case "rtnCode":
+                            response.setCode(reader.nextInt());
+                            hasCode = true;
+                            break;
+                        case "rtnMsg":
+                            response.setMsg(reader.nextString());
+                            break;
+                        case "rtnData":
+                            // token失效时数据无意义（结构也可能与声明的类型不同），直接跳过不解析
+                            if (!hasCode) {
+                                pendingData = gson.getAdapter(JsonElement.class).read(reader);
+                            } else if (response.getCode() == Response.CODE_TOKEN_EXPIRED) {
+                                reader.skipValue();
+                            } else {
+                                response.setData(dataAdapter.read(reader));
+                            }
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("JSON document was not fully consumed.");
+                }
+                if (pendingData != null && response.getCode() != Response.CODE_TOKEN_EXPIRED) {
+                    response.setData(dataAdapter.fromJsonTree(pendingData));
+                }
+            } catch (IllegalStateException | NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+            return response;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.wty.foundation.core.http;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.util.Map;
@@ -12,11 +14,15 @@ import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import android.util.Log;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
  * @author wutianyu
@@ -24,10 +30,32 @@ import retrofit2.converter.gson.GsonConverterFactory;
  * @describe Retrofit管理器，提供网络请求接口的创建和配置管理功能
  */
 public class RetrofitManager {
+    private static final String TAG = "RetrofitManager";
     // 默认Retrofit实例
     private Retrofit mDefaultRetrofit;
     // 配置信息
     private Config mConfig;
+    // 共享的OkHttpClient，所有BaseUrl共用其连接池、调度器和SSL配置
+    private OkHttpClient mBaseClient;
+    // 共享连接池统计
+    private ConnectionStats mConnectionStats;
+    // 响应缓存统计，未配置缓存目录时为null
+    private CacheStats mCacheStats;
+    // 请求合并统计，未开启请求合并时为null
+    private CoalescingStats mCoalescingStats;
+    // 网络质量统计，未配置网络策略时为null
+    private NetworkQualityStats mNetworkQualityStats;
+    // 按网络策略排队发出请求，未配置网络策略时为null
+    private NetworkAdmission mNetworkAdmission;
+    // 离线请求队列，未配置离线队列目录时为null
+    private Outbox mOutbox;
+    private File mOutboxDir;
+    // 按接口统计的耗时，未开启统计时为null
+    private HttpMetrics mMetrics;
+    // 共享的转换器，流式解析Response
+    private final ResponseConverterFactory mConverterFactory = ResponseConverterFactory.create();
+    // token失效后刷新并重试的适配器，未配置token失效处理器时为null
+    private TokenRefreshCallAdapterFactory mTokenRefreshFactory;
     // 缓存不同BaseUrl对应的Retrofit实例
     private final Map<String, Retrofit> retrofitCache = new ConcurrentHashMap<>();
 
@@ -62,6 +90,11 @@ public class RetrofitManager {
             throw new IllegalArgumentException("Config is null");
         }
         this.mConfig = config;
+        this.mBaseClient = buildOkhttpClient(config);
+        TokenExpiredHandler tokenExpiredHandler = config.getTokenExpiredHandler();
+        this.mTokenRefreshFactory = tokenExpiredHandler == null ? null : new TokenRefreshCallAdapterFactory(tokenExpiredHandler);
+        // 重新初始化后旧的Retrofit实例不再使用新的配置，需要重建
+        retrofitCache.clear();
         this.mDefaultRetrofit = buildRetrofit(config.getBaseUrl());
     }
 
@@ -76,13 +109,23 @@ public class RetrofitManager {
             throw new IllegalArgumentException("BaseUrl must start with http:// or https:// : " + baseUrl);
         }
 
-        OkHttpClient client = buildOkhttpClient(mConfig);
-        return new Retrofit.Builder().baseUrl(baseUrl).client(client).addConverterFactory(GsonConverterFactory.create()).addCallAdapterFactory(RxJava3CallAdapterFactory.create()).build();
+        // 通过newBuilder()派生，共享连接池、调度器线程和TLS会话
+        OkHttpClient client = mBaseClient.newBuilder().build();
+        Retrofit.Builder builder = new Retrofit.Builder().baseUrl(baseUrl).client(client).addConverterFactory(mConverterFactory);
+        if (mTokenRefreshFactory != null) {
+            builder.addCallAdapterFactory(mTokenRefreshFactory);
+        }
+        // 在token刷新之后，token失效后重新发起的请求同样需要排队
+        if (mNetworkAdmission != null) {
+            builder.addCallAdapterFactory(new NetworkAdmissionCallAdapterFactory(mNetworkAdmission));
+        }
+        // 异步执行，请求由OkHttp调度器（并发数受maxRequests限制）执行，不占用订阅所在的线程
+        return builder.addCallAdapterFactory(RxJava3CallAdapterFactory.createAsync()).build();
     }
 
     /**
-     * 构建OkHttpClient实例
-     * 配置超时时间、SSL证书信任和拦截器
+     * 构建共享的OkHttpClient实例
+     * 配置超时时间、连接池、调度器、SSL证书信任和拦截器
      * @param config 配置信息
      * @return 构建好的OkHttpClient实例
      * @throws RuntimeException 当SSL配置失败时抛出
@@ -109,14 +152,62 @@ public class RetrofitManager {
             SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(null, new TrustManager[]{trustAllManager}, new SecureRandom());
 
+            // 共享连接池与调度器
+            ConnectionPool connectionPool = new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAliveDurationMs(), TimeUnit.MILLISECONDS);
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(config.getMaxRequests());
+            dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+            mConnectionStats = new ConnectionStats(connectionPool);
+
             // 构建OkHttpClient
-            OkHttpClient.Builder builder = new OkHttpClient.Builder().connectTimeout(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS).readTimeout(config.getReadTimeoutTimeoutMs(), TimeUnit.MILLISECONDS).writeTimeout(config.getWriteTimeoutTimeoutMs(), TimeUnit.MILLISECONDS).sslSocketFactory(sslContext.getSocketFactory(), trustAllManager).hostnameVerifier(new HostnameVerifier() {
+            OkHttpClient.Builder builder = new OkHttpClient.Builder().connectionPool(connectionPool).dispatcher(dispatcher).eventListener(mConnectionStats).connectTimeout(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS).readTimeout(config.getReadTimeoutTimeoutMs(), TimeUnit.MILLISECONDS).writeTimeout(config.getWriteTimeoutTimeoutMs(), TimeUnit.MILLISECONDS).sslSocketFactory(sslContext.getSocketFactory(), trustAllManager).hostnameVerifier(new HostnameVerifier() {
                 @Override
                 public boolean verify(String hostname, SSLSession session) {
                     return true; // 信任所有主机名
                 }
             });
 
+            // 耗时统计，每个请求创建一个记录各阶段耗时的EventListener，连接池统计事件由其转发
+            mMetrics = null;
+            if (config.isMetricsEnabled()) {
+                mMetrics = new HttpMetrics();
+                builder.eventListenerFactory(mMetrics.eventListenerFactory(mConnectionStats));
+            }
+            mConverterFactory.setMetrics(mMetrics);
+
+            // 响应缓存，缓存拦截器放在最外层
+            CacheInterceptor cacheInterceptor = null;
+            mCacheStats = null;
+            if (config.getCacheDir() != null) {
+                Cache cache = new Cache(config.getCacheDir(), config.getCacheMaxSize());
+                mCacheStats = new CacheStats(cache);
+                cacheInterceptor = new CacheInterceptor(mCacheStats);
+                builder.cache(cache).addInterceptor(cacheInterceptor).addNetworkInterceptor(cacheInterceptor.networkInterceptor());
+            }
+
+            // 请求合并，放在缓存之后，命中缓存的请求不需要合并
+            mCoalescingStats = null;
+            if (config.isRequestCoalescing()) {
+                mCoalescingStats = new CoalescingStats();
+                builder.addInterceptor(new CoalescingInterceptor(mCoalescingStats));
+            }
+
+            // 离线队列，放在网络策略之前，加入离线队列的请求直接失败并立即归还并发名额
+            Outbox outbox = getOrCreateOutbox(config);
+            if (outbox != null) {
+                builder.addInterceptor(new OutboxInterceptor(outbox));
+            }
+
+            // 按网络类型设置超时并记录主机耗时；并发限制在请求加入调度器之前由NetworkAdmissionCallAdapterFactory处理，
+            // 等待名额时不占用调度器线程和每个主机的请求数
+            mNetworkQualityStats = null;
+            mNetworkAdmission = null;
+            if (config.getNetworkPolicy() != null) {
+                mNetworkQualityStats = new NetworkQualityStats();
+                mNetworkAdmission = new NetworkAdmission(config.getNetworkPolicy(), mNetworkQualityStats);
+                builder.addInterceptor(new NetworkQualityInterceptor(mNetworkAdmission));
+            }
+
             // 添加应用拦截器
             for (Interceptor interceptor : config.getInterceptor()) {
                 builder.addInterceptor(interceptor);
@@ -125,12 +216,44 @@ public class RetrofitManager {
             for (Interceptor interceptor : config.getNetworkInterceptor()) {
                 builder.addNetworkInterceptor(interceptor);
             }
-            return builder.build();
+            OkHttpClient client = builder.build();
+            if (cacheInterceptor != null) {
+                cacheInterceptor.attach(client);
+            }
+            if (outbox != null) {
+                outbox.attach(client, config.getTokenExpiredHandler());
+            }
+            return client;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 获取离线队列，目录未变化时复用已加载的队列
+     * @param config 配置信息
+     * @return 离线队列，未配置目录或加载失败时返回null
+     */
+    private Outbox getOrCreateOutbox(Config config) {
+        File dir = config.getOutboxDir();
+        if (dir == null) {
+            mOutbox = null;
+            mOutboxDir = null;
+            return null;
+        }
+        if (mOutbox == null || !dir.equals(mOutboxDir)) {
+            try {
+                mOutbox = new Outbox(dir, config.getOutboxMaxAttempts());
+                mOutboxDir = dir;
+            } catch (IOException e) {
+                Log.e(TAG, "load outbox failed", e);
+                mOutbox = null;
+                mOutboxDir = null;
+            }
+        }
+        return mOutbox;
+    }
+
     /**
      * 创建API服务接口实例（使用默认BaseUrl）
      * @param service 接口类
@@ -170,4 +293,56 @@ public class RetrofitManager {
         }
         return retrofit.create(service);
     }
+
+    /**
+     * 获取共享连接池统计信息
+     * @return 连接池统计
+     * @throws IllegalStateException 当未初始化时抛出
+     */
+    public ConnectionStats getConnectionStats() {
+        if (mConnectionStats == null) {
+            throw new IllegalStateException("RetrofitManager is not initialized, call init() first.");
+        }
+        return mConnectionStats;
+    }
+
+    /**
+     * 获取响应缓存统计信息
+     * @return 缓存统计，未在Config中设置缓存目录时返回null
+     */
+    public CacheStats getCacheStats() {
+        return mCacheStats;
+    }
+
+    /**
+     * 获取请求合并统计信息
+     * @return 请求合并统计，Config中关闭请求合并时返回null
+     */
+    public CoalescingStats getCoalescingStats() {
+        return mCoalescingStats;
+    }
+
+    /**
+     * 获取网络质量统计信息
+     * @return 网络质量统计，未在Config中设置网络策略时返回null
+     */
+    public NetworkQualityStats getNetworkQualityStats() {
+        return mNetworkQualityStats;
+    }
+
+    /**
+     * 获取离线请求队列
+     * @return 离线队列，未在Config中设置离线队列目录时返回null
+     */
+    public Outbox getOutbox() {
+        return mOutbox;
+    }
+
+    /**
+     * 获取按接口统计的耗时
+     * @return 耗时统计，未在Config中开启统计时返回null
+     */
+    public HttpMetrics getMetrics() {
+        return mMetrics;
+    }
 }
@@ -0,0 +1,34 @@
+package com.wty.foundation.core.http;
+
+import androidx.annotation.Nullable;
+
+import io.reactivex.rxjava3.core.Completable;
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/13 15:20
+ * @describe token失效处理接口，接口返回token失效时由RetrofitManager调用，刷新完成后自动重新发起原请求；
+ *           返回Observable、Flowable、Single、Maybe、Completable、Call的接口会自动重新发起，不是通过接口方法发出的请求不会重新发起
+ */
+public interface TokenExpiredHandler {
+    /**
+     * 接口返回token失效
+     *
+     * @return 刷新完成时结束的Completable，多个请求同时失效时应返回同一个刷新过程；返回null表示不刷新，直接把结果返回给调用方
+     */
+    @Nullable
+    Completable onTokenExpired();
+
+    /**
+     * 判断请求在token刷新后是否会由RetrofitManager自动重新发起
+     *
+     * @param request 请求
+     * @return 请求来自返回Observable、Flowable、Single、Maybe、Completable、Call的接口方法时返回true，其他请求返回false
+     */
+    static boolean isRetriedAfterRefresh(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        return invocation != null && TokenRefreshCallAdapterFactory.isSupported(invocation.method().getReturnType());
+    }
+}
@@ -0,0 +1,284 @@
+package com.wty.foundation.core.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.reflect.TypeToken;
+import com.wty.foundation.common.utils.CloseableUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Retrofit;
+
+/**
+ * @author wutianyu
+ * @createTime 2024/6/13 15:42
+ * @describe 接口返回token失效时等待刷新完成后重新订阅原请求，等待期间不占用线程，重试的请求经过完整的拦截器链。
+ *           支持Observable、Flowable、Single、Maybe、Completable和Call。Completable按ResponseBody请求，预读rtnCode判断token失效；
+ *           Call异步执行时在刷新完成后重新发起，同步执行时在调用方线程等待刷新完成
+ */
+final class TokenRefreshCallAdapterFactory extends CallAdapter.Factory {
+    // 每次调用最多因token失效重试的次数
+    private static final int MAX_REFRESH_ATTEMPTS = 1;
+
+    private final TokenExpiredHandler mHandler;
+
+    TokenRefreshCallAdapterFactory(TokenExpiredHandler handler) {
+        mHandler = handler;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+        @NonNull Retrofit retrofit) {
+        Class<?> rawType = getRawType(returnType);
+        if (!isSupported(rawType)) {
+            return null;
+        }
+        if (rawType == Completable.class) {
+            return completableAdapter(annotations, retrofit);
+        }
+        final CallAdapter<Object, Object> delegate =
+            (CallAdapter<Object, Object>)retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Object, Object>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Object adapt(@NonNull Call<Object> call) {
+                Object adapted = delegate.adapt(call);
+                if (adapted instanceof Observable) {
+                    return withRefresh((Observable<Object>)adapted, 0);
+                }
+                if (adapted instanceof Flowable) {
+                    return withRefresh(((Flowable<Object>)adapted).toObservable(), 0)
+                        .toFlowable(BackpressureStrategy.BUFFER);
+                }
+                if (adapted instanceof Single) {
+                    return withRefresh(((Single<Object>)adapted).toObservable(), 0).singleOrError();
+                }
+                if (adapted instanceof Maybe) {
+                    return withRefresh(((Maybe<Object>)adapted).toObservable(), 0).singleElement();
+                }
+                if (adapted instanceof Call) {
+                    return new RefreshCall<>((Call<Object>)adapted, 0);
+                }
+                return adapted;
+            }
+        };
+    }
+
+    /**
+     * Completable丢弃响应体，改为按Observable&lt;ResponseBody&gt;请求，判断token失效后再忽略结果
+     */
+    @SuppressWarnings("unchecked")
+    private CallAdapter<?, ?> completableAdapter(Annotation[] annotations, Retrofit retrofit) {
+        Type bodyType = TypeToken.getParameterized(Observable.class, ResponseBody.class).getType();
+        final CallAdapter<Object, Object> delegate =
+            (CallAdapter<Object, Object>)retrofit.nextCallAdapter(this, bodyType, annotations);
+        return new CallAdapter<Object, Object>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Object adapt(@NonNull Call<Object> call) {
+                return withRefresh((Observable<Object>)delegate.adapt(call), 0).doOnNext(TokenRefreshCallAdapterFactory::close)
+                    .ignoreElements();
+            }
+        };
+    }
+
+    private Observable<Object> withRefresh(Observable<Object> source, int attempt) {
+        return source.concatMap(result -> {
+            if (attempt < MAX_REFRESH_ATTEMPTS && isTokenExpired(result)) {
+                Completable refresh = mHandler.onTokenExpired();
+                if (refresh != null) {
+                    close(result);
+                    // 刷新通常在主线程完成，重新订阅前切回IO线程，重新订阅只把请求加入OkHttp调度器
+                    return refresh.observeOn(HttpSchedulers.io(HttpSchedulers.Priority.HIGH)).andThen(withRefresh(source, attempt + 1));
+                }
+            }
+            return Observable.just(result);
+        });
+    }
+
+    /**
+     * 判断接口方法返回类型是否由本适配器在token刷新后重新订阅
+     */
+    static boolean isSupported(Class<?> rawType) {
+        return rawType == Observable.class || rawType == Flowable.class || rawType == Single.class || rawType == Maybe.class
+            || rawType == Completable.class || rawType == Call.class;
+    }
+
+    private static boolean isTokenExpired(Object result) {
+        if (result instanceof retrofit2.Response) {
+            result = ((retrofit2.Response<?>)result).body();
+        }
+        if (result instanceof ResponseBody) {
+            ResponseBody body = (ResponseBody)result;
+            MediaType contentType = body.contentType();
+            Charset charset = contentType == null ? StandardCharsets.UTF_8 : contentType.charset(StandardCharsets.UTF_8);
+            return ResponseConverterFactory.peekCode(body.source(), charset) == Response.CODE_TOKEN_EXPIRED;
+        }
+        return result instanceof Response && ((Response<?>)result).getCode() == Response.CODE_TOKEN_EXPIRED;
+    }
+
+    /**
+     * 关闭重试前丢弃的结果中的响应体
+     */
+    private static void close(Object result) {
+        if (result instanceof retrofit2.Response) {
+            CloseableUtils.close(((retrofit2.Response<?>)result).errorBody());
+            result = ((retrofit2.Response<?>)result).body();
+        }
+        if (result instanceof Closeable) {
+            CloseableUtils.close((Closeable)result);
+        }
+    }
+
+    /**
+     * 返回token失效时刷新后重新发起的Call。enqueue在刷新完成后异步重新发起，不占用线程；
+     * execute在调用方线程等待刷新完成，不要在主线程调用
+     */
+    private final class RefreshCall<T> implements Call<T> {
+        private final Call<T> mDelegate;
+        private final int mAttempt;
+        // 当前正在执行的请求，重新发起后指向新的请求，用于取消
+        private volatile Call<T> mCurrent;
+        private volatile boolean mCanceled;
+
+        RefreshCall(Call<T> delegate, int attempt) {
+            mDelegate = delegate;
+            mAttempt = attempt;
+            mCurrent = delegate;
+        }
+
+        @NonNull
+        @Override
+        public retrofit2.Response<T> execute() throws IOException {
+            retrofit2.Response<T> response = mDelegate.execute();
+            int attempt = mAttempt;
+            while (attempt < MAX_REFRESH_ATTEMPTS && !mCanceled && isTokenExpired(response)) {
+                Completable refresh = mHandler.onTokenExpired();
+                if (refresh == null) {
+                    break;
+                }
+                try {
+                    refresh.blockingAwait();
+                } catch (RuntimeException e) {
+                    break;
+                }
+                close(response);
+                Call<T> retry = mDelegate.clone();
+                mCurrent = retry;
+                if (mCanceled) {
+                    retry.cancel();
+                }
+                response = retry.execute();
+                attempt++;
+            }
+            return response;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            mDelegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull retrofit2.Response<T> response) {
+                    Completable refresh = mAttempt < MAX_REFRESH_ATTEMPTS && !mCanceled && isTokenExpired(response)
+                        ? mHandler.onTokenExpired() : null;
+                    if (refresh == null) {
+                        callback.onResponse(RefreshCall.this, response);
+                        return;
+                    }
+                    refresh.onErrorComplete().subscribe(() -> {
+                        if (mCanceled) {
+                            callback.onFailure(RefreshCall.this, new IOException("Canceled"));
+                            return;
+                        }
+                        close(response);
+                        RefreshCall<T> retry = new RefreshCall<>(mDelegate.clone(), mAttempt + 1);
+                        mCurrent = retry.mDelegate;
+                        retry.enqueue(new Callback<T>() {
+                            @Override
+                            public void onResponse(@NonNull Call<T> call, @NonNull retrofit2.Response<T> response) {
+                                callback.onResponse(RefreshCall.this, response);
+                            }
+
+                            @Override
+                            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                                callback.onFailure(RefreshCall.this, t);
+                            }
+                        });
+                    });
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    callback.onFailure(RefreshCall.this, t);
+                }
+            });
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return mDelegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled = true;
+            mCurrent.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mCanceled || mCurrent.isCanceled();
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new RefreshCall<>(mDelegate.clone(), mAttempt);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return mCurrent.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return mCurrent.timeout();
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.wty.foundation.core.utils;
 
 import com.wty.foundation.core.exception.ServerException;
+import com.wty.foundation.core.http.CommonSchedulers;
+import com.wty.foundation.core.http.HttpSchedulers;
 import com.wty.foundation.core.http.Response;
 
 import android.util.Log;
 
-import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Observable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.core.Scheduler;
 
 /**
  * @author wutianyu
@@ -30,15 +31,29 @@ public class HttpResponseHelper {
      * 处理网络请求结果
      *
      * @param observable 网络请求Observable<Response<T>>
-     * @param isMain true回调在主线程，false在IO线程
+     * @param isMain true回调在主线程，false在OkHttp请求线程
      * @param taskResult 结果回调
      * @param <T> 实体类
      */
     public static <T> void doResult(Observable<Response<T>> observable, boolean isMain,
         TaskResult<Response<T>> taskResult) {
-        observable = observable.subscribeOn(Schedulers.io());
+        doResult(observable, HttpSchedulers.io(), isMain, taskResult);
+    }
+
+    /**
+     * 处理网络请求结果
+     *
+     * @param observable 网络请求Observable<Response<T>>
+     * @param scheduler 订阅请求的调度器，见{@link HttpSchedulers}
+     * @param isMain true回调在主线程，false在请求线程
+     * @param taskResult 结果回调
+     * @param <T> 实体类
+     */
+    public static <T> void doResult(Observable<Response<T>> observable, Scheduler scheduler, boolean isMain,
+        TaskResult<Response<T>> taskResult) {
+        observable = observable.subscribeOn(scheduler);
         if (isMain) {
-            observable = observable.observeOn(AndroidSchedulers.mainThread());
+            observable = observable.compose(CommonSchedulers.toMain());
         }
         observable.subscribe(tResponse -> {
             if (!tResponse.isSuccess()) {
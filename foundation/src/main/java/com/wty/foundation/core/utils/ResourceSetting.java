@@ -2,13 +2,15 @@ package com.wty.foundation.core.utils;
 
 import android.app.Activity;
 import android.app.Application;
-import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.os.Build;
 import android.util.DisplayMetrics;
 import android.util.Log;
 
+import com.wty.foundation.common.utils.LruCacheUtils;
+
 /**
  * @author wutianyu
  * @createTime 2023/6/7 14:55
@@ -23,7 +25,7 @@ public class ResourceSetting {
     }
 
     /**
-     * 初始化适配参数
+     * 初始化适配参数，同时注册内存不足回调，收缩LruCacheUtils各区域的内存缓存
      *
      * @param application 应用上下文
      */
@@ -34,7 +36,7 @@ public class ResourceSetting {
                 sNonCompatDensity = dm.density;
                 sNonCompatScaledDensity = dm.scaledDensity;
 
-                application.registerComponentCallbacks(new ComponentCallbacks() {
+                application.registerComponentCallbacks(new ComponentCallbacks2() {
                     @Override
                     public void onConfigurationChanged(Configuration newConfig) {
                         if (newConfig != null && newConfig.fontScale > 0) {
@@ -44,6 +46,12 @@ public class ResourceSetting {
 
                     @Override
                     public void onLowMemory() {
+                        LruCacheUtils.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+                    }
+
+                    @Override
+                    public void onTrimMemory(int level) {
+                        LruCacheUtils.onTrimMemory(level);
                     }
                 });
             }
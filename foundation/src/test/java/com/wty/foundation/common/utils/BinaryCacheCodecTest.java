@@ -0,0 +1,194 @@
+package com.wty.foundation.common.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BinaryCacheCodec的编解码、损坏数据处理，以及与GsonCacheCodec的大小和耗时对比
+ */
+public class BinaryCacheCodecTest {
+    private static final Type ITEM_LIST = new TypeToken<List<Item>>() {
+    }.getType();
+
+    private final Gson gson = new Gson();
+    private final BinaryCacheCodec binary = new BinaryCacheCodec(gson);
+    private final GsonCacheCodec json = new GsonCacheCodec(gson);
+
+    static final class Item {
+        long id;
+        int count;
+        double price;
+        String name;
+        boolean enabled;
+        BigDecimal amount;
+        int[] tags;
+        Item child;
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) return false;
+            Item other = (Item) o;
+            return id == other.id && count == other.count && Double.compare(price, other.price) == 0 && enabled == other.enabled
+                    && Objects.equals(name, other.name) && Objects.equals(amount, other.amount) && Arrays.equals(tags, other.tags)
+                    && Objects.equals(child, other.child);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+
+    private static List<Item> items(int count, long seed) {
+        Random random = new Random(seed);
+        List<Item> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.id = random.nextLong();
+            item.count = random.nextInt(1000) - 500;
+            item.price = random.nextDouble() * 100;
+            item.name = i % 3 == 0 ? null : "商品-" + i;
+            item.enabled = random.nextBoolean();
+            item.amount = new BigDecimal("12345678901234567890.0123456789");
+            item.tags = new int[]{i, -i, Integer.MAX_VALUE, Integer.MIN_VALUE};
+            if (i % 5 == 0) {
+                item.child = new Item();
+                item.child.id = Long.MIN_VALUE;
+                item.child.name = "";
+            }
+            list.add(item);
+        }
+        return list;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<Item> list = items(200, 1);
+        byte[] data = binary.encode(list);
+        List<Item> decoded = binary.decode(data, 0, data.length, ITEM_LIST);
+        assertEquals(list, decoded);
+    }
+
+    @Test
+    public void roundTripWithOffset() throws IOException {
+        byte[] payload = binary.encode(items(3, 2));
+        byte[] data = new byte[payload.length + 10];
+        System.arraycopy(payload, 0, data, 7, payload.length);
+        List<Item> decoded = binary.decode(data, 7, payload.length, ITEM_LIST);
+        assertEquals(items(3, 2), decoded);
+    }
+
+    @Test
+    public void roundTripPrimitivesAndNull() throws IOException {
+        byte[] data = binary.encode(null);
+        assertNull(binary.decode(data, 0, data.length, Item.class));
+        data = binary.encode("文本");
+        assertEquals("文本", binary.decode(data, 0, data.length, String.class));
+        data = binary.encode(Long.MAX_VALUE);
+        assertEquals(Long.valueOf(Long.MAX_VALUE), binary.decode(data, 0, data.length, Long.class));
+        data = binary.encode(new int[0]);
+        assertArrayEquals(new int[0], binary.decode(data, 0, data.length, int[].class));
+    }
+
+    @Test
+    public void truncatedDataFails() throws IOException {
+        byte[] data = binary.encode(items(5, 3));
+        for (int length = 0; length < data.length; length++) {
+            try {
+                binary.decode(data, 0, length, ITEM_LIST);
+                fail("truncated to " + length + " bytes should fail");
+            } catch (IOException expected) {
+                // 截断的数据必须报错，不能返回不完整的对象
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownTagFails() throws IOException {
+        binary.decode(new byte[]{(byte) 0x7F}, 0, 1, Item.class);
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidLengthFails() throws IOException {
+        // TAG_ARRAY后跟一个超过剩余字节数的元素个数
+        binary.decode(new byte[]{6, (byte) 0xFF, (byte) 0xFF, 0x03}, 0, 4, ITEM_LIST);
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidNameIndexFails() throws IOException {
+        // TAG_OBJECT，1个字段，字段名引用不存在的序号
+        binary.decode(new byte[]{7, 1, 5, 0}, 0, 4, Item.class);
+    }
+
+    @Test
+    public void randomCorruptionNeverThrowsUnchecked() {
+        byte[] data = binary.encode(items(20, 4));
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            byte[] corrupted = data.clone();
+            corrupted[random.nextInt(corrupted.length)] = (byte) random.nextInt(256);
+            try {
+                binary.decode(corrupted, 0, corrupted.length, ITEM_LIST);
+            } catch (IOException expected) {
+                // 损坏的数据要么解码为其他对象，要么抛出IOException
+            }
+        }
+    }
+
+    /**
+     * 数字多、列表长的数据，二进制编码应明显小于JSON；耗时只输出不断言
+     */
+    @Test
+    public void compareWithGson() throws IOException {
+        List<Item> list = items(2000, 6);
+        byte[] binaryData = binary.encode(list);
+        byte[] jsonData = json.encode(list);
+        assertTrue("binary " + binaryData.length + " >= json " + jsonData.length, binaryData.length < jsonData.length);
+
+        byte[] binaryWrapped = CacheCodecFormat.wrap(binary.getId(), binaryData, 4096, 0);
+        byte[] jsonWrapped = CacheCodecFormat.wrap(json.getId(), jsonData, 4096, 0);
+
+        int rounds = 20;
+        // 预热
+        measure(binary, list, rounds);
+        measure(json, list, rounds);
+        long[] binaryNanos = measure(binary, list, rounds);
+        long[] jsonNanos = measure(json, list, rounds);
+        System.out.println("BinaryCacheCodec: " + binaryData.length + " bytes (deflate " + binaryWrapped.length + "), encode "
+                + binaryNanos[0] / rounds / 1000 + "us, decode " + binaryNanos[1] / rounds / 1000 + "us");
+        System.out.println("GsonCacheCodec: " + jsonData.length + " bytes (deflate " + jsonWrapped.length + "), encode "
+                + jsonNanos[0] / rounds / 1000 + "us, decode " + jsonNanos[1] / rounds / 1000 + "us");
+    }
+
+    private static long[] measure(CacheCodec codec, List<Item> list, int rounds) throws IOException {
+        long encode = 0;
+        long decode = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            byte[] data = codec.encode(list);
+            long middle = System.nanoTime();
+            List<Item> decoded = codec.decode(data, 0, data.length, ITEM_LIST);
+            decode += System.nanoTime() - middle;
+            encode += middle - start;
+            assertEquals(list.size(), decoded.size());
+        }
+        return new long[]{encode, decode};
+    }
+}
@@ -0,0 +1,289 @@
+package com.wty.foundation.common.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CacheAdmission准入规则，拒绝覆盖时的旧数据处理，以及按访问记录回放时与纯LRU的命中率对比
+ */
+public class CacheAdmissionTest {
+    private static final int ENTRY_SIZE = 1024;
+    private static final int CAPACITY_ENTRIES = 100;
+    // 录制的访问记录文件路径，未设置时使用生成的访问记录
+    private static final String TRACE_PROPERTY = "cache.admission.trace";
+    // 回放时的磁盘容量（字节）
+    private static final String CAPACITY_PROPERTY = "cache.admission.capacity";
+
+    @Test
+    public void frequencyCountsAndSaturates() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency("a"));
+        for (int i = 0; i < 3; i++) {
+            sketch.increment("a");
+        }
+        assertTrue(sketch.frequency("a") >= 3);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("a");
+        }
+        assertEquals(15, sketch.frequency("a"));
+    }
+
+    @Test
+    public void frequencyDecaysAfterSampleSize() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(15, sketch.frequency("hot"));
+        // 累计增加达到采样数(10 * 16)后计数减半
+        for (int i = 0; i < 200; i++) {
+            sketch.increment("other-" + i);
+        }
+        assertTrue(sketch.frequency("hot") < 15);
+    }
+
+    @Test
+    public void admitsWhenCandidateMoreFrequent() {
+        assertTrue(CacheAdmission.shouldAdmit(3, 2));
+        assertFalse(CacheAdmission.shouldAdmit(2, 2));
+        assertFalse(CacheAdmission.shouldAdmit(0, 5));
+    }
+
+    @Test
+    public void admitsWithoutEviction() {
+        CacheAdmission admission = new CacheAdmission(new FrequencySketch(16), 10 * ENTRY_SIZE, 0);
+        assertTrue(admission.admit("a", ENTRY_SIZE, 0));
+        assertEquals(0, admission.rejectionCount());
+    }
+
+    @Test
+    public void rejectsRareCandidateOverFrequentVictim() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        CacheAdmission admission = new CacheAdmission(sketch, 2 * ENTRY_SIZE, 0);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        assertTrue(admission.admit("hot", ENTRY_SIZE, 0));
+        assertTrue(admission.admit("warm", ENTRY_SIZE, ENTRY_SIZE));
+        sketch.increment("warm");
+        sketch.increment("warm");
+        sketch.increment("once");
+        // 磁盘已满，写入"once"需要淘汰最早访问的"hot"
+        assertFalse(admission.admit("once", ENTRY_SIZE, 2 * ENTRY_SIZE));
+        assertEquals(1, admission.rejectionCount());
+    }
+
+    @Test
+    public void rejectedOverwriteDropsOldValue() throws IOException {
+        assertRejectedOverwriteDropsOldValue(false);
+    }
+
+    @Test
+    public void rejectedWriteBehindOverwriteDropsOldValue() throws IOException {
+        assertRejectedOverwriteDropsOldValue(true);
+    }
+
+    /**
+     * 写入v1后用经常访问的数据占满磁盘，再写入更大的v2被准入过滤拒绝，之后不能读到v1
+     */
+    private static void assertRejectedOverwriteDropsOldValue(boolean writeBehind) throws IOException {
+        File dir = Files.createTempDirectory("cache-admission").toFile();
+        LruCacheUtils region = LruCacheUtils.openRegion(new LruCacheUtils.RegionConfig.Builder("admission-overwrite-" + writeBehind)
+            .setDirectory(dir)
+            .setMaxSize(3 * ENTRY_SIZE)
+            .setMemoryCacheSize(0)
+            .setAdmissionEnabled(true)
+            .build());
+        try {
+            assertTrue(region.putStringSync("draft", value('1', ENTRY_SIZE)));
+            assertTrue(region.putStringSync("hot-a", value('a', ENTRY_SIZE)));
+            assertTrue(region.putStringSync("hot-b", value('b', ENTRY_SIZE)));
+            for (int i = 0; i < 10; i++) {
+                assertTrue(region.getStringSync("hot-a") != null);
+                assertTrue(region.getStringSync("hot-b") != null);
+            }
+            String v2 = value('2', 2 * ENTRY_SIZE);
+            if (writeBehind) {
+                region.setFlushPolicy(LruCacheUtils.FlushPolicy.writeBehind(100, 0, false));
+                // 延迟写入时put已返回成功，写入磁盘时才被拒绝
+                assertTrue(region.putStringSync("draft", v2));
+                assertEquals(v2, region.getStringSync("draft"));
+                assertFalse(region.flush());
+            } else {
+                assertFalse(region.putStringSync("draft", v2));
+            }
+            assertNull(region.getStringSync("draft"));
+            assertTrue(region.getStringSync("hot-a") != null);
+        } finally {
+            region.close();
+            deleteRecursively(dir);
+        }
+    }
+
+    private static String value(char c, int size) {
+        char[] chars = new char[size];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * 通过openRegion创建的真实区域回放访问记录，分别关闭和开启准入过滤，比较磁盘层命中率；
+     * 默认使用生成的访问记录（热点数据按Zipf分布访问，中间穿插只访问一次的扫描数据），准入过滤应使热点数据不被扫描数据挤出；
+     * 指定系统属性cache.admission.trace时回放录制的访问记录文件（每行一个key，可在空白后附加数据大小），只输出对比结果，
+     * 容量默认为100条数据的大小，可通过cache.admission.capacity（字节）调整
+     */
+    @Test
+    public void replayTraceBeatsLru() throws IOException {
+        String path = System.getProperty(TRACE_PROPERTY);
+        Trace trace = path != null && !path.isEmpty() ? Trace.read(new File(path)) : Trace.synthetic(50_000, 7);
+        long capacity = Long.getLong(CAPACITY_PROPERTY, (long) CAPACITY_ENTRIES * ENTRY_SIZE);
+        double lru = replay(trace, capacity, false);
+        double tinyLfu = replay(trace, capacity, true);
+        System.out.println("hit ratio (" + (path != null ? path : "synthetic") + ", " + trace.keys.length + " accesses): LRU " + format(lru)
+            + ", LRU + admission " + format(tinyLfu));
+        if (path == null || path.isEmpty()) {
+            assertTrue("admission " + tinyLfu + " <= lru " + lru, tinyLfu > lru);
+        }
+    }
+
+    /**
+     * 访问记录，keys与sizes一一对应
+     */
+    private static final class Trace {
+        final String[] keys;
+        final int[] sizes;
+
+        Trace(String[] keys, int[] sizes) {
+            this.keys = keys;
+            this.sizes = sizes;
+        }
+
+        /**
+         * 生成访问记录：一半是1000个热点key（Zipf分布），一半是不重复的key
+         */
+        static Trace synthetic(int length, long seed) {
+            int hotKeys = 1000;
+            double[] cumulative = new double[hotKeys];
+            double sum = 0;
+            for (int i = 0; i < hotKeys; i++) {
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+            Random random = new Random(seed);
+            String[] keys = new String[length];
+            int[] sizes = new int[length];
+            int next = hotKeys;
+            for (int i = 0; i < length; i++) {
+                int id;
+                if (random.nextBoolean()) {
+                    double target = random.nextDouble() * sum;
+                    int low = 0;
+                    int high = hotKeys - 1;
+                    while (low < high) {
+                        int middle = (low + high) >>> 1;
+                        if (cumulative[middle] < target) {
+                            low = middle + 1;
+                        } else {
+                            high = middle;
+                        }
+                    }
+                    id = low;
+                } else {
+                    id = next++;
+                }
+                keys[i] = "key-" + id;
+                sizes[i] = ENTRY_SIZE;
+            }
+            return new Trace(keys, sizes);
+        }
+
+        /**
+         * 读取录制的访问记录，空行和#开头的行忽略
+         */
+        static Trace read(File file) throws IOException {
+            List<String> keys = new ArrayList<>();
+            List<Integer> sizes = new ArrayList<>();
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\s+");
+                keys.add(parts[0]);
+                sizes.add(parts.length > 1 ? Integer.parseInt(parts[1]) : ENTRY_SIZE);
+            }
+            int[] sizeArray = new int[sizes.size()];
+            for (int i = 0; i < sizeArray.length; i++) {
+                sizeArray[i] = sizes.get(i);
+            }
+            return new Trace(keys.toArray(new String[0]), sizeArray);
+        }
+    }
+
+    /**
+     * 按业务代码的用法回放：每次访问先读取，命中计数，未命中时写入（开启准入过滤时可能被拒绝）；
+     * 不使用内存缓存，统计的是磁盘层的命中率
+     *
+     * @return 命中率
+     */
+    private static double replay(Trace trace, long capacity, boolean admissionEnabled) throws IOException {
+        File dir = Files.createTempDirectory("cache-admission").toFile();
+        LruCacheUtils region = LruCacheUtils.openRegion(new LruCacheUtils.RegionConfig.Builder("admission-replay-" + admissionEnabled)
+            .setDirectory(dir)
+            .setMaxSize(capacity)
+            .setMemoryCacheSize(0)
+            .setAdmissionEnabled(admissionEnabled)
+            .build());
+        Map<Integer, String> values = new HashMap<>();
+        int hits = 0;
+        try {
+            for (int i = 0; i < trace.keys.length; i++) {
+                String key = trace.keys[i];
+                if (region.getStringSync(key) != null) {
+                    hits++;
+                    continue;
+                }
+                int size = trace.sizes[i];
+                String value = values.get(size);
+                if (value == null) {
+                    char[] chars = new char[size];
+                    Arrays.fill(chars, 'v');
+                    value = new String(chars);
+                    values.put(size, value);
+                }
+                region.putStringSync(key, value);
+            }
+        } finally {
+            region.close();
+            deleteRecursively(dir);
+        }
+        return (double) hits / trace.keys.length;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String format(double ratio) {
+        return String.format("%.2f%%", ratio * 100);
+    }
+}
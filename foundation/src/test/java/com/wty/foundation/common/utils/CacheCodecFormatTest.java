@@ -0,0 +1,100 @@
+package com.wty.foundation.common.utils;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CacheCodecFormat版本头、压缩和过期时间的读写及损坏数据处理
+ */
+public class CacheCodecFormatTest {
+    private final GsonCacheCodec codec = new GsonCacheCodec(new Gson());
+
+    private static String repeated(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("value-").append(i % 10);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void roundTripUncompressed() throws IOException {
+        byte[] payload = codec.encode("short");
+        byte[] data = CacheCodecFormat.wrap(codec.getId(), payload, 0, 0);
+        assertTrue(CacheCodecFormat.hasHeader(data));
+        assertEquals(codec.getId(), CacheCodecFormat.codecId(data));
+        assertEquals(1, data[1]);
+        assertEquals(0, CacheCodecFormat.expireAt(data));
+        assertEquals(CacheCodecFormat.HEADER_SIZE + payload.length, data.length);
+        assertEquals("short", CacheCodecFormat.decode(codec, data, String.class));
+    }
+
+    @Test
+    public void roundTripCompressedWithExpire() throws IOException {
+        String value = repeated(2000);
+        byte[] payload = codec.encode(value);
+        long expireAt = 1_700_000_000_123L;
+        byte[] data = CacheCodecFormat.wrap(codec.getId(), payload, 1024, expireAt);
+        assertTrue(data.length < payload.length);
+        assertEquals(2, data[1]);
+        assertEquals(expireAt, CacheCodecFormat.expireAt(data));
+        assertEquals(value, CacheCodecFormat.decode(codec, data, String.class));
+    }
+
+    @Test
+    public void incompressibleDataStoredAsIs() throws IOException {
+        byte[] payload = new byte[4096];
+        new Random(1).nextBytes(payload);
+        byte[] data = CacheCodecFormat.wrap(codec.getId(), payload, 1024, 0);
+        assertEquals(CacheCodecFormat.HEADER_SIZE + payload.length, data.length);
+        assertArrayEquals(payload, Arrays.copyOfRange(data, CacheCodecFormat.HEADER_SIZE, data.length));
+    }
+
+    @Test
+    public void legacyJsonHasNoHeader() {
+        byte[] legacy = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        assertFalse(CacheCodecFormat.hasHeader(legacy));
+        assertEquals(0, CacheCodecFormat.expireAt(legacy));
+    }
+
+    @Test(expected = IOException.class)
+    public void newerVersionFails() throws IOException {
+        byte[] data = CacheCodecFormat.wrap(codec.getId(), codec.encode("v"), 0, 0);
+        data[1] = (byte) (CacheCodecFormat.VERSION + 1);
+        CacheCodecFormat.decode(codec, data, String.class);
+    }
+
+    @Test
+    public void truncatedCompressedDataFails() throws IOException {
+        byte[] data = CacheCodecFormat.wrap(codec.getId(), codec.encode(repeated(2000)), 1024, 42L);
+        // 截断到过期时间、原始长度或压缩数据中间
+        for (int length = CacheCodecFormat.HEADER_SIZE; length < data.length; length++) {
+            try {
+                CacheCodecFormat.decode(codec, Arrays.copyOf(data, length), String.class);
+                fail("truncated to " + length + " bytes should fail");
+            } catch (IOException expected) {
+                // 截断的数据必须报错
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedCompressedDataFails() throws IOException {
+        byte[] data = CacheCodecFormat.wrap(codec.getId(), codec.encode(repeated(2000)), 1024, 0);
+        // 破坏deflate数据块头
+        data[CacheCodecFormat.HEADER_SIZE + 4] = (byte) 0xFF;
+        CacheCodecFormat.decode(codec, data, String.class);
+    }
+}
@@ -0,0 +1,196 @@
+package com.wty.foundation.common.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MappedPreferences追加日志的读写、压缩重写、损坏恢复，以及写入失败时的回滚
+ */
+public class MappedPreferencesTest {
+    // 与MappedPreferences的文件格式一致
+    private static final int HEADER_SIZE = 16;
+    private static final int USED_OFFSET = 8;
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("mapped-prefs").toFile();
+        file = new File(dir, "prefs.kv");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                child.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void roundTripAllTypes() throws IOException {
+        MappedPreferences prefs = MappedPreferences.open(file);
+        assertTrue(prefs.edit()
+                .putString("string", "文本")
+                .putInt("int", Integer.MIN_VALUE)
+                .putLong("long", Long.MAX_VALUE)
+                .putFloat("float", 1.5f)
+                .putBoolean("boolean", true)
+                .putStringSet("set", new HashSet<>(Arrays.asList("a", "b")))
+                .commit());
+        prefs.close();
+
+        prefs = MappedPreferences.open(file);
+        assertEquals("文本", prefs.getString("string", null));
+        assertEquals(Integer.MIN_VALUE, prefs.getInt("int", 0));
+        assertEquals(Long.MAX_VALUE, prefs.getLong("long", 0));
+        assertEquals(1.5f, prefs.getFloat("float", 0), 0);
+        assertTrue(prefs.getBoolean("boolean", false));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), prefs.getStringSet("set", null));
+        prefs.close();
+        assertTrue(MappedPreferences.isValidFile(file));
+    }
+
+    @Test
+    public void removeAndClearArePersisted() throws IOException {
+        MappedPreferences prefs = MappedPreferences.open(file);
+        prefs.edit().putString("a", "1").putString("b", "2").commit();
+        prefs.edit().remove("a").commit();
+        prefs.close();
+        prefs = MappedPreferences.open(file);
+        assertFalse(prefs.contains("a"));
+        assertEquals("2", prefs.getString("b", null));
+
+        prefs.edit().clear().putString("c", "3").commit();
+        prefs.close();
+        prefs = MappedPreferences.open(file);
+        assertEquals(1, prefs.getAll().size());
+        assertEquals("3", prefs.getString("c", null));
+        prefs.close();
+    }
+
+    @Test
+    public void rewriteKeepsLatestValues() throws IOException {
+        MappedPreferences prefs = MappedPreferences.open(file);
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        // 反复覆盖同一批key，超出初始容量后触发压缩重写
+        for (int i = 0; i < 500; i++) {
+            assertTrue(prefs.edit().putString("key-" + (i % 10), value + i).commit());
+        }
+        prefs.close();
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        prefs = MappedPreferences.open(file);
+        assertEquals(10, prefs.getAll().size());
+        for (int i = 490; i < 500; i++) {
+            assertEquals(value + i, prefs.getString("key-" + (i % 10), null));
+        }
+        prefs.close();
+    }
+
+    @Test
+    public void corruptedTailIsDropped() throws IOException {
+        MappedPreferences prefs = MappedPreferences.open(file);
+        prefs.edit().putString("first", "1").commit();
+        prefs.edit().putString("second", "2").commit();
+        prefs.close();
+
+        // 破坏最后一条记录的内容，CRC校验失败
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int used = readInt(raf, USED_OFFSET);
+            raf.seek(used - 1);
+            int last = raf.read();
+            raf.seek(used - 1);
+            raf.write(last ^ 0xFF);
+        }
+        prefs = MappedPreferences.open(file);
+        assertEquals("1", prefs.getString("first", null));
+        assertFalse(prefs.contains("second"));
+        // 恢复后可以继续写入
+        assertTrue(prefs.edit().putString("third", "3").commit());
+        prefs.close();
+        prefs = MappedPreferences.open(file);
+        assertEquals("3", prefs.getString("third", null));
+        prefs.close();
+    }
+
+    @Test
+    public void damagedEndOffsetRecoversByChecksum() throws IOException {
+        MappedPreferences prefs = MappedPreferences.open(file);
+        prefs.edit().putString("a", "1").commit();
+        prefs.edit().putString("b", "2").commit();
+        prefs.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(USED_OFFSET);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+        prefs = MappedPreferences.open(file);
+        assertEquals("1", prefs.getString("a", null));
+        assertEquals("2", prefs.getString("b", null));
+        prefs.close();
+    }
+
+    @Test
+    public void invalidHeaderStartsEmpty() throws IOException {
+        Files.write(file.toPath(), new byte[HEADER_SIZE * 4]);
+        assertFalse(MappedPreferences.isValidFile(file));
+        MappedPreferences prefs = MappedPreferences.open(file);
+        assertTrue(prefs.getAll().isEmpty());
+        assertTrue(prefs.edit().putString("a", "1").commit());
+        prefs.close();
+        assertTrue(new File(file.getPath() + ".corrupt").exists());
+        assertTrue(MappedPreferences.isValidFile(file));
+    }
+
+    @Test
+    public void failedRewriteRollsBackAndKeepsStoreOpen() throws IOException {
+        MappedPreferences prefs = MappedPreferences.open(file);
+        assertTrue(prefs.edit().putString("small", "1").commit());
+        // 临时文件路径被非空目录占用，压缩重写无法创建临时文件
+        File temp = new File(file.getPath() + ".tmp");
+        File blocker = new File(temp, "blocker");
+        assertTrue(temp.mkdir());
+        assertTrue(blocker.createNewFile());
+        char[] chars = new char[128 * 1024];
+        Arrays.fill(chars, 'y');
+        assertFalse(prefs.edit().putString("large", new String(chars)).putString("small", "2").commit());
+        // 写入失败的修改不生效
+        assertNull(prefs.getString("large", null));
+        assertEquals("1", prefs.getString("small", null));
+        // 原来的映射仍可使用
+        assertTrue(prefs.edit().putString("after", "3").commit());
+        assertTrue(blocker.delete() && temp.delete());
+        prefs.close();
+
+        prefs = MappedPreferences.open(file);
+        assertNull(prefs.getString("large", null));
+        assertEquals("1", prefs.getString("small", null));
+        assertEquals("3", prefs.getString("after", null));
+        prefs.close();
+    }
+
+    private static int readInt(RandomAccessFile raf, int position) throws IOException {
+        raf.seek(position);
+        return raf.readInt();
+    }
+}
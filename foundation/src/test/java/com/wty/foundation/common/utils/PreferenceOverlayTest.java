@@ -0,0 +1,286 @@
+package com.wty.foundation.common.utils;
+
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PreferenceOverlay事务暂存：事务内读到自己的写入、一次提交、回滚丢弃，以及1000个key的事务耗时对比
+ */
+public class PreferenceOverlayTest {
+    private static final int EXISTING_KEYS = 5000;
+    private static final int TRANSACTION_KEYS = 1000;
+
+    @Test
+    public void readsOwnWritesWithoutTouchingBase() {
+        MemoryPreferences base = new MemoryPreferences();
+        base.values.put("kept", "base");
+        base.values.put("removed", 1);
+        PreferenceOverlay overlay = new PreferenceOverlay(base);
+        overlay.putString("added", "staged").putInt("count", 3).remove("removed");
+
+        assertEquals("staged", overlay.getString("added", null));
+        assertEquals(3, overlay.getInt("count", 0));
+        assertEquals("base", overlay.getString("kept", null));
+        assertFalse(overlay.contains("removed"));
+        assertEquals(-1, overlay.getInt("removed", -1));
+        assertEquals(3, overlay.getAll().size());
+        // 提交前底层数据不变
+        assertFalse(base.values.containsKey("added"));
+        assertTrue(base.values.containsKey("removed"));
+        assertEquals(0, base.commits);
+    }
+
+    @Test
+    public void clearHidesBaseUntilRewritten() {
+        MemoryPreferences base = new MemoryPreferences();
+        base.values.put("a", "1");
+        base.values.put("b", "2");
+        PreferenceOverlay overlay = new PreferenceOverlay(base);
+        overlay.clear().putString("b", "3");
+
+        assertNull(overlay.getString("a", null));
+        assertEquals("3", overlay.getString("b", null));
+        assertEquals(Collections.singletonMap("b", "3"), overlay.getAll());
+
+        SharedPreferences.Editor editor = base.edit();
+        overlay.flushTo(editor);
+        editor.commit();
+        assertEquals(Collections.singletonMap("b", "3"), base.values);
+    }
+
+    @Test
+    public void stagedSetIsCopied() {
+        PreferenceOverlay overlay = new PreferenceOverlay(new MemoryPreferences());
+        Set<String> values = new HashSet<>(Collections.singleton("x"));
+        overlay.putStringSet("set", values);
+        values.add("y");
+        assertEquals(Collections.singleton("x"), overlay.getStringSet("set", null));
+    }
+
+    @Test
+    public void discardingOverlayRollsBack() {
+        MemoryPreferences base = new MemoryPreferences();
+        base.values.put("key", "old");
+        PreferenceOverlay overlay = new PreferenceOverlay(base);
+        overlay.putString("key", "new");
+        assertEquals(1, overlay.size());
+        // 回滚即丢弃暂存层，不写入底层
+        assertEquals("old", base.getString("key", null));
+        assertEquals(0, base.commits);
+    }
+
+    /**
+     * 1000个key的事务：暂存层一次提交，对比原来每次操作先getAll()保存原值、再逐条写入的方式
+     */
+    @Test
+    public void thousandKeyTransaction() {
+        // 预热
+        runOverlay(seeded());
+        runGetAllSnapshot(seeded());
+
+        MemoryPreferences overlayBase = seeded();
+        long start = System.nanoTime();
+        runOverlay(overlayBase);
+        long overlayNanos = System.nanoTime() - start;
+
+        MemoryPreferences snapshotBase = seeded();
+        start = System.nanoTime();
+        runGetAllSnapshot(snapshotBase);
+        long snapshotNanos = System.nanoTime() - start;
+
+        assertEquals(1, overlayBase.commits);
+        assertEquals(snapshotBase.values, overlayBase.values);
+        assertEquals(EXISTING_KEYS + TRANSACTION_KEYS / 2, overlayBase.values.size());
+        System.out.println(TRANSACTION_KEYS + "-key transaction over " + EXISTING_KEYS + " entries: PreferenceOverlay "
+                + overlayNanos / 1000 + "us (1 commit), getAll() snapshot " + snapshotNanos / 1000 + "us ("
+                + snapshotBase.commits + " commits)");
+    }
+
+    private static MemoryPreferences seeded() {
+        MemoryPreferences base = new MemoryPreferences();
+        for (int i = 0; i < EXISTING_KEYS; i++) {
+            base.values.put("existing-" + i, "value-" + i);
+        }
+        return base;
+    }
+
+    /**
+     * 一半修改已有的key，一半新增
+     */
+    private static void runOverlay(MemoryPreferences base) {
+        PreferenceOverlay overlay = new PreferenceOverlay(base);
+        for (int i = 0; i < TRANSACTION_KEYS; i++) {
+            String key = i % 2 == 0 ? "existing-" + i : "new-" + i;
+            overlay.putString(key, "updated-" + i);
+            assertEquals("updated-" + i, overlay.getString(key, null));
+        }
+        SharedPreferences.Editor editor = base.edit();
+        overlay.flushTo(editor);
+        editor.commit();
+    }
+
+    private static void runGetAllSnapshot(MemoryPreferences base) {
+        Map<String, Object> originals = new HashMap<>();
+        for (int i = 0; i < TRANSACTION_KEYS; i++) {
+            String key = i % 2 == 0 ? "existing-" + i : "new-" + i;
+            originals.put(key, base.getAll().get(key));
+            base.edit().putString(key, "updated-" + i).commit();
+            assertEquals("updated-" + i, base.getString(key, null));
+        }
+        assertEquals(TRANSACTION_KEYS, originals.size());
+    }
+
+    /**
+     * 内存中的SharedPreferences，getAll()与系统实现一样返回副本，记录提交次数
+     */
+    private static final class MemoryPreferences implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+        int commits;
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            Object value = values.get(key);
+            return value != null ? (String) value : defValue;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            Object value = values.get(key);
+            return value != null ? (Set<String>) value : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            Object value = values.get(key);
+            return value != null ? (Integer) value : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            Object value = values.get(key);
+            return value != null ? (Long) value : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            Object value = values.get(key);
+            return value != null ? (Float) value : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            Object value = values.get(key);
+            return value != null ? (Boolean) value : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new MemoryEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private final class MemoryEditor implements Editor {
+            private final Map<String, Object> changes = new HashMap<>();
+            private boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                if (clear) {
+                    values.clear();
+                }
+                for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                    if (entry.getValue() == null) {
+                        values.remove(entry.getKey());
+                    } else {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                commits++;
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.wty.foundation.core.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.wty.foundation.core.exception.OfflineQueuedException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Invocation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 队列中还有未发送的请求时，新请求排在其后发送
+ */
+public class OutboxInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json; charset=UTF-8");
+
+    interface Api {
+        @OfflineQueue
+        void submit();
+    }
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("outbox").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                child.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static Request request(String path) throws NoSuchMethodException {
+        Invocation invocation = Invocation.of(Api.class.getMethod("submit"), Collections.emptyList());
+        return new Request.Builder().url("https://example.com/" + path)
+            .post(RequestBody.create("{\"value\":\"" + path + "\"}", JSON)).tag(Invocation.class, invocation).build();
+    }
+
+    @Test
+    public void newRequestIsSentAfterBacklog() throws Exception {
+        Outbox outbox = new Outbox(dir, 3);
+        // 无网络时加入队列的请求
+        outbox.enqueue(request("a"));
+        outbox.enqueue(request("b"));
+
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new OutboxInterceptor(outbox)).addInterceptor(chain -> {
+            sent.add(chain.request().url().encodedPath());
+            return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                .body(ResponseBody.create("{\"rtnCode\":0}", JSON)).build();
+        }).build();
+
+        // 网络已恢复但队列还未发送完，新请求不能先到达服务端
+        try {
+            client.newCall(request("c")).execute();
+            fail("request should be queued behind the backlog");
+        } catch (OfflineQueuedException expected) {
+            // 加入队列排在a、b之后
+        }
+        assertTrue(sent.isEmpty());
+        assertEquals(3, outbox.size());
+
+        CountDownLatch replayed = new CountDownLatch(3);
+        outbox.setListener(new Outbox.OutboxListener() {
+            @Override
+            public void onReplayed(@NonNull String entryId, int code, @Nullable String body) {
+                replayed.countDown();
+            }
+        });
+        outbox.attach(client, null);
+        assertTrue(replayed.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("/a", "/b", "/c"), sent);
+        assertEquals(0, outbox.size());
+
+        // 队列为空时直接发送
+        try (Response response = client.newCall(request("d")).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(Arrays.asList("/a", "/b", "/c", "/d"), sent);
+    }
+
+    @Test
+    public void lowercaseIdempotencyKeyIsSentOnce() throws Exception {
+        Outbox outbox = new Outbox(dir, 3);
+        Request request = request("a").newBuilder().header("idempotency-key", "k1").build();
+        assertEquals("k1", outbox.enqueue(request));
+
+        List<List<String>> keys = Collections.synchronizedList(new ArrayList<>());
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(chain -> {
+            keys.add(chain.request().headers("Idempotency-Key"));
+            return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                .body(ResponseBody.create("{\"rtnCode\":0}", JSON)).build();
+        }).build();
+
+        CountDownLatch replayed = new CountDownLatch(1);
+        outbox.setListener(new Outbox.OutboxListener() {
+            @Override
+            public void onReplayed(@NonNull String entryId, int code, @Nullable String body) {
+                replayed.countDown();
+            }
+        });
+        outbox.attach(client, null);
+        assertTrue(replayed.await(5, TimeUnit.SECONDS));
+        // 名称大小写不同也只发送一个幂等键
+        assertEquals(Collections.singletonList(Collections.singletonList("k1")), keys);
+    }
+}
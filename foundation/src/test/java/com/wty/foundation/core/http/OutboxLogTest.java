@@ -0,0 +1,262 @@
+package com.wty.foundation.core.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 离线队列日志文件的读写、重写，以及损坏记录、无法解析的记录和超长记录的处理
+ */
+public class OutboxLogTest {
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("outbox").toFile();
+        file = new File(dir, "outbox.log");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                child.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static OutboxLog.Entry entry(String id, byte[] body) {
+        OutboxLog.Entry entry = new OutboxLog.Entry();
+        entry.id = id;
+        entry.createdAt = 1000L;
+        entry.method = "POST";
+        entry.url = "https://example.com/api/" + id;
+        entry.headers = new ArrayList<>(Arrays.asList("Idempotency-Key", id, "X-Scanner", "A1"));
+        entry.contentType = "application/json; charset=UTF-8";
+        entry.body = body;
+        return entry;
+    }
+
+    private static byte[] json(String value) {
+        return ("{\"value\":\"" + value + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        OutboxLog log = new OutboxLog(file);
+        assertTrue(log.load().isEmpty());
+        log.appendEnqueue(entry("a", json("a")));
+        log.appendEnqueue(entry("b", null));
+        OutboxLog.Entry c = entry("c", new byte[0]);
+        log.appendEnqueue(c);
+        c.attempts = 2;
+        c.nextAttemptAt = 5000L;
+        log.appendAttempt(c);
+        log.appendRemove("a");
+        log.close();
+
+        log = new OutboxLog(file);
+        LinkedHashMap<String, OutboxLog.Entry> entries = log.load();
+        log.close();
+        assertEquals(Arrays.asList("b", "c"), new ArrayList<>(entries.keySet()));
+        OutboxLog.Entry b = entries.get("b");
+        assertEquals("POST", b.method);
+        assertEquals("https://example.com/api/b", b.url);
+        assertEquals(Arrays.asList("Idempotency-Key", "b", "X-Scanner", "A1"), b.headers);
+        assertEquals("application/json; charset=UTF-8", b.contentType);
+        assertNull(b.body);
+        assertEquals(0, b.attempts);
+        OutboxLog.Entry loaded = entries.get("c");
+        assertArrayEquals(new byte[0], loaded.body);
+        assertEquals(2, loaded.attempts);
+        assertEquals(5000L, loaded.nextAttemptAt);
+        // 入队a、尝试c、删除a均已无效
+        assertEquals(3, log.getGarbage());
+    }
+
+    @Test
+    public void longFieldsAndNullContentTypeRoundTrip() throws IOException {
+        char[] chars = new char[70 * 1024];
+        Arrays.fill(chars, '值');
+        String longValue = new String(chars);
+        OutboxLog.Entry entry = entry("long", json("a"));
+        // 超过writeUTF的64KB限制
+        entry.url = "https://example.com/api?q=" + longValue;
+        entry.headers = new ArrayList<>(Arrays.asList("X-Long", longValue));
+        entry.contentType = null;
+        OutboxLog log = new OutboxLog(file);
+        log.load();
+        log.appendEnqueue(entry);
+        log.close();
+
+        log = new OutboxLog(file);
+        OutboxLog.Entry loaded = log.load().get("long");
+        log.close();
+        assertEquals(entry.url, loaded.url);
+        assertEquals(Arrays.asList("X-Long", longValue), loaded.headers);
+        assertNull(loaded.contentType);
+    }
+
+    @Test
+    public void malformedRecordIsSkipped() throws IOException {
+        OutboxLog log = new OutboxLog(file);
+        log.load();
+        log.appendEnqueue(entry("a", json("a")));
+        log.close();
+        // 校验通过但内容不完整的入队记录：只有类型和id
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeInt(3);
+        out.write("bad".getBytes(StandardCharsets.UTF_8));
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try (DataOutputStream raw = new DataOutputStream(new FileOutputStream(file, true))) {
+            raw.writeInt(payload.length);
+            raw.write(payload);
+            raw.writeLong(crc.getValue());
+        }
+        long length = file.length();
+        log = new OutboxLog(file);
+        log.load();
+        log.appendEnqueue(entry("b", json("b")));
+        log.close();
+
+        log = new OutboxLog(file);
+        LinkedHashMap<String, OutboxLog.Entry> entries = log.load();
+        // 损坏的记录不截断文件，前后的记录都保留，并计入无效记录在重写时丢弃
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(entries.keySet()));
+        assertTrue(file.length() > length);
+        assertEquals(1, log.getGarbage());
+        log.compact(entries.values());
+        log.close();
+
+        log = new OutboxLog(file);
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(log.load().keySet()));
+        assertEquals(0, log.getGarbage());
+        log.close();
+    }
+
+    @Test
+    public void compactKeepsPendingEntries() throws IOException {
+        OutboxLog log = new OutboxLog(file);
+        log.load();
+        for (int i = 0; i < 10; i++) {
+            log.appendEnqueue(entry("id-" + i, json("v" + i)));
+        }
+        for (int i = 0; i < 9; i++) {
+            log.appendRemove("id-" + i);
+        }
+        long before = file.length();
+        OutboxLog.Entry last = entry("id-9", json("v9"));
+        last.attempts = 1;
+        last.nextAttemptAt = 42L;
+        log.compact(Arrays.asList(last));
+        assertEquals(0, log.getGarbage());
+        assertTrue(file.length() < before);
+        // 重写后继续追加
+        log.appendEnqueue(entry("id-10", json("v10")));
+        log.close();
+
+        log = new OutboxLog(file);
+        LinkedHashMap<String, OutboxLog.Entry> entries = log.load();
+        log.close();
+        assertEquals(Arrays.asList("id-9", "id-10"), new ArrayList<>(entries.keySet()));
+        assertEquals(1, entries.get("id-9").attempts);
+        assertEquals(42L, entries.get("id-9").nextAttemptAt);
+    }
+
+    @Test
+    public void partialTailIsTruncated() throws IOException {
+        OutboxLog log = new OutboxLog(file);
+        log.load();
+        log.appendEnqueue(entry("a", json("a")));
+        log.close();
+        long valid = file.length();
+        // 模拟写入一半时崩溃
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0, 100, 1, 2, 3});
+        }
+
+        log = new OutboxLog(file);
+        assertEquals(1, log.load().size());
+        assertEquals(valid, file.length());
+        log.appendEnqueue(entry("b", json("b")));
+        log.close();
+
+        log = new OutboxLog(file);
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(log.load().keySet()));
+        log.close();
+    }
+
+    @Test
+    public void checksumMismatchDropsRecordAndRest() throws IOException {
+        OutboxLog log = new OutboxLog(file);
+        log.load();
+        log.appendEnqueue(entry("a", json("a")));
+        long firstEnd = file.length();
+        log.appendEnqueue(entry("b", json("b")));
+        log.appendEnqueue(entry("c", json("c")));
+        log.close();
+
+        // 破坏第二条记录的内容
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(firstEnd + 10);
+            int value = raf.read();
+            raf.seek(firstEnd + 10);
+            raf.write(value ^ 0xFF);
+        }
+        log = new OutboxLog(file);
+        assertEquals(Arrays.asList("a"), new ArrayList<>(log.load().keySet()));
+        log.close();
+        assertEquals(firstEnd, file.length());
+    }
+
+    @Test
+    public void oversizedRecordIsRejectedWithoutWriting() throws IOException {
+        OutboxLog log = new OutboxLog(file);
+        log.load();
+        log.appendEnqueue(entry("a", json("a")));
+        long length = file.length();
+        try {
+            log.appendEnqueue(entry("big", new byte[16 * 1024 * 1024]));
+            fail("record over the maximum size should be rejected");
+        } catch (IOException expected) {
+            // 超长记录不写入，避免加载时被当作损坏截断后续记录
+        }
+        assertEquals(length, file.length());
+        // 请求体上限以内的记录可以写入并读回
+        log.appendEnqueue(entry("max", new byte[OutboxLog.MAX_BODY_SIZE]));
+        log.appendEnqueue(entry("b", json("b")));
+        log.close();
+
+        log = new OutboxLog(file);
+        LinkedHashMap<String, OutboxLog.Entry> entries = log.load();
+        log.close();
+        assertEquals(Arrays.asList("a", "max", "b"), new ArrayList<>(entries.keySet()));
+        assertEquals(OutboxLog.MAX_BODY_SIZE, entries.get("max").body.length);
+    }
+}